@@ -1,15 +1,92 @@
 package alignment;
 
+import group.FASTASequence;
+import group.Group;
+import gui.MarinaGUI;
 import gui.OperationUpdater;
 
+import java.io.File;
 import java.io.IOException;
 
+import parameter.ParameterMap;
+
 public abstract class AbstractAlignment extends OperationUpdater {
-	// perform PWM mapping on both forward and reverse strands
-	public abstract void forwardStrandAlign() throws IOException;
-	public abstract void reverseStrandAlign() throws IOException;
+	// perform mapping of a single sequence on forward and reverse strands
+	public abstract void forwardStrandAlign(FASTASequence seq) throws IOException;
+	public abstract void reverseStrandAlign(FASTASequence seq) throws IOException;
+	// mapping of both strands in one pass, without modifying the sequence
+	public abstract void dualStrandAlign(FASTASequence seq) throws IOException;
 	private String name; // long-name to help ID alignment mode.
-	
+
+	/**
+	 * Get the groups whose sequences are to be aligned; the query and
+	 * baseline groups, respectively.
+	 * @return array of Group objects.
+	 * */
+	public static Group[] getGroups() {
+		ParameterMap param = MarinaGUI.get().parameterMap(); // get options
+		return new Group[]{param.getQuery(), param.getBaseline()};
+	}
+
+	/**
+	 * Gets the directory in which indices of groups are saved, so that they
+	 * can be re-used across runs.
+	 * @return directory within the user's home directory.
+	 * */
+	public static File getIndexDirectory() {
+		return new File(System.getProperty("user.home"), ".marina" +
+				File.separator + "index");
+	}
+
+	/**
+	 * Perform forward-strand mapping across all sequences of all groups.
+	 * @throws IOException
+	 * */
+	public void forwardStrandAlign() throws IOException {
+		for (Group group: AbstractAlignment.getGroups()) { // for each group ...
+			for (int j = 0; j < group.getSize(); j++) { // for each sequence
+				FASTASequence seq = group.getParser().getSequences().get(j);
+				this.forwardStrandAlign(seq);
+				this.updateGUI("Forward strand - " + this.getName() + " - " +
+						seq.getHeader());
+				this.updateGUI(j, group.getSize()); // update progress-bar
+			}
+		}
+	}
+
+	/**
+	 * Perform reverse-strand mapping across all sequences of all groups.
+	 * @throws IOException
+	 * */
+	public void reverseStrandAlign() throws IOException {
+		for (Group group: AbstractAlignment.getGroups()) { // for each group ...
+			for (int j = 0; j < group.getSize(); j++) { // for each sequence
+				FASTASequence seq = group.getParser().getSequences().get(j);
+				this.reverseStrandAlign(seq);
+				this.updateGUI("Reverse strand - " + this.getName() + " - " +
+						seq.getHeader());
+				this.updateGUI(j, group.getSize()); // update progress-bar
+			}
+		}
+	}
+
+	/**
+	 * Perform mapping of both strands, in a single pass, across all
+	 * sequences of all groups.
+	 * @throws IOException
+	 * */
+	public void dualStrandAlign() throws IOException {
+		for (Group group: AbstractAlignment.getGroups()) { // for each group ...
+			for (int j = 0; j < group.getSize(); j++) { // for each sequence
+				FASTASequence seq = group.getParser().getSequences().get(j);
+				this.dualStrandAlign(seq);
+				this.updateGUI("Both strands - " + this.getName() + " - " +
+						seq.getHeader());
+				this.updateGUI(j, group.getSize()); // update progress-bar
+			}
+		}
+	}
+
 	/**
 	 * @return the alignment name
 	 */
@@ -0,0 +1,249 @@
+package alignment;
+
+import group.FASTASequence;
+import group.PackedDNA;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import bindingsite.LinearDNAMotif;
+
+
+/**
+ * Rabin-Karp aligns one DNA motif at a time, hence each sequence is scanned
+ * once per motif. Using the Aho-Corasick algorithm, every motif in the
+ * catalog is instead compiled into a single automaton; each sequence is
+ * then scanned only once regardless of how many motifs the catalog has.
+ * <p>
+ * The automaton is built over the DNA alphabet. Motifs containing
+ * characters outside this alphabet are still aligned, albeit using
+ * Rabin-Karp, so that mappings are identical to those of Rabin-Karp. Each
+ * state's transitions are resolved when compiled, by following failure
+ * links, so that scanning takes exactly one transition per base.
+ * @author Parsa Hosseini
+ * */
+public class AhoCorasick {
+	private static final int ALPHABET = 4; // A, C, G and T.
+	private List<LinearDNAMotif> motifs; // the compiled catalog.
+	private boolean dualStrand; // whether reverse compliments are compiled.
+	private boolean[] compiled; // whether a motif is part of the automaton.
+	private int[] transitions; // state * ALPHABET + base references next state
+	private int[] firstMotif; // first motif which ends at a state; else -1.
+	private int[] nextMotif; // next pattern ending at the same state; else -1.
+	private int[] outputLink; // closest suffix-state where a motif ends.
+	private int[] lengths; // length of each pattern.
+	private int longest; // length of the longest compiled motif.
+
+	public AhoCorasick(List<LinearDNAMotif> motifs) {
+		this(motifs, false);
+	}
+
+	/**
+	 * Create an automaton whose patterns are the catalog motifs and, if
+	 * dual-strand, their reverse compliments. Pattern m + n references the
+	 * reverse compliment of motif m, given n motifs.
+	 * @param motifs catalog of motifs.
+	 * @param dualStrand whether to compile reverse compliments.
+	 * */
+	public AhoCorasick(List<LinearDNAMotif> motifs, boolean dualStrand) {
+		this.setMotifs(motifs);
+		this.setDualStrand(dualStrand);
+		this.compile();
+	}
+
+	/**
+	 * Get the sequence of a pattern; either a motif or its reverse
+	 * compliment.
+	 * @param p index of the pattern.
+	 * @return pattern sequence.
+	 * */
+	private String getPattern(int p) {
+		int numMotifs = this.getMotifs().size();
+		if (p < numMotifs) {
+			return this.getMotifs().get(p).getSequence();
+		}
+		return this.getMotifs().get(p - numMotifs).toReverseComplement();
+	}
+
+	/**
+	 * Builds the automaton given the catalog of motifs. Firstly, all motifs
+	 * are inserted into a trie. Secondly, the trie is traversed in
+	 * breadth-first order so that failure-links can be derived and folded
+	 * into the transition table; yielding a deterministic automaton.
+	 * */
+	private void compile() {
+		int numMotifs = this.getMotifs().size();
+		int numPatterns = this.isDualStrand() ? numMotifs * 2 : numMotifs;
+		int capacity = 1;
+		this.compiled = new boolean[numMotifs];
+		this.lengths = new int[numPatterns];
+		for (int m = 0; m < numMotifs; m++) {
+			String seq = this.getMotifs().get(m).getSequence();
+			boolean isDNA = seq.length() > 0;
+			for (int i = 0; i < seq.length() && isDNA; i++) {
+				isDNA = PackedDNA.encode(seq.charAt(i)) != -1;
+			}
+			if (isDNA) { // motifs with foreign characters use Rabin-Karp
+				this.compiled[m] = true;
+				capacity += seq.length() * (this.isDualStrand() ? 2 : 1);
+			}
+		}
+		this.transitions = new int[capacity * ALPHABET];
+		this.firstMotif = new int[capacity];
+		this.outputLink = new int[capacity];
+		this.nextMotif = new int[numPatterns];
+		Arrays.fill(this.transitions, -1);
+		Arrays.fill(this.firstMotif, -1);
+		Arrays.fill(this.nextMotif, -1);
+		int numStates = 1; // the root state is state 0.
+		for (int m = numPatterns - 1; m >= 0; m--) { // keep catalog order
+			if (this.compiled[m % numMotifs]) {
+				String seq = this.getPattern(m);
+				this.lengths[m] = seq.length();
+				int state = 0;
+				for (int i = 0; i < seq.length(); i++) {
+					int edge = state * ALPHABET + PackedDNA.encode(seq.charAt(i));
+					if (this.transitions[edge] == -1) {
+						this.transitions[edge] = numStates++;
+					}
+					state = this.transitions[edge];
+				}
+				this.nextMotif[m] = this.firstMotif[state];
+				this.firstMotif[state] = m;
+				this.longest = Math.max(this.longest, seq.length());
+			}
+		}
+		// breadth-first traversal to derive failure and output links.
+		int[] failure = new int[numStates];
+		int[] queue = new int[numStates];
+		int head = 0, tail = 0;
+		for (int b = 0; b < ALPHABET; b++) {
+			int child = this.transitions[b];
+			if (child == -1) {
+				this.transitions[b] = 0;
+			}
+			else {
+				failure[child] = 0;
+				queue[tail++] = child;
+			}
+		}
+		while (head < tail) {
+			int state = queue[head++];
+			int fail = failure[state];
+			this.outputLink[state] = this.firstMotif[fail] != -1 ? fail :
+				this.outputLink[fail];
+			for (int b = 0; b < ALPHABET; b++) {
+				int edge = state * ALPHABET + b;
+				int child = this.transitions[edge];
+				if (child == -1) { // fold failure-link into transitions
+					this.transitions[edge] = this.transitions[fail * ALPHABET + b];
+				}
+				else {
+					failure[child] = this.transitions[fail * ALPHABET + b];
+					queue[tail++] = child;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Aligns every motif in the catalog onto the FASTASequence using a
+	 * single pass of the automaton. Mappings are saved per motif in catalog
+	 * order, hence the resultant mappings equal those of Rabin-Karp.
+	 * @throws IOException
+	 * */
+	public void align(FASTASequence seq) throws IOException {
+		this.align(seq, false);
+	}
+
+	/**
+	 * Aligns every motif in the catalog onto both strands of the
+	 * FASTASequence using a single pass of the automaton. Reverse-strand
+	 * mappings are saved in forward-strand coordinates.
+	 * @throws IOException
+	 * */
+	public void alignBothStrands(FASTASequence seq) throws IOException {
+		if (!this.isDualStrand()) {
+			throw new IOException("Automaton lacks reverse-strand motifs");
+		}
+		this.align(seq, true);
+	}
+
+	/**
+	 * Scans the sequence once, collecting hits of all compiled patterns.
+	 * Reverse compliment patterns are only saved if both strands are
+	 * desired.
+	 * @throws IOException
+	 * */
+	private void align(FASTASequence seq, boolean bothStrands) 
+			throws IOException {
+		PackedDNA packed = seq.getPacked(); // read packed bases directly
+		CharSequence sequence = packed == null ? seq.getBases() : null;
+		int seqLen = seq.getLength();
+		if (this.longest > seqLen)  {
+			throw new IOException("DNA motifs cannot be larger than FASTA");
+		}
+		int numMotifs = this.getMotifs().size();
+		MotifHits hits = new MotifHits(numMotifs);
+		int state = 0;
+		int nextForeign = packed == null ? seqLen : packed.nextAmbiguous(0);
+		for (int i = 0; i < seqLen; i++) {
+			int base;
+			if (packed == null) {
+				base = PackedDNA.encode(sequence.charAt(i));
+			}
+			else if (i == nextForeign) {
+				base = -1;
+				nextForeign = packed.nextAmbiguous(i + 1);
+			}
+			else {
+				base = packed.getCode(i);
+			}
+			if (base == -1) { // no compiled motif spans a foreign base
+				state = 0;
+				continue;
+			}
+			state = this.transitions[state * ALPHABET + base];
+			int out = this.firstMotif[state] != -1 ? state : this.outputLink[state];
+			while (out != 0) {
+				for (int m = this.firstMotif[out]; m != -1; m = this.nextMotif[m]) {
+					if (m >= numMotifs && !bothStrands) {
+						continue; // forward-strand only
+					}
+					hits.add(m, i - this.lengths[m] + 1);
+				}
+				out = this.outputLink[out];
+			}
+		}
+		hits.save(seq, this.getMotifs(), this.compiled, bothStrands);
+	}
+
+	/**
+	 * @return the motifs
+	 */
+	private List<LinearDNAMotif> getMotifs() {
+		return motifs;
+	}
+
+	/**
+	 * @param motifs the motifs to set
+	 */
+	private void setMotifs(List<LinearDNAMotif> motifs) {
+		this.motifs = motifs;
+	}
+
+	/**
+	 * @return whether reverse compliments are compiled
+	 */
+	public boolean isDualStrand() {
+		return dualStrand;
+	}
+
+	/**
+	 * @param dualStrand whether reverse compliments are compiled
+	 */
+	private void setDualStrand(boolean dualStrand) {
+		this.dualStrand = dualStrand;
+	}
+}
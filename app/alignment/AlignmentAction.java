@@ -1,6 +1,14 @@
 package alignment;
 
+import group.FASTASequence;
+import group.Group;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 import parameter.ParameterMap;
+import parameter.ParameterName;
 import gui.MarinaGUI;
 import javafx.concurrent.Task;
 
@@ -50,15 +58,76 @@ public final class AlignmentAction extends Task<Void> {
 
 	@Override
 	protected Void call() throws Exception {
+		boolean streamed = ParameterMap.toBoolean(ParameterName.STREAMING);
+		if (!streamed) { // groups are parsed, rather than streamed, at run
+			for (Group group: AbstractAlignment.getGroups()) {
+				if (group != null && !group.getParser().isParsed()) {
+					group.getParser().parse();
+				}
+			}
+		}
+		List<AbstractAlignment> alignments = new ArrayList<AbstractAlignment>();
 		if (isUsingMotifs()) {
-			ExhaustiveMotifAlignment motifAlign = new ExhaustiveMotifAlignment();
-			motifAlign.forwardStrandAlign();
-			motifAlign.reverseStrandAlign();
+			if (ParameterMap.toInteger(ParameterName.EDIT_DISTANCE) > 0) {
+				alignments.add(new ApproximateMotifAlignment()); // inexact
+			}
+			else {
+				alignments.add(new ExhaustiveMotifAlignment());
+			}
 		}
 		if (isUsingPWMs()) {
-			ExhaustivePWMAlignment pwmAlign = new ExhaustivePWMAlignment();
-			pwmAlign.forwardStrandAlign();
-			pwmAlign.reverseStrandAlign();
+			alignments.add(new ExhaustivePWMAlignment());
+		}
+		int workers = ParameterMap.toInteger(ParameterName.WORKERS);
+		boolean dualStrand = ParameterMap.toBoolean(ParameterName.DUAL_STRAND);
+		boolean countsOnly = ParameterMap.toBoolean(ParameterName.COUNTS_ONLY);
+		boolean offHeap = ParameterMap.toBoolean(ParameterName.OFF_HEAP);
+		if (streamed) { // fixed heap
+			StreamingAlignment streaming = new StreamingAlignment(alignments,
+					workers, dualStrand);
+			streaming.setCountsOnly(countsOnly);
+			streaming.setOffHeap(offHeap);
+			streaming.align(AbstractAlignment.getGroups());
+		}
+		else if (workers > 1 && alignments.size() > 0) { // align across a pool
+			ParallelAlignment parallel = new ParallelAlignment(alignments, 
+					workers, dualStrand);
+			parallel.setCountsOnly(countsOnly);
+			parallel.setOffHeap(offHeap);
+			parallel.align(AbstractAlignment.getGroups());
+		}
+		else {
+			for (Group group: AbstractAlignment.getGroups()) {
+				for (FASTASequence seq: group.getParser().getSequences()) {
+					if (countsOnly) { // mappings are counted rather than retained
+						seq.getStore().countOnly();
+					}
+					else if (offHeap) { // mappings are retained as records
+						seq.getStore().moveOffHeap();
+					}
+				}
+				group.startCounting(); // totals are kept as mappings are saved
+			}
+			try {
+				if (dualStrand) { // both strands in one pass
+					for (AbstractAlignment alignment: alignments) {
+						alignment.dualStrandAlign();
+					}
+				}
+				else {
+					for (AbstractAlignment alignment: alignments) {
+						alignment.forwardStrandAlign();
+						alignment.reverseStrandAlign();
+					}
+				}
+			} catch (RuntimeException e) { // loading errors are wrapped
+				for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+					if (t instanceof IOException) {
+						throw (IOException)t;
+					}
+				}
+				throw e;
+			}
 		} // return nothing since Group objects are global.
 		return null;
 	}
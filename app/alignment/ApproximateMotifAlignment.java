@@ -0,0 +1,74 @@
+package alignment;
+
+import group.FASTASequence;
+import gui.MarinaGUI;
+
+import java.io.IOException;
+
+import parameter.ParameterMap;
+import parameter.ParameterName;
+import parser.DNAMotifParser;
+
+
+/**
+ * Aligns the catalog of DNA motifs allowing edits, rather than only exact
+ * matches, using a Myers object. The most edits an alignment may have is
+ * the EDIT_DISTANCE parameter, and each mapping's distance is saved
+ * alongside its offset.
+ * @author Parsa Hosseini
+ * */
+public class ApproximateMotifAlignment extends AbstractAlignment {
+	private DNAMotifParser parser;
+	private Myers matcher; // bit-vector edit distance of every motif.
+
+	public ApproximateMotifAlignment() {
+		this.setParser(MarinaGUI.get().parameterMap().getMotifParser());
+		this.setMatcher(new Myers(this.getParser().getLinearMotifs(),
+				ParameterMap.toInteger(ParameterName.EDIT_DISTANCE)));
+		this.setName("Myers");
+	}
+
+	@Override
+	public void forwardStrandAlign(FASTASequence seq) throws IOException {
+		this.getMatcher().align(seq);
+	}
+
+	@Override
+	public void reverseStrandAlign(FASTASequence seq) throws IOException {
+		seq.reverseComplement();
+		this.getMatcher().align(seq);
+	}
+
+	@Override
+	public void dualStrandAlign(FASTASequence seq) throws IOException {
+		this.getMatcher().alignBothStrands(seq); // no reverse compliment
+	}
+
+	/**
+	 * @return the parser
+	 */
+	private DNAMotifParser getParser() {
+		return parser;
+	}
+
+	/**
+	 * @param parser the parser to set
+	 */
+	private void setParser(DNAMotifParser parser) {
+		this.parser = parser;
+	}
+
+	/**
+	 * @return the matcher
+	 */
+	private Myers getMatcher() {
+		return matcher;
+	}
+
+	/**
+	 * @param matcher the matcher to set
+	 */
+	private void setMatcher(Myers matcher) {
+		this.matcher = matcher;
+	}
+}
@@ -0,0 +1,281 @@
+package alignment;
+
+import group.PackedDNA;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import parameter.ParameterMap;
+import parameter.ParameterName;
+
+import bindingsite.PositionWeightMatrix;
+
+
+/**
+ * P-MATCH converts each window score into a probability, requiring the sum
+ * of all weights and the sum of column minimums; both walk the whole PWM.
+ * A CompiledPWM derives these constants once, and re-arranges the weights
+ * into a flat array indexed by column and base code.
+ * <p>
+ * The PWM cutoff is also converted into an equivalent raw-score threshold,
+ * hence scoring a window requires only additions and one comparison. Since
+ * floating-point rounding may differ between the two forms, the threshold
+ * is lowered marginally and the probability of any window exceeding it is
+ * verified using the P-MATCH equation. Mappings are therefore identical to
+ * those of P-MATCH.
+ * <p>
+ * Most windows can never pass the cutoff, hence windows are scored using
+ * branch-and-bound; columns are evaluated most-informative first, and a
+ * window is abandoned once the best score still reachable from the
+ * remaining columns falls below the threshold.
+ * @author Parsa Hosseini
+ * */
+public class CompiledPWM {
+	public static final int STRIDE = 5; // A, C, G, T and ambiguous codes.
+	private static final double EPSILON = 1e-9; // threshold rounding margin.
+	private PositionWeightMatrix pwm;
+	private int width; // number of PWM columns.
+	private double[] weights; // column * STRIDE + code.
+	private double[] complements; // weights of each complimented code.
+	private int[] order; // columns, most informative first.
+	private double[] ordered; // weights, evaluation-order * STRIDE + code.
+	private double[] orderedComplements; // complements, in evaluation-order.
+	private double[] bounds; // best score reachable from each order onward.
+	private double minimum; // sum of column minimums.
+	private double range; // sum of all weights, less the minimum.
+	private double cutoff; // minimum probability a window must have.
+	private double threshold; // minimum raw score a window must have.
+
+	public CompiledPWM(PositionWeightMatrix pwm) {
+		this(pwm, ParameterMap.toDouble(ParameterName.PWM_CUTOFF));
+	}
+
+	public CompiledPWM(PositionWeightMatrix pwm, double cutoff) {
+		this.setPWM(pwm);
+		this.setCutoff(cutoff);
+		this.compile();
+	}
+
+	/**
+	 * Re-arranges the PWM so that the weight of a base at a column is found
+	 * at index column * STRIDE + code. Ambiguous bases are given a weight of
+	 * zero since P-MATCH ignores them.
+	 * */
+	private void compile() {
+		this.width = this.getPWM().getWidth();
+		this.weights = new double[this.width * STRIDE];
+		this.complements = new double[this.width * STRIDE];
+		for (int code = 0; code < PackedDNA.BASES.length; code++) {
+			String base = String.valueOf(PackedDNA.BASES[code]);
+			int rowNum = this.getPWM().getRows().get(base);
+			for (int col = 0; col < this.width; col++) {
+				double weight = this.getPWM().getData()[rowNum][col];
+				this.weights[col * STRIDE + code] = weight;
+				this.complements[col * STRIDE + (code ^ 3)] = weight;
+			}
+		}
+		this.compileBounds();
+		this.minimum = this.getPWM().sumColumnMins();
+		this.range = this.getPWM().sum() - this.minimum;
+		double margin = EPSILON * (Math.abs(this.minimum) +
+				Math.abs(this.range) + 1);
+		this.threshold = this.minimum + (this.getCutoff() * this.range) - margin;
+	}
+
+	/**
+	 * Orders columns by their spread, i.e. the difference between their
+	 * highest and lowest weights; the more a column can lower a score, the
+	 * sooner a hopeless window is rejected. The best score reachable from
+	 * each column onward is then derived given this order. Ambiguous bases
+	 * weigh zero, hence zero is considered a possible weight.
+	 * */
+	private void compileBounds() {
+		double[] highest = new double[this.width];
+		double[] spread = new double[this.width];
+		Integer[] columns = new Integer[this.width];
+		for (int col = 0; col < this.width; col++) {
+			double high = 0, low = 0;
+			for (int code = 0; code < STRIDE; code++) {
+				high = Math.max(high, this.weights[col * STRIDE + code]);
+				low = Math.min(low, this.weights[col * STRIDE + code]);
+			}
+			highest[col] = high;
+			spread[col] = high - low;
+			columns[col] = col;
+		}
+		final double[] spreads = spread;
+		Arrays.sort(columns, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) { // widest spread first
+				return Double.compare(spreads[b], spreads[a]);
+			}
+		});
+		this.order = new int[this.width];
+		this.ordered = new double[this.width * STRIDE];
+		this.orderedComplements = new double[this.width * STRIDE];
+		this.bounds = new double[this.width + 1];
+		for (int k = 0; k < this.width; k++) {
+			this.order[k] = columns[k];
+			System.arraycopy(this.weights, this.order[k] * STRIDE, this.ordered,
+					k * STRIDE, STRIDE);
+			System.arraycopy(this.complements, this.order[k] * STRIDE, 
+					this.orderedComplements, k * STRIDE, STRIDE);
+		}
+		for (int k = this.width - 1; k >= 0; k--) {
+			this.bounds[k] = this.bounds[k + 1] + highest[this.order[k]];
+		}
+	}
+
+	/**
+	 * Determine whether the forward-strand window at a specific offset
+	 * maps, abandoning the window once it can no longer reach the
+	 * threshold. Surviving windows are re-scored in P-MATCH column order.
+	 * @param codes base codes of the sequence.
+	 * @param offset first base of the window.
+	 * @return boolean whether the window maps.
+	 * */
+	public boolean matches(byte[] codes, int offset) {
+		double partial = 0;
+		for (int k = 0; k < this.width; k++) {
+			partial += this.ordered[k * STRIDE + codes[offset + this.order[k]]];
+			if (partial + this.bounds[k + 1] < this.threshold) {
+				return false; // the threshold is now unreachable
+			}
+		}
+		return this.isMatch(this.score(codes, offset));
+	}
+
+	/**
+	 * Determine whether the reverse-strand window spanning the same bases
+	 * as the forward-strand window at a specific offset maps, abandoning the
+	 * window once it can no longer reach the threshold.
+	 * @param codes base codes of the sequence.
+	 * @param offset first forward-strand base of the window.
+	 * @return boolean whether the window maps.
+	 * */
+	public boolean matchesReverse(byte[] codes, int offset) {
+		int last = offset + this.width - 1;
+		double partial = 0;
+		for (int k = 0; k < this.width; k++) {
+			partial += this.orderedComplements[k * STRIDE + 
+			                                   codes[last - this.order[k]]];
+			if (partial + this.bounds[k + 1] < this.threshold) {
+				return false; // the threshold is now unreachable
+			}
+		}
+		return this.isMatch(this.scoreReverse(codes, offset));
+	}
+
+	/**
+	 * Scores the forward-strand window starting at a specific offset.
+	 * @param codes base codes of the sequence.
+	 * @param offset first base of the window.
+	 * @return raw alignment score.
+	 * */
+	public double score(byte[] codes, int offset) {
+		double score = 0;
+		for (int col = 0; col < this.width; col++) {
+			score += this.weights[col * STRIDE + codes[offset + col]];
+		}
+		return score;
+	}
+
+	/**
+	 * Scores the reverse-strand window spanning the same bases as the
+	 * forward-strand window at a specific offset. The window is read
+	 * backwards using complimented codes, summing columns in P-MATCH order.
+	 * @param codes base codes of the sequence.
+	 * @param offset first forward-strand base of the window.
+	 * @return raw alignment score.
+	 * */
+	public double scoreReverse(byte[] codes, int offset) {
+		int last = offset + this.width - 1;
+		double score = 0;
+		for (int col = 0; col < this.width; col++) {
+			score += this.complements[col * STRIDE + codes[last - col]];
+		}
+		return score;
+	}
+
+	/**
+	 * Converts a raw alignment score into its P-MATCH probability.
+	 * @param score raw alignment score.
+	 * @return alignment probability.
+	 * */
+	public double toProbability(double score) {
+		return (score - this.minimum) / this.range;
+	}
+
+	/**
+	 * Determine whether a raw alignment score passes the PWM cutoff. Only
+	 * scores exceeding the raw threshold are converted into probabilities.
+	 * @param score raw alignment score.
+	 * @return boolean whether the window maps.
+	 * */
+	public boolean isMatch(double score) {
+		return score >= this.threshold &&
+				this.toProbability(score) >= this.getCutoff();
+	}
+
+	/**
+	 * Get the weight of a base code at a specific column.
+	 * @param col PWM column.
+	 * @param code base code.
+	 * @return weight of the base.
+	 * */
+	public double getWeight(int col, int code) {
+		return this.weights[col * STRIDE + code];
+	}
+
+	/**
+	 * Get the weight of a base code's compliment at a specific column.
+	 * @param col PWM column.
+	 * @param code base code.
+	 * @return weight of the complimented base.
+	 * */
+	public double getComplementWeight(int col, int code) {
+		return this.complements[col * STRIDE + code];
+	}
+
+	/**
+	 * @return the pwm
+	 */
+	public PositionWeightMatrix getPWM() {
+		return pwm;
+	}
+
+	/**
+	 * @param pwm the pwm to set
+	 */
+	private void setPWM(PositionWeightMatrix pwm) {
+		this.pwm = pwm;
+	}
+
+	/**
+	 * @return the number of PWM columns
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the cutoff
+	 */
+	public double getCutoff() {
+		return cutoff;
+	}
+
+	/**
+	 * @param cutoff the cutoff to set
+	 */
+	private void setCutoff(double cutoff) {
+		this.cutoff = cutoff;
+	}
+
+	/**
+	 * @return the raw-score threshold
+	 */
+	public double getThreshold() {
+		return threshold;
+	}
+}
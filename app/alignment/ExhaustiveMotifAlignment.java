@@ -5,8 +5,11 @@ import group.Group;
 import gui.MarinaGUI;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import parameter.ParameterMap;
+import parameter.ParameterName;
 import parser.DNAMotifParser;
 
 import bindingsite.LinearDNAMotif;
@@ -14,52 +17,150 @@ import bindingsite.LinearDNAMotif;
 
 public class ExhaustiveMotifAlignment extends AbstractAlignment {
 	private DNAMotifParser parser;
+	private List<LinearDNAMotif> motifs; // motifs aligned by the engine.
+	private ShiftAnd degenerate; // degenerate motifs; null if none.
+	private AhoCorasick automaton; // compiled catalog; null if Rabin-Karp.
+	private KmerHash hash; // hashed catalog; null if not k-mer hash.
+	private KmerIndex index; // baseline k-mer index; null if not indexed.
+	private FMSearch search; // FM-index of each group; null if not FM-index.
 
-	public ExhaustiveMotifAlignment() {
+	public ExhaustiveMotifAlignment() throws IOException {
 		this.setParser(MarinaGUI.get().parameterMap().getMotifParser());
-		this.setName("Rabin-Karp");
+		MotifEngine engine = ParameterMap.toEnum(ParameterName.MOTIF_ENGINE,
+				MotifEngine.class);
+		boolean dualStrand = ParameterMap.toBoolean(ParameterName.DUAL_STRAND);
+		boolean isStreamed = ParameterMap.toBoolean(ParameterName.STREAMING);
+		boolean isFMIndex = engine == MotifEngine.FM_INDEX && !isStreamed;
+		this.setMotifs(new ArrayList<LinearDNAMotif>());
+		List<LinearDNAMotif> degenerate = new ArrayList<LinearDNAMotif>();
+		for (LinearDNAMotif motif: this.getParser().getLinearMotifs()) {
+			if (!isFMIndex && ShiftAnd.isDegenerate(motif)) {
+				degenerate.add(motif); // FM-index expands IUPAC codes itself
+			}
+			else {
+				this.getMotifs().add(motif);
+			}
+		}
+		if (!degenerate.isEmpty()) {
+			this.setDegenerate(new ShiftAnd(degenerate, dualStrand));
+		}
+		if (engine == MotifEngine.AHO_CORASICK) { // compile catalog once
+			this.setAutomaton(new AhoCorasick(this.getMotifs(), dualStrand));
+		}
+		else if (engine == MotifEngine.KMER_HASH) { // hash catalog once
+			this.setHash(new KmerHash(this.getMotifs(), dualStrand));
+		}
+		else if (isFMIndex) { // index each group once
+			List<FMIndex> indices = new ArrayList<FMIndex>();
+			for (Group group: AbstractAlignment.getGroups()) {
+				if (group != null) {
+					indices.add(FMIndex.open(group.getParser().getSequences(),
+							AbstractAlignment.getIndexDirectory()));
+				}
+			}
+			this.setSearch(new FMSearch(this.getMotifs(), indices));
+		}
+		Group baseline = MarinaGUI.get().parameterMap().getBaseline();
+		if (ParameterMap.toBoolean(ParameterName.INDEX_BASELINE) && 
+				baseline != null && !isStreamed) { // re-use index of prior runs
+			this.setIndex(KmerIndex.open(baseline.getParser().getSequences(),
+					AbstractAlignment.getIndexDirectory(), KmerIndex.DEFAULT_K));
+		}
+		this.setName(engine.get());
+	}
+
+	/**
+	 * Determine whether a sequence is looked-up using the k-mer index.
+	 * @return boolean whether the sequence is indexed.
+	 * */
+	private boolean isIndexed(FASTASequence seq) {
+		return this.getIndex() != null && this.getIndex().contains(seq);
+	}
+
+	/**
+	 * Aligns all motifs onto a sequence using the selected motif engine.
+	 * @throws IOException 
+	 * */
+	private void align(FASTASequence seq) throws IOException {
+		if (this.getSearch() != null && this.getSearch().contains(seq)) {
+			this.getSearch().align(seq);
+		}
+		else if (this.getAutomaton() != null) {
+			this.getAutomaton().align(seq);
+		}
+		else if (this.getHash() != null) {
+			this.getHash().align(seq);
+		}
+		else {
+			// align sequence and motif using Rabin-Karp.
+			for (LinearDNAMotif motif: this.getMotifs()) {
+				RabinKarp rk = new RabinKarp();
+				rk.align(seq, motif);
+			}
+		}
 	}
 
 	@Override
-	public void forwardStrandAlign() throws IOException {
-		ParameterMap param = MarinaGUI.get().parameterMap(); // get options
-		Group[] groups = new Group[]{param.getQuery(), param.getBaseline()};
-		for (int i = 0; i < groups.length; i++) { // for each group ...
-			Group group = groups[i];
-			for (int j = 0; j < group.getSize(); j++) { // for each sequence
-				FASTASequence seq = group.getParser().getSequences().get(j);
-				// align sequence and motif using Rabin-Karp.
-				for (LinearDNAMotif motif: this.getParser().getLinearMotifs()) {
-					RabinKarp rk = new RabinKarp();
-					rk.align(seq, motif);
-				}
-				this.updateGUI("Forward strand - " + this.getName() + " - " + 
-						seq.getHeader());
-				this.updateGUI(j, group.getSize()); // update progress-bar
+	public void forwardStrandAlign(FASTASequence seq) throws IOException {
+		if (this.isIndexed(seq)) {
+			for (LinearDNAMotif motif: this.getMotifs()) {
+				this.getIndex().align(seq, motif);
 			}
 		}
+		else {
+			this.align(seq);
+		}
+		if (this.getDegenerate() != null) {
+			this.getDegenerate().align(seq);
+		}
 	}
 
+	@Override
+	public void reverseStrandAlign(FASTASequence seq) throws IOException {
+		if (this.isIndexed(seq)) { // the index describes the forward strand
+			for (LinearDNAMotif motif: this.getMotifs()) {
+				this.getIndex().alignReverse(seq, motif);
+			}
+			seq.reverseComplement(); // as-if aligned after reverse complement
+		}
+		else if (this.getSearch() != null && this.getSearch().contains(seq)) {
+			this.getSearch().alignReverse(seq); // index is of forward strand
+			seq.reverseComplement();
+		}
+		else {
+			seq.reverseComplement(); // allow reverse-strand alignment
+			this.align(seq);
+		}
+		if (this.getDegenerate() != null) { // sequence is reverse complimented
+			this.getDegenerate().align(seq);
+		}
+	}
 
 	@Override
-	public void reverseStrandAlign() throws IOException {
-		ParameterMap param = MarinaGUI.get().parameterMap(); // get options
-		Group[] groups = new Group[]{param.getQuery(), param.getBaseline()};
-		for (int i = 0; i < groups.length; i++) { // for each group ...
-			Group group = groups[i];
-			for (int j = 0; j < group.getSize(); j++) { // for each sequence
-				FASTASequence seq = group.getParser().getSequences().get(j);
-				seq.reverseComplement(); // allow reverse-strand alignment
-				// align sequence and motif using Rabin-Karp.
-				for (LinearDNAMotif motif: this.getParser().getLinearMotifs()) {
-					RabinKarp rk = new RabinKarp();
-					rk.align(seq, motif);
-				}
-				this.updateGUI("Reverse strand - " + this.getName() + " - " + 
-						seq.getHeader());
-				this.updateGUI(j, group.getSize()); // update progress-bar
+	public void dualStrandAlign(FASTASequence seq) throws IOException {
+		if (this.isIndexed(seq)) {
+			for (LinearDNAMotif motif: this.getMotifs()) {
+				this.getIndex().alignBothStrands(seq, motif);
 			}
 		}
+		else if (this.getSearch() != null && this.getSearch().contains(seq)) {
+			this.getSearch().alignBothStrands(seq);
+		}
+		else if (this.getAutomaton() != null) {
+			this.getAutomaton().alignBothStrands(seq);
+		}
+		else if (this.getHash() != null) {
+			this.getHash().alignBothStrands(seq);
+		}
+		else {
+			for (LinearDNAMotif motif: this.getMotifs()) {
+				RabinKarp rk = new RabinKarp();
+				rk.alignBothStrands(seq, motif);
+			}
+		}
+		if (this.getDegenerate() != null) {
+			this.getDegenerate().alignBothStrands(seq);
+		}
 	}
 
 	/**
@@ -75,4 +176,88 @@ public class ExhaustiveMotifAlignment extends AbstractAlignment {
 	private void setParser(DNAMotifParser parser) {
 		this.parser = parser;
 	}
+
+	/**
+	 * @return the motifs aligned by the engine
+	 */
+	private List<LinearDNAMotif> getMotifs() {
+		return motifs;
+	}
+
+	/**
+	 * @param motifs the motifs aligned by the engine to set
+	 */
+	private void setMotifs(List<LinearDNAMotif> motifs) {
+		this.motifs = motifs;
+	}
+
+	/**
+	 * @return the degenerate motifs
+	 */
+	private ShiftAnd getDegenerate() {
+		return degenerate;
+	}
+
+	/**
+	 * @param degenerate the degenerate motifs to set
+	 */
+	private void setDegenerate(ShiftAnd degenerate) {
+		this.degenerate = degenerate;
+	}
+
+	/**
+	 * @return the automaton
+	 */
+	private AhoCorasick getAutomaton() {
+		return automaton;
+	}
+
+	/**
+	 * @param automaton the automaton to set
+	 */
+	private void setAutomaton(AhoCorasick automaton) {
+		this.automaton = automaton;
+	}
+
+	/**
+	 * @return the hash
+	 */
+	private KmerHash getHash() {
+		return hash;
+	}
+
+	/**
+	 * @param hash the hash to set
+	 */
+	private void setHash(KmerHash hash) {
+		this.hash = hash;
+	}
+
+	/**
+	 * @return the index
+	 */
+	private KmerIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * @param index the index to set
+	 */
+	private void setIndex(KmerIndex index) {
+		this.index = index;
+	}
+
+	/**
+	 * @return the search
+	 */
+	private FMSearch getSearch() {
+		return search;
+	}
+
+	/**
+	 * @param search the search to set
+	 */
+	private void setSearch(FMSearch search) {
+		this.search = search;
+	}
 }
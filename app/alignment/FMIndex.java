@@ -0,0 +1,514 @@
+package alignment;
+
+import group.FASTASequence;
+import group.PackedDNA;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import bindingsite.IUPAC;
+
+
+/**
+ * Scanning a large promoter set requires a linear pass per catalog. An
+ * FMIndex is instead built once over all sequences of a group; motifs are
+ * then found using backward search, in time proportional to the motif
+ * length plus the number of occurrences.
+ * <p>
+ * All sequences are concatenated into a single text, each followed by a
+ * separator; characters outside the DNA alphabet also become separators so
+ * that no motif can span them. The index comprises of the Burrows-Wheeler
+ * transform (BWT) of this text, occurrence counts sampled every BLOCK
+ * characters, and the suffix array sampled every SAMPLE text positions.
+ * Degenerate IUPAC motifs are found by branching the backward search over
+ * each base a code references.
+ * <p>
+ * Indices can be saved to disk and are named after a SHA-1 hash of the
+ * group's content, hence later runs against the same group re-use them.
+ * @author Parsa Hosseini
+ * */
+public class FMIndex {
+	private static final int MAGIC = 0x464D4958; // identifies index files.
+	private static final int VERSION = 1;
+	private static final int DIGEST_SIZE = 40; // hexadecimal SHA-1 hash.
+	private static final int HEADER_SIZE = 4 * 4 + DIGEST_SIZE;
+	private static final int SIGMA = 6; // sentinel, A, C, G, T, separator.
+	private static final byte SENTINEL = 0;
+	private static final byte SEPARATOR = 5;
+	private static final int BLOCK = 64; // BWT characters per checkpoint.
+	private static final int SAMPLE = 16; // text positions per SA sample.
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private int[] seqStarts; // text position of each sequence.
+	private int[] counts; // number of text characters less than each symbol.
+	private byte[] bwt; // Burrows-Wheeler transform of the text.
+	private int[] checkpoints; // block * SIGMA + symbol references count.
+	private long[] marks; // whether the suffix at each row is sampled.
+	private int[] markRanks; // number of sampled rows prior to each word.
+	private int[] samples; // text position of each sampled row.
+	private IdentityHashMap<FASTASequence, Integer> ids; // sequence indices.
+
+	private FMIndex() {
+		this.ids = new IdentityHashMap<FASTASequence, Integer>();
+	}
+
+	/**
+	 * Builds the index over all sequences of a group.
+	 * @param seqs sequences of a group.
+	 * @return FMIndex object.
+	 * @throws IOException
+	 * */
+	public static FMIndex build(List<FASTASequence> seqs) throws IOException {
+		FMIndex index = new FMIndex();
+		index.setSequences(seqs);
+		byte[] text = index.toText(seqs);
+		int n = text.length;
+		int[] sa = FMIndex.suffixArray(text);
+		index.bwt = new byte[n];
+		index.counts = new int[SIGMA + 1];
+		for (int i = 0; i < n; i++) {
+			index.bwt[i] = text[sa[i] == 0 ? n - 1 : sa[i] - 1];
+			index.counts[text[i] + 1]++;
+		}
+		for (int c = 0; c < SIGMA; c++) {
+			index.counts[c + 1] += index.counts[c];
+		}
+		index.checkpoints = new int[(n / BLOCK + 1) * SIGMA];
+		int[] running = new int[SIGMA];
+		for (int i = 0; i < n; i++) {
+			if (i % BLOCK == 0) {
+				System.arraycopy(running, 0, index.checkpoints,
+						(i / BLOCK) * SIGMA, SIGMA);
+			}
+			running[index.bwt[i]]++;
+		}
+		if (n % BLOCK == 0) {
+			System.arraycopy(running, 0, index.checkpoints, (n / BLOCK) * SIGMA,
+					SIGMA);
+		}
+		index.marks = new long[(n + 63) >>> 6];
+		int numSamples = 0;
+		for (int i = 0; i < n; i++) {
+			if (sa[i] % SAMPLE == 0) {
+				index.marks[i >>> 6] |= 1L << (i & 63);
+				numSamples++;
+			}
+		}
+		index.samples = new int[numSamples];
+		for (int i = 0, s = 0; i < n; i++) {
+			if (sa[i] % SAMPLE == 0) {
+				index.samples[s++] = sa[i];
+			}
+		}
+		index.rankMarks();
+		return index;
+	}
+
+	/**
+	 * Concatenates all sequences into a single text of symbols, whereby
+	 * each sequence is followed by a separator and the text ends with a
+	 * sentinel; the lowest symbol.
+	 * @throws IOException
+	 * */
+	private byte[] toText(List<FASTASequence> seqs) throws IOException {
+		long total = 1; // sentinel
+		for (FASTASequence seq: seqs) {
+			total += seq.getLength() + 1;
+		}
+		if (total > Integer.MAX_VALUE - 8) {
+			throw new IOException("Group is too large to be indexed.");
+		}
+		byte[] text = new byte[(int)total];
+		byte[] codes = null;
+		this.seqStarts = new int[seqs.size() + 1];
+		int pos = 0;
+		for (int i = 0; i < seqs.size(); i++) {
+			FASTASequence seq = seqs.get(i);
+			this.seqStarts[i] = pos;
+			codes = seq.getCodes(codes);
+			for (int j = 0; j < seq.getLength(); j++) {
+				byte code = codes[j];
+				text[pos++] = code == PackedDNA.AMBIGUOUS ? SEPARATOR :
+					(byte)(code + 1);
+			}
+			text[pos++] = SEPARATOR;
+		}
+		this.seqStarts[seqs.size()] = pos;
+		text[pos] = SENTINEL;
+		return text;
+	}
+
+	/**
+	 * Derives the suffix array of a text ending with a unique sentinel,
+	 * using prefix-doubling; suffixes are ranked by their first 2^h symbols
+	 * using counting-sort until every rank is unique.
+	 * @param text symbols of the text.
+	 * @return suffix array.
+	 * */
+	public static int[] suffixArray(byte[] text) {
+		int n = text.length;
+		int[] sa = new int[n], rank = new int[n];
+		int[] nextSA = new int[n], nextRank = new int[n];
+		int[] bucket = new int[Math.max(SIGMA, n) + 1];
+		for (int i = 0; i < n; i++) {
+			bucket[text[i] + 1]++;
+		}
+		for (int c = 0; c < SIGMA; c++) {
+			bucket[c + 1] += bucket[c];
+		}
+		for (int i = 0; i < n; i++) {
+			sa[bucket[text[i]]++] = i;
+		}
+		int classes = 1;
+		rank[sa[0]] = 0;
+		for (int i = 1; i < n; i++) {
+			if (text[sa[i]] != text[sa[i - 1]]) {
+				classes++;
+			}
+			rank[sa[i]] = classes - 1;
+		}
+		for (int len = 1; classes < n; len <<= 1) {
+			for (int i = 0; i < n; i++) { // sorted by the second half
+				nextSA[i] = sa[i] - len < 0 ? sa[i] - len + n : sa[i] - len;
+			}
+			Arrays.fill(bucket, 0, classes + 1, 0);
+			for (int i = 0; i < n; i++) {
+				bucket[rank[nextSA[i]] + 1]++;
+			}
+			for (int c = 0; c < classes; c++) {
+				bucket[c + 1] += bucket[c];
+			}
+			for (int i = 0; i < n; i++) { // stable-sort by the first half
+				sa[bucket[rank[nextSA[i]]]++] = nextSA[i];
+			}
+			classes = 1;
+			nextRank[sa[0]] = 0;
+			for (int i = 1; i < n; i++) {
+				int cur = sa[i], prev = sa[i - 1];
+				int curNext = cur + len < n ? cur + len : cur + len - n;
+				int prevNext = prev + len < n ? prev + len : prev + len - n;
+				if (rank[cur] != rank[prev] || rank[curNext] != rank[prevNext]) {
+					classes++;
+				}
+				nextRank[cur] = classes - 1;
+			}
+			int[] swap = rank;
+			rank = nextRank;
+			nextRank = swap;
+		}
+		return sa;
+	}
+
+	/**
+	 * Derives the number of sampled rows prior to each word of marks.
+	 * */
+	private void rankMarks() {
+		this.markRanks = new int[this.marks.length + 1];
+		for (int w = 0; w < this.marks.length; w++) {
+			this.markRanks[w + 1] = this.markRanks[w] +
+					Long.bitCount(this.marks[w]);
+		}
+	}
+
+	/**
+	 * Counts the occurrences of a symbol within the first rows of the BWT.
+	 * @param symbol the symbol to count.
+	 * @param row number of rows to count across.
+	 * @return number of occurrences.
+	 * */
+	private int occ(int symbol, int row) {
+		int block = row / BLOCK;
+		int count = this.checkpoints[block * SIGMA + symbol];
+		for (int i = block * BLOCK; i < row; i++) {
+			if (this.bwt[i] == symbol) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Derives the text position of the suffix at a specific row by walking
+	 * backwards through the text until a sampled suffix is reached.
+	 * @param row row of the suffix array.
+	 * @return text position.
+	 * */
+	private int locate(int row) {
+		int steps = 0;
+		while ((this.marks[row >>> 6] & (1L << (row & 63))) == 0) {
+			int symbol = this.bwt[row];
+			row = this.counts[symbol] + this.occ(symbol, row);
+			steps++;
+		}
+		long below = this.marks[row >>> 6] & ((1L << (row & 63)) - 1);
+		int rank = this.markRanks[row >>> 6] + Long.bitCount(below);
+		return this.samples[rank] + steps;
+	}
+
+	/**
+	 * Converts a degenerate motif into per-position bit-masks of symbols.
+	 * @return bit-masks, or null if the motif is not made of IUPAC codes.
+	 * */
+	private int[] toMasks(String motif) {
+		int[] masks = new int[motif.length()];
+		for (int i = 0; i < masks.length; i++) {
+			masks[i] = IUPAC.toMask(motif.charAt(i)) << 1; // symbol = code + 1
+			if (masks[i] == 0) {
+				return null;
+			}
+		}
+		return masks;
+	}
+
+	/**
+	 * Backward search of a degenerate motif; the range of rows matching a
+	 * suffix of the motif is narrowed by each prior position. Each symbol a
+	 * position references yields its own range.
+	 * @param masks per-position bit-masks of symbols.
+	 * @param i position of the motif to extend by.
+	 * @param low first row of the range.
+	 * @param high exclusive last row of the range.
+	 * @param ranges collected ranges; pairs of first and last rows.
+	 * @return number of ints within ranges.
+	 * */
+	private int search(int[] masks, int i, int low, int high, int[][] ranges,
+			int numRanges) {
+		if (low >= high) {
+			return numRanges;
+		}
+		if (i < 0) { // the whole motif matches
+			if (numRanges == ranges[0].length) {
+				ranges[0] = Arrays.copyOf(ranges[0], numRanges * 2);
+			}
+			ranges[0][numRanges++] = low;
+			ranges[0][numRanges++] = high;
+			return numRanges;
+		}
+		for (int symbol = 1; symbol <= 4; symbol++) {
+			if ((masks[i] & (1 << symbol)) != 0) {
+				int nextLow = this.counts[symbol] + this.occ(symbol, low);
+				int nextHigh = this.counts[symbol] + this.occ(symbol, high);
+				numRanges = this.search(masks, i - 1, nextLow, nextHigh, ranges,
+						numRanges);
+			}
+		}
+		return numRanges;
+	}
+
+	/**
+	 * Counts the number of occurrences of a motif across the group.
+	 * @param motif exact or degenerate motif.
+	 * @return number of occurrences.
+	 * */
+	public int count(String motif) {
+		int[] masks = this.toMasks(motif);
+		int count = 0;
+		if (masks != null && masks.length > 0) {
+			int[][] ranges = new int[][]{new int[8]};
+			int numRanges = this.search(masks, masks.length - 1, 0,
+					this.bwt.length, ranges, 0);
+			for (int r = 0; r < numRanges; r += 2) {
+				count += ranges[0][r + 1] - ranges[0][r];
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Finds all text positions at which a motif occurs across the group.
+	 * @param motif exact or degenerate motif.
+	 * @return ascending text positions; empty if the motif cannot be found.
+	 * */
+	public int[] locate(String motif) {
+		int[] masks = this.toMasks(motif);
+		int[] positions = new int[0];
+		if (masks != null && masks.length > 0) {
+			int[][] ranges = new int[][]{new int[8]};
+			int numRanges = this.search(masks, masks.length - 1, 0,
+					this.bwt.length, ranges, 0);
+			int count = 0;
+			for (int r = 0; r < numRanges; r += 2) {
+				count += ranges[0][r + 1] - ranges[0][r];
+			}
+			positions = new int[count];
+			int p = 0;
+			for (int r = 0; r < numRanges; r += 2) {
+				for (int row = ranges[0][r]; row < ranges[0][r + 1]; row++) {
+					positions[p++] = this.locate(row);
+				}
+			}
+			Arrays.sort(positions);
+		}
+		return positions;
+	}
+
+	/**
+	 * Gets the index of a sequence within the group.
+	 * @param seq FASTASequence object.
+	 * @return index of the sequence, or -1 if not part of the group.
+	 * */
+	public int indexOf(FASTASequence seq) {
+		Integer id = this.ids.get(seq);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Gets the text position of a sequence's first base.
+	 * @param id index of the sequence within the group.
+	 * @return text position.
+	 * */
+	public int getStart(int id) {
+		return this.seqStarts[id];
+	}
+
+	/**
+	 * Opens the index of a group of sequences. If an index of identical
+	 * content exists within the directory, it is re-used; otherwise, the
+	 * index is built and saved.
+	 * @param seqs sequences of a group.
+	 * @param dir directory in which indices are saved.
+	 * @return FMIndex object.
+	 * @throws IOException
+	 * */
+	public static FMIndex open(List<FASTASequence> seqs, File dir)
+			throws IOException {
+		String digest = FASTASequence.digest(seqs);
+		File file = new File(dir, digest + ".fmi");
+		FMIndex index = null;
+		if (file.isFile()) {
+			index = FMIndex.load(file, seqs);
+		}
+		if (index == null) { // missing or invalid; build anew
+			index = FMIndex.build(seqs);
+			index.save(file, digest);
+		}
+		return index;
+	}
+
+	/**
+	 * Writes the index to a temporary file which then replaces the index
+	 * file, so that an interrupted write is never mistaken for an index.
+	 * @param file file to save the index as.
+	 * @param digest hash of the group's content.
+	 * @throws IOException
+	 * */
+	public void save(File file, String digest) throws IOException {
+		long size = HEADER_SIZE + 4L * (this.seqStarts.length +
+				this.counts.length + this.checkpoints.length + 1 +
+				this.samples.length) + 8L * this.marks.length + this.bwt.length;
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("FM-index cannot exceed 2GB.");
+		}
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Unable to create directory " + dir);
+		}
+		File temp = new File(dir, file.getName() + ".tmp");
+		RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+		try {
+			raf.setLength(size);
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+					0, size);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(this.seqStarts.length - 1);
+			buffer.putInt(this.bwt.length);
+			buffer.put(digest.getBytes(UTF8));
+			buffer.asIntBuffer().put(this.seqStarts).put(this.counts)
+				.put(this.samples.length).put(this.samples)
+				.put(this.checkpoints);
+			buffer.position(buffer.position() + 4 * (this.seqStarts.length +
+					this.counts.length + 1 + this.samples.length +
+					this.checkpoints.length));
+			buffer.asLongBuffer().put(this.marks);
+			buffer.position(buffer.position() + 8 * this.marks.length);
+			buffer.put(this.bwt);
+			buffer.force();
+		} finally {
+			raf.close();
+		}
+		file.delete(); // a stale index cannot be renamed over
+		if (!temp.renameTo(file)) {
+			throw new IOException("Unable to save FM-index " + file);
+		}
+	}
+
+	/**
+	 * Reads an index file, verifying that it describes the group.
+	 * @param file index file.
+	 * @param seqs sequences of a group.
+	 * @return FMIndex object, or null if the file is invalid.
+	 * @throws IOException
+	 * */
+	public static FMIndex load(File file, List<FASTASequence> seqs)
+			throws IOException {
+		String digest = FASTASequence.digest(seqs);
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+				return null;
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, size);
+			byte[] saved = new byte[DIGEST_SIZE];
+			boolean isValid = buffer.getInt() == MAGIC &&
+					buffer.getInt() == VERSION && buffer.getInt() == seqs.size();
+			int n = buffer.getInt();
+			buffer.get(saved);
+			if (!isValid || !digest.equals(new String(saved, UTF8)) || n < 1) {
+				return null;
+			}
+			int samplesAt = HEADER_SIZE + 4 * (seqs.size() + 1 + SIGMA + 1);
+			if (size < samplesAt + 4) {
+				return null;
+			}
+			int numSamples = buffer.getInt(samplesAt);
+			long expected = samplesAt + 4 + 4L * ((long)numSamples +
+					(n / BLOCK + 1) * SIGMA) + 8L * ((n + 63) >>> 6) + n;
+			if (numSamples < 0 || size != expected) { // truncated or malformed
+				return null;
+			}
+			FMIndex index = new FMIndex();
+			index.setSequences(seqs);
+			IntBuffer ints = buffer.asIntBuffer();
+			index.seqStarts = new int[seqs.size() + 1];
+			index.counts = new int[SIGMA + 1];
+			ints.get(index.seqStarts).get(index.counts);
+			index.samples = new int[ints.get()];
+			index.checkpoints = new int[(n / BLOCK + 1) * SIGMA];
+			ints.get(index.samples).get(index.checkpoints);
+			buffer.position(buffer.position() + 4 * ints.position());
+			index.marks = new long[(n + 63) >>> 6];
+			LongBuffer longs = buffer.asLongBuffer();
+			longs.get(index.marks);
+			buffer.position(buffer.position() + 8 * index.marks.length);
+			index.bwt = new byte[n];
+			buffer.get(index.bwt);
+			index.rankMarks();
+			return index;
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * @param seqs sequences of the group, by index
+	 */
+	private void setSequences(List<FASTASequence> seqs) {
+		this.ids.clear();
+		for (int i = 0; i < seqs.size(); i++) {
+			this.ids.put(seqs.get(i), i);
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package alignment;
+
+import group.FASTASequence;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import bindingsite.IUPAC;
+import bindingsite.LinearDNAMotif;
+
+
+/**
+ * Aligns a catalog of motifs using the FMIndex objects of each group. Every
+ * motif and its reverse compliment are located once across each index,
+ * hence aligning a sequence only requires finding the occurrences which
+ * fall within it; a binary search of the occurrences sorted by offset.
+ * <p>
+ * Degenerate motifs are matched by the bases each IUPAC code references,
+ * rather than literally; motifs holding other characters are instead
+ * aligned using Rabin-Karp.
+ * @author Parsa Hosseini
+ * */
+public class FMSearch {
+	private List<LinearDNAMotif> motifs;
+	private List<FMIndex> indices;
+	private int[][][] forward; // per index and motif, text positions.
+	private int[][][] reverse; // as above, albeit reverse compliments.
+
+	public FMSearch(List<LinearDNAMotif> motifs, List<FMIndex> indices) {
+		this.setMotifs(motifs);
+		this.setIndices(indices);
+		this.forward = new int[indices.size()][motifs.size()][];
+		this.reverse = new int[indices.size()][motifs.size()][];
+		for (int i = 0; i < indices.size(); i++) {
+			FMIndex index = indices.get(i);
+			for (int m = 0; m < motifs.size(); m++) {
+				String motif = motifs.get(m).getSequence();
+				if (IUPAC.isIUPAC(motif)) { // otherwise, use Rabin-Karp
+					this.forward[i][m] = index.locate(motif);
+					this.reverse[i][m] = index.locate(
+							IUPAC.reverseComplement(motif));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the index of the group a sequence is part of.
+	 * @param seq FASTASequence object.
+	 * @return index of the FMIndex, or -1 if no index contains the sequence.
+	 * */
+	private int find(FASTASequence seq) {
+		for (int i = 0; i < this.getIndices().size(); i++) {
+			if (this.getIndices().get(i).indexOf(seq) != -1) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the index of the group a sequence is part of.
+	 * @param seq FASTASequence object.
+	 * @return index of the FMIndex containing the sequence.
+	 * @throws IOException
+	 * */
+	private int require(FASTASequence seq) throws IOException {
+		int i = this.find(seq);
+		if (i == -1) {
+			throw new IOException("Sequence " + seq.getHeader() +
+					" is not part of an FM-index.");
+		}
+		return i;
+	}
+
+	/**
+	 * Determine whether a sequence is part of an indexed group.
+	 * @param seq FASTASequence object.
+	 * @return boolean whether the sequence can be aligned.
+	 * */
+	public boolean contains(FASTASequence seq) {
+		return this.find(seq) != -1;
+	}
+
+	/**
+	 * Derives the offsets of the occurrences falling within a sequence.
+	 * Since sequences are delimited by separators, no occurrence spans two
+	 * sequences.
+	 * @param index FMIndex containing the sequence.
+	 * @param positions ascending text positions of a motif.
+	 * @param seq FASTASequence object.
+	 * @return ascending offsets within the sequence.
+	 * */
+	private int[] toOffsets(FMIndex index, int[] positions, FASTASequence seq) {
+		int start = index.getStart(index.indexOf(seq));
+		int low = Arrays.binarySearch(positions, start);
+		low = low < 0 ? -low - 1 : low;
+		int high = Arrays.binarySearch(positions, start + seq.getLength());
+		high = high < 0 ? -high - 1 : high;
+		int[] offsets = new int[high - low];
+		for (int i = low; i < high; i++) {
+			offsets[i - low] = positions[i] - start;
+		}
+		return offsets;
+	}
+
+	/**
+	 * Ensures that a motif can be aligned onto a sequence.
+	 * @throws IOException
+	 * */
+	private void check(FASTASequence seq, LinearDNAMotif motif)
+			throws IOException {
+		if (motif.getLength() > seq.getLength()) {
+			throw new IOException("DNA motifs cannot be larger than FASTA");
+		}
+	}
+
+	/**
+	 * Aligns all motifs onto the forward strand of a sequence.
+	 * @param seq FASTASequence object which is part of an indexed group.
+	 * @throws IOException
+	 * */
+	public void align(FASTASequence seq) throws IOException {
+		int i = this.require(seq);
+		for (int m = 0; m < this.getMotifs().size(); m++) {
+			LinearDNAMotif motif = this.getMotifs().get(m);
+			if (this.forward[i][m] == null) {
+				new RabinKarp().align(seq, motif);
+			}
+			else {
+				this.check(seq, motif);
+				for (int offset: this.toOffsets(this.getIndices().get(i),
+						this.forward[i][m], seq)) {
+					seq.addMapping(motif, offset);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Aligns all motifs onto the reverse strand of a sequence without
+	 * reverse complimenting it. As is the case with reverse complimenting
+	 * the sequence, offsets are in reverse-strand coordinates.
+	 * @param seq FASTASequence object which is part of an indexed group.
+	 * @throws IOException
+	 * */
+	public void alignReverse(FASTASequence seq) throws IOException {
+		int i = this.require(seq);
+		for (int m = 0; m < this.getMotifs().size(); m++) {
+			LinearDNAMotif motif = this.getMotifs().get(m);
+			if (this.reverse[i][m] == null) {
+				new RabinKarp().alignReverse(seq, motif);
+			}
+			else {
+				this.check(seq, motif);
+				int[] offsets = this.toOffsets(this.getIndices().get(i),
+						this.reverse[i][m], seq);
+				int last = seq.getLength() - motif.getLength();
+				for (int h = offsets.length - 1; h >= 0; h--) {
+					seq.addMapping(motif, last - offsets[h]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Aligns all motifs onto both strands of a sequence. Reverse-strand
+	 * mappings are saved in forward-strand coordinates, following any
+	 * forward-strand mapping at the same offset.
+	 * @param seq FASTASequence object which is part of an indexed group.
+	 * @throws IOException
+	 * */
+	public void alignBothStrands(FASTASequence seq) throws IOException {
+		int i = this.require(seq);
+		FMIndex index = this.getIndices().get(i);
+		for (int m = 0; m < this.getMotifs().size(); m++) {
+			LinearDNAMotif motif = this.getMotifs().get(m);
+			if (this.forward[i][m] == null) {
+				new RabinKarp().alignBothStrands(seq, motif);
+			}
+			else {
+				this.check(seq, motif);
+				int[] fwd = this.toOffsets(index, this.forward[i][m], seq);
+				int[] rev = this.toOffsets(index, this.reverse[i][m], seq);
+				int f = 0, r = 0;
+				while (f < fwd.length || r < rev.length) {
+					if (r == rev.length || (f < fwd.length && fwd[f] <= rev[r])) {
+						seq.addMapping(motif, fwd[f++], false);
+					}
+					else {
+						seq.addMapping(motif, rev[r++], true);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the motifs
+	 */
+	public List<LinearDNAMotif> getMotifs() {
+		return motifs;
+	}
+
+	/**
+	 * @param motifs the motifs to set
+	 */
+	private void setMotifs(List<LinearDNAMotif> motifs) {
+		this.motifs = motifs;
+	}
+
+	/**
+	 * @return the indices
+	 */
+	public List<FMIndex> getIndices() {
+		return indices;
+	}
+
+	/**
+	 * @param indices the indices to set
+	 */
+	private void setIndices(List<FMIndex> indices) {
+		this.indices = indices;
+	}
+}
@@ -0,0 +1,245 @@
+package alignment;
+
+import group.FASTASequence;
+import group.PackedDNA;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import bindingsite.LinearDNAMotif;
+
+
+/**
+ * Rabin-Karp hashes windows modulo a small prime, hence many windows share
+ * the motif's hash and must be verified character-by-character. Since DNA
+ * has only four bases, a window of at most 32 bases is instead encoded as
+ * a 2-bit code; a unique, and hence collision-free, integer.
+ * <p>
+ * Motifs are grouped by length and each group's codes are placed into a
+ * primitive hash set. Each sequence is then scanned once per motif length
+ * using a rolling code, looking-up every window in the respective set
+ * regardless of how many motifs share the length. Matching codes are exact,
+ * so no verification is required.
+ * <p>
+ * Motifs longer than 32 bases, or containing characters outside the DNA
+ * alphabet, are aligned using Rabin-Karp so that mappings are identical to
+ * those of Rabin-Karp.
+ * @author Parsa Hosseini
+ * */
+public class KmerHash {
+	public static final int MAX_LENGTH = 32; // bases per 2-bit code.
+	private List<LinearDNAMotif> motifs; // the hashed catalog.
+	private boolean dualStrand; // whether reverse compliments are hashed.
+	private boolean[] hashed; // whether a motif is part of a set.
+	private int[] lengths; // distinct motif lengths; one set per length.
+	private long[][] keys; // per length, 2-bit code of each slot.
+	private int[][] firstMotif; // per length, first pattern of a slot; or -1.
+	private int[] nextMotif; // next pattern sharing the same code; else -1.
+	private int longest; // length of the longest hashed motif.
+
+	public KmerHash(List<LinearDNAMotif> motifs) {
+		this(motifs, false);
+	}
+
+	/**
+	 * Create the hash sets whose patterns are the catalog motifs and, if
+	 * dual-strand, their reverse compliments. Pattern m + n references the
+	 * reverse compliment of motif m, given n motifs.
+	 * @param motifs catalog of motifs.
+	 * @param dualStrand whether to hash reverse compliments.
+	 * */
+	public KmerHash(List<LinearDNAMotif> motifs, boolean dualStrand) {
+		this.setMotifs(motifs);
+		this.setDualStrand(dualStrand);
+		this.build();
+	}
+
+	/**
+	 * Encodes a motif as a 2-bit code; the last base in the lowest bits.
+	 * @param motif motif sequence.
+	 * @param reverse whether to encode the reverse compliment.
+	 * @return 2-bit code of the motif.
+	 * */
+	private static long encode(String motif, boolean reverse) {
+		long code = 0;
+		int len = motif.length();
+		for (int i = 0; i < len; i++) {
+			int base = reverse ? PackedDNA.encode(motif.charAt(len - 1 - i)) ^ 3 :
+				PackedDNA.encode(motif.charAt(i));
+			code = (code << 2) | base;
+		}
+		return code;
+	}
+
+	/**
+	 * Mixes the bits of a code so that similar codes fall into differing
+	 * slots.
+	 * @param code 2-bit code.
+	 * @param mask number of slots less one.
+	 * @return slot of the code.
+	 * */
+	private static int slot(long code, int mask) {
+		long h = code * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32)) & mask;
+	}
+
+	/**
+	 * Places the code of each pattern into the set of its length. Patterns
+	 * sharing a code are chained in catalog order.
+	 * */
+	private void build() {
+		int numMotifs = this.getMotifs().size();
+		int numPatterns = this.isDualStrand() ? numMotifs * 2 : numMotifs;
+		this.hashed = new boolean[numMotifs];
+		this.nextMotif = new int[numPatterns];
+		Arrays.fill(this.nextMotif, -1);
+		int[] counts = new int[MAX_LENGTH + 1]; // motifs per length
+		for (int m = 0; m < numMotifs; m++) {
+			String seq = this.getMotifs().get(m).getSequence();
+			boolean isDNA = seq.length() > 0 && seq.length() <= MAX_LENGTH;
+			for (int i = 0; i < seq.length() && isDNA; i++) {
+				isDNA = PackedDNA.encode(seq.charAt(i)) != -1;
+			}
+			if (isDNA) { // others use Rabin-Karp
+				this.hashed[m] = true;
+				counts[seq.length()]++;
+				this.longest = Math.max(this.longest, seq.length());
+			}
+		}
+		int numLengths = 0;
+		for (int len = 1; len <= MAX_LENGTH; len++) {
+			numLengths += counts[len] > 0 ? 1 : 0;
+		}
+		this.lengths = new int[numLengths];
+		this.keys = new long[numLengths][];
+		this.firstMotif = new int[numLengths][];
+		int[] group = new int[MAX_LENGTH + 1]; // set of each length
+		for (int len = 1, g = 0; len <= MAX_LENGTH; len++) {
+			if (counts[len] > 0) {
+				int capacity = Integer.highestOneBit(counts[len] *
+						(this.isDualStrand() ? 2 : 1) * 2) * 2; // load <= 0.5
+				this.lengths[g] = len;
+				this.keys[g] = new long[capacity];
+				this.firstMotif[g] = new int[capacity];
+				Arrays.fill(this.firstMotif[g], -1);
+				group[len] = g++;
+			}
+		}
+		for (int p = numPatterns - 1; p >= 0; p--) { // keep catalog order
+			int m = p % numMotifs;
+			if (this.hashed[m]) {
+				String seq = this.getMotifs().get(m).getSequence();
+				int g = group[seq.length()];
+				long code = KmerHash.encode(seq, p >= numMotifs);
+				int mask = this.keys[g].length - 1;
+				int s = KmerHash.slot(code, mask);
+				while (this.firstMotif[g][s] != -1 && this.keys[g][s] != code) {
+					s = (s + 1) & mask; // linear probing
+				}
+				this.keys[g][s] = code;
+				this.nextMotif[p] = this.firstMotif[g][s];
+				this.firstMotif[g][s] = p;
+			}
+		}
+	}
+
+	/**
+	 * Aligns every motif in the catalog onto the FASTASequence using one
+	 * pass per motif length. Mappings are saved per motif in catalog order,
+	 * hence the resultant mappings equal those of Rabin-Karp.
+	 * @throws IOException
+	 * */
+	public void align(FASTASequence seq) throws IOException {
+		this.align(seq, false);
+	}
+
+	/**
+	 * Aligns every motif in the catalog onto both strands of the
+	 * FASTASequence using one pass per motif length. Reverse-strand
+	 * mappings are saved in forward-strand coordinates.
+	 * @throws IOException
+	 * */
+	public void alignBothStrands(FASTASequence seq) throws IOException {
+		if (!this.isDualStrand()) {
+			throw new IOException("k-mer hash lacks reverse-strand motifs");
+		}
+		this.align(seq, true);
+	}
+
+	/**
+	 * Rolls a 2-bit code across the sequence once per motif length,
+	 * collecting hits of all hashed patterns. Reverse compliment patterns
+	 * are only saved if both strands are desired.
+	 * @throws IOException
+	 * */
+	private void align(FASTASequence seq, boolean bothStrands)
+			throws IOException {
+		int seqLen = seq.getLength();
+		if (this.longest > seqLen)  {
+			throw new IOException("DNA motifs cannot be larger than FASTA");
+		}
+		byte[] codes = seq.getCodes(null);
+		int numMotifs = this.getMotifs().size();
+		MotifHits hits = new MotifHits(numMotifs);
+		for (int g = 0; g < this.lengths.length; g++) {
+			int len = this.lengths[g];
+			long[] keys = this.keys[g];
+			int[] first = this.firstMotif[g];
+			int mask = keys.length - 1;
+			long codeMask = len == MAX_LENGTH ? -1L : (1L << (len << 1)) - 1;
+			long code = 0;
+			int run = 0; // number of consecutive DNA bases
+			for (int i = 0; i < seqLen; i++) {
+				int base = codes[i];
+				if (base == PackedDNA.AMBIGUOUS) { // no motif spans it
+					run = 0;
+					continue;
+				}
+				code = ((code << 2) | base) & codeMask;
+				if (++run < len) {
+					continue;
+				}
+				int s = KmerHash.slot(code, mask);
+				while (first[s] != -1 && keys[s] != code) {
+					s = (s + 1) & mask;
+				}
+				for (int p = first[s]; p != -1; p = this.nextMotif[p]) {
+					if (p >= numMotifs && !bothStrands) {
+						continue; // forward-strand only
+					}
+					hits.add(p, i - len + 1);
+				}
+			}
+		}
+		hits.save(seq, this.getMotifs(), this.hashed, bothStrands);
+	}
+
+	/**
+	 * @return the motifs
+	 */
+	private List<LinearDNAMotif> getMotifs() {
+		return motifs;
+	}
+
+	/**
+	 * @param motifs the motifs to set
+	 */
+	private void setMotifs(List<LinearDNAMotif> motifs) {
+		this.motifs = motifs;
+	}
+
+	/**
+	 * @return whether reverse compliments are hashed
+	 */
+	public boolean isDualStrand() {
+		return dualStrand;
+	}
+
+	/**
+	 * @param dualStrand whether reverse compliments are hashed
+	 */
+	private void setDualStrand(boolean dualStrand) {
+		this.dualStrand = dualStrand;
+	}
+}
@@ -0,0 +1,425 @@
+package alignment;
+
+import group.FASTASequence;
+import group.PackedDNA;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import bindingsite.LinearDNAMotif;
+
+
+/**
+ * The baseline group is typically the same control set across many runs,
+ * yet each run would re-scan it from scratch. A KmerIndex instead lists,
+ * for every k-mer, the positions at which it occurs across a group. Motif
+ * look-ups are then proportional to the number of occurrences of the
+ * motif's rarest k-mer rather than to the length of the group.
+ * <p>
+ * Indices are saved to disk once and memory-mapped thereafter. Each index
+ * file is named after a SHA-1 hash of the group's content and k, hence
+ * later runs against the same FASTA file re-use the index whereas any
+ * change to the file yields a new index.
+ * <p>
+ * Motifs shorter than k, or containing characters outside the DNA
+ * alphabet, cannot be looked-up and are aligned using Rabin-Karp. Since
+ * the index describes the forward strand, sequences must not be reverse
+ * complimented when looked-up.
+ * @author Parsa Hosseini
+ * */
+public class KmerIndex {
+	public static final int DEFAULT_K = 6; // bases per indexed k-mer.
+	private static final int MAGIC = 0x4B4D4958; // identifies index files.
+	private static final int VERSION = 1;
+	private static final int DIGEST_SIZE = 40; // hexadecimal SHA-1 hash.
+	private static final int HEADER_SIZE = 5 * 4 + DIGEST_SIZE;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private int k;
+	private IntBuffer seqStarts; // position of each sequence in the group.
+	private IntBuffer kmerStarts; // first posting of each k-mer.
+	private IntBuffer postings; // group-wide positions, grouped by k-mer.
+	private IdentityHashMap<FASTASequence, Integer> ids; // sequence indices.
+
+	private KmerIndex(MappedByteBuffer buffer, List<FASTASequence> seqs,
+			int k) {
+		this.k = k;
+		int numSeqs = seqs.size();
+		int numKmers = 1 << (k << 1);
+		buffer.position(HEADER_SIZE);
+		this.seqStarts = buffer.slice().asIntBuffer();
+		buffer.position(HEADER_SIZE + (numSeqs + 1) * 4);
+		this.kmerStarts = buffer.slice().asIntBuffer();
+		buffer.position(HEADER_SIZE + (numSeqs + numKmers + 2) * 4);
+		this.postings = buffer.slice().asIntBuffer();
+		this.ids = new IdentityHashMap<FASTASequence, Integer>();
+		for (int i = 0; i < numSeqs; i++) {
+			this.ids.put(seqs.get(i), i);
+		}
+	}
+
+	/**
+	 * Opens the index of a group of sequences. If an index of identical
+	 * content exists within the directory, it is re-used; otherwise, the
+	 * index is built and saved.
+	 * @param seqs sequences of a group.
+	 * @param dir directory in which indices are saved.
+	 * @param k bases per indexed k-mer.
+	 * @return KmerIndex object.
+	 * @throws IOException
+	 * */
+	public static KmerIndex open(List<FASTASequence> seqs, File dir, int k)
+			throws IOException {
+		if (k < 1 || k > 12) {
+			throw new IOException("k-mer index requires 1 <= k <= 12.");
+		}
+		String hash = FASTASequence.digest(seqs);
+		byte[] digest = hash.getBytes(UTF8);
+		File file = new File(dir, hash + "-" + k + ".kmi");
+		KmerIndex index = null;
+		if (file.isFile()) {
+			index = KmerIndex.load(file, seqs, k, digest);
+		}
+		if (index == null) { // missing or invalid; build anew
+			KmerIndex.build(file, seqs, k, digest);
+			index = KmerIndex.load(file, seqs, k, digest);
+			if (index == null) {
+				throw new IOException("Unable to read k-mer index " + file);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Builds the index and saves it to disk. The file comprises of a header,
+	 * the position of each sequence in the group, the first posting of each
+	 * k-mer and finally, the postings themselves. K-mers spanning
+	 * characters outside the DNA alphabet are not indexed.
+	 * @throws IOException
+	 * */
+	private static void build(File file, List<FASTASequence> seqs, int k,
+			byte[] digest) throws IOException {
+		int numSeqs = seqs.size();
+		int numKmers = 1 << (k << 1);
+		int[] seqStarts = new int[numSeqs + 1];
+		long total = 0;
+		for (int i = 0; i < numSeqs; i++) {
+			total += seqs.get(i).getLength();
+			if (total > Integer.MAX_VALUE) {
+				throw new IOException("Group is too large to be indexed.");
+			}
+			seqStarts[i + 1] = (int)total;
+		}
+		int[] kmerStarts = new int[numKmers + 1];
+		byte[] codes = null;
+		for (int pass = 0; pass < 2; pass++) { // count, then fill postings
+			int[] fill = pass == 0 ? null : Arrays.copyOf(kmerStarts, numKmers);
+			int[] postings = pass == 0 ? null : new int[kmerStarts[numKmers]];
+			for (int i = 0; i < numSeqs; i++) {
+				FASTASequence seq = seqs.get(i);
+				codes = seq.getCodes(codes);
+				int kmer = 0, clean = 0; // clean is the length of ACGT-run.
+				for (int p = 0; p < seq.getLength(); p++) {
+					if (codes[p] == PackedDNA.AMBIGUOUS) {
+						clean = 0;
+					}
+					else {
+						kmer = ((kmer << 2) | codes[p]) & (numKmers - 1);
+						clean++;
+						if (clean >= k && pass == 0) {
+							kmerStarts[kmer + 1]++;
+						}
+						else if (clean >= k) {
+							postings[fill[kmer]++] = seqStarts[i] + p - k + 1;
+						}
+					}
+				}
+			}
+			if (pass == 0) {
+				for (int c = 0; c < numKmers; c++) {
+					kmerStarts[c + 1] += kmerStarts[c];
+				}
+			}
+			else {
+				KmerIndex.save(file, k, digest, seqStarts, kmerStarts, postings);
+			}
+		}
+	}
+
+	/**
+	 * Writes the index to a temporary file which then replaces the index
+	 * file, so that an interrupted write is never mistaken for an index.
+	 * @throws IOException
+	 * */
+	private static void save(File file, int k, byte[] digest, int[] seqStarts,
+			int[] kmerStarts, int[] postings) throws IOException {
+		long size = HEADER_SIZE + 4L * (seqStarts.length + kmerStarts.length +
+				postings.length);
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("k-mer index cannot exceed 2GB.");
+		}
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Unable to create directory " + dir);
+		}
+		File temp = new File(dir, file.getName() + ".tmp");
+		RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+		try {
+			raf.setLength(size);
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+					0, size);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(k);
+			buffer.putInt(seqStarts.length - 1);
+			buffer.putInt(postings.length);
+			buffer.put(digest);
+			IntBuffer ints = buffer.asIntBuffer();
+			ints.put(seqStarts);
+			ints.put(kmerStarts);
+			ints.put(postings);
+			buffer.force();
+		} finally {
+			raf.close();
+		}
+		file.delete(); // a stale index cannot be renamed over
+		if (!temp.renameTo(file)) {
+			throw new IOException("Unable to save k-mer index " + file);
+		}
+	}
+
+	/**
+	 * Memory-maps an index file, verifying that it describes the group.
+	 * @return KmerIndex object, or null if the file is invalid.
+	 * @throws IOException
+	 * */
+	private static KmerIndex load(File file, List<FASTASequence> seqs, int k,
+			byte[] digest) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+				return null;
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, size);
+			byte[] saved = new byte[DIGEST_SIZE];
+			boolean isValid = buffer.getInt() == MAGIC &&
+					buffer.getInt() == VERSION && buffer.getInt() == k &&
+					buffer.getInt() == seqs.size();
+			int numPostings = buffer.getInt();
+			buffer.get(saved);
+			long expected = HEADER_SIZE + 4L * (seqs.size() + 1 +
+					(1 << (k << 1)) + 1 + (long)numPostings);
+			isValid = isValid && Arrays.equals(digest, saved) &&
+					size == expected;
+			if (!isValid) {
+				return null;
+			}
+			return new KmerIndex(buffer, seqs, k);
+		} finally {
+			raf.close(); // the mapping remains valid once closed
+		}
+	}
+
+	/**
+	 * Determine whether a sequence is part of the indexed group.
+	 * @param seq FASTASequence object.
+	 * @return boolean whether the sequence can be looked-up.
+	 * */
+	public boolean contains(FASTASequence seq) {
+		return this.ids.containsKey(seq);
+	}
+
+	/**
+	 * Finds all offsets at which a pattern occurs within a sequence. The
+	 * rarest k-mer of the pattern is looked-up, and each of its postings
+	 * within the sequence is verified against the sequence itself.
+	 * @param seq FASTASequence object which is part of the group.
+	 * @param pattern pattern to find.
+	 * @return ascending offsets, or null if the pattern cannot be looked-up.
+	 * @throws IOException
+	 * */
+	private int[] find(FASTASequence seq, String pattern) throws IOException {
+		Integer id = this.ids.get(seq);
+		if (id == null) {
+			throw new IOException("Sequence " + seq.getHeader() +
+					" is not part of the k-mer index.");
+		}
+		int seqStart = this.seqStarts.get(id);
+		int seqLen = this.seqStarts.get(id + 1) - seqStart;
+		int m = pattern.length();
+		if (seq.getLength() != seqLen) {
+			throw new IOException("Sequence " + seq.getHeader() +
+					" differs from its k-mer index.");
+		}
+		if (m > seqLen) {
+			throw new IOException("DNA motifs cannot be larger than FASTA");
+		}
+		byte[] codes = new byte[m];
+		boolean isDNA = m >= this.k;
+		for (int i = 0; i < m && isDNA; i++) {
+			int code = PackedDNA.encode(pattern.charAt(i));
+			codes[i] = (byte)code;
+			isDNA = code != -1;
+		}
+		if (!isDNA) {
+			return null;
+		}
+		int rarest = -1, kmerAt = 0, fewest = Integer.MAX_VALUE;
+		for (int j = 0; j <= m - this.k; j++) { // find the rarest k-mer
+			int kmer = 0;
+			for (int i = j; i < j + this.k; i++) {
+				kmer = (kmer << 2) | codes[i];
+			}
+			int count = this.kmerStarts.get(kmer + 1) - this.kmerStarts.get(kmer);
+			if (count < fewest) {
+				fewest = count;
+				rarest = kmer;
+				kmerAt = j;
+			}
+		}
+		int low = this.kmerStarts.get(rarest);
+		int high = this.kmerStarts.get(rarest + 1);
+		int target = seqStart + kmerAt;
+		while (low < high) { // first posting within the sequence
+			int mid = (low + high) >>> 1;
+			if (this.postings.get(mid) < target) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		int[] hits = new int[4];
+		int numHits = 0;
+		int end = this.kmerStarts.get(rarest + 1);
+		for (int h = low; h < end; h++) {
+			int offset = this.postings.get(h) - target;
+			if (offset + m > seqLen) {
+				break; // beyond this sequence
+			}
+			if (this.isEqual(seq, codes, offset)) {
+				if (numHits == hits.length) {
+					hits = Arrays.copyOf(hits, numHits * 2);
+				}
+				hits[numHits++] = offset;
+			}
+		}
+		return Arrays.copyOf(hits, numHits);
+	}
+
+	/**
+	 * Given base codes of a pattern, test to see whether they equal the
+	 * sequence at a specific offset.
+	 * @return boolean whether the pattern occurs at the offset.
+	 * */
+	private boolean isEqual(FASTASequence seq, byte[] codes, int offset) {
+		PackedDNA packed = seq.getPacked();
+		if (packed != null) {
+			if (packed.nextAmbiguous(offset) < offset + codes.length) {
+				return false;
+			}
+			for (int i = 0; i < codes.length; i++) {
+				if (packed.getCode(offset + i) != codes[i]) {
+					return false;
+				}
+			}
+		}
+		else {
+			CharSequence sequence = seq.getBases(); // read mapped bases directly
+			for (int i = 0; i < codes.length; i++) {
+				if (PackedDNA.encode(sequence.charAt(offset + i)) != codes[i]) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Aligns a motif onto the forward strand of a sequence.
+	 * @param seq FASTASequence object which is part of the group.
+	 * @param motif LinearDNAMotif object.
+	 * @throws IOException
+	 * */
+	public void align(FASTASequence seq, LinearDNAMotif motif)
+			throws IOException {
+		int[] hits = this.find(seq, motif.getSequence());
+		if (hits == null) {
+			new RabinKarp().align(seq, motif);
+		}
+		else {
+			for (int offset: hits) {
+				seq.addMapping(motif, offset);
+			}
+		}
+	}
+
+	/**
+	 * Aligns a motif onto the reverse strand of a sequence without reverse
+	 * complimenting it. As is the case with reverse complimenting the
+	 * sequence, offsets are in reverse-strand coordinates.
+	 * @param seq FASTASequence object which is part of the group.
+	 * @param motif LinearDNAMotif object.
+	 * @throws IOException
+	 * */
+	public void alignReverse(FASTASequence seq, LinearDNAMotif motif)
+			throws IOException {
+		int[] hits = this.find(seq, motif.toReverseComplement());
+		if (hits == null) {
+			new RabinKarp().alignReverse(seq, motif);
+		}
+		else {
+			int last = seq.getLength() - motif.getLength();
+			for (int h = hits.length - 1; h >= 0; h--) {
+				seq.addMapping(motif, last - hits[h]);
+			}
+		}
+	}
+
+	/**
+	 * Aligns a motif onto both strands of a sequence. Reverse-strand
+	 * mappings are saved in forward-strand coordinates, following any
+	 * forward-strand mapping at the same offset.
+	 * @param seq FASTASequence object which is part of the group.
+	 * @param motif LinearDNAMotif object.
+	 * @throws IOException
+	 * */
+	public void alignBothStrands(FASTASequence seq, LinearDNAMotif motif)
+			throws IOException {
+		int[] forward = this.find(seq, motif.getSequence());
+		int[] reverse = this.find(seq, motif.toReverseComplement());
+		if (forward == null || reverse == null) {
+			new RabinKarp().alignBothStrands(seq, motif);
+		}
+		else {
+			int f = 0, r = 0;
+			while (f < forward.length || r < reverse.length) {
+				if (r == reverse.length ||
+						(f < forward.length && forward[f] <= reverse[r])) {
+					seq.addMapping(motif, forward[f++], false);
+				}
+				else {
+					seq.addMapping(motif, reverse[r++], true);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of bases per indexed k-mer
+	 */
+	public int getK() {
+		return k;
+	}
+}
@@ -0,0 +1,119 @@
+package alignment;
+
+
+/**
+ * Scoring a window using a CompiledPWM requires one lookup per column. Since
+ * most PWMs are short, each block of BLOCK_SIZE columns is instead compiled
+ * into a table of scores indexed by the 2-bit code of the block's k-mer. A
+ * window's score is then derived from a rolling 2-bit code of the sequence
+ * using one array read per block.
+ * <p>
+ * The rolling code holds the most recent base in its lowest 2 bits, hence
+ * windows of at most 32 bases are supported. Since blocks are summed in a
+ * different order to P-MATCH, table scores are only compared against the
+ * raw-score threshold; windows exceeding it are re-scored by the CompiledPWM
+ * so that mappings are identical to those of P-MATCH.
+ * @author Parsa Hosseini
+ * */
+public class KmerTable {
+	public static final int BLOCK_SIZE = 6; // columns per table.
+	public static final int MAX_WIDTH = 32; // bases per rolling code.
+	private CompiledPWM pwm;
+	private int[] shifts; // bit-offset of each block in the rolling code.
+	private int[] masks; // mask of each block's k-mer code.
+	private double[][] forward; // per block, k-mer code references score.
+	private double[][] reverse; // as above, albeit for the reverse strand.
+
+	public KmerTable(CompiledPWM pwm) {
+		this.setPWM(pwm);
+		int width = pwm.getWidth();
+		int numBlocks = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		this.shifts = new int[numBlocks];
+		this.masks = new int[numBlocks];
+		this.forward = new double[numBlocks][];
+		this.reverse = new double[numBlocks][];
+		for (int b = 0; b < numBlocks; b++) {
+			int start = b * BLOCK_SIZE;
+			int end = Math.min(width, start + BLOCK_SIZE);
+			this.shifts[b] = (width - end) << 1;
+			this.masks[b] = (1 << ((end - start) << 1)) - 1;
+			this.forward[b] = new double[this.masks[b] + 1];
+			this.reverse[b] = new double[this.masks[b] + 1];
+			for (int kmer = 0; kmer <= this.masks[b]; kmer++) {
+				double fwd = 0, rev = 0;
+				for (int pos = start; pos < end; pos++) {
+					int code = (kmer >>> ((end - 1 - pos) << 1)) & 3;
+					int mirror = width - 1 - pos; // column on the reverse strand
+					fwd += pwm.getWeight(pos, code);
+					rev += pwm.getComplementWeight(mirror, code);
+				}
+				this.forward[b][kmer] = fwd;
+				this.reverse[b][kmer] = rev;
+			}
+		}
+	}
+
+	/**
+	 * Derives the number of bytes a table would require given a PWM width.
+	 * @param width number of PWM columns.
+	 * @return bytes required by both strands' tables.
+	 * */
+	public static long getSize(int width) {
+		long entries = 0;
+		for (int start = 0; start < width; start += BLOCK_SIZE) {
+			int len = Math.min(BLOCK_SIZE, width - start);
+			entries += 1L << (len << 1);
+		}
+		return entries * 2 * (Double.SIZE / Byte.SIZE);
+	}
+
+	/**
+	 * Determine whether the forward-strand window ending at the latest base
+	 * of a rolling code maps.
+	 * @param window rolling 2-bit code; latest base in the lowest bits.
+	 * @param codes base codes of the sequence.
+	 * @param offset first base of the window.
+	 * @return boolean whether the window maps.
+	 * */
+	public boolean matches(long window, byte[] codes, int offset) {
+		double score = 0;
+		for (int b = 0; b < this.forward.length; b++) {
+			score += this.forward[b][(int)(window >>> this.shifts[b]) &
+			                         this.masks[b]];
+		}
+		return score >= this.getPWM().getThreshold() &&
+				this.getPWM().isMatch(this.getPWM().score(codes, offset));
+	}
+
+	/**
+	 * Determine whether the reverse-strand window spanning the same bases
+	 * as the forward-strand window of a rolling code maps.
+	 * @param window rolling 2-bit code; latest base in the lowest bits.
+	 * @param codes base codes of the sequence.
+	 * @param offset first forward-strand base of the window.
+	 * @return boolean whether the window maps.
+	 * */
+	public boolean matchesReverse(long window, byte[] codes, int offset) {
+		double score = 0;
+		for (int b = 0; b < this.reverse.length; b++) {
+			score += this.reverse[b][(int)(window >>> this.shifts[b]) &
+			                         this.masks[b]];
+		}
+		return score >= this.getPWM().getThreshold() &&
+				this.getPWM().isMatch(this.getPWM().scoreReverse(codes, offset));
+	}
+
+	/**
+	 * @return the compiled pwm
+	 */
+	public CompiledPWM getPWM() {
+		return pwm;
+	}
+
+	/**
+	 * @param pwm the compiled pwm to set
+	 */
+	private void setPWM(CompiledPWM pwm) {
+		this.pwm = pwm;
+	}
+}
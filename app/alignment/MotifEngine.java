@@ -0,0 +1,39 @@
+package alignment;
+
+/**
+ * DNA motifs can be aligned using differing string-matching algorithms.
+ * Each MotifEngine references one such algorithm, enabling the user to
+ * select which algorithm the ExhaustiveMotifAlignment object invokes.
+ * @author Parsa Hosseini
+ * */
+public enum MotifEngine {
+	RABIN_KARP("Rabin-Karp"),
+	AHO_CORASICK("Aho-Corasick"),
+	FM_INDEX("FM-index"),
+	KMER_HASH("k-mer hash");
+
+	private String name;
+
+	private MotifEngine(String name) {
+		this.setName(name);
+	}
+
+	/**
+	 * @return the name
+	 */
+	public String get() {
+		return name;
+	}
+
+	/**
+	 * @param name the name to set
+	 */
+	private void setName(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public String toString() {
+		return this.get();
+	}
+}
@@ -0,0 +1,102 @@
+package alignment;
+
+import group.FASTASequence;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import bindingsite.LinearDNAMotif;
+
+
+/**
+ * Multi-pattern engines find the hits of every motif in a single pass,
+ * hence hits of differing motifs are interleaved. A MotifHits object
+ * collects such hits and saves them grouped by motif in catalog order, so
+ * that the resultant mappings equal those of aligning each motif in turn.
+ * <p>
+ * Given n motifs, pattern m + n references the reverse compliment of
+ * motif m; engines built for both strands hence align both in one pass,
+ * without reverse complimenting the sequence. Motifs which an engine cannot
+ * compile are aligned using Rabin-Karp in their catalog position. Engines
+ * are never modified once built, and are shared by threads.
+ * @author Parsa Hosseini
+ * */
+class MotifHits {
+	private int numMotifs;
+	private int[] patterns; // pattern of each hit.
+	private int[] offsets; // forward-strand offset of each hit.
+	private int size;
+
+	public MotifHits(int numMotifs) {
+		this.numMotifs = numMotifs;
+		this.patterns = new int[16];
+		this.offsets = new int[16];
+	}
+
+	/**
+	 * Adds a hit of a pattern.
+	 * @param pattern index of the pattern.
+	 * @param offset forward-strand offset of the hit.
+	 * */
+	public void add(int pattern, int offset) {
+		if (this.size == this.patterns.length) {
+			this.patterns = Arrays.copyOf(this.patterns, this.size * 2);
+			this.offsets = Arrays.copyOf(this.offsets, this.size * 2);
+		}
+		this.patterns[this.size] = pattern;
+		this.offsets[this.size] = offset;
+		this.size++;
+	}
+
+	/**
+	 * Saves hits to the sequence, grouping them by motif in catalog order.
+	 * Offsets of each motif keep the order in which they were added, hence
+	 * engines must add each motif's hits in ascending order; a
+	 * reverse-strand hit following a forward-strand hit at the same offset.
+	 * @param seq FASTASequence object.
+	 * @param motifs catalog of motifs.
+	 * @param compiled whether each motif was aligned by the engine.
+	 * @param bothStrands whether strands are flagged.
+	 * @throws IOException
+	 * */
+	public void save(FASTASequence seq, List<LinearDNAMotif> motifs,
+			boolean[] compiled, boolean bothStrands) throws IOException {
+		int[] starts = new int[this.numMotifs + 1]; // counting-sort by motif
+		for (int h = 0; h < this.size; h++) {
+			starts[this.patterns[h] % this.numMotifs + 1]++;
+		}
+		for (int m = 0; m < this.numMotifs; m++) {
+			starts[m + 1] += starts[m];
+		}
+		int[] sorted = new int[this.size];
+		boolean[] reverse = new boolean[this.size];
+		int[] fill = Arrays.copyOf(starts, this.numMotifs);
+		for (int h = 0; h < this.size; h++) {
+			int idx = fill[this.patterns[h] % this.numMotifs]++;
+			sorted[idx] = this.offsets[h];
+			reverse[idx] = this.patterns[h] >= this.numMotifs;
+		}
+		for (int m = 0; m < this.numMotifs; m++) {
+			LinearDNAMotif motif = motifs.get(m);
+			if (!compiled[m]) {
+				if (bothStrands) {
+					new RabinKarp().alignBothStrands(seq, motif);
+				}
+				else {
+					new RabinKarp().align(seq, motif);
+				}
+			}
+			else if (bothStrands) {
+				for (int h = starts[m]; h < starts[m + 1]; h++) {
+					seq.addMapping(motif, sorted[h], reverse[h]);
+				}
+			}
+			else {
+				for (int h = starts[m]; h < starts[m + 1]; h++) {
+					seq.addMapping(motif, sorted[h]);
+				}
+			}
+		}
+	}
+}
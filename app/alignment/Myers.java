@@ -0,0 +1,223 @@
+package alignment;
+
+import group.FASTASequence;
+import group.PackedDNA;
+
+import java.io.IOException;
+import java.util.List;
+
+import bindingsite.IUPAC;
+import bindingsite.LinearDNAMotif;
+
+
+/**
+ * Binding sites often tolerate substitutions, hence exact matching can miss
+ * functional sites. Using Myers' bit-vector algorithm, the edit distance
+ * between a motif and the best alignment ending at each base is derived
+ * from the prior base's distances using a handful of bitwise operations.
+ * Each motif is therefore aligned in linear time, regardless of how many
+ * edits are tolerated; mismatch variants are never enumerated.
+ * <p>
+ * Each motif position is a bit of a 64-bit word; positions match every
+ * base their IUPAC code references, and ambiguous bases of a sequence
+ * match no position. Since edits yield runs of neighboring alignments, an
+ * alignment is only saved where its distance is no more than that of the
+ * alignments ending at either neighboring base; exact matches are hence
+ * always saved. Its offset is that of the motif-length window ending where
+ * the alignment ends, and its distance is saved alongside the offset.
+ * <p>
+ * Motifs longer than 64 positions, or holding non-IUPAC characters, are
+ * aligned exactly using Rabin-Karp.
+ * @author Parsa Hosseini
+ * */
+public class Myers {
+	public static final int WORD_SIZE = Long.SIZE; // positions per word.
+	private static final int ALPHABET = PackedDNA.AMBIGUOUS + 1;
+	private List<LinearDNAMotif> motifs;
+	private int maxDistance; // most edits an alignment may have.
+	private boolean[] compiled; // whether a motif has bit-vectors.
+	private long[] forward; // motif * ALPHABET + base references positions.
+	private long[] reverse; // as above, albeit reverse compliments.
+
+	/**
+	 * Derives the positions each base matches for every motif and its
+	 * reverse compliment.
+	 * @param motifs catalog of motifs.
+	 * @param maxDistance most edits an alignment may have.
+	 * */
+	public Myers(List<LinearDNAMotif> motifs, int maxDistance) {
+		this.setMotifs(motifs);
+		this.setMaxDistance(maxDistance);
+		this.compiled = new boolean[motifs.size()];
+		this.forward = new long[motifs.size() * ALPHABET];
+		this.reverse = new long[motifs.size() * ALPHABET];
+		for (int m = 0; m < motifs.size(); m++) {
+			String seq = motifs.get(m).getSequence();
+			if (seq.length() > 0 && seq.length() <= WORD_SIZE &&
+					IUPAC.isIUPAC(seq)) { // others use Rabin-Karp
+				this.compiled[m] = true;
+				this.compile(seq, this.forward, m);
+				this.compile(IUPAC.reverseComplement(seq), this.reverse, m);
+			}
+		}
+	}
+
+	/**
+	 * Sets the bit of each motif position within the vector of every base
+	 * the position references.
+	 * */
+	private void compile(String seq, long[] vectors, int m) {
+		for (int i = 0; i < seq.length(); i++) {
+			int mask = IUPAC.toMask(seq.charAt(i));
+			for (int base = 0; base < 4; base++) {
+				if ((mask & (1 << base)) != 0) {
+					vectors[m * ALPHABET + base] |= 1L << i;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Aligns every motif in the catalog onto the FASTASequence, allowing
+	 * at most the maximum edit distance.
+	 * @throws IOException
+	 * */
+	public void align(FASTASequence seq) throws IOException {
+		this.align(seq, false);
+	}
+
+	/**
+	 * Aligns every motif in the catalog onto both strands of the
+	 * FASTASequence. Reverse-strand mappings are saved in forward-strand
+	 * coordinates, following any forward-strand mapping at the same offset.
+	 * @throws IOException
+	 * */
+	public void alignBothStrands(FASTASequence seq) throws IOException {
+		this.align(seq, true);
+	}
+
+	/**
+	 * Aligns each motif and, if desired, its reverse compliment in one pass.
+	 * The score of the alignment ending at each base is tracked using the
+	 * motif's vertical delta vectors; an alignment is saved once the next
+	 * base's score shows it to be a local minimum.
+	 * @throws IOException
+	 * */
+	private void align(FASTASequence seq, boolean bothStrands)
+			throws IOException {
+		byte[] codes = seq.getCodes(null);
+		int seqLen = seq.getLength();
+		for (int m = 0; m < this.getMotifs().size(); m++) {
+			LinearDNAMotif motif = this.getMotifs().get(m);
+			int len = motif.getLength();
+			if (!this.compiled[m]) {
+				if (bothStrands) {
+					new RabinKarp().alignBothStrands(seq, motif);
+				}
+				else {
+					new RabinKarp().align(seq, motif);
+				}
+				continue;
+			}
+			if (len > seqLen)  {
+				throw new IOException("DNA motifs cannot be larger than FASTA");
+			}
+			int maxDistance = Math.min(this.getMaxDistance(), len - 1);
+			long high = 1L << (len - 1);
+			long fwdPv = -1L, fwdMv = 0, revPv = -1L, revMv = 0;
+			int fwdScore = len, revScore = len;
+			int fwdBefore = len + 1, revBefore = len + 1; // scores of base j - 2
+			int fwdPrior = len + 1, revPrior = len + 1; // scores of base j - 1
+			for (int j = 0; j <= seqLen; j++) {
+				int fwd = len + 1, rev = len + 1; // scores of base j
+				if (j < seqLen) {
+					int base = codes[j];
+					long eq = this.forward[m * ALPHABET + base];
+					long xv = eq | fwdMv;
+					long xh = (((eq & fwdPv) + fwdPv) ^ fwdPv) | eq;
+					long ph = fwdMv | ~(xh | fwdPv);
+					long mh = fwdPv & xh;
+					fwdScore += (ph & high) != 0 ? 1 : (mh & high) != 0 ? -1 : 0;
+					ph <<= 1;
+					mh <<= 1;
+					fwdPv = mh | ~(xv | ph);
+					fwdMv = ph & xv;
+					fwd = fwdScore;
+					if (bothStrands) {
+						eq = this.reverse[m * ALPHABET + base];
+						xv = eq | revMv;
+						xh = (((eq & revPv) + revPv) ^ revPv) | eq;
+						ph = revMv | ~(xh | revPv);
+						mh = revPv & xh;
+						revScore += (ph & high) != 0 ? 1 : (mh & high) != 0 ? -1 : 0;
+						ph <<= 1;
+						mh <<= 1;
+						revPv = mh | ~(xv | ph);
+						revMv = ph & xv;
+						rev = revScore;
+					}
+				}
+				int offset = j - len; // window ending at base j - 1
+				if (offset >= 0) {
+					if (this.isMinimum(fwdBefore, fwdPrior, fwd, maxDistance)) {
+						seq.addMapping(motif, offset, false, fwdPrior);
+					}
+					if (bothStrands && this.isMinimum(revBefore, revPrior, rev,
+							maxDistance)) {
+						seq.addMapping(motif, offset, true, revPrior);
+					}
+				}
+				fwdBefore = fwdPrior;
+				revBefore = revPrior;
+				fwdPrior = fwd;
+				revPrior = rev;
+			}
+		}
+	}
+
+	/**
+	 * Determine whether the alignment ending at a base is saved; its score
+	 * must be within the maximum distance and no more than the scores of
+	 * the alignments ending at either neighboring base. A motif aligns
+	 * anywhere given as many edits as it has positions, hence the maximum
+	 * distance of each motif is less than its length.
+	 * @param prior score of the alignment ending at the prior base.
+	 * @param score score of the alignment.
+	 * @param next score of the alignment ending at the next base.
+	 * @param maxDistance most edits an alignment of the motif may have.
+	 * @return boolean whether the alignment is saved.
+	 * */
+	private boolean isMinimum(int prior, int score, int next,
+			int maxDistance) {
+		return score <= maxDistance && score <= prior && 
+				score <= next;
+	}
+
+	/**
+	 * @return the motifs
+	 */
+	private List<LinearDNAMotif> getMotifs() {
+		return motifs;
+	}
+
+	/**
+	 * @param motifs the motifs to set
+	 */
+	private void setMotifs(List<LinearDNAMotif> motifs) {
+		this.motifs = motifs;
+	}
+
+	/**
+	 * @return the maximum edit distance
+	 */
+	public int getMaxDistance() {
+		return maxDistance;
+	}
+
+	/**
+	 * @param maxDistance the maximum edit distance to set
+	 */
+	private void setMaxDistance(int maxDistance) {
+		this.maxDistance = maxDistance;
+	}
+}
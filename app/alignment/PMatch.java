@@ -3,7 +3,6 @@ package alignment;
 import group.FASTAFragment;
 
 import java.io.IOException;
-import java.util.ArrayList;
 
 import parameter.ParameterMap;
 import parameter.ParameterName;
@@ -28,10 +27,7 @@ public class PMatch {
 		double prob = (score - this.getPWM().sumColumnMins()) /
 				(this.getPWM().sum() - this.getPWM().sumColumnMins());
 		if (prob >= ParameterMap.toDouble(ParameterName.PWM_CUTOFF)) {
-			if (!this.frag.getParent().getMappings().containsKey(this.pwm)) {
-				this.frag.getParent().getMappings().put(this.pwm, new ArrayList<Integer>());
-			}
-			this.frag.getParent().getMappings().get(this.pwm).add(this.frag.getLocation());
+			this.frag.getParent().addMapping(this.pwm, this.frag.getLocation());
 		}
 	}
 
@@ -0,0 +1,235 @@
+package alignment;
+
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Scoring each PWM on its own traverses the sequence once per PWM, reading
+ * every base once per PWM. A PWMBatch instead scores all PWMs sharing a
+ * width in one pass; each base of a window is read once, after which its
+ * weight is added to the score of every PWM in the batch.
+ * <p>
+ * Weights are laid out struct-of-arrays; the weights of all PWMs for a
+ * given column and base code are adjacent, at index
+ * (column * STRIDE + code) * size + pwm. Scoring a column therefore reads
+ * one contiguous run of weights, which remains cache-resident across
+ * windows. A window is abandoned once no PWM can reach its threshold given
+ * the best score reachable from the remaining columns.
+ * <p>
+ * Columns are summed in P-MATCH order, hence scores, and mappings, are
+ * identical to those of each CompiledPWM, whichever PWMKernel sums them.
+ * Once built, a batch is never modified and can be shared by threads.
+ * @author Parsa Hosseini
+ * */
+public class PWMBatch {
+	private static final int STRIDE = CompiledPWM.STRIDE;
+	public static final PWMKernel KERNEL = PWMKernel.LANES; // default.
+	public static final int CHECK_INTERVAL = 4; // columns between checks.
+	private PWMKernel kernel; // kernel which sums columns.
+	private CompiledPWM[] pwms; // PWMs of the batch.
+	private int width; // number of columns shared by all PWMs.
+	private double[] weights; // (column * STRIDE + code) * size + pwm.
+	private double[] complements; // as above, albeit complimented codes.
+	private double[] bounds; // column * size + pwm; best score from column on.
+	private double[] thresholds; // minimum raw score of each PWM.
+
+	public PWMBatch(List<CompiledPWM> pwms) {
+		this(pwms, KERNEL);
+	}
+
+	/**
+	 * Lays out the weights of PWMs sharing a width.
+	 * @param pwms compiled PWMs; all of the same width.
+	 * @param kernel kernel which sums columns.
+	 * */
+	public PWMBatch(List<CompiledPWM> pwms, PWMKernel kernel) {
+		this.kernel = kernel;
+		int size = pwms.size();
+		this.pwms = pwms.toArray(new CompiledPWM[size]);
+		this.width = this.pwms[0].getWidth();
+		this.weights = new double[this.width * STRIDE * size];
+		this.complements = new double[this.width * STRIDE * size];
+		this.bounds = new double[(this.width + 1) * size];
+		this.thresholds = new double[size];
+		for (int p = 0; p < size; p++) {
+			CompiledPWM pwm = this.pwms[p];
+			if (pwm.getWidth() != this.width) {
+				throw new IllegalArgumentException("PWMs of a batch must " +
+						"share a width.");
+			}
+			this.thresholds[p] = pwm.getThreshold();
+			for (int col = this.width - 1; col >= 0; col--) {
+				double highest = 0; // ambiguous bases weigh zero
+				for (int code = 0; code < STRIDE; code++) {
+					int idx = (col * STRIDE + code) * size + p;
+					this.weights[idx] = pwm.getWeight(col, code);
+					this.complements[idx] = pwm.getComplementWeight(col, code);
+					highest = Math.max(highest, this.weights[idx]);
+				}
+				this.bounds[col * size + p] =
+						this.bounds[(col + 1) * size + p] + highest;
+			}
+		}
+	}
+
+	/**
+	 * Scores every window of the sequence against each PWM of the batch.
+	 * Hits of each PWM are encoded as offset * 2, plus one if on the
+	 * reverse strand; in ascending order, a forward-strand hit preceding a
+	 * reverse-strand hit at the same offset.
+	 * @param codes base codes of the sequence.
+	 * @param seqLen number of bases.
+	 * @param bothStrands whether the reverse strand is also scored.
+	 * @return per PWM, its encoded hits.
+	 * */
+	public int[][] align(byte[] codes, int seqLen, boolean bothStrands) {
+		int size = this.pwms.length;
+		int[][] hits = new int[size][];
+		int[] numHits = new int[size];
+		for (int p = 0; p < size; p++) {
+			hits[p] = new int[4];
+		}
+		double[] scores = new double[size];
+		double[] reverse = new double[size];
+		boolean isLanes = this.kernel == PWMKernel.LANES;
+		for (int offset = 0; offset <= seqLen - this.width; offset++) {
+			int last = offset + this.width - 1;
+			boolean isForward, isReverse;
+			if (isLanes) {
+				isForward = this.sum(this.weights, codes, offset, 1, scores);
+				isReverse = bothStrands && this.sum(this.complements, codes,
+						last, -1, reverse);
+			}
+			else {
+				isForward = this.score(this.weights, codes, offset, 1, scores);
+				isReverse = bothStrands && this.score(this.complements, codes,
+						last, -1, reverse);
+			}
+			if (!isForward && !isReverse) {
+				continue;
+			}
+			for (int p = 0; p < size; p++) {
+				if (isForward && this.pwms[p].isMatch(scores[p])) {
+					hits[p] = PWMBatch.add(hits[p], numHits[p]++, offset << 1);
+				}
+				if (isReverse && this.pwms[p].isMatch(reverse[p])) {
+					hits[p] = PWMBatch.add(hits[p], numHits[p]++,
+							(offset << 1) | 1);
+				}
+			}
+		}
+		for (int p = 0; p < size; p++) {
+			hits[p] = Arrays.copyOf(hits[p], numHits[p]);
+		}
+		return hits;
+	}
+
+	/**
+	 * Sums the weights of a window, column-by-column, for all PWMs of the
+	 * batch. Scoring stops once no PWM can reach its threshold.
+	 * @param weights weights or complimented weights.
+	 * @param codes base codes of the sequence.
+	 * @param first base of the first column.
+	 * @param step direction in which the window is read.
+	 * @param scores array to populate with the score of each PWM.
+	 * @return boolean whether any PWM may still map.
+	 * */
+	private boolean score(double[] weights, byte[] codes, int first, int step,
+			double[] scores) {
+		int size = scores.length;
+		Arrays.fill(scores, 0);
+		for (int col = 0, i = first; col < this.width; col++, i += step) {
+			int base = (col * STRIDE + codes[i]) * size;
+			int bound = (col + 1) * size;
+			boolean isAlive = false;
+			for (int p = 0; p < size; p++) {
+				double score = scores[p] + weights[base + p];
+				scores[p] = score;
+				isAlive |= score + this.bounds[bound + p] >= this.thresholds[p];
+			}
+			if (!isAlive) {
+				return false; // every threshold is now unreachable
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sums the weights of a window as per the lane kernel. Each column is
+	 * added to all PWMs in a loop free of branches, so that it is compiled
+	 * to SIMD additions; PWMs are only checked against their thresholds
+	 * every CHECK_INTERVAL columns.
+	 * @param weights weights or complimented weights.
+	 * @param codes base codes of the sequence.
+	 * @param first base of the first column.
+	 * @param step direction in which the window is read.
+	 * @param scores array to populate with the score of each PWM.
+	 * @return boolean whether any PWM may still map.
+	 * */
+	private boolean sum(double[] weights, byte[] codes, int first, int step,
+			double[] scores) {
+		int size = scores.length;
+		Arrays.fill(scores, 0);
+		for (int col = 0, i = first; col < this.width; col++, i += step) {
+			int base = (col * STRIDE + codes[i]) * size;
+			for (int p = 0; p < size; p++) {
+				scores[p] += weights[base + p];
+			}
+			if ((col + 1) % CHECK_INTERVAL == 0 && col + 1 < this.width &&
+					!this.isAlive(scores, (col + 1) * size)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Determines whether any PWM can reach its threshold given its partial
+	 * score and the best score of its remaining columns.
+	 * @param scores partial score of each PWM.
+	 * @param bound index of the bounds of the remaining columns.
+	 * @return boolean whether any PWM may still map.
+	 * */
+	private boolean isAlive(double[] scores, int bound) {
+		for (int p = 0; p < scores.length; p++) {
+			if (scores[p] + this.bounds[bound + p] >= this.thresholds[p]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Appends an encoded hit, growing the array if full.
+	 * @return the array holding the hit.
+	 * */
+	private static int[] add(int[] hits, int idx, int hit) {
+		if (idx == hits.length) {
+			hits = Arrays.copyOf(hits, idx * 2);
+		}
+		hits[idx] = hit;
+		return hits;
+	}
+
+	/**
+	 * @return the number of PWMs in the batch
+	 */
+	public int size() {
+		return this.pwms.length;
+	}
+
+	/**
+	 * @return the number of columns shared by all PWMs
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the kernel which sums columns
+	 */
+	public PWMKernel getKernel() {
+		return kernel;
+	}
+}
@@ -0,0 +1,44 @@
+package alignment;
+
+
+/**
+ * A PWMBatch can sum its columns using differing kernels. The lane kernel
+ * adds a column's weights to every PWM of the batch in a branch-free loop
+ * over contiguous arrays, which VMs able to vectorise loops, i.e. HotSpot,
+ * compile to SIMD instructions; a batch of PWMs is thereby scored several
+ * PWMs per instruction. The scalar kernel fuses each addition with its
+ * early-rejection check, and suits VMs which do not vectorise loops.
+ * <p>
+ * The kernel is selected using the PWM_KERNEL parameter. Both kernels are
+ * plain Java, and sum columns in the same order, hence their scores and
+ * mappings are identical on any VM.
+ * @author Parsa Hosseini
+ * */
+public enum PWMKernel {
+	LANES("Lanes"),
+	SCALAR("Scalar");
+
+	private String name;
+
+	private PWMKernel(String name) {
+		this.setName(name);
+	}
+	/**
+	 * @return the name
+	 */
+	public String get() {
+		return name;
+	}
+
+	/**
+	 * @param name the name to set
+	 */
+	private void setName(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public String toString() {
+		return this.get();
+	}
+}
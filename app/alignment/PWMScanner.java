@@ -0,0 +1,239 @@
+package alignment;
+
+import group.FASTASequence;
+import group.PackedDNA;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import parameter.ParameterMap;
+import parameter.ParameterName;
+
+import bindingsite.PositionWeightMatrix;
+
+
+/**
+ * P-MATCH aligns a PWM onto a sequence by splitting the sequence into
+ * FASTAFragment objects; one per window. A PWMScanner instead scores each
+ * window in-place, directly over the sequence's base codes. Each sequence is
+ * encoded once and every PWM is slid across it using primitive index
+ * arithmetic, hence no objects are created per window.
+ * <p>
+ * Windows are rejected early using CompiledPWM objects; surviving windows
+ * are summed in the same column order as P-MATCH, hence mappings are
+ * identical to those of P-MATCH. Compiled PWMs are never modified, hence a
+ * scanner can be shared by threads.
+ * <p>
+ * The reverse strand is scored by reading each window backwards using
+ * complimented weights; columns are still summed in P-MATCH order, hence
+ * scores equal those of the reverse complimented sequence.
+ * <p>
+ * Short PWMs are scored using k-mer tables, so long as their tables fit the
+ * k-mer table budget. Others sharing a width are scored together in a
+ * PWMBatch, each window being read once for all of them; the remainder are
+ * scored column-by-column. Batched mappings are saved in catalog order,
+ * hence mappings are unaffected by batching.
+ * @author Parsa Hosseini
+ * */
+public class PWMScanner {
+	private CompiledPWM[] compiled; // one per PWM, in catalog order.
+	private KmerTable[] tables; // per PWM, k-mer table; null if over-budget.
+	private PWMBatch[] batches; // batches of PWMs sharing a width.
+	private int[] batchOf; // per PWM, index of its batch; -1 if unbatched.
+	private int[] memberOf; // per PWM, index within its batch.
+	private PWMKernel kernel; // kernel with which batches sum columns.
+
+	public PWMScanner(List<PositionWeightMatrix> matrices) {
+		this(matrices, ParameterMap.toDouble(ParameterName.PWM_CUTOFF), 
+				ParameterMap.toInteger(ParameterName.KMER_BUDGET) * 1024L,
+				ParameterMap.toEnum(ParameterName.PWM_KERNEL, PWMKernel.class));
+	}
+
+	/**
+	 * Compiles each PWM given a cutoff. PWMs are given k-mer tables in
+	 * catalog order until the memory budget is exhausted; the rest are
+	 * batched by width.
+	 * @param matrices catalog of PWMs.
+	 * @param cutoff minimum probability a window must have.
+	 * @param budget bytes which k-mer tables may occupy.
+	 * */
+	public PWMScanner(List<PositionWeightMatrix> matrices, double cutoff,
+			long budget) {
+		this(matrices, cutoff, budget, PWMBatch.KERNEL);
+	}
+
+	/**
+	 * Compiles each PWM given a cutoff, batching PWMs using a specific
+	 * kernel.
+	 * @param matrices catalog of PWMs.
+	 * @param cutoff minimum probability a window must have.
+	 * @param budget bytes which k-mer tables may occupy.
+	 * @param kernel kernel with which batches sum their columns.
+	 * */
+	public PWMScanner(List<PositionWeightMatrix> matrices, double cutoff,
+			long budget, PWMKernel kernel) {
+		this.kernel = kernel;
+		this.compiled = new CompiledPWM[matrices.size()];
+		this.tables = new KmerTable[matrices.size()];
+		for (int p = 0; p < matrices.size(); p++) {
+			this.compiled[p] = new CompiledPWM(matrices.get(p), cutoff);
+			int width = this.compiled[p].getWidth();
+			long size = KmerTable.getSize(width);
+			if (width <= KmerTable.MAX_WIDTH && size <= budget) {
+				this.tables[p] = new KmerTable(this.compiled[p]);
+				budget -= size;
+			}
+		}
+		this.batch(kernel);
+	}
+
+	/**
+	 * Groups PWMs without k-mer tables by width; widths shared by at least
+	 * two such PWMs are given a PWMBatch.
+	 * @param kernel kernel with which batches sum their columns.
+	 * */
+	private void batch(PWMKernel kernel) {
+		this.batchOf = new int[this.compiled.length];
+		this.memberOf = new int[this.compiled.length];
+		Arrays.fill(this.batchOf, -1);
+		Map<Integer, List<Integer>> widths = new LinkedHashMap<Integer, List<Integer>>();
+		for (int p = 0; p < this.compiled.length; p++) {
+			if (this.tables[p] == null) {
+				Integer width = this.compiled[p].getWidth();
+				if (!widths.containsKey(width)) {
+					widths.put(width, new ArrayList<Integer>());
+				}
+				widths.get(width).add(p);
+			}
+		}
+		List<PWMBatch> batches = new ArrayList<PWMBatch>();
+		for (List<Integer> members: widths.values()) {
+			if (members.size() > 1) {
+				List<CompiledPWM> pwms = new ArrayList<CompiledPWM>();
+				for (int i = 0; i < members.size(); i++) {
+					this.batchOf[members.get(i)] = batches.size();
+					this.memberOf[members.get(i)] = i;
+					pwms.add(this.compiled[members.get(i)]);
+				}
+				batches.add(new PWMBatch(pwms, kernel));
+			}
+		}
+		this.batches = batches.toArray(new PWMBatch[batches.size()]);
+	}
+
+	/**
+	 * Slides every PWM across the FASTASequence, saving the offset of each
+	 * window whose probability passes the PWM cutoff.
+	 * */
+	public void align(FASTASequence seq) {
+		this.align(seq, false);
+	}
+
+	/**
+	 * Slides every PWM across both strands of the FASTASequence in a single
+	 * pass. Reverse-strand mappings are saved in forward-strand coordinates.
+	 * */
+	public void alignBothStrands(FASTASequence seq) {
+		this.align(seq, true);
+	}
+
+	/**
+	 * Scores each window on the forward strand and, if desired, the
+	 * reverse strand; the latter is read backwards with complimented codes.
+	 * */
+	private void align(FASTASequence seq, boolean bothStrands) {
+		byte[] codes = seq.getCodes(null);
+		int seqLen = seq.getLength();
+		int[][][] hits = new int[this.batches.length][][];
+		for (int b = 0; b < this.batches.length; b++) {
+			hits[b] = this.batches[b].align(codes, seqLen, bothStrands);
+		}
+		for (int p = 0; p < this.compiled.length; p++) {
+			CompiledPWM pwm = this.compiled[p];
+			if (this.tables[p] != null) {
+				this.align(seq, codes, this.tables[p], bothStrands);
+			}
+			else if (this.batchOf[p] != -1) { // save in catalog order
+				for (int hit: hits[this.batchOf[p]][this.memberOf[p]]) {
+					boolean isReverse = (hit & 1) == 1;
+					this.save(seq, pwm, hit >>> 1, !isReverse, isReverse,
+							bothStrands);
+				}
+			}
+			else {
+				for (int offset = 0; offset <= seqLen - pwm.getWidth(); offset++) {
+					boolean isForward = pwm.matches(codes, offset);
+					boolean isReverse = bothStrands && 
+							pwm.matchesReverse(codes, offset);
+					this.save(seq, pwm, offset, isForward, isReverse, bothStrands);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Slides a PWM across the sequence using its k-mer table. Bases are
+	 * rolled into a 2-bit code; windows spanning ambiguous bases cannot be
+	 * encoded and are therefore scored column-by-column.
+	 * */
+	private void align(FASTASequence seq, byte[] codes, KmerTable table,
+			boolean bothStrands) {
+		CompiledPWM pwm = table.getPWM();
+		int width = pwm.getWidth();
+		long window = 0; // rolling 2-bit code of the latest bases.
+		int ambiguous = -1; // index of the latest ambiguous base.
+		for (int i = 0; i < seq.getLength(); i++) {
+			int code = codes[i];
+			if (code == PackedDNA.AMBIGUOUS) {
+				ambiguous = i;
+				code = 0;
+			}
+			window = (window << 2) | code;
+			int offset = i - width + 1;
+			if (offset >= 0) {
+				boolean isForward, isReverse;
+				if (ambiguous >= offset) {
+					isForward = pwm.matches(codes, offset);
+					isReverse = bothStrands && pwm.matchesReverse(codes, offset);
+				}
+				else {
+					isForward = table.matches(window, codes, offset);
+					isReverse = bothStrands && 
+							table.matchesReverse(window, codes, offset);
+				}
+				this.save(seq, pwm, offset, isForward, isReverse, bothStrands);
+			}
+		}
+	}
+
+	/**
+	 * Saves the mappings of a window on either strand. Strands are only
+	 * flagged if both strands are aligned.
+	 * */
+	private void save(FASTASequence seq, CompiledPWM pwm, int offset,
+			boolean isForward, boolean isReverse, boolean bothStrands) {
+		if (!bothStrands) {
+			if (isForward) {
+				seq.addMapping(pwm.getPWM(), offset);
+			}
+		}
+		else {
+			if (isForward) {
+				seq.addMapping(pwm.getPWM(), offset, false);
+			}
+			if (isReverse) {
+				seq.addMapping(pwm.getPWM(), offset, true);
+			}
+		}
+	}
+
+	/**
+	 * @return the kernel with which batches sum their columns
+	 */
+	public PWMKernel getKernel() {
+		return kernel;
+	}
+}
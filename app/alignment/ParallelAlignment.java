@@ -0,0 +1,237 @@
+package alignment;
+
+import group.FASTASequence;
+import group.Group;
+import gui.OperationUpdater;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Aligning sequences one-at-a-time leaves all but one processor idle. A
+ * ParallelAlignment object instead splits each group into work-units of
+ * sequences which are aligned across a fork/join pool; idle workers steal
+ * units from busy ones.
+ * <p>
+ * Each sequence is confined to exactly one work-unit. Within that unit, the
+ * sequence is aligned by every alignment mode, forward then reverse strand,
+ * in the same order as a sequential alignment. Hence, each sequence's
+ * mappings are only ever accessed by one thread and are identical
+ * regardless of the number of workers. If dual-strand, both strands are
+ * instead aligned in one pass.
+ * <p>
+ * Should only counts be needed, each sequence is set to count its mappings
+ * rather than retain them before it is aligned. Group-wide totals are
+ * counted as mappings are saved, each worker counting into its own stripe.
+ * Should mappings be retained off-heap, each sequence's store is instead
+ * moved off-heap before it is aligned.
+ * @author Parsa Hosseini
+ * */
+public class ParallelAlignment extends OperationUpdater {
+	private static final int UNIT_SIZE = 4; // sequences per work-unit.
+	private List<AbstractAlignment> alignments;
+	private int workers; // number of fork/join threads.
+	private boolean dualStrand; // whether both strands are aligned at once.
+	private AtomicInteger numAligned; // sequences aligned so-far.
+	private int numSequences; // sequences across all groups.
+	private boolean countsOnly; // whether mappings are only counted.
+	private boolean offHeap; // whether mappings are retained off-heap.
+
+	public ParallelAlignment(List<AbstractAlignment> alignments, int workers,
+			boolean dualStrand) {
+		this.setAlignments(alignments);
+		this.setWorkers(workers);
+		this.setDualStrand(dualStrand);
+		this.numAligned = new AtomicInteger();
+	}
+
+	/**
+	 * Aligns all sequences of each group given every alignment mode.
+	 * @param groups Group objects whose sequences are to be aligned.
+	 * @throws IOException
+	 * */
+	public void align(Group[] groups) throws IOException {
+		this.numSequences = 0;
+		this.numAligned.set(0);
+		for (Group group: groups) {
+			this.numSequences += group.getSize();
+			group.startCounting(); // totals are kept as mappings are saved
+		}
+		ForkJoinPool pool = new ForkJoinPool(this.getWorkers());
+		try {
+			for (Group group: groups) {
+				this.align(pool, group.getParser().getSequences());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Aligns a list of sequences across a pool, returning once all are
+	 * aligned.
+	 * @param pool fork/join pool of workers.
+	 * @param seqs FASTASequence objects to align.
+	 * @throws IOException
+	 * */
+	protected void align(ForkJoinPool pool, List<FASTASequence> seqs)
+			throws IOException {
+		try {
+			pool.invoke(new AlignmentUnit(seqs, 0, seqs.size()));
+		} catch (RuntimeException e) { // alignment errors are wrapped
+			for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+				if (t instanceof IOException) {
+					throw (IOException)t;
+				}
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Aligns a single sequence given every alignment mode.
+	 * @throws IOException
+	 * */
+	private void align(FASTASequence seq) throws IOException {
+		if (this.isCountsOnly()) {
+			seq.getStore().countOnly();
+		}
+		else if (this.isOffHeap()) {
+			seq.getStore().moveOffHeap();
+		}
+		for (AbstractAlignment alignment: this.getAlignments()) {
+			if (this.isDualStrand()) {
+				alignment.dualStrandAlign(seq);
+			}
+			else {
+				alignment.forwardStrandAlign(seq);
+				alignment.reverseStrandAlign(seq);
+			}
+		}
+		this.aligned(seq, this.numAligned.incrementAndGet());
+	}
+
+	/**
+	 * Invoked once a sequence is aligned. Progress is aggregated across
+	 * workers, updating the GUI once per percent.
+	 * @param seq the aligned FASTASequence object.
+	 * @param done number of sequences aligned so-far.
+	 * */
+	protected void aligned(FASTASequence seq, int done) {
+		int step = Math.max(1, this.numSequences / 100);
+		if (done % step == 0 || done == this.numSequences) {
+			this.updateGUI("Parallel alignment - " + this.getWorkers() +
+					" workers - " + seq.getHeader());
+			this.updateGUI(done, this.numSequences); // update progress-bar
+		}
+	}
+
+	/**
+	 * A work-unit references a range of sequences within a group. Large
+	 * units are recursively split in half until small enough to align.
+	 * */
+	private class AlignmentUnit extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private List<FASTASequence> seqs;
+		private int start; // first sequence index (inclusive).
+		private int end; // last sequence index (exclusive).
+
+		public AlignmentUnit(List<FASTASequence> seqs, int start, int end) {
+			this.seqs = seqs;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.end - this.start <= UNIT_SIZE) {
+				try {
+					for (int i = this.start; i < this.end; i++) {
+						align(this.seqs.get(i));
+					}
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			else {
+				int mid = (this.start + this.end) >>> 1;
+				invokeAll(new AlignmentUnit(this.seqs, this.start, mid),
+						new AlignmentUnit(this.seqs, mid, this.end));
+			}
+		}
+	}
+
+	/**
+	 * @return the alignments
+	 */
+	private List<AbstractAlignment> getAlignments() {
+		return alignments;
+	}
+
+	/**
+	 * @param alignments the alignments to set
+	 */
+	private void setAlignments(List<AbstractAlignment> alignments) {
+		this.alignments = alignments;
+	}
+
+	/**
+	 * @return the workers
+	 */
+	public int getWorkers() {
+		return workers;
+	}
+
+	/**
+	 * @param workers the workers to set
+	 */
+	private void setWorkers(int workers) {
+		this.workers = workers;
+	}
+
+	/**
+	 * @return whether mappings are only counted
+	 */
+	public boolean isCountsOnly() {
+		return countsOnly;
+	}
+
+	/**
+	 * @param countsOnly whether mappings are only counted
+	 */
+	public void setCountsOnly(boolean countsOnly) {
+		this.countsOnly = countsOnly;
+	}
+
+	/**
+	 * @return whether mappings are retained off-heap
+	 */
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+
+	/**
+	 * @param offHeap whether mappings are retained off-heap
+	 */
+	public void setOffHeap(boolean offHeap) {
+		this.offHeap = offHeap;
+	}
+
+	/**
+	 * @return whether both strands are aligned at once
+	 */
+	public boolean isDualStrand() {
+		return dualStrand;
+	}
+
+	/**
+	 * @param dualStrand whether both strands are aligned at once
+	 */
+	private void setDualStrand(boolean dualStrand) {
+		this.dualStrand = dualStrand;
+	}
+}
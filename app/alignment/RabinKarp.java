@@ -3,7 +3,7 @@ package alignment;
 import group.FASTASequence;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.List;
 
 import bindingsite.LinearDNAMotif;
 
@@ -22,7 +22,7 @@ public class RabinKarp {
 	 * */
 	public void align(FASTASequence seq, LinearDNAMotif motif) throws IOException {
 		// create empty array to prevent null-pointer exceptions later-on.
-		char[] fastaList = seq.getSequence().toCharArray();
+		char[] fastaList = seq.toCharArray();
 		char[] motifList = motif.getSequence().toCharArray();
 		int motifLen = motifList.length;
 		int fastaLen = fastaList.length;
@@ -46,10 +46,7 @@ public class RabinKarp {
 			if (patternHash == seqHash) {
 				if (isEqual(fastaList, motifList, offset))  {
 					// motif is found in the sequence; add its offset.
-					if (!seq.getMappings().containsKey(motif)) {
-						seq.getMappings().put(motif, new ArrayList<Integer>());
-					}
-					seq.getMappings().get(motif).add(offset);
+					seq.addMapping(motif, offset);
 				}
 			}
 			if (offset < diff) {
@@ -63,6 +60,80 @@ public class RabinKarp {
 		}
 	}
 
+	/**
+	 * Execute the Rabin-Karp algorithm on both strands in a single pass.
+	 * Since a motif and its reverse compliment have equal lengths, one
+	 * rolling hash of the sequence is compared against both pattern hashes;
+	 * the sequence itself is never reverse complimented. Reverse-strand
+	 * mappings are saved in forward-strand coordinates.
+	 * @throws IOException 
+	 * */
+	public void alignBothStrands(FASTASequence seq, LinearDNAMotif motif) 
+			throws IOException {
+		char[] fastaList = seq.toCharArray();
+		char[] motifList = motif.getSequence().toCharArray();
+		char[] reverseList = motif.toReverseComplement().toCharArray();
+		int motifLen = motifList.length;
+		int fastaLen = fastaList.length;
+		if (motifLen > fastaList.length)  {
+			throw new IOException("DNA motifs cannot be larger than FASTA");
+		}
+		long patternHash = 0; // for computing hash.
+		long reverseHash = 0;
+		long seqHash = 0;
+		for (int i = 0; i < motifLen; i++) {
+			patternHash = (patternHash * RabinKarp.RADIX + motifList[i]) % 
+					RabinKarp.PRIME; 
+			reverseHash = (reverseHash * RabinKarp.RADIX + reverseList[i]) % 
+					RabinKarp.PRIME; 
+			seqHash = (seqHash * RabinKarp.RADIX + fastaList[i]) % 
+					RabinKarp.PRIME;
+		}
+		long modPow = this.modularPower(RabinKarp.RADIX, motifLen-1,
+				RabinKarp.PRIME);
+		int diff = fastaLen - motifLen;
+		for (int offset = 0; offset <= diff; offset++) {
+			if (patternHash == seqHash && isEqual(fastaList, motifList, offset)) {
+				seq.addMapping(motif, offset, false);
+			}
+			if (reverseHash == seqHash && isEqual(fastaList, reverseList, offset)) {
+				seq.addMapping(motif, offset, true);
+			}
+			if (offset < diff) {
+				seqHash -= modPow * fastaList[offset];
+				while (seqHash < 0) {
+					seqHash += RabinKarp.PRIME;
+				}
+				seqHash = (RabinKarp.RADIX * seqHash + 
+						fastaList[offset + motifLen]) % RabinKarp.PRIME;
+			}
+		}
+	}
+
+	/**
+	 * Execute the Rabin-Karp algorithm on the reverse strand, without
+	 * reverse complimenting the sequence. The motif's reverse compliment is
+	 * found on the forward strand, and offsets are converted into
+	 * reverse-strand coordinates; as if the sequence were reverse
+	 * complimented beforehand.
+	 * @throws IOException 
+	 * */
+	public void alignReverse(FASTASequence seq, LinearDNAMotif motif) 
+			throws IOException {
+		LinearDNAMotif rc = new LinearDNAMotif(motif.getFamily(), 
+				motif.getGene(), motif.toReverseComplement());
+		FASTASequence copy = new FASTASequence(seq.getHeader(), 
+				seq.getSequence());
+		this.align(copy, rc);
+		List<Integer> offsets = copy.getMappings().get(rc);
+		if (offsets != null) { // reverse-strand offsets are ascending
+			int last = seq.getLength() - motif.getLength();
+			for (int i = offsets.size() - 1; i >= 0; i--) {
+				seq.addMapping(motif, last - offsets.get(i));
+			}
+		}
+	}
+
 	/**
 	 * Computes the modular-power given a base, exponent and modulo.
 	 * @return modular-power.
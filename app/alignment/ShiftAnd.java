@@ -0,0 +1,227 @@
+package alignment;
+
+import group.FASTASequence;
+import group.PackedDNA;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import bindingsite.IUPAC;
+import bindingsite.LinearDNAMotif;
+
+
+/**
+ * Degenerate motifs, i.e. those with IUPAC codes such as R or N, cannot be
+ * matched character-by-character. Using the Shift-And algorithm, each
+ * motif position is instead a bit of a machine word; a position's bit is
+ * set for every base its IUPAC code references. Every motif position is
+ * then advanced using one shift and one bitwise-and per base.
+ * <p>
+ * Motifs are packed end-to-end into 64-bit words, hence a single word
+ * tracks many motifs and a catalog of degenerate motifs costs little more
+ * than a literal one. Motifs longer than 64 positions, or holding non-IUPAC
+ * characters, are aligned using Rabin-Karp. Ambiguous bases of a sequence
+ * match no motif position.
+ * @author Parsa Hosseini
+ * */
+public class ShiftAnd {
+	public static final int WORD_SIZE = Long.SIZE; // positions per word.
+	private static final int ALPHABET = PackedDNA.AMBIGUOUS + 1;
+	private List<LinearDNAMotif> motifs; // the packed catalog.
+	private boolean dualStrand; // whether reverse compliments are packed.
+	private boolean[] packed; // whether a motif is part of a word.
+	private long[] masks; // word * ALPHABET + base references positions.
+	private long[] starts; // per word, the first position of each pattern.
+	private long[] ends; // per word, the last position of each pattern.
+	private int[] patterns; // word * WORD_SIZE + bit references pattern.
+	private int[] lengths; // length of each pattern.
+	private int longest; // length of the longest packed motif.
+
+	public ShiftAnd(List<LinearDNAMotif> motifs) {
+		this(motifs, false);
+	}
+
+	/**
+	 * Create the words whose patterns are the catalog motifs and, if
+	 * dual-strand, their reverse compliments. Pattern m + n references the
+	 * reverse compliment of motif m, given n motifs.
+	 * @param motifs catalog of motifs.
+	 * @param dualStrand whether to pack reverse compliments.
+	 * */
+	public ShiftAnd(List<LinearDNAMotif> motifs, boolean dualStrand) {
+		this.setMotifs(motifs);
+		this.setDualStrand(dualStrand);
+		this.build();
+	}
+
+	/**
+	 * Determine whether a motif holds IUPAC codes other than A, C, G and T,
+	 * and hence must be aligned using a ShiftAnd object.
+	 * @param motif LinearDNAMotif object.
+	 * @return boolean whether the motif is degenerate.
+	 * */
+	public static boolean isDegenerate(LinearDNAMotif motif) {
+		String seq = motif.getSequence();
+		return IUPAC.isIUPAC(seq) && !IUPAC.isExact(seq);
+	}
+
+	/**
+	 * Get the sequence of a pattern; either a motif or its reverse
+	 * compliment.
+	 * @param p index of the pattern.
+	 * @return pattern sequence.
+	 * */
+	private String getPattern(int p) {
+		int numMotifs = this.getMotifs().size();
+		if (p < numMotifs) {
+			return this.getMotifs().get(p).getSequence();
+		}
+		return IUPAC.reverseComplement(
+				this.getMotifs().get(p - numMotifs).getSequence());
+	}
+
+	/**
+	 * Packs patterns into words in catalog order; a new word is started once
+	 * a pattern no longer fits the current word.
+	 * */
+	private void build() {
+		int numMotifs = this.getMotifs().size();
+		int numPatterns = this.isDualStrand() ? numMotifs * 2 : numMotifs;
+		this.packed = new boolean[numMotifs];
+		this.lengths = new int[numPatterns];
+		for (int m = 0; m < numMotifs; m++) {
+			String seq = this.getMotifs().get(m).getSequence();
+			if (seq.length() > 0 && seq.length() <= WORD_SIZE &&
+					IUPAC.isIUPAC(seq)) { // others use Rabin-Karp
+				this.packed[m] = true;
+				this.longest = Math.max(this.longest, seq.length());
+			}
+		}
+		List<Integer> firstPattern = new ArrayList<Integer>(); // of each word
+		int used = WORD_SIZE; // positions used of the current word
+		for (int p = 0; p < numPatterns; p++) {
+			if (this.packed[p % numMotifs]) {
+				this.lengths[p] = this.getPattern(p).length();
+				if (used + this.lengths[p] > WORD_SIZE) {
+					firstPattern.add(p);
+					used = 0;
+				}
+				used += this.lengths[p];
+			}
+		}
+		int numWords = firstPattern.size();
+		this.masks = new long[numWords * ALPHABET];
+		this.starts = new long[numWords];
+		this.ends = new long[numWords];
+		this.patterns = new int[numWords * WORD_SIZE];
+		int word = -1, bit = 0;
+		for (int p = 0; p < numPatterns; p++) {
+			if (this.packed[p % numMotifs]) {
+				if (word + 1 < numWords && firstPattern.get(word + 1) == p) {
+					word++;
+					bit = 0;
+				}
+				String seq = this.getPattern(p);
+				this.starts[word] |= 1L << bit;
+				for (int i = 0; i < seq.length(); i++, bit++) {
+					int mask = IUPAC.toMask(seq.charAt(i));
+					for (int base = 0; base < 4; base++) {
+						if ((mask & (1 << base)) != 0) {
+							this.masks[word * ALPHABET + base] |= 1L << bit;
+						}
+					}
+				}
+				this.ends[word] |= 1L << (bit - 1);
+				this.patterns[word * WORD_SIZE + bit - 1] = p;
+			}
+		}
+	}
+
+	/**
+	 * Aligns every motif in the catalog onto the FASTASequence in a single
+	 * pass. Mappings are saved per motif in catalog order.
+	 * @throws IOException
+	 * */
+	public void align(FASTASequence seq) throws IOException {
+		this.align(seq, false);
+	}
+
+	/**
+	 * Aligns every motif in the catalog onto both strands of the
+	 * FASTASequence in a single pass. Reverse-strand mappings are saved in
+	 * forward-strand coordinates.
+	 * @throws IOException
+	 * */
+	public void alignBothStrands(FASTASequence seq) throws IOException {
+		if (!this.isDualStrand()) {
+			throw new IOException("Shift-And lacks reverse-strand motifs");
+		}
+		this.align(seq, true);
+	}
+
+	/**
+	 * Advances the state of every word by each base of the sequence. A
+	 * state bit remains set only if its position, and all prior positions
+	 * of its pattern, match; hence a set end-bit denotes a hit.
+	 * @throws IOException
+	 * */
+	private void align(FASTASequence seq, boolean bothStrands)
+			throws IOException {
+		int seqLen = seq.getLength();
+		if (this.longest > seqLen)  {
+			throw new IOException("DNA motifs cannot be larger than FASTA");
+		}
+		byte[] codes = seq.getCodes(null);
+		int numMotifs = this.getMotifs().size();
+		int numWords = this.starts.length;
+		long[] states = new long[numWords];
+		MotifHits hits = new MotifHits(numMotifs);
+		for (int i = 0; i < seqLen; i++) {
+			int base = codes[i];
+			for (int w = 0; w < numWords; w++) {
+				long state = ((states[w] << 1) | this.starts[w]) &
+						this.masks[w * ALPHABET + base];
+				states[w] = state;
+				long found = state & this.ends[w];
+				while (found != 0) { // in ascending pattern order
+					int bit = Long.numberOfTrailingZeros(found);
+					int p = this.patterns[w * WORD_SIZE + bit];
+					if (p < numMotifs || bothStrands) {
+						hits.add(p, i - this.lengths[p] + 1);
+					}
+					found &= found - 1;
+				}
+			}
+		}
+		hits.save(seq, this.getMotifs(), this.packed, bothStrands);
+	}
+
+	/**
+	 * @return the motifs
+	 */
+	private List<LinearDNAMotif> getMotifs() {
+		return motifs;
+	}
+
+	/**
+	 * @param motifs the motifs to set
+	 */
+	private void setMotifs(List<LinearDNAMotif> motifs) {
+		this.motifs = motifs;
+	}
+
+	/**
+	 * @return whether reverse compliments are packed
+	 */
+	public boolean isDualStrand() {
+		return dualStrand;
+	}
+
+	/**
+	 * @param dualStrand whether reverse compliments are packed
+	 */
+	private void setDualStrand(boolean dualStrand) {
+		this.dualStrand = dualStrand;
+	}
+}
@@ -0,0 +1,106 @@
+package alignment;
+
+import group.AbundanceCounter;
+import group.FASTASequence;
+import group.Group;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import parser.FASTAParser;
+import parser.SequenceHandler;
+
+
+/**
+ * Parsing a whole group before aligning it requires memory proportional to
+ * the group's FASTA file. A StreamingAlignment object instead streams each
+ * group's records; records are collected into batches of BATCH_SIZE which
+ * are aligned across the pool, as per a ParallelAlignment. Each record
+ * only counts its mappings into its group's counter, after which the batch
+ * is dropped; memory is hence bound by the batch size and the number of
+ * binding sites, however many records are streamed.
+ * <p>
+ * Since records are streamed, duplicate headers are not collapsed, and
+ * per-sequence mappings are not available once aligned. Group-wide indices
+ * cannot be built prior to streaming, hence records are always scanned.
+ * @author Parsa Hosseini
+ * */
+public class StreamingAlignment extends ParallelAlignment {
+	public static final int BATCH_SIZE = 256; // records per batch.
+	private long numBytes; // size of the FASTA files being streamed.
+	private long bytesRead; // approximate bytes streamed so-far.
+
+	public StreamingAlignment(List<AbstractAlignment> alignments, int workers,
+			boolean dualStrand) {
+		super(alignments, workers, dualStrand);
+	}
+
+	/**
+	 * Streams and aligns all records of each group. Each group's sequences
+	 * are replaced by its streamed, and released, sequences.
+	 * @param groups Group objects whose FASTA files are to be streamed.
+	 * @throws IOException
+	 * */
+	@Override
+	public void align(Group[] groups) throws IOException {
+		this.numBytes = 0;
+		this.bytesRead = 0;
+		for (Group group: groups) {
+			this.numBytes += group.getParser().getFile().length();
+		}
+		final ForkJoinPool pool = new ForkJoinPool(this.getWorkers());
+		try {
+			for (Group group: groups) {
+				final Group streamed = group;
+				final List<FASTASequence> batch = new ArrayList<FASTASequence>();
+				group.getParser().clear();
+				final AbundanceCounter counter = group.startCounting();
+				group.getParser().stream(new SequenceHandler() {
+					@Override
+					public void handle(FASTASequence seq) throws IOException {
+						seq.getStore().countOnly(); // dropped once aligned
+						seq.getStore().setCounter(counter);
+						batch.add(seq);
+						if (batch.size() == BATCH_SIZE) {
+							flush(pool, batch, streamed);
+						}
+					}
+				});
+				this.flush(pool, batch, group);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Aligns a batch of records, whose mappings are thereby counted by
+	 * their group, after which the batch is dropped.
+	 * @throws IOException
+	 * */
+	private void flush(ForkJoinPool pool, List<FASTASequence> batch,
+			Group group) throws IOException {
+		this.align(pool, batch);
+		group.setNumStreamed(group.getNumStreamed() + batch.size());
+		batch.clear();
+	}
+
+	/**
+	 * Progress is approximated by the bytes of each aligned record relative
+	 * to the size of all streamed files.
+	 * */
+	@Override
+	protected synchronized void aligned(FASTASequence seq, int done) {
+		long prior = this.bytesRead;
+		this.bytesRead += seq.getHeader().length() + seq.getLength() + 2;
+		long step = Math.max(1, this.numBytes / 100);
+		if (prior / step != this.bytesRead / step) {
+			this.updateGUI("Streaming alignment - " + this.getWorkers() +
+					" workers - " + seq.getHeader());
+			this.updateGUI(Math.min(this.bytesRead, this.numBytes),
+					this.numBytes); // update progress-bar
+		}
+	}
+}
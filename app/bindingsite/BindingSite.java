@@ -17,4 +17,11 @@ public interface BindingSite {
 	 * */
 	public boolean sanityCheck() throws IOException;
 
+	/**
+	 * Binding sites parsed from a catalog are given a dense ordinal, which
+	 * indexes their totals; equality remains by name and content.
+	 * @return the ordinal; -1 if not parsed from a catalog.
+	 * */
+	public int getOrdinal();
+
 }
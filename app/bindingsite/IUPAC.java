@@ -0,0 +1,107 @@
+package bindingsite;
+
+
+/**
+ * Degenerate DNA motifs are represented using IUPAC nucleotide codes,
+ * whereby each code references a set of bases; i.e. R references A or G.
+ * Each set is modeled as a bit-mask over 2-bit base codes, such that A=1,
+ * C=2, G=4 and T=8. Scanners can therefore test whether a base satisfies a
+ * code using a single bitwise operation.
+ * @author Parsa Hosseini
+ * */
+public class IUPAC {
+	public static final int A = 1, C = 2, G = 4, T = 8;
+
+	/**
+	 * Maps an IUPAC code onto the set of bases it references.
+	 * @param code IUPAC nucleotide code.
+	 * @return bit-mask of bases, or 0 if not an IUPAC code.
+	 * */
+	public static int toMask(char code) {
+		switch (code) {
+		case 'A': return A;
+		case 'C': return C;
+		case 'G': return G;
+		case 'T': return T;
+		case 'R': return A | G;
+		case 'Y': return C | T;
+		case 'S': return C | G;
+		case 'W': return A | T;
+		case 'K': return G | T;
+		case 'M': return A | C;
+		case 'B': return C | G | T;
+		case 'D': return A | G | T;
+		case 'H': return A | C | T;
+		case 'V': return A | C | G;
+		case 'N': return A | C | G | T;
+		default: return 0;
+		}
+	}
+
+	/**
+	 * Determine whether a motif comprises of only the four DNA bases.
+	 * @param motif motif sequence.
+	 * @return boolean whether the motif is non-degenerate.
+	 * */
+	public static boolean isExact(String motif) {
+		for (int i = 0; i < motif.length(); i++) {
+			int mask = IUPAC.toMask(motif.charAt(i));
+			if (mask == 0 || Integer.bitCount(mask) > 1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Determine whether a motif comprises of only IUPAC codes; A, C, G and
+	 * T are codes too, hence exact motifs are also IUPAC motifs.
+	 * @param motif motif sequence.
+	 * @return boolean whether each character is an IUPAC code.
+	 * */
+	public static boolean isIUPAC(String motif) {
+		for (int i = 0; i < motif.length(); i++) {
+			if (IUPAC.toMask(motif.charAt(i)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Derives the compliment of an IUPAC code; i.e. R becomes Y. Characters
+	 * which are not IUPAC codes are their own compliment.
+	 * @param code IUPAC nucleotide code.
+	 * @return complimented code.
+	 * */
+	public static char complement(char code) {
+		switch (code) {
+		case 'A': return 'T';
+		case 'C': return 'G';
+		case 'G': return 'C';
+		case 'T': return 'A';
+		case 'R': return 'Y';
+		case 'Y': return 'R';
+		case 'K': return 'M';
+		case 'M': return 'K';
+		case 'B': return 'V';
+		case 'V': return 'B';
+		case 'D': return 'H';
+		case 'H': return 'D';
+		default: return code; // S, W, N and foreign characters
+		}
+	}
+
+	/**
+	 * Derives the reverse compliment of a degenerate motif.
+	 * @param motif motif sequence.
+	 * @return reverse complimented motif.
+	 * */
+	public static String reverseComplement(String motif) {
+		char[] rc = new char[motif.length()];
+		for (int i = 0; i < rc.length; i++) {
+			rc[i] = IUPAC.complement(motif.charAt(motif.length() - 1 - i));
+		}
+		return new String(rc);
+	}
+}
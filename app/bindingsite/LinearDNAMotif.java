@@ -15,6 +15,7 @@ import java.io.IOException;
 public class LinearDNAMotif extends DNASequence implements BindingSite {
 	private String family;
 	private String gene;
+	private int ordinal = -1; // catalog ordinal; -1 if not parsed.
 
 	/**
 	 * Create a LinearDNAMotif object.
@@ -41,16 +42,32 @@ public class LinearDNAMotif extends DNASequence implements BindingSite {
 		if (obj == null) {
 			return false;
 		}
-		if(obj instanceof LinearDNAMotif) { // equality based on gene name
+		if(obj instanceof LinearDNAMotif) { // equality by gene and sequence
 			LinearDNAMotif other = (LinearDNAMotif)obj;
-			return this.getGene().equals(other.getGene());
+			return this.getGene().equals(other.getGene()) &&
+					this.getSequence().equals(other.getSequence());
 		}
 		return false;
 	}
 	
 	@Override
-	public int hashCode() { // Gene name is unique.
-		return this.getGene().hashCode();
+	public int hashCode() { // genes may have many motifs.
+		return 31 * this.getGene().hashCode() + this.getSequence().hashCode();
+	}
+
+	@Override
+	public int getOrdinal() {
+		return ordinal;
+	}
+
+	/**
+	 * @param ordinal the ordinal to set; an ordinal is only set once.
+	 */
+	void setOrdinal(int ordinal) {
+		if (this.ordinal != -1) {
+			throw new IllegalStateException("Motif already has an ordinal.");
+		}
+		this.ordinal = ordinal;
 	}
 
 	/**
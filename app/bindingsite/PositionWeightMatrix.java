@@ -17,6 +17,7 @@ import matrix.Matrix;
  * @author Parsa Hosseini
  * */
 public class PositionWeightMatrix extends Matrix implements BindingSite {
+	private int ordinal = -1; // catalog ordinal; -1 if not parsed.
 	
 	public PositionWeightMatrix(double[][] data) {
 		super(data);
@@ -136,4 +137,19 @@ public class PositionWeightMatrix extends Matrix implements BindingSite {
 	public int hashCode() { // Gene name is unique.
 		return this.getName().hashCode();
 	}
+
+	@Override
+	public int getOrdinal() {
+		return ordinal;
+	}
+
+	/**
+	 * @param ordinal the ordinal to set; an ordinal is only set once.
+	 */
+	void setOrdinal(int ordinal) {
+		if (this.ordinal != -1) {
+			throw new IllegalStateException("PWM already has an ordinal.");
+		}
+		this.ordinal = ordinal;
+	}
 }
@@ -0,0 +1,144 @@
+package bindingsite;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Binding sites parsed from a catalog are each given a dense ordinal, so
+ * that per-binding site totals can be accumulated in arrays indexed by
+ * ordinal rather than in hash-maps. Each catalog reserves a contiguous
+ * block of ordinals, hence binding sites of differing catalogs, e.g. DNA
+ * motifs and PWMs, never share an ordinal. Binding sites of a catalog
+ * only share an ordinal if equal, i.e. a motif listed twice, so that totals
+ * by ordinal agree with totals keyed by binding site.
+ * <p>
+ * Binding sites built by hand have no ordinal, yet are resolved to the
+ * ordinal of the parsed binding site they equal using ordinalOf().
+ * <p>
+ * Only the latest catalog of each type holds a block; re-parsing a catalog
+ * frees its prior block, which is re-used by the first catalog it fits.
+ * Ordinals hence remain dense across reloads.
+ * @author Parsa Hosseini
+ * */
+public final class SiteOrdinals {
+	private static Map<Class<?>, int[]> blocks =
+			new LinkedHashMap<Class<?>, int[]>(); // per type, first and count.
+	private static Map<Class<?>, Map<BindingSite, Integer>> catalogs =
+			new HashMap<Class<?>, Map<BindingSite, Integer>>(); // per type.
+	private static volatile Map<BindingSite, Integer> ordinals =
+			new HashMap<BindingSite, Integer>(); // of all latest catalogs.
+	private static int next = 0; // ordinal following the last block.
+
+	private SiteOrdinals() {
+	}
+
+	/**
+	 * Reserves a contiguous block of ordinals for a catalog, freeing the
+	 * block of the prior catalog of the same type.
+	 * @param type type of binding site the catalog holds.
+	 * @param count number of binding sites in the catalog.
+	 * @return the first ordinal of the block.
+	 * */
+	public static synchronized int reserve(Class<?> type, int count) {
+		blocks.remove(type);
+		int first = 0;
+		boolean isFree = false;
+		while (!isFree) { // first gap in which the block fits
+			isFree = true;
+			for (int[] block: blocks.values()) {
+				if (first < block[0] + block[1] && block[0] < first + count) {
+					first = block[0] + block[1]; // overlaps; try past it
+					isFree = false;
+				}
+			}
+		}
+		blocks.put(type, new int[]{first, count});
+		next = 0;
+		for (int[] block: blocks.values()) {
+			next = Math.max(next, block[0] + block[1]);
+		}
+		return first;
+	}
+
+	/**
+	 * Gives each binding site of a catalog its ordinal, in catalog order;
+	 * binding sites equal to a prior binding site, i.e. listed twice, are
+	 * given its ordinal.
+	 * @param type type of binding site the catalog holds.
+	 * @param sites binding sites of the catalog.
+	 * @throws IllegalStateException if any binding site has an ordinal.
+	 * */
+	public static void assign(Class<?> type, List<? extends BindingSite> sites) {
+		Map<BindingSite, Integer> distinct = new HashMap<BindingSite, Integer>();
+		int[] offsets = new int[sites.size()];
+		for (int i = 0; i < sites.size(); i++) {
+			if (sites.get(i).getOrdinal() != -1) {
+				throw new IllegalStateException("Binding site " + sites.get(i) +
+						" already has an ordinal.");
+			}
+			Integer offset = distinct.get(sites.get(i));
+			if (offset == null) {
+				offset = distinct.size();
+				distinct.put(sites.get(i), offset);
+			}
+			offsets[i] = offset;
+		}
+		int first = SiteOrdinals.reserve(type, distinct.size());
+		Map<BindingSite, Integer> catalog = new HashMap<BindingSite, Integer>();
+		for (Map.Entry<BindingSite, Integer> entry: distinct.entrySet()) {
+			catalog.put(entry.getKey(), first + entry.getValue());
+		}
+		SiteOrdinals.publish(type, catalog);
+		for (int i = 0; i < sites.size(); i++) {
+			BindingSite tfbs = sites.get(i);
+			if (tfbs instanceof LinearDNAMotif) {
+				((LinearDNAMotif)tfbs).setOrdinal(first + offsets[i]);
+			}
+			else if (tfbs instanceof PositionWeightMatrix) {
+				((PositionWeightMatrix)tfbs).setOrdinal(first + offsets[i]);
+			}
+		}
+	}
+
+	/**
+	 * Replaces the ordinals of a type's catalog, so that binding sites built
+	 * by hand resolve to ordinals of the latest catalogs. Readers are given
+	 * a new map rather than one being modified, hence need no lock.
+	 * @param type type of binding site the catalog holds.
+	 * @param catalog ordinal of each distinct binding site.
+	 * */
+	private static synchronized void publish(Class<?> type,
+			Map<BindingSite, Integer> catalog) {
+		catalogs.put(type, catalog);
+		Map<BindingSite, Integer> all = new HashMap<BindingSite, Integer>();
+		for (Map<BindingSite, Integer> sites: catalogs.values()) {
+			all.putAll(sites);
+		}
+		ordinals = all;
+	}
+
+	/**
+	 * Resolves the ordinal of a binding site; binding sites built by hand
+	 * are given the ordinal of the parsed binding site they equal.
+	 * @param tfbs BindingSite object.
+	 * @return the ordinal; -1 if it equals no parsed binding site.
+	 * */
+	public static int ordinalOf(BindingSite tfbs) {
+		if (tfbs.getOrdinal() != -1) {
+			return tfbs.getOrdinal();
+		}
+		Integer ordinal = ordinals.get(tfbs);
+		return ordinal == null ? -1 : ordinal;
+	}
+
+	/**
+	 * @return the number of ordinals in use; an upper bound on the
+	 * ordinal of any binding site of the latest catalogs.
+	 */
+	public static synchronized int size() {
+		return next;
+	}
+}
@@ -0,0 +1,140 @@
+package group;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import bindingsite.BindingSite;
+import bindingsite.SiteOrdinals;
+
+
+/**
+ * An AbundanceCounter totals the mappings of each binding site across a
+ * group as mappings are saved, so that a GroupAbundanceWrapper is available
+ * once alignment finishes without walking the mappings of every sequence.
+ * <p>
+ * Each thread counts into its own stripe; an array indexed by binding site
+ * ordinal. Stripes are never shared, hence counting needs no locks or
+ * atomic operations. Stripes are merged once read, which must only occur
+ * once alignment has finished.
+ * @author Parsa Hosseini
+ * */
+public class AbundanceCounter {
+	private List<Stripe> stripes; // stripe of every thread which counted.
+	private ThreadLocal<Stripe> local; // stripe of the current thread.
+
+	public AbundanceCounter() {
+		this.stripes = new ArrayList<Stripe>();
+		this.local = new ThreadLocal<Stripe>() {
+			@Override
+			protected Stripe initialValue() {
+				Stripe stripe = new Stripe();
+				synchronized (AbundanceCounter.this.stripes) {
+					AbundanceCounter.this.stripes.add(stripe);
+				}
+				return stripe;
+			}
+		};
+	}
+
+	/**
+	 * Adds to the number of mappings of a binding site.
+	 * @param tfbs BindingSite object.
+	 * @param count number of mappings to add.
+	 * */
+	public void add(BindingSite tfbs, long count) {
+		this.local.get().add(tfbs, count);
+	}
+
+	/**
+	 * Adds the mappings of every binding site of a sequence.
+	 * @param store mappings of the sequence.
+	 * */
+	public void addAll(MappingStore store) {
+		Stripe stripe = this.local.get();
+		for (int id = 0; id < store.getNumSites(); id++) {
+			stripe.add(store.getSite(id), store.count(id));
+		}
+	}
+
+	/**
+	 * Merges the stripes of all threads into a wrapper. Totals are kept as
+	 * longs until merged, then checked to fit the wrapper's counts.
+	 * @return GroupAbundanceWrapper of the counted mappings.
+	 * @throws IllegalStateException if any total exceeds Integer.MAX_VALUE.
+	 * */
+	public GroupAbundanceWrapper toWrapper() {
+		int numOrdinals = SiteOrdinals.size();
+		long[] totals = new long[numOrdinals];
+		BindingSite[] sites = new BindingSite[numOrdinals];
+		Map<BindingSite, Long> unordered = new HashMap<BindingSite, Long>();
+		synchronized (this.stripes) {
+			for (Stripe stripe: this.stripes) {
+				for (int i = 0; i < stripe.sites.length; i++) {
+					if (stripe.sites[i] != null) {
+						sites[i] = stripe.sites[i];
+						totals[i] += stripe.counts[i];
+					}
+				}
+				for (BindingSite tfbs: stripe.unordered.keySet()) {
+					Long prior = unordered.get(tfbs);
+					unordered.put(tfbs, (prior == null ? 0 : prior) +
+							stripe.unordered.get(tfbs));
+				}
+			}
+		}
+		int[] counts = new int[numOrdinals];
+		for (int i = 0; i < numOrdinals; i++) {
+			counts[i] = AbundanceCounter.toCount(sites[i], totals[i]);
+		}
+		Map<BindingSite, Integer> unorderedCounts = 
+				new HashMap<BindingSite, Integer>();
+		for (Map.Entry<BindingSite, Long> entry: unordered.entrySet()) {
+			unorderedCounts.put(entry.getKey(), 
+					AbundanceCounter.toCount(entry.getKey(), entry.getValue()));
+		}
+		return new GroupAbundanceWrapper(counts, sites, unorderedCounts);
+	}
+
+	/**
+	 * Narrows the total of a binding site to a count.
+	 * @param tfbs BindingSite object.
+	 * @param total number of mappings of the binding site.
+	 * @return the total as an int.
+	 * @throws IllegalStateException if the total exceeds Integer.MAX_VALUE.
+	 * */
+	private static int toCount(BindingSite tfbs, long total) {
+		if (total > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Binding site " + tfbs + 
+					" has more than " + Integer.MAX_VALUE + " mappings.");
+		}
+		return (int)total;
+	}
+
+	/**
+	 * Counts of a single thread.
+	 * */
+	private static class Stripe {
+		private long[] counts = new long[SiteOrdinals.size()]; // per ordinal.
+		private BindingSite[] sites = new BindingSite[this.counts.length];
+		private Map<BindingSite, Long> unordered = new HashMap<BindingSite, Long>();
+
+		private void add(BindingSite tfbs, long count) {
+			int ordinal = SiteOrdinals.ordinalOf(tfbs);
+			if (ordinal == -1) { // equals no parsed binding site
+				Long prior = this.unordered.get(tfbs);
+				this.unordered.put(tfbs, (prior == null ? 0 : prior) + count);
+				return;
+			}
+			if (ordinal >= this.counts.length) { // catalog parsed since
+				int size = Math.max(ordinal + 1, SiteOrdinals.size());
+				this.counts = Arrays.copyOf(this.counts, size);
+				this.sites = Arrays.copyOf(this.sites, size);
+			}
+			this.sites[ordinal] = tfbs;
+			this.counts[ordinal] += count;
+		}
+	}
+}
@@ -10,23 +10,130 @@ package group;
 public abstract class DNASequence {
 	public static final char[] CHARSET = new char[]{'A', 'T', 'G', 'C'};
 	private String sequence;
+	private PackedDNA packed; // 2-bit representation; null if not packed.
+	private MappedDNA mapped; // view over a mapped file; null if not mapped.
 	
 	public DNASequence() {
-		this.setSequence(null);
+		this.setSequence((String)null);
 	}
 
 	/**
+	 * Returns the sequence. If the sequence is packed or mapped, it is
+	 * decoded on every call; alignment engines should therefore use
+	 * getPacked(), getBases() or getCodes().
 	 * @return the sequence
 	 */
 	public String getSequence() {
+		if (this.isPacked()) {
+			return this.getPacked().toString();
+		}
+		if (this.isMapped()) {
+			return this.getMapped().toString();
+		}
 		return sequence;
 	}
 
 	/**
+	 * Sets the sequence. Any prior packed or mapped representation is
+	 * discarded.
 	 * @param sequence the sequence to set
 	 */
 	public void setSequence(String sequence) {
 		this.sequence = sequence;
+		this.setPacked(null);
+		this.setMapped(null);
+	}
+
+	/**
+	 * Sets the sequence to a view over a memory-mapped file, so that its
+	 * bases are read without being decoded into a String.
+	 * @param mapped view over the bases of a record.
+	 * */
+	public void setSequence(MappedDNA mapped) {
+		this.setSequence((String)null);
+		this.setMapped(mapped);
+	}
+
+	/**
+	 * Gets the bases as a CharSequence without decoding packed or mapped
+	 * bases into a String. Scanners reading bases one at a time should use
+	 * this function rather than getSequence().
+	 * @return the bases; null if released.
+	 * */
+	public CharSequence getBases() {
+		if (this.isMapped()) {
+			return this.getMapped();
+		}
+		return this.getSequence();
+	}
+
+	/**
+	 * Copies the bases into a character array, decoding mapped bases
+	 * straight from the mapped file.
+	 * @return array of all bases.
+	 * */
+	public char[] toCharArray() {
+		if (this.isMapped()) {
+			return this.getMapped().toCharArray();
+		}
+		return this.getSequence().toCharArray();
+	}
+	
+	/**
+	 * Converts the sequence into its 2-bit packed representation. In doing
+	 * so, the String or mapped representation is released, reducing memory
+	 * usage approximately 8-fold.
+	 * */
+	public void pack() {
+		if (!this.isPacked() && this.getBases() != null) {
+			this.setPacked(new PackedDNA(this.getBases()));
+			this.sequence = null;
+			this.setMapped(null);
+		}
+	}
+	
+	/**
+	 * Determine whether the sequence is stored using 2 bits per base.
+	 * @return boolean whether the sequence is packed.
+	 * */
+	public boolean isPacked() {
+		return this.getPacked() != null;
+	}
+	
+	/**
+	 * @return the packed sequence; null if not packed.
+	 */
+	public PackedDNA getPacked() {
+		return packed;
+	}
+
+	/**
+	 * @param packed the packed sequence to set
+	 */
+	private void setPacked(PackedDNA packed) {
+		this.packed = packed;
+	}
+	
+	/**
+	 * Determine whether the sequence is a view over a memory-mapped file.
+	 * @return boolean whether the sequence is mapped.
+	 * */
+	public boolean isMapped() {
+		return this.getMapped() != null;
+	}
+
+	/**
+	 * @return the mapped sequence; null if not mapped.
+	 */
+	public MappedDNA getMapped() {
+		return mapped;
+	}
+
+	/**
+	 * @param mapped the mapped sequence to set
+	 */
+	private void setMapped(MappedDNA mapped) {
+		this.mapped = mapped;
 	}
 	
 	/**
@@ -34,6 +141,12 @@ public abstract class DNASequence {
 	 * @return integer representing sequence length.
 	 * */
 	public int getLength() {
+		if (this.isPacked()) {
+			return this.getPacked().getLength();
+		}
+		if (this.isMapped()) {
+			return this.getMapped().length();
+		}
 		return this.getSequence().length();
 	}
 	
@@ -43,44 +156,123 @@ public abstract class DNASequence {
 	 * @return String representing an individual base-pair.
 	 * */
 	public String getBase(int i) {
+		if (this.isPacked()) {
+			return String.valueOf(this.getPacked().charAt(i));
+		}
+		if (this.isMapped()) {
+			return String.valueOf(this.getMapped().charAt(i));
+		}
 		return this.getSequence().substring(i, i+1);
 	}
 	
+	/**
+	 * Encodes each base into its 2-bit code, one code per byte, so that
+	 * scanners can index weights or transitions with primitive arithmetic.
+	 * Characters outside the DNA alphabet are given the AMBIGUOUS code.
+	 * @param codes array to re-use if large enough; may be null.
+	 * @return array whose first getLength() elements are base codes.
+	 * */
+	public byte[] getCodes(byte[] codes) {
+		int length = this.getLength();
+		if (codes == null || codes.length < length) {
+			codes = new byte[length];
+		}
+		if (this.isPacked()) {
+			this.getPacked().toCodes(codes);
+		}
+		else if (this.isMapped()) {
+			this.getMapped().toCodes(codes);
+		}
+		else {
+			String seq = this.getSequence();
+			for (int i = 0; i < length; i++) {
+				int code = PackedDNA.encode(seq.charAt(i));
+				codes[i] = code == -1 ? PackedDNA.AMBIGUOUS : (byte)code;
+			}
+		}
+		return codes;
+	}
+	
 	/**
 	 * Reverses the actual sequence component of a DNASequence object.
 	 * */
 	public void reverse() {
-		StringBuilder reverseString = new StringBuilder();
-		for (int i=this.getLength()-1; i >= 0; i--) {
-			reverseString.append(this.getSequence().charAt(i));
+		if (this.isMapped()) { // mapped bases are read-only
+			this.setSequence(this.getMapped().toString());
+		}
+		if (this.isPacked()) {
+			this.getPacked().reverse();
+		}
+		else {
+			StringBuilder reverseString = new StringBuilder();
+			for (int i=this.getLength()-1; i >= 0; i--) {
+				reverseString.append(this.getSequence().charAt(i));
+			}
+			this.setSequence(reverseString.toString());
 		}
-		this.setSequence(reverseString.toString());
 	}
 	
 	/**
 	 * Derives the compliment of the sequence component of a DNASequence object.
 	 * */
 	public void complement() {
-		StringBuilder complimentString = new StringBuilder();
-		for (int i=0; i < this.getLength(); i++) {
-			char c = this.getSequence().charAt(i);
+		if (this.isMapped()) { // mapped bases are read-only
+			this.setSequence(this.getMapped().toString());
+		}
+		if (this.isPacked()) {
+			this.getPacked().complement();
+		}
+		else {
+			StringBuilder complimentString = new StringBuilder();
+			for (int i=0; i < this.getLength(); i++) {
+				char c = this.getSequence().charAt(i);
+				if (c == 'A') {
+					complimentString.append('T');
+				}
+				else if (c == 'T') {
+					complimentString.append('A');
+				}
+				else if (c == 'G') {
+					complimentString.append('C');
+				}
+				else if (c == 'C') {
+					complimentString.append('G');
+				}
+				else {
+					complimentString.append(c);
+				}
+			}
+			this.setSequence(complimentString.toString());
+		}
+	}
+	
+	/**
+	 * Derives the reverse compliment without modifying the sequence. Bases
+	 * outside the DNA alphabet are their own compliment.
+	 * @return String representing the reverse compliment.
+	 * */
+	public String toReverseComplement() {
+		String seq = this.getSequence();
+		char[] rc = new char[seq.length()];
+		for (int i = 0; i < rc.length; i++) {
+			char c = seq.charAt(seq.length() - 1 - i);
 			if (c == 'A') {
-				complimentString.append('T');
+				rc[i] = 'T';
 			}
 			else if (c == 'T') {
-				complimentString.append('A');
+				rc[i] = 'A';
 			}
 			else if (c == 'G') {
-				complimentString.append('C');
+				rc[i] = 'C';
 			}
 			else if (c == 'C') {
-				complimentString.append('G');
+				rc[i] = 'G';
 			}
 			else {
-				complimentString.append(c);
+				rc[i] = c;
 			}
 		}
-		this.setSequence(complimentString.toString());
+		return new String(rc);
 	}
 	
 	/**
@@ -1,8 +1,12 @@
 package group;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import bindingsite.BindingSite;
 
@@ -15,13 +19,13 @@ import bindingsite.BindingSite;
  * */
 public class FASTASequence extends DNASequence {
 	private String header;
-	private HashMap<BindingSite, List<Integer>> mappings; // TFBS mappings
+	private MappingStore mappings; // TFBS mappings, strands and distances
 
 	public FASTASequence(String header, String sequence) {
 		super();
 		this.setHeader(header);
 		this.setSequence(sequence);
-		this.setMappings(new HashMap<BindingSite, List<Integer>>());
+		this.setMappings(new MappingStore());
 	}
 
 	/**
@@ -38,27 +42,140 @@ public class FASTASequence extends DNASequence {
 	}
 
 	/**
-	 * @return the mappings
+	 * @return the mappings, as a view of each binding site to its offsets
 	 */
-	public HashMap<BindingSite, List<Integer>> getMappings() {
+	public Map<BindingSite, List<Integer>> getMappings() {
+		return this.getStore().asMap();
+	}
+
+	/**
+	 * @return the store holding the mappings
+	 */
+	public MappingStore getStore() {
 		return mappings;
 	}
 
 	/**
 	 * @param mappings the mappings to set
 	 */
-	private void setMappings(HashMap<BindingSite, List<Integer>> mappings) {
+	private void setMappings(MappingStore mappings) {
 		this.mappings = mappings;
 	}
 
+	/**
+	 * Saves the offset at which a specific binding site maps to this
+	 * sequence. Binding sites lacking prior mappings are given a new id.
+	 * @param tfbs BindingSite object which maps to the sequence.
+	 * @param offset zero-indexed location of the mapping.
+	 * */
+	public void addMapping(BindingSite tfbs, int offset) {
+		this.getStore().add(tfbs, offset, false, 0);
+	}
+
+	/**
+	 * Saves the offset at which a specific binding site maps to this
+	 * sequence, flagging whether the mapping is on the reverse strand.
+	 * Reverse-strand offsets are in forward-strand coordinates, i.e. the
+	 * first forward-strand base the binding site spans.
+	 * @param tfbs BindingSite object which maps to the sequence.
+	 * @param offset zero-indexed location of the mapping.
+	 * @param reverse whether the mapping is on the reverse strand.
+	 * */
+	public void addMapping(BindingSite tfbs, int offset, boolean reverse) {
+		this.getStore().add(tfbs, offset, reverse, 0);
+	}
+
+	/**
+	 * Saves an approximate mapping, alongside the edit distance between the
+	 * binding site and the sequence at its offset.
+	 * @param tfbs BindingSite object which maps to the sequence.
+	 * @param offset zero-indexed location of the mapping.
+	 * @param reverse whether the mapping is on the reverse strand.
+	 * @param distance edit distance of the mapping.
+	 * */
+	public void addMapping(BindingSite tfbs, int offset, boolean reverse,
+			int distance) {
+		this.getStore().add(tfbs, offset, reverse, distance);
+	}
+
+	/**
+	 * Gets the edit distance of a specific mapping.
+	 * @param tfbs BindingSite object which maps to the sequence.
+	 * @param i index of the mapping within the binding site's offsets.
+	 * @return edit distance; 0 if the mapping is exact.
+	 * */
+	public int getDistance(BindingSite tfbs, int i) {
+		int id = this.getStore().indexOf(tfbs);
+		return id != -1 && i < this.getStore().count(id) ? 
+				this.getStore().getDistance(id, i) : 0;
+	}
+
+	/**
+	 * Releases the bases of the sequence, retaining only its header and
+	 * mappings. Streamed sequences are released once aligned, so that only
+	 * mapping results are held in memory.
+	 * */
+	public void release() {
+		this.setSequence((String)null);
+	}
+
+	/**
+	 * Determine whether the bases of the sequence have been released.
+	 * @return boolean whether only the header and mappings remain.
+	 * */
+	public boolean isReleased() {
+		return this.getBases() == null;
+	}
+
+	/**
+	 * Determine whether a specific mapping is on the reverse strand.
+	 * @param tfbs BindingSite object which maps to the sequence.
+	 * @param i index of the mapping within the binding site's offsets.
+	 * @return boolean whether the mapping was flagged as reverse-strand.
+	 * */
+	public boolean isReverseStrand(BindingSite tfbs, int i) {
+		int id = this.getStore().indexOf(tfbs);
+		return id != -1 && i < this.getStore().count(id) && 
+				this.getStore().isReverse(id, i);
+	}
+
+	/**
+	 * Derives the SHA-1 hash of the headers and sequences of many FASTA
+	 * sequences, in order. Indices built over a group are identified by
+	 * this hash so that they can be re-used across runs.
+	 * @param seqs FASTASequence objects to hash.
+	 * @return hash as 40 hexadecimal characters.
+	 * @throws IOException
+	 * */
+	public static String digest(List<FASTASequence> seqs) throws IOException {
+		Charset utf8 = Charset.forName("UTF-8");
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			for (FASTASequence seq: seqs) {
+				md.update(seq.getHeader().getBytes(utf8));
+				md.update((byte)'\n');
+				md.update(seq.getSequence().getBytes(utf8));
+				md.update((byte)'\n');
+			}
+			StringBuilder hex = new StringBuilder();
+			for (byte b: md.digest()) {
+				hex.append(String.format("%02x", b & 0xFF));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("SHA-1 hashing is unavailable.");
+		}
+	}
+
 	/**
 	 * Splits a FASTA object into chunks of a preset length.
 	 * @param size length of each new substring.
 	 * */
 	public List<FASTAFragment> toFragments(int size) {
 		List<FASTAFragment> frags = new ArrayList<FASTAFragment>();
-		for (int i=0; i < this.getLength(); i++) {
-			String sub = this.getSequence().substring(i, Math.min(this.getLength(), (i + size)));
+		String seq = this.getSequence(); // decode packed sequences once.
+		for (int i=0; i < seq.length(); i++) {
+			String sub = seq.substring(i, Math.min(seq.length(), (i + size)));
 			FASTAFragment f = new FASTAFragment(this, this.getHeader(), sub, i);
 			if (f.getLength() == size) {
 				frags.add(f);
@@ -77,6 +194,10 @@ public class FASTASequence extends DNASequence {
 		}
 		if(obj instanceof FASTASequence) { // equality based on header
 			FASTASequence other = (FASTASequence)obj;
+			if (this.isReleased() || other.isReleased()) { // bases are gone
+				return this.getHeader().equals(other.getHeader()) &&
+						this.isReleased() == other.isReleased();
+			}
 			return (this.getHeader().equals(other.getHeader()) &&
 					this.getSequence().equals(other.getSequence()));
 		}
@@ -1,12 +1,7 @@
 package group;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import parser.FASTAParser;
 
-import bindingsite.BindingSite;
-
 
 /**
  * A Group is a collection of FASTA sequences, i.e. promoter sequences.
@@ -19,6 +14,8 @@ import bindingsite.BindingSite;
  * */
 public class Group {
 	private FASTAParser parser;
+	private AbundanceCounter counter; // totals mappings; null if not counting.
+	private int numStreamed; // sequences streamed, counted and then dropped.
 
 	public Group(FASTAParser parser) {
 		this.setParser(parser);
@@ -26,21 +23,52 @@ public class Group {
 
 	/**
 	 * A GroupMappingWrapper encapsulates behaviors and states to enable
-	 * contrasting binding-site abundance across different groups.
+	 * contrasting binding-site abundance across different groups. Groups
+	 * counted during alignment are wrapped at once; otherwise the mappings
+	 * of each sequence are totaled.
 	 * @return GroupMappingWrapper for the respective group.
 	 * */
 	public GroupAbundanceWrapper mappingWrapper() {
-		Map<BindingSite, Integer> maps = new HashMap<BindingSite, Integer>();
+		if (this.counter != null) {
+			return this.counter.toWrapper();
+		}
+		AbundanceCounter counter = new AbundanceCounter();
+		for (FASTASequence seq: this.getParser().getSequences()) {
+			counter.addAll(seq.getStore()); // counted or retained
+		}
+		return counter.toWrapper();
+	}
+
+	/**
+	 * Counts mappings of the group as they are saved, so that abundances
+	 * need not be totaled after alignment. Existing mappings are counted
+	 * first; sequences later added to the group must be given the counter.
+	 * Sequences streamed by a prior alignment are no longer counted.
+	 * @return the group's counter.
+	 * */
+	public AbundanceCounter startCounting() {
+		this.setNumStreamed(0);
+		AbundanceCounter counter = new AbundanceCounter();
 		for (FASTASequence seq: this.getParser().getSequences()) {
-			for (BindingSite tfbs: seq.getMappings().keySet()) {
-				if (!maps.containsKey(tfbs)) {
-					maps.put(tfbs, 0);
-				}
-				int newValue = seq.getMappings().get(tfbs).size();
-				maps.put(tfbs,  maps.get(tfbs) + newValue);
+			counter.addAll(seq.getStore());
+			seq.getStore().setCounter(counter);
+		}
+		this.counter = counter;
+		return counter;
+	}
+
+	/**
+	 * Determine whether any sequence only counted its mappings, in which
+	 * case its offsets were never retained.
+	 * @return boolean whether offsets are unavailable.
+	 * */
+	public boolean isCountingOnly() {
+		for (FASTASequence seq: this.getParser().getSequences()) {
+			if (seq.getStore().isCountingOnly()) {
+				return true;
 			}
 		}
-		return new GroupAbundanceWrapper(maps);
+		return false;
 	}
 
 	/**
@@ -52,13 +80,37 @@ public class Group {
 	}
 
 	/**
-	 * Return the number of sequences in the group; its size
+	 * Determine whether the group was streamed, in which case only its
+	 * group-wide counts were kept.
+	 * @return boolean whether per-sequence mappings are unavailable.
+	 * */
+	public boolean isStreamed() {
+		return this.getNumStreamed() > 0;
+	}
+
+	/**
+	 * Return the number of sequences in the group; its size. Streamed
+	 * sequences are no longer held, hence are given by getNumStreamed().
 	 * @return group size.
 	 * */
 	public int getSize() {
 		return this.getParser().getSequences().size();
 	}
 
+	/**
+	 * @return the number of sequences streamed
+	 */
+	public int getNumStreamed() {
+		return numStreamed;
+	}
+
+	/**
+	 * @param numStreamed the number of sequences streamed
+	 */
+	public void setNumStreamed(int numStreamed) {
+		this.numStreamed = numStreamed;
+	}
+
 	/**
 	 * @return the parser
 	 */
@@ -1,8 +1,10 @@
 package group;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import bindingsite.BindingSite;
+import bindingsite.SiteOrdinals;
 
 
 /**
@@ -11,43 +13,102 @@ import bindingsite.BindingSite;
  * specific binding site is found within a particular group. Having such
  * behaviors and states within a class enables the ability to efficiently
  * contrast abundance between a query and baseline group.
+ * <p>
+ * Counts of binding sites parsed from a catalog are held in an array
+ * indexed by their ordinals; only binding sites lacking an ordinal are
+ * counted in a map.
  * @author Parsa Hosseini
  * */
 public class GroupAbundanceWrapper {
-	private Map<BindingSite, Integer> maps;
+	private int[] counts; // per ordinal, number of mappings.
+	private BindingSite[] sites; // per ordinal, binding site; null if none.
+	private Map<BindingSite, Integer> unordered; // sites lacking ordinals
 	private int numMappings; // total number of TFBss mapping to group
-	
-	public GroupAbundanceWrapper(Map<BindingSite, Integer> maps) {
-		this.setMaps(maps);
+
+	/**
+	 * Create a wrapper given counts indexed by ordinal.
+	 * @param counts per ordinal, number of mappings.
+	 * @param sites per ordinal, the binding site; null if it never mapped.
+	 * @param unordered counts of binding sites lacking ordinals.
+	 * */
+	public GroupAbundanceWrapper(int[] counts, BindingSite[] sites,
+			Map<BindingSite, Integer> unordered) {
+		this.counts = counts;
+		this.sites = sites;
+		this.unordered = unordered;
 		this.computeNumMappings();
 	}
-	
+
 	/**
 	 * Compute the total number of binding sites which map to this specific
-	 * group. This is necessary since this count will contribute to a 
+	 * group. This is necessary since this count will contribute to a
 	 * contingency matrix; used to determine magnitude of binding site
 	 * over-representation
 	 * */
 	private void computeNumMappings() {
 		int sum = 0;
-		for (BindingSite tfbs: this.getMaps().keySet()) {
-			sum += this.getMaps().get(tfbs);
+		for (int count: this.counts) {
+			sum += count;
+		}
+		for (BindingSite tfbs: this.unordered.keySet()) {
+			sum += this.unordered.get(tfbs);
 		}
 		this.setNumMappings(sum);
 	}
-	
+
 	/**
-	 * @return the maps
+	 * Gets the number of times a binding site maps to the group. Binding
+	 * sites lacking ordinals, yet equal to a parsed binding site, are
+	 * resolved to its ordinal.
+	 * @param tfbs BindingSite object.
+	 * @return number of mappings; 0 if it never mapped.
+	 * */
+	public int getCount(BindingSite tfbs) {
+		int ordinal = SiteOrdinals.ordinalOf(tfbs);
+		if (ordinal != -1 && ordinal < this.sites.length &&
+				tfbs.equals(this.sites[ordinal])) {
+			return this.counts[ordinal];
+		}
+		Integer count = this.unordered.get(tfbs);
+		return count == null ? 0 : count;
+	}
+
+	/**
+	 * @param ordinal ordinal of a binding site.
+	 * @return the binding site; null if it never mapped.
 	 */
-	public Map<BindingSite, Integer> getMaps() {
-		return maps;
+	public BindingSite getSite(int ordinal) {
+		return ordinal < this.sites.length ? this.sites[ordinal] : null;
 	}
 
 	/**
-	 * @param maps the maps to set
+	 * @return the number of ordinals counted
 	 */
-	private void setMaps(Map<BindingSite, Integer> maps) {
-		this.maps = maps;
+	public int getNumOrdinals() {
+		return this.sites.length;
+	}
+
+	/**
+	 * @return counts of binding sites lacking ordinals
+	 */
+	public Map<BindingSite, Integer> getUnordered() {
+		return unordered;
+	}
+
+	/**
+	 * Derives a map of each binding site to its count; binding sites with
+	 * ordinals in ordinal order, followed by those lacking ordinals.
+	 * @return the maps
+	 */
+	public Map<BindingSite, Integer> getMaps() {
+		Map<BindingSite, Integer> maps = new LinkedHashMap<BindingSite, Integer>();
+		for (int ordinal = 0; ordinal < this.sites.length; ordinal++) {
+			if (this.sites[ordinal] != null) {
+				maps.put(this.sites[ordinal], this.counts[ordinal]);
+			}
+		}
+		maps.putAll(this.unordered);
+		return maps;
 	}
 
 	/**
@@ -0,0 +1,84 @@
+package group;
+
+import java.io.IOException;
+
+import parser.FASTAIndex;
+
+
+/**
+ * An IndexedFASTASequence holds only its header and mappings; its bases
+ * are located using a FASTA index and loaded on demand as a view over the
+ * memory-mapped file. The view is loaded once and retained; it holds no
+ * bases itself, hence a group of such sequences remains small however
+ * large its FASTA file.
+ * <p>
+ * Once its bases are modified, i.e. reverse complimented, packed or
+ * released, the sequence behaves as any other FASTASequence.
+ * @author Parsa Hosseini
+ * */
+public class IndexedFASTASequence extends FASTASequence {
+	private FASTAIndex index;
+	private int record; // index of the record; -1 once bases are replaced.
+	private volatile MappedDNA view; // view over the bases; null until read.
+
+	public IndexedFASTASequence(String header, FASTAIndex index, int record) {
+		super(header, (String)null);
+		this.index = index;
+		this.record = record;
+	}
+
+	/**
+	 * Loads the bases from the FASTA file upon first access, unless they
+	 * were replaced. Should threads race, each loads an identical view.
+	 * @return view over the bases; null if not mapped.
+	 * @throws IllegalStateException if the FASTA file cannot be mapped; its
+	 * cause is the IOException.
+	 * */
+	@Override
+	public MappedDNA getMapped() {
+		if (this.record == -1) {
+			return super.getMapped();
+		}
+		MappedDNA view = this.view;
+		if (view == null) {
+			try {
+				view = this.index.load(this.record);
+			} catch (IOException e) { // engines cannot handle checked errors
+				throw new IllegalStateException(new IOException(
+						"Unable to load sequence " + this.getHeader(), e));
+			}
+			this.view = view;
+		}
+		return view;
+	}
+
+	@Override
+	public int getLength() {
+		if (this.record == -1) {
+			return super.getLength();
+		}
+		return this.index.getLength(this.record);
+	}
+
+	@Override
+	public void setSequence(String sequence) {
+		this.record = -1;
+		this.view = null;
+		super.setSequence(sequence);
+	}
+
+	@Override
+	public void pack() {
+		super.pack();
+		this.record = -1;
+		this.view = null;
+	}
+
+	/**
+	 * Determine whether the bases are still loaded from the FASTA file.
+	 * @return boolean whether the sequence is indexed.
+	 * */
+	public boolean isIndexed() {
+		return this.record != -1;
+	}
+}
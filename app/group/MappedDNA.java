@@ -0,0 +1,162 @@
+package group;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only view over the bases of a FASTA record, as they lie within a
+ * memory-mapped file or a buffer of decompressed bytes. Bases are never
+ * decoded into a String; each byte is a single base, hence scanners read
+ * bases straight from the buffer.
+ * <p>
+ * Bases of a record span many lines, each followed by a line terminator.
+ * FASTA files typically wrap every line to an identical width, hence base
+ * i lies at byte (i / width) * (width + terminator) + (i % width). Should
+ * a record's lines not share a width, its bases are instead copied into a
+ * compact array so that every base remains addressable in constant time.
+ * @author Parsa Hosseini
+ * */
+public class MappedDNA implements CharSequence {
+	private ByteBuffer bytes; // bases and line terminators of the record.
+	private int length; // number of bases.
+	private int width; // bases per line; all but the last line.
+	private int stride; // bytes per line, including its terminator.
+
+	/**
+	 * Creates a view over the bases of a record.
+	 * @param bytes buffer positioned at the first base and limited to the
+	 * byte following the last base.
+	 * */
+	public MappedDNA(ByteBuffer bytes) {
+		ByteBuffer view = bytes.slice();
+		int size = view.limit();
+		int width = -1, terminator = 0, numBases = 0;
+		boolean isUniform = true;
+		int i = 0;
+		while (i < size) { // measure each line
+			int start = i;
+			while (i < size && !MappedDNA.isTerminator(view.get(i))) {
+				i++;
+			}
+			int lineLength = i - start;
+			int lineEnd = i;
+			while (i < size && MappedDNA.isTerminator(view.get(i))) {
+				i++;
+			}
+			numBases += lineLength;
+			if (width == -1) {
+				width = lineLength;
+				terminator = i - lineEnd;
+			}
+			else if (lineLength > width || (i < size && (lineLength != width ||
+					i - lineEnd != terminator))) {
+				isUniform = false; // only the last line may be shorter
+			}
+		}
+		this.length = numBases;
+		if (isUniform && width > 0) {
+			this.bytes = view;
+			this.width = width;
+			this.stride = width + terminator;
+		}
+		else { // copy bases so that each remains addressable
+			byte[] compact = new byte[numBases];
+			for (int j = 0, b = 0; j < size; j++) {
+				byte c = view.get(j);
+				if (!MappedDNA.isTerminator(c)) {
+					compact[b++] = c;
+				}
+			}
+			this.bytes = ByteBuffer.wrap(compact);
+			this.width = Math.max(1, numBases);
+			this.stride = this.width;
+		}
+	}
+
+	/**
+	 * Creates a view over the bases of a record whose layout is known, i.e.
+	 * given a FASTA index, so that its lines need not be measured.
+	 * @param bytes buffer positioned at the first base.
+	 * @param length number of bases.
+	 * @param width bases per line; all but the last line.
+	 * @param stride bytes per line, including its terminator.
+	 * */
+	public MappedDNA(ByteBuffer bytes, int length, int width, int stride) {
+		this.bytes = bytes.slice();
+		this.length = length;
+		this.width = Math.max(1, width);
+		this.stride = Math.max(this.width, stride);
+	}
+
+	/**
+	 * Trivial function to test whether a byte terminates a line.
+	 * @return boolean whether the byte is a carriage-return or new-line.
+	 * */
+	public static boolean isTerminator(byte c) {
+		return c == '\n' || c == '\r';
+	}
+
+	/**
+	 * Locates the byte of a specific base.
+	 * @param i index of the desired base.
+	 * @return index of the base within the view.
+	 * */
+	private int indexOf(int i) {
+		return (i / this.width) * this.stride + (i % this.width);
+	}
+
+	/**
+	 * Encodes each base into its 2-bit code, one code per byte, reading
+	 * each line of the view in turn.
+	 * @param codes array to populate; must fit the sequence length.
+	 * */
+	public void toCodes(byte[] codes) {
+		for (int line = 0, i = 0; i < this.length; line += this.stride) {
+			int end = Math.min(this.length, i + this.width);
+			for (int b = line; i < end; i++, b++) {
+				int code = PackedDNA.encode((char)this.bytes.get(b));
+				codes[i] = code == -1 ? PackedDNA.AMBIGUOUS : (byte)code;
+			}
+		}
+	}
+
+	/**
+	 * Copies each base into a character array.
+	 * @return array of all bases.
+	 * */
+	public char[] toCharArray() {
+		char[] seq = new char[this.length];
+		for (int line = 0, i = 0; i < this.length; line += this.stride) {
+			int end = Math.min(this.length, i + this.width);
+			for (int b = line; i < end; i++, b++) {
+				seq[i] = (char)(this.bytes.get(b) & 0xFF);
+			}
+		}
+		return seq;
+	}
+
+	@Override
+	public char charAt(int i) {
+		if (i < 0 || i >= this.length) {
+			throw new IndexOutOfBoundsException(String.valueOf(i));
+		}
+		return (char)(this.bytes.get(this.indexOf(i)) & 0xFF);
+	}
+
+	@Override
+	public int length() {
+		return this.length;
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return this.toString().substring(start, end);
+	}
+
+	/**
+	 * Copies the bases of the view into a String object.
+	 * */
+	@Override
+	public String toString() {
+		return new String(this.toCharArray());
+	}
+}
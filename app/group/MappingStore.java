@@ -0,0 +1,588 @@
+package group;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import bindingsite.BindingSite;
+
+
+/**
+ * A MappingStore holds the mappings of a sequence in primitive columns
+ * rather than as boxed offsets in per-binding site lists. Each binding site
+ * is given a dense integer id in the order in which it first maps; each
+ * mapping is then a row of its site id, offset, strand and edit distance.
+ * Mappings hence occupy about a dozen bytes each, and saving one neither
+ * boxes its offset nor, when consecutive mappings share a binding site,
+ * hashes the binding site.
+ * <p>
+ * Rows are appended in the order they are saved. Once read, rows are
+ * grouped per binding site using a counting sort, so that the mappings of a
+ * site can be accessed at random; rows are regrouped only if further
+ * mappings are saved. The asMap() view presents the store as a map of each
+ * binding site to its offsets.
+ * <p>
+ * Rows can instead be held off the Java heap as OffHeapMappings, whose
+ * records are grouped per binding site as they are saved.
+ * <p>
+ * Should only the number of mappings per binding site be needed, the store
+ * can count mappings rather than retain them; memory is then bound by the
+ * number of binding sites rather than mappings.
+ * @author Parsa Hosseini
+ * */
+public class MappingStore {
+	private static final int[] NONE = new int[0];
+	public static final int MAX_ROWS = Integer.MAX_VALUE - 8; // per store.
+	private HashMap<BindingSite, Integer> ids; // dense id of each binding site.
+	private BindingSite[] sites; // binding site of each id.
+	private int numSites;
+	private BindingSite lastSite; // binding site of the latest mapping.
+	private int lastId; // id of the latest binding site.
+	private int[] siteIds; // per mapping, id of its binding site.
+	private int[] offsets; // per mapping, its offset.
+	private byte[] strands; // per mapping, 1 if on the reverse strand.
+	private int[] distances; // per mapping, edit distance; null if all exact.
+	private int size; // number of mappings.
+	private OffHeapMappings records; // off-heap mappings; null if on-heap.
+	private int[] starts; // per binding site, first row; null if ungrouped.
+	private int[] counts; // per binding site, mappings; null unless counting.
+	private AbundanceCounter counter; // totals of the sequence's group.
+	private int modCount; // changes to mappings; views re-read once stale.
+	private Map<BindingSite, List<Integer>> view;
+
+	public MappingStore() {
+		this.ids = new HashMap<BindingSite, Integer>();
+		this.sites = new BindingSite[0];
+		this.siteIds = NONE;
+		this.offsets = NONE;
+		this.strands = new byte[0];
+	}
+
+	/**
+	 * Gets the id of a binding site, giving it the next id should it have
+	 * none.
+	 * @param tfbs BindingSite object.
+	 * @return dense id of the binding site.
+	 * */
+	public int register(BindingSite tfbs) {
+		if (tfbs == this.lastSite) {
+			return this.lastId;
+		}
+		Integer id = this.ids.get(tfbs);
+		if (id == null) {
+			id = this.numSites;
+			if (this.numSites == this.sites.length) {
+				this.sites = Arrays.copyOf(this.sites,
+						Math.max(4, this.numSites * 2));
+			}
+			this.sites[this.numSites++] = tfbs;
+			if (this.counts != null && this.counts.length < this.sites.length) {
+				this.counts = Arrays.copyOf(this.counts, this.sites.length);
+			}
+			this.ids.put(tfbs, id);
+			this.starts = null;
+			this.modCount++;
+		}
+		this.lastSite = tfbs;
+		this.lastId = id;
+		return id;
+	}
+
+	/**
+	 * Gets the id of a binding site.
+	 * @param tfbs BindingSite object.
+	 * @return dense id of the binding site; -1 if it has none.
+	 * */
+	public int indexOf(Object tfbs) {
+		if (tfbs == this.lastSite && tfbs != null) {
+			return this.lastId;
+		}
+		Integer id = this.ids.get(tfbs);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Saves a mapping as a new row.
+	 * @param tfbs BindingSite object which maps to the sequence.
+	 * @param offset zero-indexed location of the mapping.
+	 * @param reverse whether the mapping is on the reverse strand.
+	 * @param distance edit distance of the mapping.
+	 * @throws IllegalStateException if MAX_ROWS mappings are retained.
+	 * */
+	public void add(BindingSite tfbs, int offset, boolean reverse,
+			int distance) {
+		int id = this.register(tfbs);
+		this.modCount++;
+		if (this.counter != null) {
+			this.counter.add(tfbs, 1);
+		}
+		if (this.counts != null) {
+			this.counts[id]++;
+			return;
+		}
+		if (this.size == MAX_ROWS) {
+			throw new IllegalStateException("At most " + MAX_ROWS +
+					" mappings can be retained per sequence.");
+		}
+		if (this.records != null) { // grouped as saved
+			this.records.add(id, offset, reverse, distance);
+			this.size++;
+			return;
+		}
+		if (this.size == this.offsets.length) {
+			this.grow((int)Math.min(MAX_ROWS, Math.max(16, this.size * 2L)));
+		}
+		if (distance != 0 && this.distances == null) {
+			this.distances = new int[this.offsets.length];
+		}
+		this.siteIds[this.size] = id;
+		this.offsets[this.size] = offset;
+		this.strands[this.size] = (byte)(reverse ? 1 : 0);
+		if (this.distances != null) {
+			this.distances[this.size] = distance;
+		}
+		this.size++;
+		this.starts = null;
+	}
+
+	/**
+	 * Replaces all mappings of a binding site with mappings at the given
+	 * offsets. Offsets the binding site already mapped to keep the strand
+	 * and distance of their prior mapping, each prior mapping matching at
+	 * most one offset; other offsets are forward-strand, exact mappings.
+	 * @param tfbs BindingSite object.
+	 * @param offsets zero-indexed locations of its mappings.
+	 * */
+	public void set(BindingSite tfbs, List<Integer> offsets) {
+		int[] added = new int[offsets.size()]; // offsets may be a view
+		for (int i = 0; i < added.length; i++) {
+			added[i] = offsets.get(i);
+		}
+		int id = this.register(tfbs);
+		if (this.counter != null) { // re-added mappings are counted anew
+			this.counter.add(tfbs, -this.count(id));
+		}
+		if (this.counts != null) {
+			this.counts[id] = added.length;
+			this.modCount++;
+			if (this.counter != null) {
+				this.counter.add(tfbs, added.length);
+			}
+			return;
+		}
+		int numPrior = this.count(id);
+		boolean[] reverse = new boolean[numPrior];
+		int[] distances = new int[numPrior];
+		int[] sameOffset = new int[numPrior]; // next prior mapping at offset
+		Map<Integer, Integer> first = new HashMap<Integer, Integer>();
+		for (int i = numPrior - 1; i >= 0; i--) {
+			reverse[i] = this.isReverse(id, i);
+			distances[i] = this.getDistance(id, i);
+			Integer next = first.put(this.getOffset(id, i), i);
+			sameOffset[i] = next == null ? -1 : next;
+		}
+		if (this.records != null) { // blocks of the site are re-used
+			this.size -= this.records.count(id);
+			this.records.clear(id);
+		}
+		else {
+			int kept = 0;
+			for (int row = 0; row < this.size; row++) {
+				if (this.siteIds[row] != id) {
+					this.move(row, kept++);
+				}
+			}
+			this.size = kept;
+			this.starts = null;
+		}
+		for (int offset: added) {
+			Integer prior = first.get(offset);
+			if (prior == null) {
+				this.add(tfbs, offset, false, 0);
+				continue;
+			}
+			if (sameOffset[prior] == -1) {
+				first.remove(offset);
+			}
+			else {
+				first.put(offset, sameOffset[prior]);
+			}
+			this.add(tfbs, offset, reverse[prior], distances[prior]);
+		}
+		this.modCount++;
+	}
+
+	/**
+	 * Discards the offset, strand and distance of each mapping, retaining
+	 * only the number of mappings of each binding site. Further mappings
+	 * are only counted.
+	 * */
+	public void countOnly() {
+		if (this.counts != null) {
+			return;
+		}
+		int[] counts = new int[this.sites.length];
+		for (int id = 0; id < this.numSites; id++) {
+			counts[id] = this.count(id);
+		}
+		this.counts = counts;
+		this.siteIds = NONE;
+		this.offsets = NONE;
+		this.strands = new byte[0];
+		this.distances = null;
+		this.records = null;
+		this.size = 0;
+		this.starts = null;
+		this.modCount++;
+	}
+
+	/**
+	 * Moves rows off the Java heap, into records of direct memory. Further
+	 * mappings are appended as records, hence heap use no longer grows with
+	 * the number of mappings. Stores which only count mappings are left
+	 * as-is.
+	 * */
+	public void moveOffHeap() {
+		if (this.records != null || this.counts != null) {
+			return;
+		}
+		OffHeapMappings records = new OffHeapMappings();
+		for (int id = 0; id < this.numSites; id++) {
+			for (int i = 0; i < this.count(id); i++) {
+				records.add(id, this.getOffset(id, i), this.isReverse(id, i),
+						this.getDistance(id, i));
+			}
+		}
+		this.records = records;
+		this.siteIds = NONE;
+		this.offsets = NONE;
+		this.strands = new byte[0];
+		this.distances = null;
+		this.starts = null;
+		this.modCount++;
+	}
+
+	/**
+	 * Determine whether rows are held off the Java heap.
+	 * @return boolean whether rows are records of direct memory.
+	 * */
+	public boolean isOffHeap() {
+		return this.records != null;
+	}
+
+	/**
+	 * Totals each mapping saved hereafter in a group-wide counter.
+	 * @param counter counter of the sequence's group.
+	 * */
+	public void setCounter(AbundanceCounter counter) {
+		this.counter = counter;
+	}
+
+	/**
+	 * Determine whether mappings are only counted.
+	 * @return boolean whether offsets are not retained.
+	 * */
+	public boolean isCountingOnly() {
+		return this.counts != null;
+	}
+
+	/**
+	 * Groups rows by binding site using a counting sort, retaining the
+	 * order in which rows of each binding site were saved. Rows are moved
+	 * rather than indexed, so that no index proportional to the number of
+	 * mappings is kept. Off-heap records are grouped as they are saved.
+	 * */
+	private synchronized void index() {
+		if (this.starts != null) {
+			return;
+		}
+		int[] starts = new int[this.numSites + 1];
+		for (int row = 0; row < this.size; row++) {
+			starts[this.siteIds[row] + 1]++;
+		}
+		for (int id = 0; id < this.numSites; id++) {
+			starts[id + 1] += starts[id];
+		}
+		int[] next = Arrays.copyOf(starts, this.numSites);
+		int capacity = this.offsets.length;
+		int[] siteIds = new int[capacity];
+		int[] offsets = new int[capacity];
+		byte[] strands = new byte[capacity];
+		int[] distances = this.distances == null ? null : new int[capacity];
+		for (int row = 0; row < this.size; row++) {
+			int to = next[this.siteIds[row]]++;
+			siteIds[to] = this.siteIds[row];
+			offsets[to] = this.offsets[row];
+			strands[to] = this.strands[row];
+			if (distances != null) {
+				distances[to] = this.distances[row];
+			}
+		}
+		this.siteIds = siteIds;
+		this.offsets = offsets;
+		this.strands = strands;
+		this.distances = distances;
+		this.starts = starts;
+	}
+
+	/**
+	 * Gets the row of a specific on-heap mapping.
+	 * @param id id of the binding site.
+	 * @param i index of the mapping within the binding site's mappings.
+	 * @return row of the mapping.
+	 * */
+	private int getRow(int id, int i) {
+		if (this.counts != null) {
+			throw new UnsupportedOperationException("Offsets are not " +
+					"retained when only counting mappings.");
+		}
+		this.index();
+		if (i < 0 || i >= this.count(id)) {
+			throw new IndexOutOfBoundsException("Index: " + i);
+		}
+		return this.starts[id] + i;
+	}
+
+	/**
+	 * Gets the number of mappings of a binding site.
+	 * @param id id of the binding site.
+	 * @return number of mappings.
+	 * */
+	public int count(int id) {
+		if (this.counts != null) {
+			return this.counts[id];
+		}
+		if (this.records != null) {
+			return this.records.count(id);
+		}
+		this.index();
+		return this.starts[id + 1] - this.starts[id];
+	}
+
+	/**
+	 * @param id id of the binding site.
+	 * @param i index of the mapping within the binding site's mappings.
+	 * @return the offset of the mapping.
+	 * */
+	public int getOffset(int id, int i) {
+		if (this.records != null) {
+			return this.records.getOffset(id, i);
+		}
+		return this.offsets[this.getRow(id, i)];
+	}
+
+	/**
+	 * @param id id of the binding site.
+	 * @param i index of the mapping within the binding site's mappings.
+	 * @return whether the mapping is on the reverse strand.
+	 * */
+	public boolean isReverse(int id, int i) {
+		if (this.records != null) {
+			return this.records.isReverse(id, i);
+		}
+		return this.strands[this.getRow(id, i)] == 1;
+	}
+
+	/**
+	 * @param id id of the binding site.
+	 * @param i index of the mapping within the binding site's mappings.
+	 * @return the edit distance of the mapping; 0 if exact.
+	 * */
+	public int getDistance(int id, int i) {
+		if (this.records != null) {
+			return this.records.getDistance(id, i);
+		}
+		int row = this.getRow(id, i);
+		return this.distances == null ? 0 : this.distances[row];
+	}
+
+	/**
+	 * Grows the columns to the given capacity.
+	 * @param capacity number of rows.
+	 * */
+	private void grow(int capacity) {
+		this.siteIds = Arrays.copyOf(this.siteIds, capacity);
+		this.offsets = Arrays.copyOf(this.offsets, capacity);
+		this.strands = Arrays.copyOf(this.strands, capacity);
+		if (this.distances != null) {
+			this.distances = Arrays.copyOf(this.distances, capacity);
+		}
+	}
+
+	/**
+	 * Copies a row onto a preceding row.
+	 * @param from row to copy.
+	 * @param to row to overwrite.
+	 * */
+	private void move(int from, int to) {
+		this.siteIds[to] = this.siteIds[from];
+		this.offsets[to] = this.offsets[from];
+		this.strands[to] = this.strands[from];
+		if (this.distances != null) {
+			this.distances[to] = this.distances[from];
+		}
+	}
+
+	/**
+	 * @param id id of the binding site.
+	 * @return the binding site of the id.
+	 * */
+	public BindingSite getSite(int id) {
+		return this.sites[id];
+	}
+
+	/**
+	 * @return the number of binding sites.
+	 */
+	public int getNumSites() {
+		return this.numSites;
+	}
+
+	/**
+	 * @return the number of retained mappings.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Presents the store as a map of each binding site to its offsets, in
+	 * the order binding sites first mapped. Offset lists are read-only
+	 * views; putting a binding site replaces its mappings, keeping the strand
+	 * and distance of offsets it already mapped to.
+	 * @return map view of the store.
+	 * */
+	public Map<BindingSite, List<Integer>> asMap() {
+		if (this.view == null) {
+			this.view = new MapView();
+		}
+		return this.view;
+	}
+
+	/**
+	 * Read-only view of the offsets of a binding site. Rows are located
+	 * once, and again only should the store change, rather than upon
+	 * reading each offset.
+	 * */
+	private class Offsets extends AbstractList<Integer> {
+		private int id;
+		private int expected = -1; // modCount once rows were located.
+		private int start; // first row; -1 unless rows are on-heap.
+		private int count;
+
+		private Offsets(int id) {
+			this.id = id;
+		}
+
+		/**
+		 * Locates the rows of the binding site should the store have
+		 * changed since they were last located.
+		 * */
+		private void locate() {
+			MappingStore store = MappingStore.this;
+			if (this.expected == store.modCount) {
+				return;
+			}
+			this.count = store.count(this.id);
+			this.start = store.records == null && store.counts == null ?
+					store.starts[this.id] : -1;
+			this.expected = store.modCount;
+		}
+
+		@Override
+		public Integer get(int i) {
+			this.locate();
+			if (this.start == -1) {
+				return MappingStore.this.getOffset(this.id, i);
+			}
+			if (i < 0 || i >= this.count) {
+				throw new IndexOutOfBoundsException("Index: " + i);
+			}
+			return MappingStore.this.offsets[this.start + i];
+		}
+
+		@Override
+		public int size() {
+			this.locate();
+			return this.count;
+		}
+	}
+
+	/**
+	 * Map view of each binding site to its offsets.
+	 * */
+	private class MapView extends AbstractMap<BindingSite, List<Integer>> {
+		@Override
+		public Set<Map.Entry<BindingSite, List<Integer>>> entrySet() {
+			return new AbstractSet<Map.Entry<BindingSite, List<Integer>>>() {
+				@Override
+				public Iterator<Map.Entry<BindingSite, List<Integer>>> iterator() {
+					return new Iterator<Map.Entry<BindingSite, List<Integer>>>() {
+						private int id = 0;
+
+						@Override
+						public boolean hasNext() {
+							return this.id < MappingStore.this.numSites;
+						}
+
+						@Override
+						public Map.Entry<BindingSite, List<Integer>> next() {
+							if (!this.hasNext()) {
+								throw new NoSuchElementException();
+							}
+							int id = this.id++;
+							return new AbstractMap.SimpleImmutableEntry<BindingSite,
+									List<Integer>>(MappingStore.this.sites[id],
+									new Offsets(id));
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return MappingStore.this.numSites;
+				}
+			};
+		}
+
+		@Override
+		public List<Integer> get(Object key) {
+			int id = MappingStore.this.indexOf(key);
+			return id == -1 ? null : new Offsets(id);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return MappingStore.this.indexOf(key) != -1;
+		}
+
+		@Override
+		public int size() {
+			return MappingStore.this.numSites;
+		}
+
+		@Override
+		public List<Integer> put(BindingSite key, List<Integer> value) {
+			int id = MappingStore.this.indexOf(key);
+			List<Integer> prior = null;
+			if (id != -1) {
+				prior = new ArrayList<Integer>(new Offsets(id));
+			}
+			MappingStore.this.set(key, value);
+			return prior;
+		}
+	}
+}
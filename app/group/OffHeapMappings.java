@@ -0,0 +1,206 @@
+package group;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+
+/**
+ * OffHeapMappings holds mappings off the Java heap, as RECORD_SIZE-byte
+ * records of direct buffers; genome-wide scans may save hundreds of
+ * millions of mappings, which would otherwise fill the heap and prolong
+ * collections.
+ * <p>
+ * Records of each binding site are appended to a chain of blocks, each
+ * block twice the size of its predecessor up to MAX_BLOCK records. The
+ * records of a binding site are hence grouped and kept in the order they
+ * were saved, with no need to regroup them once read, and the block of any
+ * record is found arithmetically. Blocks are carved from segments of
+ * direct memory which are never copied nor resized, and are addressed by
+ * segment and byte offset, hence the number of records is not bound by the
+ * size of any one buffer.
+ * @author Parsa Hosseini
+ * */
+public class OffHeapMappings {
+	public static final int RECORD_SIZE = 8; // offset, then distance and strand.
+	private static final int FIRST_BLOCK = 4; // records of a site's first block.
+	public static final int MAX_BLOCK = 1 << 16; // records of the largest block.
+	private static final int NUM_DOUBLING = 14; // blocks prior to MAX_BLOCK.
+	private static final int DOUBLING_RECORDS = MAX_BLOCK - FIRST_BLOCK;
+	private static final int FIRST_SEGMENT = 1 << 10; // bytes.
+	private static final int MAX_SEGMENT = 1 << 24; // bytes.
+	private ByteBuffer[] segments; // direct memory from which blocks are cut.
+	private int numSegments;
+	private int used; // bytes used of the latest segment.
+	private long reserved; // bytes of all segments.
+	private int[] counts; // per binding site, number of records.
+	private long[][] blocks; // per binding site, address of each block.
+	private int[] numBlocks; // per binding site, number of blocks.
+
+	public OffHeapMappings() {
+		this.segments = new ByteBuffer[4];
+		this.counts = new int[4];
+		this.blocks = new long[4][];
+		this.numBlocks = new int[4];
+	}
+
+	/**
+	 * Appends a record to the records of a binding site.
+	 * @param id id of the binding site.
+	 * @param offset zero-indexed location of the mapping.
+	 * @param reverse whether the mapping is on the reverse strand.
+	 * @param distance edit distance of the mapping.
+	 * */
+	public void add(int id, int offset, boolean reverse, int distance) {
+		if (id >= this.counts.length) {
+			int capacity = Math.max(id + 1, this.counts.length * 2);
+			this.counts = Arrays.copyOf(this.counts, capacity);
+			this.blocks = Arrays.copyOf(this.blocks, capacity);
+			this.numBlocks = Arrays.copyOf(this.numBlocks, capacity);
+		}
+		int i = this.counts[id];
+		int block = OffHeapMappings.blockOf(i);
+		if (block == this.numBlocks[id]) { // chain is full
+			if (this.blocks[id] == null) {
+				this.blocks[id] = new long[NUM_DOUBLING];
+			}
+			else if (block == this.blocks[id].length) {
+				this.blocks[id] = Arrays.copyOf(this.blocks[id], block * 2);
+			}
+			this.blocks[id][block] = this.allocate(
+					OffHeapMappings.blockSize(block) * RECORD_SIZE);
+			this.numBlocks[id]++;
+		}
+		long address = this.blocks[id][block];
+		int at = (int)address + (i - OffHeapMappings.firstOf(block)) *
+				RECORD_SIZE;
+		ByteBuffer segment = this.segments[(int)(address >>> 32)];
+		segment.putInt(at, offset);
+		segment.putInt(at + 4, (distance << 1) | (reverse ? 1 : 0));
+		this.counts[id] = i + 1;
+	}
+
+	/**
+	 * Discards the records of a binding site; its blocks are re-used by
+	 * records subsequently added.
+	 * @param id id of the binding site.
+	 * */
+	public void clear(int id) {
+		if (id < this.counts.length) {
+			this.counts[id] = 0;
+		}
+	}
+
+	/**
+	 * @param id id of the binding site.
+	 * @return the number of records of the binding site.
+	 * */
+	public int count(int id) {
+		return id < this.counts.length ? this.counts[id] : 0;
+	}
+
+	/**
+	 * @param id id of the binding site.
+	 * @param i index of the record within the binding site's records.
+	 * @return the offset of the mapping.
+	 * */
+	public int getOffset(int id, int i) {
+		return this.read(id, i, 0);
+	}
+
+	/**
+	 * @param id id of the binding site.
+	 * @param i index of the record within the binding site's records.
+	 * @return whether the mapping is on the reverse strand.
+	 * */
+	public boolean isReverse(int id, int i) {
+		return (this.read(id, i, 4) & 1) == 1;
+	}
+
+	/**
+	 * @param id id of the binding site.
+	 * @param i index of the record within the binding site's records.
+	 * @return the edit distance of the mapping; 0 if exact.
+	 * */
+	public int getDistance(int id, int i) {
+		return this.read(id, i, 4) >>> 1;
+	}
+
+	/**
+	 * @return the bytes of direct memory reserved
+	 */
+	public long getReserved() {
+		return reserved;
+	}
+
+	/**
+	 * Reads a field of a record.
+	 * @param field byte offset of the field within the record.
+	 * @return the field.
+	 * */
+	private int read(int id, int i, int field) {
+		if (i < 0 || i >= this.count(id)) {
+			throw new IndexOutOfBoundsException("Index: " + i);
+		}
+		int block = OffHeapMappings.blockOf(i);
+		long address = this.blocks[id][block];
+		int at = (int)address + (i - OffHeapMappings.firstOf(block)) *
+				RECORD_SIZE;
+		return this.segments[(int)(address >>> 32)].getInt(at + field);
+	}
+
+	/**
+	 * Cuts a block from the latest segment, starting a segment should it
+	 * not fit. Segments double in size up to MAX_SEGMENT bytes, so that
+	 * sequences having few mappings reserve little memory.
+	 * @param bytes size of the block.
+	 * @return address of the block; its segment, then byte offset.
+	 * */
+	private long allocate(int bytes) {
+		if (this.numSegments == 0 ||
+				this.used + bytes > this.segments[this.numSegments - 1].capacity()) {
+			int size = this.numSegments == 0 ? FIRST_SEGMENT : Math.min(
+					MAX_SEGMENT, this.segments[this.numSegments - 1].capacity() * 2);
+			if (this.numSegments == this.segments.length) {
+				this.segments = Arrays.copyOf(this.segments, this.numSegments * 2);
+			}
+			this.segments[this.numSegments++] = ByteBuffer.allocateDirect(
+					Math.max(size, bytes)).order(ByteOrder.nativeOrder());
+			this.reserved += Math.max(size, bytes);
+			this.used = 0;
+		}
+		long address = ((long)(this.numSegments - 1) << 32) | this.used;
+		this.used += bytes;
+		return address;
+	}
+
+	/**
+	 * @param i index of a record within its binding site's records.
+	 * @return the block holding the record.
+	 * */
+	private static int blockOf(int i) {
+		if (i < DOUBLING_RECORDS) {
+			return 31 - Integer.numberOfLeadingZeros(i / FIRST_BLOCK + 1);
+		}
+		return NUM_DOUBLING + (i - DOUBLING_RECORDS) / MAX_BLOCK;
+	}
+
+	/**
+	 * @param block index of a block within a chain.
+	 * @return index of the first record of the block.
+	 * */
+	private static int firstOf(int block) {
+		if (block < NUM_DOUBLING) {
+			return FIRST_BLOCK * ((1 << block) - 1);
+		}
+		return DOUBLING_RECORDS + (block - NUM_DOUBLING) * MAX_BLOCK;
+	}
+
+	/**
+	 * @param block index of a block within a chain.
+	 * @return the number of records the block holds.
+	 * */
+	private static int blockSize(int block) {
+		return block < NUM_DOUBLING ? FIRST_BLOCK << block : MAX_BLOCK;
+	}
+}
@@ -0,0 +1,251 @@
+package group;
+
+import java.util.Arrays;
+
+/**
+ * A compact representation of a DNA sequence whereby each base is stored
+ * using only 2 bits; 32 bases per long. Characters outside the DNA alphabet,
+ * i.e. runs of N, cannot be represented in 2 bits and are therefore saved
+ * as runs in a side-mask. Since promoter sequences rarely contain such
+ * characters, this mask is typically tiny.
+ * <p>
+ * Bases are encoded as A=0, C=1, G=2 and T=3 so that the complement of a
+ * base is simply its bitwise inverse. Base i is stored in word (i / 32) at
+ * bit-offset 2 * (i % 32).
+ * @author Parsa Hosseini
+ * */
+public class PackedDNA {
+	public static final char[] BASES = new char[]{'A', 'C', 'G', 'T'};
+	public static final int BASES_PER_WORD = 32;
+	public static final byte AMBIGUOUS = 4; // code of non-DNA characters.
+	private long[] words; // 2-bit encoded bases.
+	private int length; // number of bases.
+	private int[] runStarts; // first index of each ambiguity run.
+	private int[] runEnds; // exclusive end index of each ambiguity run.
+	private char[] runBases; // the character each ambiguity run is made of.
+
+	public PackedDNA(CharSequence sequence) {
+		this.length = sequence.length();
+		this.words = new long[(this.length + BASES_PER_WORD - 1) / BASES_PER_WORD];
+		int numRuns = 0;
+		this.runStarts = new int[0];
+		this.runEnds = new int[0];
+		this.runBases = new char[0];
+		for (int i = 0; i < this.length; i++) {
+			char c = sequence.charAt(i);
+			int code = PackedDNA.encode(c);
+			if (code == -1) { // save as an ambiguity run
+				if (numRuns > 0 && this.runEnds[numRuns - 1] == i &&
+						this.runBases[numRuns - 1] == c) {
+					this.runEnds[numRuns - 1]++; // extend the current run
+				}
+				else {
+					if (numRuns == this.runStarts.length) {
+						int size = Math.max(4, numRuns * 2);
+						this.runStarts = Arrays.copyOf(this.runStarts, size);
+						this.runEnds = Arrays.copyOf(this.runEnds, size);
+						this.runBases = Arrays.copyOf(this.runBases, size);
+					}
+					this.runStarts[numRuns] = i;
+					this.runEnds[numRuns] = i + 1;
+					this.runBases[numRuns] = c;
+					numRuns++;
+				}
+			}
+			else {
+				this.words[i >>> 5] |= ((long)code) << ((i & 31) << 1);
+			}
+		}
+		this.runStarts = Arrays.copyOf(this.runStarts, numRuns);
+		this.runEnds = Arrays.copyOf(this.runEnds, numRuns);
+		this.runBases = Arrays.copyOf(this.runBases, numRuns);
+	}
+
+	/**
+	 * Trivial function to map a DNA base onto its respective 2-bit code.
+	 * @param base character from the DNA alphabet.
+	 * @return 2-bit code of the base, or -1 if not a DNA base.
+	 * */
+	public static int encode(char base) {
+		switch (base) {
+		case 'A': return 0;
+		case 'C': return 1;
+		case 'G': return 2;
+		case 'T': return 3;
+		default: return -1;
+		}
+	}
+
+	/**
+	 * Get the 2-bit code of a specific base. Bases within ambiguity runs
+	 * have no meaningful code; see isAmbiguous().
+	 * @param i index of the desired base.
+	 * @return 2-bit code of the base.
+	 * */
+	public int getCode(int i) {
+		return (int)(this.words[i >>> 5] >>> ((i & 31) << 1)) & 3;
+	}
+
+	/**
+	 * Get up to 32 consecutive bases as a single long; the first base
+	 * occupies the lowest 2 bits. Scanners use this function to process
+	 * whole words rather than individual bases.
+	 * @param start index of the first base.
+	 * @param k number of bases to get, at most 32.
+	 * @return packed k-mer code.
+	 * */
+	public long getKmer(int start, int k) {
+		int word = start >>> 5;
+		int shift = (start & 31) << 1;
+		long kmer = this.words[word] >>> shift;
+		if (shift != 0 && word + 1 < this.words.length) {
+			kmer |= this.words[word + 1] << (64 - shift);
+		}
+		return k == BASES_PER_WORD ? kmer : kmer & ((1L << (k << 1)) - 1);
+	}
+
+	/**
+	 * Decodes all bases into one code per byte. Bases within ambiguity
+	 * runs are given the AMBIGUOUS code.
+	 * @param codes array to populate; must fit the sequence length.
+	 * */
+	public void toCodes(byte[] codes) {
+		for (int w = 0; w < this.words.length; w++) {
+			long word = this.words[w];
+			int start = w << 5;
+			int end = Math.min(this.length, start + BASES_PER_WORD);
+			for (int i = start; i < end; i++) {
+				codes[i] = (byte)(word & 3);
+				word >>>= 2;
+			}
+		}
+		for (int r = 0; r < this.runStarts.length; r++) {
+			Arrays.fill(codes, this.runStarts[r], this.runEnds[r], AMBIGUOUS);
+		}
+	}
+
+	/**
+	 * Determines whether a base is not from the DNA alphabet, i.e. N.
+	 * @param i index of the desired base.
+	 * @return boolean whether the base is part of an ambiguity run.
+	 * */
+	public boolean isAmbiguous(int i) {
+		int run = this.findRun(i);
+		return run < this.runStarts.length && this.runStarts[run] <= i;
+	}
+
+	/**
+	 * Finds the next ambiguous base at or after a specific index. Scanners
+	 * can therefore skip the ambiguity-check for every base prior to it.
+	 * @param from index to start searching from.
+	 * @return index of the next ambiguous base, or the sequence length.
+	 * */
+	public int nextAmbiguous(int from) {
+		int run = this.findRun(from);
+		if (run == this.runStarts.length) {
+			return this.length;
+		}
+		return Math.max(from, this.runStarts[run]);
+	}
+
+	/**
+	 * Binary-search for the first ambiguity run which ends after an index.
+	 * @return index of the run, or the number of runs if none.
+	 * */
+	private int findRun(int i) {
+		int low = 0;
+		int high = this.runEnds.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (this.runEnds[mid] <= i) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns a specific base given its respective index.
+	 * @param i index of the desired base.
+	 * @return the base character.
+	 * */
+	public char charAt(int i) {
+		int run = this.findRun(i);
+		if (run < this.runStarts.length && this.runStarts[run] <= i) {
+			return this.runBases[run];
+		}
+		return BASES[this.getCode(i)];
+	}
+
+	/**
+	 * Derives the complement in-place. Since A/T and C/G codes are bitwise
+	 * inverses of one-another, all words are simply inverted. Ambiguous
+	 * characters are their own complement.
+	 * */
+	public void complement() {
+		for (int w = 0; w < this.words.length; w++) {
+			this.words[w] = ~this.words[w];
+		}
+		int tail = this.length & 31; // clear bits past the last base
+		if (tail != 0) {
+			this.words[this.words.length - 1] &= (1L << (tail << 1)) - 1;
+		}
+	}
+
+	/**
+	 * Reverses the order of all bases in-place, including ambiguity runs.
+	 * */
+	public void reverse() {
+		long[] reversed = new long[this.words.length];
+		for (int i = 0; i < this.length; i++) {
+			int j = this.length - 1 - i;
+			reversed[j >>> 5] |= ((long)this.getCode(i)) << ((j & 31) << 1);
+		}
+		this.words = reversed;
+		int numRuns = this.runStarts.length;
+		int[] starts = new int[numRuns];
+		int[] ends = new int[numRuns];
+		char[] bases = new char[numRuns];
+		for (int r = 0; r < numRuns; r++) {
+			int s = numRuns - 1 - r;
+			starts[r] = this.length - this.runEnds[s];
+			ends[r] = this.length - this.runStarts[s];
+			bases[r] = this.runBases[s];
+		}
+		this.runStarts = starts;
+		this.runEnds = ends;
+		this.runBases = bases;
+	}
+
+	/**
+	 * @return the number of bases.
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the number of ambiguity runs.
+	 */
+	public int getNumRuns() {
+		return runStarts.length;
+	}
+
+	/**
+	 * Decodes the packed bases back into a String object.
+	 * */
+	@Override
+	public String toString() {
+		char[] seq = new char[this.length];
+		for (int i = 0; i < this.length; i++) {
+			seq[i] = BASES[this.getCode(i)];
+		}
+		for (int r = 0; r < this.runStarts.length; r++) {
+			Arrays.fill(seq, this.runStarts[r], this.runEnds[r], this.runBases[r]);
+		}
+		return new String(seq);
+	}
+}
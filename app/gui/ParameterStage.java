@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 
 import parameter.BooleanParameter;
 import parameter.DoubleParameter;
+import parameter.EnumParameter;
 import parameter.IntegerParameter;
 import parameter.Parameter;
 import parameter.ParameterMap;
@@ -18,6 +19,7 @@ import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
@@ -86,6 +88,11 @@ public class ParameterStage extends Stage {
 				CheckBox cb = this.buildCheckBox((BooleanParameter)p);
 				this.getLayout().add(cb, 1, rowNum);
 			}
+			if (p instanceof EnumParameter) { // create drop-down
+				ChoiceBox<?> cb = this.buildChoiceBox((EnumParameter<?>)p);
+				this.getLayout().add(cb, 1, rowNum);
+				this.getLayout().add(new Label(p.getName().get()), 0, rowNum);
+			}
 			rowNum += 1;
 		}
 		this.getLayout().add(this.buildButtons(), 0, rowNum, 2, 1);
@@ -151,6 +158,26 @@ public class ParameterStage extends Stage {
 		return cb;
 	}
 
+	/**
+	 * Create a drop-down so that one of several choices can be selected.
+	 * Such a scenario is true when selecting the DNA motif alignment engine.
+	 * @return ChoiceBox object.
+	 * */
+	private <E extends Enum<E>> ChoiceBox<E> buildChoiceBox(
+			final EnumParameter<E> p) {
+		ChoiceBox<E> cb = new ChoiceBox<E>();
+		cb.getItems().addAll(p.getChoices());
+		cb.setValue(p.getArgument());
+		cb.valueProperty().addListener(new ChangeListener<E>() {
+			@Override
+			public void changed(ObservableValue<? extends E> repr,
+					E past, E now) {
+				p.setArgument(now); // update argument to current selection
+			}
+		});
+		return cb;
+	}
+
 	/**
 	 * Creates a layout so that useful buttons can be pressed and 
 	 * corresponding actions be performed.
@@ -61,7 +61,11 @@ public class MenuEventHandler implements EventHandler<ActionEvent> {
 					}
 				}
 				else if (menuItem.getId().equals("saveMappings")) {
-					if (MarinaGUI.get().getTable().getItems().size() > 0) {
+					if (params.isStreamed()) {
+						Dialog.showCustom("Mappings of each sequence are not " +
+								"retained when streaming sequences.", true);
+					}
+					else if (MarinaGUI.get().getTable().getItems().size() > 0) {
 						MappedWriter writer = new MappedWriter();
 						writer.showSaveDialog();
 						writer.writeAll(); // write all mappings.
@@ -72,7 +76,11 @@ public class MenuEventHandler implements EventHandler<ActionEvent> {
 					}
 				}
 				else if (menuItem.getId().equals("saveCoordinates")) {
-					if (MarinaGUI.get().getTable().getItems().size() > 0) {
+					if (params.isCountingOnly() || params.isStreamed()) {
+						Dialog.showCustom("Coordinates are not retained when " +
+								"only counting mappings.", true);
+					}
+					else if (MarinaGUI.get().getTable().getItems().size() > 0) {
 						CoordinateWriter writer = new CoordinateWriter();
 						writer.showSaveDialog();
 						writer.writeAll(); // write all TFBS coordinates.
@@ -84,21 +92,17 @@ public class MenuEventHandler implements EventHandler<ActionEvent> {
 				}
 				else if (menuItem.getId().equals("loadQuery")) {
 					FASTAParser parser = new FASTAParser();
-					parser.showFASTAFilterPrompt();
-					parser.parse(); // set parser to the parameter-set
+					parser.showFASTAFilterPrompt(); // parsed, or streamed, at run
 					Group queryGroup = new Group(parser);
 					params.setQuery(queryGroup);
-					Dialog.showCustom(queryGroup.getSize() + 
-							" sequences parsed.", false);
+					Dialog.showCustom(queryGroup.getBasename() + " loaded.", false);
 				}
 				else if (menuItem.getId().equals("loadBaseline")) {
 					FASTAParser parser = new FASTAParser();
-					parser.showFASTAFilterPrompt();
-					parser.parse(); // set parser to the parameter-set
+					parser.showFASTAFilterPrompt(); // parsed, or streamed, at run
 					Group controlGroup = new Group(parser);
 					params.setBaseline(controlGroup);
-					Dialog.showCustom(controlGroup.getSize() + 
-							" sequences parsed.", false);
+					Dialog.showCustom(controlGroup.getBasename() + " loaded.", false);
 				}
 				else if (menuItem.getId().equals("loadPWMs")) {
 					PWMParser parser = new PWMParser();
@@ -2,6 +2,7 @@ package output;
 
 import group.FASTASequence;
 import group.Group;
+import group.MappingStore;
 import gui.Dialog;
 import gui.MarinaGUI;
 
@@ -32,13 +33,20 @@ public class CoordinateWriter extends TabFormattedWriter {
 			for (Group group: groups) { // iterate over each group
 				String groupName = group.getBasename(); // loop over sequences
 				for (FASTASequence seq: group.getParser().getSequences()) {
-					// loop over all the TFBSs mapping to that sequence
-					for (BindingSite tfbs: seq.getMappings().keySet()) {
+					// loop over all the TFBSs mapping to that sequence; rows
+					// are read from the store, be they on or off-heap
+					MappingStore store = seq.getStore();
+					for (int id = 0; id < store.getNumSites(); id++) {
+						BindingSite tfbs = store.getSite(id);
 						StringBuilder indices = new StringBuilder();
 						if (sites.contains(tfbs)) { // save if over-represented
 							// loop over all the indices that the TFBS maps at
-							for (Integer index: seq.getMappings().get(tfbs)) {
-								indices.append(index + TabFormattedWriter.TAB);
+							for (int i = 0; i < store.count(id); i++) {
+								String strand = store.isReverse(id, i) ? "-" : "";
+								int distance = store.getDistance(id, i);
+								String edits = distance > 0 ? ":" + distance : "";
+								indices.append(store.getOffset(id, i) + strand +
+										edits + TabFormattedWriter.TAB);
 							}
 						}
 						writer.write(groupName + TabFormattedWriter.TAB + 
@@ -0,0 +1,46 @@
+package parameter;
+
+/**
+ * Some parameters are neither numeric nor boolean but rather a selection
+ * from a fixed set of choices, i.e. the algorithm used for alignment. Such
+ * choices are modeled as enumerations.
+ * @author Parsa Hosseini
+ * */
+public class EnumParameter<E extends Enum<E>> extends Parameter {
+	private E argument;
+	private E[] choices;
+
+	public EnumParameter(ParameterName name, E arg, E[] choices) {
+		super(name);
+		this.setChoices(choices);
+		this.setArgument(arg);
+	}
+
+	/**
+	 * @return the argument
+	 */
+	public E getArgument() {
+		return argument;
+	}
+
+	/**
+	 * @param argument the argument to set
+	 */
+	public void setArgument(E argument) {
+		this.argument = argument;
+	}
+
+	/**
+	 * @return the choices
+	 */
+	public E[] getChoices() {
+		return choices;
+	}
+
+	/**
+	 * @param choices the choices to set
+	 */
+	private void setChoices(E[] choices) {
+		this.choices = choices;
+	}
+}
@@ -1,5 +1,8 @@
 package parameter;
 
+import alignment.MotifEngine;
+import alignment.PWMBatch;
+import alignment.PWMKernel;
 import group.Group;
 import gui.MarinaGUI;
 
@@ -48,15 +51,31 @@ public class ParameterMap extends LinkedHashMap<ParameterName, Parameter>{
 		IntegerParameter diff = new IntegerParameter(ParameterName.DIFF, 4, 0, 100);
 		IntegerParameter len = new IntegerParameter(ParameterName.LENGTH, 6, 0, 100);
 		IntegerParameter count = new IntegerParameter(ParameterName.COUNT, 0, 0, 100);
+		IntegerParameter workers = new IntegerParameter(ParameterName.WORKERS, 1, 1, 64);
+		IntegerParameter budget = new IntegerParameter(ParameterName.KMER_BUDGET, 4096, 0, 1048576);
+		IntegerParameter edit = new IntegerParameter(ParameterName.EDIT_DISTANCE, 0, 0, 8);
 		DoubleParameter supp = new DoubleParameter(ParameterName.SUPPORT, 0, 0, 100);
 		DoubleParameter pwm = new DoubleParameter(ParameterName.PWM_CUTOFF, 0.80, 0, 1.0);
 		DoubleParameter lapl = new DoubleParameter(ParameterName.LAPL, 0.3, 0, 1.0);
 		DoubleParameter pVal = new DoubleParameter(ParameterName.P_VALUE, 0.05, 0, 1.0);
 		BooleanParameter ipf = new BooleanParameter(ParameterName.IPF, false);
+		BooleanParameter packed = new BooleanParameter(ParameterName.PACKED, false);
+		BooleanParameter dual = new BooleanParameter(ParameterName.DUAL_STRAND, false);
+		BooleanParameter index = new BooleanParameter(ParameterName.INDEX_BASELINE, false);
+		BooleanParameter stream = new BooleanParameter(ParameterName.STREAMING, false);
+		BooleanParameter lazy = new BooleanParameter(ParameterName.LAZY, false);
+		BooleanParameter counts = new BooleanParameter(ParameterName.COUNTS_ONLY, false);
+		BooleanParameter offHeap = new BooleanParameter(ParameterName.OFF_HEAP, false);
+		EnumParameter<MotifEngine> engine = new EnumParameter<MotifEngine>(
+				ParameterName.MOTIF_ENGINE, MotifEngine.AHO_CORASICK, 
+				MotifEngine.values());
+		EnumParameter<PWMKernel> kernel = new EnumParameter<PWMKernel>(
+				ParameterName.PWM_KERNEL, PWMBatch.KERNEL, PWMKernel.values());
 		List<Parameter> paramSet = new ArrayList<Parameter>();
 		// add parameters to global-set
 		Collections.addAll(paramSet, diff, len, count, supp, pwm, lapl, 
-				pVal, ipf); 
+				pVal, workers, budget, edit, ipf, packed, dual, index, stream, lazy, 
+				counts, offHeap, engine, kernel); 
 		for (Parameter p: paramSet) {
 			this.put(p.getName(), p);
 		}
@@ -76,6 +95,21 @@ public class ParameterMap extends LinkedHashMap<ParameterName, Parameter>{
 				this.getBaseline() != null);
 		return hasFASTA && hasParser; // both clauses must be met to continue
 	}
+
+	/**
+	 * Determine whether either group only counted its mappings. This
+	 * reflects how the groups were aligned, rather than the COUNTS_ONLY
+	 * parameter, which may have been toggled since.
+	 * @return boolean whether coordinates are unavailable.
+	 * */
+	public boolean isCountingOnly() {
+		for (Group group: new Group[]{this.getQuery(), this.getBaseline()}) {
+			if (group != null && group.isCountingOnly()) {
+				return true;
+			}
+		}
+		return false;
+	}
 	
 	/**
 	 * Converts a specific parameter to type-double.
@@ -107,6 +141,32 @@ public class ParameterMap extends LinkedHashMap<ParameterName, Parameter>{
 		return param.getArgument();
 	}
 
+	/**
+	 * Converts a specific parameter to its respective enumeration type.
+	 * @param type class of the enumeration the parameter references.
+	 * @return enumeration constant representing the specific parameter
+	 * */
+	public static <E extends Enum<E>> E toEnum(ParameterName name, 
+			Class<E> type) {
+		ParameterMap paramMap = MarinaGUI.get().parameterMap();
+		EnumParameter<?> param = (EnumParameter<?>)paramMap.get(name);
+		return type.cast(param.getArgument());
+	}
+
+	/**
+	 * Determine whether either group was streamed, in which case only its
+	 * group-wide counts were kept.
+	 * @return boolean whether per-sequence mappings are unavailable.
+	 * */
+	public boolean isStreamed() {
+		for (Group group: new Group[]{this.getQuery(), this.getBaseline()}) {
+			if (group != null && group.isStreamed()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * @return the queryGroup
 	 */
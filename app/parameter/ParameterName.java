@@ -9,7 +9,18 @@ public enum ParameterName {
 	LAPL("Laplace"),
 	P_VALUE("p-value"),
 	WORKERS("#/workers"),
-	IPF("IPF-standardize");
+	IPF("IPF-standardize"),
+	MOTIF_ENGINE("Motif engine"),
+	PACKED("Pack sequences"),
+	DUAL_STRAND("Dual-strand scan"),
+	KMER_BUDGET("k-mer table budget (KB)"),
+	INDEX_BASELINE("Index baseline"),
+	EDIT_DISTANCE("Max. edit distance"),
+	STREAMING("Stream sequences"),
+	LAZY("Lazy sequences (.fai)"),
+	COUNTS_ONLY("Counts only"),
+	OFF_HEAP("Off-heap mappings"),
+	PWM_KERNEL("PWM kernel");
 	
 	private String name;
 	
@@ -0,0 +1,244 @@
+package parser;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+
+/**
+ * BGZF files, as written by bgzip, are a series of independent gzip
+ * members of at most 64KB each; the compressed size of each member, i.e.
+ * block, is saved within its header. Blocks can hence be located without
+ * inflating prior blocks. A BGZFInputStream reads blocks in file order and
+ * inflates them across a fork/join pool of workers, keeping a bounded
+ * number of blocks in-flight. Inflated blocks are read in file order,
+ * hence the stream is identical to that of a GZIPInputStream.
+ * <p>
+ * The checksum and size of each block are verified once inflated.
+ * @author Parsa Hosseini
+ * */
+public class BGZFInputStream extends InputStream {
+	private static final int HEADER_SIZE = 12; // bytes prior to extra fields.
+	private static final int FOOTER_SIZE = 8; // CRC32 and inflated size.
+	private DataInputStream source;
+	private ForkJoinPool pool;
+	private int capacity; // most blocks in-flight.
+	private LinkedList<ForkJoinTask<byte[]>> pending; // in file order.
+	private boolean isDrained; // whether all blocks were located.
+	private byte[] block; // inflated block being read.
+	private int position; // offset of the next byte within the block.
+
+	/**
+	 * Opens a BGZF file.
+	 * @param file BGZF-compressed file.
+	 * @param workers number of fork/join threads inflating blocks.
+	 * @throws IOException
+	 * */
+	public BGZFInputStream(File file, int workers) throws IOException {
+		this.source = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file), 1 << 16));
+		this.pool = new ForkJoinPool(Math.max(1, workers));
+		this.capacity = Math.max(1, workers) * 4;
+		this.pending = new LinkedList<ForkJoinTask<byte[]>>();
+		this.block = new byte[0];
+	}
+
+	/**
+	 * Determine whether a file is BGZF-compressed, given its first block
+	 * holds the BC extra field.
+	 * @param file file to test.
+	 * @return boolean whether the file is BGZF-compressed.
+	 * @throws IOException
+	 * */
+	public static boolean isBGZF(File file) throws IOException {
+		byte[] header = new byte[18];
+		try (InputStream stream = new FileInputStream(file)) {
+			int size = 0, n = 0;
+			while (size < header.length &&
+					(n = stream.read(header, size, header.length - size)) != -1) {
+				size += n;
+			}
+			if (size < header.length) {
+				return false;
+			}
+		}
+		return (header[0] & 0xFF) == 0x1f && (header[1] & 0xFF) == 0x8b &&
+				header[2] == 8 && (header[3] & 4) != 0 && header[12] == 'B' &&
+				header[13] == 'C' && header[14] == 2;
+	}
+
+	/**
+	 * Reads the next compressed block, returning a task which inflates it.
+	 * @return task inflating the block, or null if all blocks were read.
+	 * @throws IOException
+	 * */
+	private ForkJoinTask<byte[]> nextBlock() throws IOException {
+		byte[] header = new byte[HEADER_SIZE];
+		int first = this.source.read();
+		if (first == -1) {
+			return null;
+		}
+		header[0] = (byte)first;
+		this.source.readFully(header, 1, HEADER_SIZE - 1);
+		if ((header[0] & 0xFF) != 0x1f || (header[1] & 0xFF) != 0x8b ||
+				(header[3] & 4) == 0) {
+			throw new IOException("File is not BGZF-compressed.");
+		}
+		int extraLength = (header[10] & 0xFF) | (header[11] & 0xFF) << 8;
+		byte[] extra = new byte[extraLength];
+		this.source.readFully(extra);
+		int blockSize = -1;
+		for (int i = 0; i + 4 <= extraLength; ) { // find the BC sub-field
+			int fieldLength = (extra[i + 2] & 0xFF) | (extra[i + 3] & 0xFF) << 8;
+			if (extra[i] == 'B' && extra[i + 1] == 'C' && fieldLength == 2) {
+				blockSize = ((extra[i + 4] & 0xFF) | (extra[i + 5] & 0xFF) << 8) + 1;
+			}
+			i += 4 + fieldLength;
+		}
+		if (blockSize == -1) {
+			throw new IOException("BGZF block lacks its size.");
+		}
+		int dataSize = blockSize - HEADER_SIZE - extraLength - FOOTER_SIZE;
+		if (dataSize < 0) {
+			throw new IOException("BGZF block is corrupt.");
+		}
+		final byte[] data = new byte[dataSize + FOOTER_SIZE];
+		this.source.readFully(data);
+		return this.pool.submit(new Callable<byte[]>() {
+			@Override
+			public byte[] call() throws IOException {
+				return BGZFInputStream.inflate(data);
+			}
+		});
+	}
+
+	/**
+	 * Inflates the deflated data of a block and verifies its checksum.
+	 * @param data deflated data followed by the block's footer.
+	 * @return inflated bytes.
+	 * @throws IOException
+	 * */
+	private static byte[] inflate(byte[] data) throws IOException {
+		int footer = data.length - FOOTER_SIZE;
+		long crc = BGZFInputStream.readInt(data, footer) & 0xFFFFFFFFL;
+		int size = BGZFInputStream.readInt(data, footer + 4);
+		byte[] inflated = new byte[size];
+		Inflater inflater = new Inflater(true); // raw deflate data
+		try {
+			inflater.setInput(data, 0, footer);
+			int n = 0;
+			while (n < size && !inflater.finished()) {
+				int k = inflater.inflate(inflated, n, size - n);
+				if (k == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				n += k;
+			}
+			if (n != size) {
+				throw new IOException("BGZF block is corrupt.");
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("BGZF block is corrupt.");
+		} finally {
+			inflater.end();
+		}
+		CRC32 checksum = new CRC32();
+		checksum.update(inflated, 0, size);
+		if (checksum.getValue() != crc) {
+			throw new IOException("BGZF block fails its checksum.");
+		}
+		return inflated;
+	}
+
+	/**
+	 * Trivial function to read a little-endian integer.
+	 * @return integer at the offset.
+	 * */
+	private static int readInt(byte[] data, int offset) {
+		return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8 |
+				(data[offset + 2] & 0xFF) << 16 | (data[offset + 3] & 0xFF) << 24;
+	}
+
+	/**
+	 * Tops-up the in-flight blocks and waits for the oldest to be inflated.
+	 * @return boolean whether a block was taken; false once all are read.
+	 * @throws IOException
+	 * */
+	private boolean take() throws IOException {
+		try {
+			while (!this.isDrained && this.pending.size() < this.capacity) {
+				ForkJoinTask<byte[]> task = this.nextBlock();
+				if (task == null) {
+					this.isDrained = true;
+				}
+				else {
+					this.pending.add(task);
+				}
+			}
+		} catch (EOFException e) {
+			throw new IOException("BGZF file is truncated.");
+		}
+		if (this.pending.isEmpty()) {
+			return false;
+		}
+		try {
+			this.block = this.pending.removeFirst().join();
+		} catch (RuntimeException e) { // inflation errors are wrapped
+			for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+				if (t instanceof IOException) {
+					throw (IOException)t;
+				}
+			}
+			throw e;
+		}
+		this.position = 0;
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		while (this.position == this.block.length) {
+			if (!this.take()) {
+				return -1;
+			}
+		}
+		return this.block[this.position++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		while (this.position == this.block.length) {
+			if (!this.take()) {
+				return -1;
+			}
+		}
+		int n = Math.min(len, this.block.length - this.position);
+		System.arraycopy(this.block, this.position, b, off, n);
+		this.position += n;
+		return n;
+	}
+
+	/**
+	 * Stops the pool and closes the file.
+	 * @throws IOException
+	 * */
+	@Override
+	public void close() throws IOException {
+		this.pool.shutdownNow();
+		this.source.close();
+	}
+}
@@ -14,13 +14,15 @@ import parameter.ParameterMap;
 import parameter.ParameterName;
 
 import bindingsite.LinearDNAMotif;
+import bindingsite.SiteOrdinals;
 
 
 /**
  * DNA motifs are represented as tab-delimited files whereby the first column
  * represents the Transcription Factor (TF) family, the second column
  * represents the TF gene name, and the third column represents the actual
- * DNA motif. This DNA motif is a linear DNA string from the DNA alphabet.
+ * DNA motif. This DNA motif is a linear DNA string from the DNA alphabet;
+ * degenerate positions may use IUPAC codes such as R, W or N.
  * Parsing the above file-format is therefore the goal of this class.
 
  * @author Parsa Hosseini
@@ -61,6 +63,8 @@ public class DNAMotifParser extends Parser {
 			if (this.getLinearMotifs().size() == 0) {
 				throw new IOException("No motifs passed the filter cutoff.");
 			}
+			SiteOrdinals.assign(LinearDNAMotif.class,
+					this.getLinearMotifs()); // identify each motif
 		} catch (MalformedInputException | IndexOutOfBoundsException e) {
 			throw new IOException("Malformed motifs input file.");
 		}
@@ -0,0 +1,387 @@
+package parser;
+
+import group.FASTASequence;
+import group.IndexedFASTASequence;
+import group.MappedDNA;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * A samtools-style FASTA index, saved alongside its FASTA file with the
+ * .fai extension. Per record, the index saves its name, its number of
+ * bases, the file offset of its first base, the bases per line and the
+ * bytes per line. Any base can hence be located without reading prior
+ * records; an index written by samtools faidx can be re-used as-is.
+ * <p>
+ * Since samtools names each record by the first word of its header, full
+ * headers are read from the FASTA file once the index is loaded. Records
+ * are loaded on demand as views over the memory-mapped file, hence a group
+ * of indexed sequences holds little more than its headers in memory.
+ * @author Parsa Hosseini
+ * */
+public class FASTAIndex {
+	public static final String EXTENSION = ".fai";
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private File file; // the indexed FASTA file.
+	private String[] headers; // full header of each record.
+	private long[] offsets; // file offset of the first base of each record.
+	private int[] lengths; // bases of each record.
+	private int[] lineBases; // bases per line of each record.
+	private int[] lineWidths; // bytes per line of each record.
+	private volatile MappedByteBuffer mapping; // whole file; null if too large.
+
+	private FASTAIndex(File file, int numRecords) {
+		this.file = file;
+		this.headers = new String[numRecords];
+		this.offsets = new long[numRecords];
+		this.lengths = new int[numRecords];
+		this.lineBases = new int[numRecords];
+		this.lineWidths = new int[numRecords];
+	}
+
+	/**
+	 * Gets the index file of a FASTA file.
+	 * @param file FASTA file.
+	 * @return file of the same name, albeit with the .fai extension.
+	 * */
+	public static File getIndexFile(File file) {
+		return new File(file.getPath() + EXTENSION);
+	}
+
+	/**
+	 * Loads the index of a FASTA file if present and up-to-date; otherwise,
+	 * the index is built and saved alongside the file. Should the index not
+	 * be writable, it is only held in memory.
+	 * @param file uncompressed FASTA file.
+	 * @return FASTAIndex object.
+	 * @throws IOException
+	 * */
+	public static FASTAIndex open(File file) throws IOException {
+		if (FASTAParser.isCompressed(file)) {
+			throw new IOException("Only uncompressed FASTA files can be indexed.");
+		}
+		File indexFile = FASTAIndex.getIndexFile(file);
+		FASTAIndex index = null;
+		if (indexFile.isFile() && indexFile.lastModified() >= file.lastModified()) {
+			index = FASTAIndex.load(file, indexFile);
+		}
+		if (index == null) { // missing, stale or invalid; build anew
+			index = FASTAIndex.build(file);
+			try {
+				index.save(indexFile);
+			} catch (IOException e) {
+				// read-only directories are indexed in memory only
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Builds the index by scanning the FASTA file once. All lines of a
+	 * record, other than its last, must have the same width.
+	 * @param file uncompressed FASTA file.
+	 * @return FASTAIndex object.
+	 * @throws IOException
+	 * */
+	public static FASTAIndex build(File file) throws IOException {
+		List<String> headers = new ArrayList<String>();
+		List<long[]> records = new ArrayList<long[]>(); // offset, length, ...
+		try (InputStream stream = new BufferedInputStream(
+				new FileInputStream(file), 1 << 16)) {
+			long offset = 0;
+			byte[] line = new byte[256];
+			int c = stream.read();
+			long[] record = null;
+			boolean isLast = false; // whether the prior line ends the layout
+			while (c != -1) {
+				long start = offset; // read one line, without its terminator
+				int lineLength = 0;
+				while (c != -1 && !MappedDNA.isTerminator((byte)c)) {
+					if (lineLength == line.length) {
+						line = Arrays.copyOf(line, lineLength * 2);
+					}
+					line[lineLength++] = (byte)c;
+					c = stream.read();
+					offset++;
+				}
+				while (c != -1 && MappedDNA.isTerminator((byte)c)) {
+					c = stream.read();
+					offset++;
+				}
+				if (lineLength > 0 && line[0] == '>') {
+					headers.add(new String(line, 1, lineLength - 1,
+							Charset.defaultCharset()));
+					record = new long[]{offset, 0, 0, 0};
+					records.add(record);
+					isLast = false;
+				}
+				else if (record != null && lineLength > 0) {
+					if (record[2] == 0) { // first line sets the layout
+						record[2] = lineLength;
+						record[3] = offset - start;
+					}
+					else if (isLast || lineLength > record[2]) {
+						throw new IOException("Record " + headers.get(
+								headers.size() - 1) + " has lines of " +
+								"differing widths; it cannot be indexed.");
+					}
+					isLast = lineLength < record[2] || offset - start != record[3];
+					record[1] += lineLength;
+					if (record[1] > Integer.MAX_VALUE) {
+						throw new IOException("Record is too large to be indexed.");
+					}
+				}
+			}
+		}
+		FASTAIndex index = new FASTAIndex(file, records.size());
+		for (int i = 0; i < records.size(); i++) {
+			long[] record = records.get(i);
+			index.headers[i] = headers.get(i);
+			index.offsets[i] = record[0];
+			index.lengths[i] = (int)record[1];
+			index.lineBases[i] = (int)record[2];
+			index.lineWidths[i] = (int)record[3];
+		}
+		return index;
+	}
+
+	/**
+	 * Saves the index in samtools' tab-delimited format; the first word of
+	 * each header, its length, offset, bases per line and bytes per line.
+	 * @param indexFile file to save the index to.
+	 * @throws IOException
+	 * */
+	public void save(File indexFile) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(indexFile.toPath(),
+				UTF8)) {
+			for (int i = 0; i < this.size(); i++) {
+				writer.write(this.getName(i) + "\t" + this.lengths[i] + "\t" +
+						this.offsets[i] + "\t" + this.lineBases[i] + "\t" +
+						this.lineWidths[i]);
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Loads a saved index, reading full headers from the FASTA file.
+	 * @param file uncompressed FASTA file.
+	 * @param indexFile the saved index.
+	 * @return FASTAIndex object, or null if the index does not match the
+	 * FASTA file.
+	 * @throws IOException
+	 * */
+	public static FASTAIndex load(File file, File indexFile) throws IOException {
+		List<String[]> rows = new ArrayList<String[]>();
+		try (BufferedReader reader = Files.newBufferedReader(indexFile.toPath(),
+				UTF8)) {
+			String line = null;
+			while ((line = reader.readLine()) != null) {
+				String[] row = line.split("\t");
+				if (row.length < 5) {
+					return null;
+				}
+				rows.add(row);
+			}
+		}
+		FASTAIndex index = new FASTAIndex(file, rows.size());
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			for (int i = 0; i < rows.size(); i++) {
+				String[] row = rows.get(i);
+				index.lengths[i] = Integer.parseInt(row[1]);
+				index.offsets[i] = Long.parseLong(row[2]);
+				index.lineBases[i] = Integer.parseInt(row[3]);
+				index.lineWidths[i] = Integer.parseInt(row[4]);
+				index.headers[i] = FASTAIndex.readHeader(channel,
+						index.offsets[i]);
+				if (index.headers[i] == null || !index.getName(i).equals(row[0]) ||
+						index.getEnd(i) > channel.size()) {
+					return null; // the index is of another file
+				}
+			}
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		return index;
+	}
+
+	/**
+	 * Reads the header of a record, being the line preceding its first
+	 * base.
+	 * @param channel FASTA file.
+	 * @param offset file offset of the record's first base.
+	 * @return the header, or null if no header precedes the offset.
+	 * @throws IOException
+	 * */
+	private static String readHeader(FileChannel channel, long offset)
+			throws IOException {
+		long end = offset;
+		ByteBuffer one = ByteBuffer.allocate(1);
+		while (end > 0) { // skip the header's terminator
+			one.clear();
+			channel.read(one, end - 1);
+			if (!MappedDNA.isTerminator(one.get(0))) {
+				break;
+			}
+			end--;
+		}
+		int size = 256;
+		while (true) {
+			long start = Math.max(0, end - size);
+			ByteBuffer bytes = ByteBuffer.allocate((int)(end - start));
+			while (bytes.hasRemaining() &&
+					channel.read(bytes, start + bytes.position()) != -1) {
+				// read the whole range
+			}
+			byte[] line = bytes.array();
+			for (int i = line.length - 1; i >= 0; i--) {
+				if (MappedDNA.isTerminator(line[i])) { // the header follows it
+					return line[i + 1] == '>' ? new String(line, i + 2,
+							line.length - i - 2, Charset.defaultCharset()) : null;
+				}
+			}
+			if (start == 0) {
+				return line.length > 0 && line[0] == '>' ? new String(line, 1,
+						line.length - 1, Charset.defaultCharset()) : null;
+			}
+			size *= 2;
+		}
+	}
+
+	/**
+	 * Gets the name of a record; the first word of its header.
+	 * @param i index of the record.
+	 * @return name of the record.
+	 * */
+	public String getName(int i) {
+		String header = this.headers[i];
+		for (int j = 0; j < header.length(); j++) {
+			if (Character.isWhitespace(header.charAt(j))) {
+				return header.substring(0, j);
+			}
+		}
+		return header;
+	}
+
+	/**
+	 * Gets the file offset following the last base of a record.
+	 * @param i index of the record.
+	 * @return offset of the byte after the last base.
+	 * */
+	private long getEnd(int i) {
+		if (this.lengths[i] == 0) {
+			return this.offsets[i];
+		}
+		int lines = (this.lengths[i] - 1) / this.lineBases[i];
+		return this.offsets[i] + (long)lines * this.lineWidths[i] +
+				(this.lengths[i] - (long)lines * this.lineBases[i]);
+	}
+
+	/**
+	 * Maps the bases of a record from the FASTA file. Files of at most 2GB
+	 * are mapped once; larger files are mapped per record. Only mapping the
+	 * whole file is locked, hence threads load records concurrently.
+	 * @param i index of the record.
+	 * @return view over the record's bases.
+	 * @throws IOException
+	 * */
+	public MappedDNA load(int i) throws IOException {
+		long end = this.getEnd(i);
+		ByteBuffer bytes;
+		MappedByteBuffer mapping = this.mapping;
+		if (mapping == null && this.file.length() <= Integer.MAX_VALUE) {
+			mapping = this.map();
+		}
+		if (mapping != null) {
+			bytes = mapping.duplicate();
+			bytes.limit((int)end);
+			bytes.position((int)this.offsets[i]);
+		}
+		else {
+			try (FileChannel channel = FileChannel.open(this.file.toPath(),
+					StandardOpenOption.READ)) {
+				bytes = channel.map(FileChannel.MapMode.READ_ONLY,
+						this.offsets[i], end - this.offsets[i]);
+			}
+		}
+		return new MappedDNA(bytes, this.lengths[i], this.lineBases[i],
+				this.lineWidths[i]);
+	}
+
+	/**
+	 * Maps the whole FASTA file, unless already mapped.
+	 * @return mapping of the file.
+	 * @throws IOException
+	 * */
+	private synchronized MappedByteBuffer map() throws IOException {
+		if (this.mapping == null) {
+			try (FileChannel channel = FileChannel.open(this.file.toPath(),
+					StandardOpenOption.READ)) {
+				this.mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+						channel.size());
+			}
+		}
+		return this.mapping;
+	}
+
+	/**
+	 * Creates a sequence per record, in file order. Bases of each sequence
+	 * are loaded on demand.
+	 * @return FASTASequence objects holding only headers.
+	 * */
+	public List<FASTASequence> toSequences() {
+		List<FASTASequence> seqs = new ArrayList<FASTASequence>();
+		for (int i = 0; i < this.size(); i++) {
+			seqs.add(new IndexedFASTASequence(this.headers[i], this, i));
+		}
+		return seqs;
+	}
+
+	/**
+	 * @return the number of indexed records.
+	 */
+	public int size() {
+		return this.headers.length;
+	}
+
+	/**
+	 * @param i index of the record.
+	 * @return the full header of the record.
+	 */
+	public String getHeader(int i) {
+		return this.headers[i];
+	}
+
+	/**
+	 * @param i index of the record.
+	 * @return the number of bases of the record.
+	 */
+	public int getLength(int i) {
+		return this.lengths[i];
+	}
+
+	/**
+	 * @param i index of the record.
+	 * @return the file offset of the record's first base.
+	 */
+	public long getOffset(int i) {
+		return this.offsets[i];
+	}
+}
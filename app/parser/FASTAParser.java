@@ -2,15 +2,18 @@ package parser;
 
 import group.FASTASequence;
 
-import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.GZIPInputStream;
+
+import parameter.ParameterMap;
+import parameter.ParameterName;
 
 
 /**
@@ -22,7 +25,9 @@ import java.util.List;
  * @author Parsa Hosseini
  * */
 public class FASTAParser extends Parser {
+	public static final long CHUNK_SIZE = 1 << 24; // fewest bytes per chunk.
 	private List<FASTASequence> sequences;
+	private boolean isParsed; // whether the whole file was parsed.
 
 	public FASTAParser(File file) {
 		this.setFile(file);
@@ -34,28 +39,203 @@ public class FASTAParser extends Parser {
 		this.setSequences(new ArrayList<FASTASequence>());
 	}
 
+	/**
+	 * Parses all records of the FASTA file in file order. Records sharing
+	 * a header are all kept. Bases of each record remain within the
+	 * memory-mapped file unless sequences are to be packed. Given many
+	 * workers, large files are parsed in parallel. Gzip-compressed files
+	 * are inflated whilst being parsed. If sequences are lazy, uncompressed
+	 * files are instead indexed.
+	 * @throws IOException
+	 * */
 	@Override
 	public void parse() throws IOException {
-		Charset cs = Charset.defaultCharset();
-		// store entries as strings first and save as FASTA objects later.
-		HashMap<String, StringBuilder> seqs = new HashMap<String, StringBuilder>();
-		try (BufferedReader reader = Files.newBufferedReader(
-				Paths.get(this.getFile().toString()), cs)) {
-			String eachLine = "";
-			String header = "";
-			while ((eachLine = reader.readLine()) != null) {
-				if (eachLine.startsWith(">")) {
-					header = eachLine.substring(1, eachLine.length());
-					seqs.put(header, new StringBuilder());
+		if (ParameterMap.toBoolean(ParameterName.LAZY) &&
+				!FASTAParser.isCompressed(this.getFile())) {
+			this.parseIndexed();
+		}
+		else {
+			this.parse(ParameterMap.toInteger(ParameterName.WORKERS), CHUNK_SIZE);
+		}
+		this.isParsed = true;
+	}
+
+	/**
+	 * Determine whether the file was parsed, rather than being streamed.
+	 * @return boolean whether parse() was invoked.
+	 * */
+	public boolean isParsed() {
+		return this.isParsed;
+	}
+
+	/**
+	 * Discards parsed sequences, i.e. once the file is streamed instead;
+	 * the file must be parsed anew should its sequences be needed.
+	 * */
+	public void clear() {
+		this.getSequences().clear();
+		this.isParsed = false;
+	}
+
+	/**
+	 * Builds, or re-uses, the .fai index of the FASTA file and creates a
+	 * sequence per indexed record. Only headers are held in memory; bases
+	 * are loaded from the memory-mapped file on demand.
+	 * @throws IOException
+	 * */
+	public void parseIndexed() throws IOException {
+		this.getSequences().addAll(FASTAIndex.open(this.getFile()).toSequences());
+	}
+
+	/**
+	 * Splits the FASTA file into byte ranges, each snapping to its first
+	 * header, and parses these chunks across a pool of workers. Chunks are
+	 * then merged in file order, hence the parsed sequences are identical
+	 * regardless of the number of workers. Compressed files cannot be split,
+	 * hence are parsed whilst workers inflate them.
+	 * @param workers number of fork/join threads.
+	 * @param chunkSize fewest bytes per chunk.
+	 * @throws IOException
+	 * */
+	public void parse(int workers, long chunkSize) throws IOException {
+		if (FASTAParser.isCompressed(this.getFile())) {
+			this.getSequences().addAll(this.read(this.openCompressed(workers)));
+			return;
+		}
+		long size = this.getFile().length();
+		int numChunks = (int)Math.max(1, Math.min(workers * 4L, 
+				size / Math.max(1, chunkSize)));
+		if (workers <= 1 || numChunks == 1) {
+			this.getSequences().addAll(this.read(new MappedFASTAReader(
+					this.getFile(), 0, size, MappedFASTAReader.WINDOW_SIZE)));
+			return;
+		}
+		List<ChunkParser> chunks = new ArrayList<ChunkParser>();
+		for (int c = 0; c < numChunks; c++) {
+			chunks.add(new ChunkParser(size * c / numChunks, 
+					size * (c + 1) / numChunks));
+		}
+		ForkJoinPool pool = new ForkJoinPool(workers);
+		try {
+			for (ChunkParser chunk: chunks) {
+				pool.execute(chunk);
+			}
+			for (ChunkParser chunk: chunks) { // merge in file order
+				this.getSequences().addAll(chunk.join());
+			}
+		} catch (RuntimeException e) { // parsing errors are wrapped
+			for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+				if (t instanceof IOException) {
+					throw (IOException)t;
+				}
+			}
+			throw e;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * A chunk references a byte range of the FASTA file, parsing records
+	 * whose header starts within the range.
+	 * */
+	private class ChunkParser extends RecursiveTask<List<FASTASequence>> {
+		private static final long serialVersionUID = 1L;
+		private long from; // first byte of the range (inclusive).
+		private long to; // last byte of the range (exclusive).
+
+		public ChunkParser(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<FASTASequence> compute() {
+			try {
+				return read(new MappedFASTAReader(getFile(), this.from, this.to,
+						MappedFASTAReader.WINDOW_SIZE));
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/**
+	 * Determine whether a file is gzip-compressed, including BGZF, given
+	 * its first two bytes.
+	 * @param file file to test.
+	 * @return boolean whether the file is gzip-compressed.
+	 * @throws IOException
+	 * */
+	public static boolean isCompressed(File file) throws IOException {
+		try (InputStream stream = new FileInputStream(file)) {
+			return stream.read() == 0x1f && stream.read() == 0x8b;
+		}
+	}
+
+	/**
+	 * Opens a compressed FASTA file. Blocks of BGZF files are inflated
+	 * across workers; other gzip files are inflated on a separate thread.
+	 * @param workers number of threads inflating BGZF blocks.
+	 * @return FASTAReader of the inflated records.
+	 * @throws IOException
+	 * */
+	private FASTAReader openCompressed(int workers) throws IOException {
+		if (BGZFInputStream.isBGZF(this.getFile())) {
+			return new FASTAStreamReader(new BGZFInputStream(
+					this.getFile(), workers));
+		}
+		return new FASTAStreamReader(new PipelinedInputStream(
+				new GZIPInputStream(new FileInputStream(this.getFile()),
+						PipelinedInputStream.BLOCK_SIZE)));
+	}
+
+	/**
+	 * Parses all records of a reader, closing it thereafter.
+	 * @param reader FASTAReader over the file or a byte range of it.
+	 * @return FASTASequence objects in file order.
+	 * @throws IOException
+	 * */
+	private List<FASTASequence> read(FASTAReader reader) throws IOException {
+		List<FASTASequence> seqs = new ArrayList<FASTASequence>();
+		boolean isPacked = ParameterMap.toBoolean(ParameterName.PACKED);
+		try {
+			FASTASequence seq = null;
+			while ((seq = reader.next()) != null) {
+				if (isPacked) { // store 2 bits per base rather than 8.
+					seq.pack();
 				}
-				else {
-					seqs.get(header).append(eachLine); // append sequence
+				seqs.add(seq);
+			}
+		} finally {
+			reader.close();
+		}
+		return seqs;
+	}
+
+	/**
+	 * Parses the FASTA file one record at a time, handing each record to a
+	 * handler as soon as it is read. Records are neither collected nor
+	 * de-duplicated, hence memory is proportional to the longest record
+	 * rather than the entire file.
+	 * @param handler SequenceHandler which receives each record.
+	 * @throws IOException
+	 * */
+	public void stream(SequenceHandler handler) throws IOException {
+		boolean isPacked = ParameterMap.toBoolean(ParameterName.PACKED);
+		FASTAReader reader = FASTAParser.isCompressed(this.getFile()) ?
+				this.openCompressed(ParameterMap.toInteger(ParameterName.WORKERS)) :
+				new MappedFASTAReader(this.getFile());
+		try {
+			FASTASequence seq = null;
+			while ((seq = reader.next()) != null) {
+				if (isPacked) { // store 2 bits per base rather than 8.
+					seq.pack();
 				}
+				handler.handle(seq);
 			}
-		} // lastly, per hash-entry, create a FASTASequence object from it
-		for (String head: seqs.keySet()) {
-			FASTASequence i = new FASTASequence(head, seqs.get(head).toString());
-			this.getSequences().add(i);
+		} finally {
+			reader.close();
 		}
 	}
 
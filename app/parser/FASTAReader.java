@@ -0,0 +1,23 @@
+package parser;
+
+import group.FASTASequence;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+
+/**
+ * A FASTAReader hands over the records of a FASTA source one at a time,
+ * in file order, regardless of how the source is stored.
+ * @author Parsa Hosseini
+ * @see MappedFASTAReader
+ * @see FASTAStreamReader
+ * */
+public interface FASTAReader extends Closeable {
+	/**
+	 * Reads the next record of the source.
+	 * @return FASTASequence object, or null if all records were read.
+	 * @throws IOException
+	 * */
+	public FASTASequence next() throws IOException;
+}
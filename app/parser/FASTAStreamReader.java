@@ -0,0 +1,137 @@
+package parser;
+
+import group.FASTASequence;
+import group.MappedDNA;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+
+/**
+ * Compressed FASTA files cannot be memory-mapped, hence a FASTAStreamReader
+ * instead scans the bytes of an input stream, i.e. a decompressing stream,
+ * for record boundaries. As per a MappedFASTAReader, bases are never
+ * decoded; the bases of each record are collected into a byte array and
+ * handed over as a MappedDNA view. Bytes preceding the first header are
+ * ignored.
+ * @author Parsa Hosseini
+ * */
+public class FASTAStreamReader implements FASTAReader {
+	public static final int BUFFER_SIZE = 1 << 16; // bytes read at once.
+	private InputStream stream;
+	private Charset charset; // charset of headers.
+	private byte[] buffer; // bytes read but not yet scanned.
+	private int position; // offset of the next byte within the buffer.
+	private int limit; // number of bytes within the buffer.
+	private int prior; // the byte preceding the next byte; or -1.
+	private byte[] bases; // bases of the record being read.
+
+	public FASTAStreamReader(InputStream stream) {
+		this.stream = stream;
+		this.charset = Charset.defaultCharset();
+		this.buffer = new byte[BUFFER_SIZE];
+		this.bases = new byte[BUFFER_SIZE];
+		this.prior = '\n';
+	}
+
+	/**
+	 * Reads the next byte of the stream.
+	 * @return the byte, or -1 once the stream is exhausted.
+	 * @throws IOException
+	 * */
+	private int read() throws IOException {
+		if (this.position == this.limit) {
+			this.limit = this.stream.read(this.buffer, 0, this.buffer.length);
+			this.position = 0;
+			if (this.limit <= 0) {
+				this.limit = 0;
+				return -1;
+			}
+		}
+		return this.buffer[this.position++] & 0xFF;
+	}
+
+	/**
+	 * Reads the next byte, remembering it as the prior byte.
+	 * @return the byte, or -1 once the stream is exhausted.
+	 * @throws IOException
+	 * */
+	private int advance() throws IOException {
+		int c = this.read();
+		if (c != -1) {
+			this.prior = c;
+		}
+		return c;
+	}
+
+	/**
+	 * Determine whether the next byte starts a header, without consuming it.
+	 * @return boolean whether the next byte is a '>' beginning a line.
+	 * @throws IOException
+	 * */
+	private boolean isHeaderNext() throws IOException {
+		if (this.peek() == -1) {
+			return false;
+		}
+		return this.buffer[this.position] == '>' &&
+				MappedDNA.isTerminator((byte)this.prior);
+	}
+
+	/**
+	 * Ensures the buffer holds at least one unscanned byte.
+	 * @return the next byte, or -1 once the stream is exhausted.
+	 * @throws IOException
+	 * */
+	private int peek() throws IOException {
+		int c = this.read();
+		if (c != -1) {
+			this.position--;
+		}
+		return c;
+	}
+
+	@Override
+	public FASTASequence next() throws IOException {
+		while (!this.isHeaderNext()) { // find the next header
+			if (this.advance() == -1) {
+				return null;
+			}
+		}
+		this.advance(); // the '>' of the header
+		byte[] head = new byte[64];
+		int headLength = 0;
+		int c;
+		while ((c = this.peek()) != -1 && !MappedDNA.isTerminator((byte)c)) {
+			if (headLength == head.length) {
+				head = Arrays.copyOf(head, headLength * 2);
+			}
+			head[headLength++] = (byte)this.advance();
+		}
+		String header = new String(head, 0, headLength, this.charset);
+		int numBases = 0;
+		while (!this.isHeaderNext() && (c = this.advance()) != -1) {
+			if (!MappedDNA.isTerminator((byte)c)) {
+				if (numBases == this.bases.length) {
+					this.bases = Arrays.copyOf(this.bases, numBases * 2);
+				}
+				this.bases[numBases++] = (byte)c;
+			}
+		}
+		FASTASequence seq = new FASTASequence(header, (String)null);
+		seq.setSequence(new MappedDNA(ByteBuffer.wrap(
+				Arrays.copyOf(this.bases, numBases))));
+		return seq;
+	}
+
+	/**
+	 * Closes the underlying stream.
+	 * @throws IOException
+	 * */
+	@Override
+	public void close() throws IOException {
+		this.stream.close();
+	}
+}
@@ -0,0 +1,162 @@
+package parser;
+
+import group.FASTASequence;
+import group.MappedDNA;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Reading a FASTA file line-by-line decodes every byte into a character
+ * and creates a String per line, only for these lines to be concatenated
+ * once more. A MappedFASTAReader instead memory-maps the file and scans
+ * its bytes for record boundaries; each record's bases are handed over as
+ * a MappedDNA view over the mapped file, hence bases are neither decoded
+ * nor copied. Only headers, being short, are decoded into Strings.
+ * <p>
+ * A mapping spans at most 2GB, hence larger files are mapped as a series
+ * of windows; each window starting at the header of the first record that
+ * did not fit the prior window. Bytes preceding the first header are
+ * ignored.
+ * <p>
+ * A reader may be confined to a byte range of the file, whereby only
+ * records whose header starts within the range are read. Ranges can hence
+ * be split anywhere; each range snaps to its first header and records
+ * straddling the end of a range are read by the range they start in.
+ * @author Parsa Hosseini
+ * */
+public class MappedFASTAReader implements FASTAReader {
+	public static final int WINDOW_SIZE = Integer.MAX_VALUE; // bytes per map.
+	private FileChannel channel;
+	private Charset charset; // charset of headers.
+	private int windowSize; // most bytes mapped at once.
+	private long size; // bytes of the file.
+	private long end; // records starting at or after this offset are unread.
+	private long base; // file offset of the current window.
+	private MappedByteBuffer window; // the current window.
+	private int position; // offset of the next record within the window.
+
+	public MappedFASTAReader(File file) throws IOException {
+		this(file, WINDOW_SIZE);
+	}
+
+	/**
+	 * Opens a FASTA file, mapping its first window.
+	 * @param file FASTA file.
+	 * @param windowSize most bytes mapped at once; each record must fit.
+	 * @throws IOException
+	 * */
+	public MappedFASTAReader(File file, int windowSize) throws IOException {
+		this(file, 0, Long.MAX_VALUE, windowSize);
+	}
+
+	/**
+	 * Opens a byte range of a FASTA file, mapping its first window.
+	 * @param file FASTA file.
+	 * @param from file offset of the range (inclusive).
+	 * @param to file offset of the range (exclusive).
+	 * @param windowSize most bytes mapped at once; each record must fit.
+	 * @throws IOException
+	 * */
+	public MappedFASTAReader(File file, long from, long to, int windowSize)
+			throws IOException {
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.charset = Charset.defaultCharset();
+		this.windowSize = windowSize;
+		this.size = this.channel.size();
+		this.end = Math.min(to, this.size);
+		if (from > 0 && from <= this.size) { // keep the prior terminator
+			this.map(from - 1);
+			this.position = 1;
+		}
+		else {
+			this.map(Math.min(from, this.size));
+		}
+	}
+
+	/**
+	 * Maps the window starting at a specific file offset.
+	 * @param offset file offset of the window.
+	 * @throws IOException
+	 * */
+	private void map(long offset) throws IOException {
+		this.base = offset;
+		this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, offset,
+				Math.min(this.windowSize, this.size - offset));
+		this.position = 0;
+	}
+
+	/**
+	 * Determine whether the current window ends at the end of the file.
+	 * @return boolean whether the window is the last.
+	 * */
+	private boolean isLastWindow() {
+		return this.base + this.window.limit() == this.size;
+	}
+
+	@Override
+	public FASTASequence next() throws IOException {
+		ByteBuffer bytes = this.window;
+		int limit = bytes.limit();
+		int start = this.position;
+		while (start < limit && (bytes.get(start) != '>' || (start > 0 &&
+				!MappedDNA.isTerminator(bytes.get(start - 1))))) {
+			start++; // find the next header
+		}
+		if (this.base + start >= this.end) {
+			return null; // the record starts after the range
+		}
+		if (start == limit) {
+			if (this.isLastWindow()) {
+				return null;
+			}
+			this.map(this.base + limit - 1); // keep the prior terminator
+			this.position = 1;
+			return this.next();
+		}
+		int headerEnd = start + 1;
+		while (headerEnd < limit && !MappedDNA.isTerminator(bytes.get(headerEnd))) {
+			headerEnd++;
+		}
+		int end = headerEnd;
+		while (end < limit && (bytes.get(end) != '>' ||
+				!MappedDNA.isTerminator(bytes.get(end - 1)))) {
+			end++; // find the next record
+		}
+		if (end == limit && !this.isLastWindow()) { // record may continue
+			if (start == 0) {
+				throw new IOException("FASTA record exceeds " +
+						this.windowSize + " bytes.");
+			}
+			this.map(this.base + start);
+			return this.next();
+		}
+		byte[] header = new byte[headerEnd - start - 1];
+		for (int i = 0; i < header.length; i++) {
+			header[i] = bytes.get(start + 1 + i);
+		}
+		ByteBuffer bases = bytes.duplicate();
+		bases.limit(end);
+		bases.position(headerEnd);
+		this.position = end;
+		FASTASequence seq = new FASTASequence(
+				new String(header, this.charset), (String)null);
+		seq.setSequence(new MappedDNA(bases));
+		return seq;
+	}
+
+	/**
+	 * Closes the file; mapped records remain readable.
+	 * @throws IOException
+	 * */
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+}
@@ -14,6 +14,7 @@ import parameter.ParameterMap;
 import parameter.ParameterName;
 
 import bindingsite.PositionWeightMatrix;
+import bindingsite.SiteOrdinals;
 
 
 /**
@@ -78,7 +79,9 @@ public class PWMParser extends Parser {
 					}
 				}
 			}
-			this.getMatrices().addAll(this.toPWMs(pwms)); // add parsed PWMs
+			List<PositionWeightMatrix> parsed = this.toPWMs(pwms);
+			SiteOrdinals.assign(PositionWeightMatrix.class, parsed); // ordinals identify each PWM
+			this.getMatrices().addAll(parsed); // add parsed PWMs
 		} catch (MalformedInputException | IndexOutOfBoundsException e) {
 			throw new IOException("Malformed PWM input file.");
 		}
@@ -57,9 +57,12 @@ public abstract class Parser {
 				new FileChooser.ExtensionFilter("FASTA (*.fasta)", "*.fasta");
 		FileChooser.ExtensionFilter faFilter = 
 				new FileChooser.ExtensionFilter("FASTA (*.fa)", "*.fa");
+		FileChooser.ExtensionFilter gzFilter = new FileChooser.ExtensionFilter(
+				"Compressed FASTA (*.gz)", "*.fasta.gz", "*.fa.gz");
 		FileChooser chooser = new FileChooser();
 		chooser.getExtensionFilters().add(fastaFilter);
 		chooser.getExtensionFilters().add(faFilter);
+		chooser.getExtensionFilters().add(gzFilter);
 		File file = chooser.showOpenDialog(null);
 		if (file != null) {
 			this.setFile(file);
@@ -0,0 +1,140 @@
+package parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * Inflating a compressed file and parsing its records are both costly,
+ * yet are performed in turn when reading a decompressing stream directly.
+ * A PipelinedInputStream instead reads its source, i.e. a GZIPInputStream,
+ * on a separate thread; blocks of bytes are handed to the reader through a
+ * bounded queue. Decompression hence overlaps parsing, whereas the bounded
+ * queue prevents decompression from running ahead of parsing indefinitely.
+ * <p>
+ * Any error reading the source is re-thrown to the reader once all prior
+ * blocks are read.
+ * @author Parsa Hosseini
+ * */
+public class PipelinedInputStream extends InputStream {
+	public static final int BLOCK_SIZE = 1 << 16; // bytes per block.
+	public static final int CAPACITY = 16; // most blocks awaiting the reader.
+	private static final byte[] END = new byte[0]; // marks the last block.
+	private InputStream source;
+	private BlockingQueue<byte[]> blocks;
+	private Thread producer; // reads the source.
+	private volatile IOException error; // error raised reading the source.
+	private byte[] block; // block being read.
+	private int position; // offset of the next byte within the block.
+
+	public PipelinedInputStream(InputStream source) {
+		this.source = source;
+		this.blocks = new ArrayBlockingQueue<byte[]>(CAPACITY);
+		this.block = new byte[0];
+		this.producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				produce();
+			}
+		}, "FASTA decompression");
+		this.producer.setDaemon(true);
+		this.producer.start();
+	}
+
+	/**
+	 * Reads the source block-by-block, queuing each block until the source
+	 * is exhausted, an error is raised or the stream is closed.
+	 * */
+	private void produce() {
+		try {
+			while (true) {
+				byte[] block = new byte[BLOCK_SIZE];
+				int size = 0;
+				int n = 0;
+				while (size < BLOCK_SIZE &&
+						(n = this.source.read(block, size, BLOCK_SIZE - size)) != -1) {
+					size += n;
+				}
+				if (size > 0) {
+					this.blocks.put(size == BLOCK_SIZE ? block :
+						Arrays.copyOf(block, size));
+				}
+				if (n == -1) {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			this.error = e;
+		} catch (InterruptedException e) {
+			return; // the stream was closed
+		}
+		try {
+			this.blocks.put(END);
+		} catch (InterruptedException e) {
+			return;
+		}
+	}
+
+	/**
+	 * Takes the next block from the queue.
+	 * @return boolean whether a block was taken; false once all are read.
+	 * @throws IOException
+	 * */
+	private boolean take() throws IOException {
+		if (this.block == END) {
+			return false;
+		}
+		try {
+			this.block = this.blocks.take();
+		} catch (InterruptedException e) {
+			throw new IOException("Decompression was interrupted.");
+		}
+		this.position = 0;
+		if (this.block == END) {
+			if (this.error != null) {
+				throw this.error;
+			}
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		while (this.position == this.block.length) {
+			if (!this.take()) {
+				return -1;
+			}
+		}
+		return this.block[this.position++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		while (this.position == this.block.length) {
+			if (!this.take()) {
+				return -1;
+			}
+		}
+		int n = Math.min(len, this.block.length - this.position);
+		System.arraycopy(this.block, this.position, b, off, n);
+		this.position += n;
+		return n;
+	}
+
+	/**
+	 * Stops the separate thread and closes the source.
+	 * @throws IOException
+	 * */
+	@Override
+	public void close() throws IOException {
+		this.producer.interrupt();
+		this.source.close();
+	}
+}
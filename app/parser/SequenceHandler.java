@@ -0,0 +1,22 @@
+package parser;
+
+import group.FASTASequence;
+
+import java.io.IOException;
+
+
+/**
+ * Streamed FASTA records are handed, one at a time, to a SequenceHandler
+ * rather than being collected into memory. The handler is responsible for
+ * any record it wishes to keep.
+ * @author Parsa Hosseini
+ * @see FASTAParser#stream(SequenceHandler)
+ * */
+public interface SequenceHandler {
+	/**
+	 * Handle a single parsed FASTA record.
+	 * @param seq FASTASequence object; records are handed in file order.
+	 * @throws IOException
+	 * */
+	public void handle(FASTASequence seq) throws IOException;
+}
@@ -1,13 +1,12 @@
 package quantification;
 
-import group.FASTASequence;
 import group.Group;
 import group.GroupAbundanceWrapper;
 import gui.MarinaGUI;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -46,14 +45,32 @@ public class CandidateMatrixBuilder {
 	 * @return set of BindingSite objects shared between both groups.
 	 * */
 	public Set<BindingSite> union() {
-		// iterate over each group
-		Set<BindingSite> union = new HashSet<BindingSite>();
-		for (Group group: this.groups()) {
-			// iterate over each sequence in the group
-			for (FASTASequence seq: group.getParser().getSequences()) {
-				union.addAll(seq.getMappings().keySet());
+		return this.union(this.getQuery().mappingWrapper(), 
+				this.getBaseline().mappingWrapper());
+	}
+
+	/**
+	 * Get a union as-to the binding-sites mapping to either group; those
+	 * parsed from a catalog are found by scanning their ordinals.
+	 * @param g wrapper for the query group, G.
+	 * @param notG wrapper for the baseline group, !G.
+	 * @return set of BindingSite objects, in ordinal order.
+	 * */
+	private Set<BindingSite> union(GroupAbundanceWrapper g, 
+			GroupAbundanceWrapper notG) {
+		Set<BindingSite> union = new LinkedHashSet<BindingSite>();
+		int numOrdinals = Math.max(g.getNumOrdinals(), notG.getNumOrdinals());
+		for (int ordinal = 0; ordinal < numOrdinals; ordinal++) {
+			BindingSite tfbs = g.getSite(ordinal);
+			if (tfbs == null) {
+				tfbs = notG.getSite(ordinal);
+			}
+			if (tfbs != null) {
+				union.add(tfbs);
 			}
 		}
+		union.addAll(g.getUnordered().keySet());
+		union.addAll(notG.getUnordered().keySet());
 		return union;
 	}
 	
@@ -71,14 +88,8 @@ public class CandidateMatrixBuilder {
 	 * */
 	public ContingencyMatrix build(BindingSite tfbs, 
 			GroupAbundanceWrapper g, GroupAbundanceWrapper notG) {
-		Integer numX_G = g.getMaps().get(tfbs); // i.e. n(X, G)
-		Integer numX_NotG = notG.getMaps().get(tfbs); // i.e. n(X, !G)
-		if (numX_G == null) { // if TFBS not found in group, count is 0
-			numX_G = 0;
-		}
-		if (numX_NotG== null) {
-			numX_NotG = 0;
-		}
+		Integer numX_G = g.getCount(tfbs); // i.e. n(X, G); 0 if not found
+		Integer numX_NotG = notG.getCount(tfbs); // i.e. n(X, !G)
 		Integer numNotX_G = g.getNumMappings() - numX_G; // i.e n(!X, G)
 		Integer numNotX_NotG = notG.getNumMappings() - numX_NotG; // i.e n(!X, !G)
 		
@@ -104,7 +115,7 @@ public class CandidateMatrixBuilder {
 		List<ContingencyMatrix> matrices = new ArrayList<ContingencyMatrix>();
 		GroupAbundanceWrapper wrapBase = this.getBaseline().mappingWrapper();
 		GroupAbundanceWrapper wrapQuery = this.getQuery().mappingWrapper();
-		for (BindingSite tfbs: this.union()) {
+		for (BindingSite tfbs: this.union(wrapQuery, wrapBase)) {
 			matrices.add(this.build(tfbs, wrapQuery, wrapBase));
 		}
 		if (matrices.size() == 0) {
@@ -1,24 +1,49 @@
 package marina;
 
+import marina.alignment.AhoCorasickTest;
+import marina.alignment.CompiledPWMTest;
+import marina.alignment.FMIndexTest;
+import marina.alignment.FMSearchTest;
+import marina.alignment.KmerHashTest;
+import marina.alignment.KmerIndexTest;
+import marina.alignment.MyersTest;
+import marina.alignment.ShiftAndTest;
+import marina.alignment.StreamingAlignmentTest;
+import marina.alignment.KmerTableTest;
 import marina.alignment.AlignmentActionTest;
 import marina.alignment.PMatchTest;
+import marina.alignment.ParallelAlignmentTest;
+import marina.alignment.PWMBatchTest;
+import marina.alignment.PWMKernelTest;
+import marina.alignment.PWMScannerTest;
 import marina.alignment.RabinKarpTest;
 import marina.bindingsite.LinearDNAMotifTest;
 import marina.bindingsite.PositionWeightMatrixTest;
+import marina.bindingsite.SiteOrdinalsTest;
 import marina.bindingsite.TextualPWMWrapperTest;
+import marina.group.AbundanceCounterTest;
 import marina.group.DNASequenceTest;
 import marina.group.FASTAFragmentTest;
 import marina.group.FASTASequenceTest;
 import marina.group.GroupAbundanceWrapperTest;
 import marina.group.GroupTest;
+import marina.group.MappedDNATest;
+import marina.group.MappingStoreTest;
+import marina.group.OffHeapMappingsTest;
+import marina.group.PackedDNATest;
 import marina.matrix.ContingencyMatrixCellTest;
 import marina.matrix.ContingencyMatrixTest;
 import marina.matrix.MatrixTest;
 import marina.parameter.BooleanParameterTest;
 import marina.parameter.DoubleParameterTest;
+import marina.parameter.EnumParameterTest;
 import marina.parameter.IntegerParameterTest;
+import marina.parser.BGZFInputStreamTest;
+import marina.parser.FASTAIndexTest;
 import marina.parser.FASTAParserTest;
+import marina.parser.MappedFASTAReaderTest;
 import marina.parser.PWMParserTest;
+import marina.parser.PipelinedInputStreamTest;
 import marina.quantification.AbundanceInferenceTest;
 import marina.quantification.CandidateMatrixBuilderTest;
 import marina.quantification.MetricTest;
@@ -36,13 +61,19 @@ import org.junit.runners.Suite.SuiteClasses;
 	FASTASequenceTest.class, StatisticTest.class, 
 	ContingencyMatrixTest.class, ContingencyMatrixCellTest.class,
 	AlignmentActionTest.class, GroupTest.class, FASTAParserTest.class,
-	PositionWeightMatrixTest.class, BooleanParameterTest.class,
+	PositionWeightMatrixTest.class, SiteOrdinalsTest.class, BooleanParameterTest.class,
 	MatrixTest.class, IntegerParameterTest.class, DoubleParameterTest.class,
 	PMatchTest.class, FASTAParserTest.class, PWMParserTest.class,
 	TextualPWMWrapperTest.class, MetricTest.class,
 	FASTAFragmentTest.class, GroupAbundanceWrapperTest.class,
 	CandidateMatrixBuilderTest.class, AbundanceInferenceTest.class,
-	DNASequenceTest.class, })
+	AbundanceCounterTest.class, DNASequenceTest.class, AhoCorasickTest.class, EnumParameterTest.class,
+	PackedDNATest.class, PWMBatchTest.class, PWMKernelTest.class, PWMScannerTest.class, ParallelAlignmentTest.class, 
+	CompiledPWMTest.class, KmerTableTest.class, KmerIndexTest.class, 
+	FMIndexTest.class, FMSearchTest.class, KmerHashTest.class, 
+	ShiftAndTest.class, MyersTest.class, StreamingAlignmentTest.class, 
+	MappedDNATest.class, MappingStoreTest.class, OffHeapMappingsTest.class, MappedFASTAReaderTest.class, 
+	BGZFInputStreamTest.class, PipelinedInputStreamTest.class, FASTAIndexTest.class })
 public class MarinaTests {
 
 }
@@ -0,0 +1,243 @@
+package marina.alignment;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import parser.DNAMotifParser;
+import parser.FASTAParser;
+
+import bindingsite.LinearDNAMotif;
+
+import alignment.AhoCorasick;
+import alignment.RabinKarp;
+
+public class AhoCorasickTest {
+	private List<LinearDNAMotif> motifs;
+	private FASTASequence seq; // valid FASTA object
+
+	@Before
+	public void setUp() throws Exception {
+		this.motifs = new ArrayList<LinearDNAMotif>();
+		this.seq = new FASTASequence("header", "GTACGTATCTGTGACGTTGACGTTGCAG");
+	}
+
+	/**
+	 * Test that a motif only found once by-eye can be found so.
+	 * */
+	@Test
+	public void testMotifSingleMapping() throws IOException {
+		LinearDNAMotif motif = new LinearDNAMotif("family", "gene", "AG");
+		this.motifs.add(motif);
+		new AhoCorasick(this.motifs).align(this.seq);
+		assertEquals(1, this.seq.getMappings().get(motif).size());
+		assertEquals(26, this.seq.getMappings().get(motif).get(0).intValue());
+	}
+
+	/**
+	 * Motifs which overlap one-another, or are suffixes of one-another,
+	 * must all be found in the single pass.
+	 * */
+	@Test
+	public void testOverlappingMotifs() throws IOException {
+		LinearDNAMotif outer = new LinearDNAMotif("family", "geneA", "TGACGT");
+		LinearDNAMotif inner = new LinearDNAMotif("family", "geneB", "ACG");
+		LinearDNAMotif suffix = new LinearDNAMotif("family", "geneC", "GT");
+		this.motifs.add(outer);
+		this.motifs.add(inner);
+		this.motifs.add(suffix);
+		new AhoCorasick(this.motifs).align(this.seq);
+		assertEquals(2, this.seq.getMappings().get(outer).size());
+		assertEquals(3, this.seq.getMappings().get(inner).size());
+		assertEquals(5, this.seq.getMappings().get(suffix).size());
+	}
+
+	/**
+	 * Foreign bases such as N cannot be spanned by a DNA motif.
+	 * */
+	@Test
+	public void testAmbiguousBasesNotSpanned() throws IOException {
+		LinearDNAMotif motif = new LinearDNAMotif("family", "gene", "ACGT");
+		this.motifs.add(motif);
+		this.seq.setSequence("ACNGTACGT");
+		new AhoCorasick(this.motifs).align(this.seq);
+		assertEquals(1, this.seq.getMappings().get(motif).size());
+		assertEquals(5, this.seq.getMappings().get(motif).get(0).intValue());
+	}
+
+	/**
+	 * Test that a motif is not found in the mapping-set if it has no hits.
+	 * */
+	@Test
+	public void testNoKeyIfNoMap() throws IOException {
+		LinearDNAMotif motif = new LinearDNAMotif("family", "gene", "AAAAAAAA");
+		this.motifs.add(motif);
+		new AhoCorasick(this.motifs).align(this.seq);
+		assertFalse(this.seq.getMappings().containsKey(motif));
+	}
+
+	/**
+	 * Test that if the motif is greater than the query (length-wise),
+	 * an exception is thrown; as is the case with Rabin-Karp.
+	 * */
+	@Test(expected=IOException.class)
+	public void testMotifGreaterThanQueryException() throws IOException {
+		this.motifs.add(new LinearDNAMotif("family", "gene",
+				"GTACGTATCTGTGACGTTGACGTTGCAGAAAA"));
+		new AhoCorasick(this.motifs).align(this.seq);
+	}
+
+	/**
+	 * Mappings across the demo catalog and FASTA file must equal those
+	 * derived by aligning each motif independently using Rabin-Karp.
+	 * */
+	@Test
+	public void testEqualsRabinKarp() throws IOException {
+		DNAMotifParser motifParser = new DNAMotifParser(
+				new File("./demo/sample_motifs.txt"));
+		motifParser.parse();
+		FASTAParser fastaParser = new FASTAParser(
+				new File("./demo/most_induced.fasta"));
+		fastaParser.parse();
+		AhoCorasick automaton = new AhoCorasick(motifParser.getLinearMotifs());
+		for (FASTASequence seq: fastaParser.getSequences()) {
+			FASTASequence other = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			automaton.align(seq);
+			for (LinearDNAMotif motif: motifParser.getLinearMotifs()) {
+				new RabinKarp().align(other, motif);
+			}
+			assertEquals(other.getMappings(), seq.getMappings());
+		}
+	}
+
+	/**
+	 * Packed sequences are read directly and must yield the same mappings
+	 * as their unpacked counterparts.
+	 * */
+	@Test
+	public void testPackedEqualsUnpacked() throws IOException {
+		LinearDNAMotif motif = new LinearDNAMotif("family", "gene", "ACGT");
+		this.motifs.add(motif);
+		this.seq.setSequence("ACGTNNACGTACNGTACGTRACGT");
+		FASTASequence packed = new FASTASequence("header", 
+				this.seq.getSequence());
+		packed.pack();
+		AhoCorasick automaton = new AhoCorasick(this.motifs);
+		automaton.align(this.seq);
+		automaton.align(packed);
+		assertEquals(this.seq.getMappings(), packed.getMappings());
+		assertEquals(4, packed.getMappings().get(motif).size());
+	}
+
+	/**
+	 * Helper-function which encodes each mapping of a motif as twice its
+	 * forward-strand offset, plus one if on the reverse strand.
+	 * */
+	private List<Integer> toStrandOffsets(FASTASequence seq, 
+			LinearDNAMotif motif) {
+		List<Integer> encoded = new ArrayList<Integer>();
+		List<Integer> offsets = seq.getMappings().get(motif);
+		for (int i = 0; offsets != null && i < offsets.size(); i++) {
+			int strand = seq.isReverseStrand(motif, i) ? 1 : 0;
+			encoded.add(offsets.get(i) * 2 + strand);
+		}
+		Collections.sort(encoded);
+		return encoded;
+	}
+
+	/**
+	 * Both strands must be aligned in one pass without modifying the
+	 * sequence; palindromes therefore map on both strands.
+	 * */
+	@Test
+	public void testBothStrandsPalindrome() throws IOException {
+		LinearDNAMotif motif = new LinearDNAMotif("family", "gene", "ACGT");
+		LinearDNAMotif other = new LinearDNAMotif("family", "geneB", "CT");
+		this.motifs.add(motif);
+		this.motifs.add(other);
+		String orig = this.seq.getSequence();
+		new AhoCorasick(this.motifs, true).alignBothStrands(this.seq);
+		assertEquals(orig, this.seq.getSequence());
+		assertEquals(6, this.seq.getMappings().get(motif).size());
+		assertEquals(2, this.seq.getMappings().get(other).size());
+		assertFalse(this.seq.isReverseStrand(other, 0));
+		assertEquals(8, this.seq.getMappings().get(other).get(0).intValue());
+		assertTrue(this.seq.isReverseStrand(other, 1));
+		assertEquals(26, this.seq.getMappings().get(other).get(1).intValue());
+	}
+
+	/**
+	 * An automaton lacking reverse compliments cannot align both strands.
+	 * */
+	@Test(expected=IOException.class)
+	public void testBothStrandsRequiresDualStrand() throws IOException {
+		this.motifs.add(new LinearDNAMotif("family", "gene", "ACGT"));
+		new AhoCorasick(this.motifs).alignBothStrands(this.seq);
+	}
+
+	/**
+	 * Dual-strand mappings across the demo catalog must equal those of
+	 * reverse complimenting each sequence, once mapped back onto
+	 * forward-strand coordinates; for both packed and unpacked sequences.
+	 * */
+	@Test
+	public void testBothStrandsEqualsReverseComplement() throws IOException {
+		DNAMotifParser motifParser = new DNAMotifParser(
+				new File("./demo/sample_motifs.txt"));
+		motifParser.parse();
+		Set<String> genes = new HashSet<String>(); // one motif per gene
+		for (LinearDNAMotif motif: motifParser.getLinearMotifs()) {
+			if (genes.add(motif.getGene())) {
+				this.motifs.add(motif);
+			}
+		}
+		this.motifs.add(new LinearDNAMotif("family", "foreign", "TGNCA"));
+		FASTAParser fastaParser = new FASTAParser(
+				new File("./demo/most_induced.fasta"));
+		fastaParser.parse();
+		AhoCorasick automaton = new AhoCorasick(this.motifs, true);
+		for (FASTASequence seq: fastaParser.getSequences().subList(0, 100)) {
+			FASTASequence forward = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			FASTASequence reverse = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			FASTASequence packed = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			packed.pack();
+			automaton.align(forward);
+			reverse.reverseComplement();
+			automaton.align(reverse);
+			automaton.alignBothStrands(seq);
+			automaton.alignBothStrands(packed);
+			for (LinearDNAMotif motif: this.motifs) {
+				List<Integer> expected = new ArrayList<Integer>();
+				if (forward.getMappings().containsKey(motif)) {
+					for (int offset: forward.getMappings().get(motif)) {
+						expected.add(offset * 2);
+					}
+				}
+				if (reverse.getMappings().containsKey(motif)) {
+					for (int offset: reverse.getMappings().get(motif)) {
+						int start = seq.getLength() - motif.getLength() - offset;
+						expected.add(start * 2 + 1);
+					}
+				}
+				Collections.sort(expected);
+				assertEquals(expected, this.toStrandOffsets(seq, motif));
+				assertEquals(expected, this.toStrandOffsets(packed, motif));
+			}
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package marina.alignment;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import parser.FASTAParser;
+import parser.PWMParser;
+
+import bindingsite.PositionWeightMatrix;
+
+import alignment.CompiledPWM;
+
+public class CompiledPWMTest {
+	private PositionWeightMatrix pwm;
+	private CompiledPWM compiled;
+
+	@Before
+	public void setUp() throws Exception {
+		PWMParser parser = new PWMParser(new File("./demo/unittest_pwm.txt"));
+		parser.parse(); // contains only 1x PWM.
+		this.pwm = parser.getMatrices().get(0);
+		this.compiled = new CompiledPWM(this.pwm, 0.80);
+	}
+
+	/**
+	 * Helper-function which derives the P-MATCH probability of a score
+	 * directly from the PWM.
+	 * */
+	private double toProbability(PositionWeightMatrix pwm, double score) {
+		return (score - pwm.sumColumnMins()) / (pwm.sum() - pwm.sumColumnMins());
+	}
+
+	/**
+	 * The sum of column minimums and the sum of all weights are the lowest
+	 * and highest possible scores, respectively.
+	 * */
+	@Test
+	public void testProbabilityBounds() {
+		assertEquals(0.0, this.compiled.toProbability(this.pwm.sumColumnMins()), 
+				1e-12);
+		assertEquals(1.0, this.compiled.toProbability(this.pwm.sum()), 1e-12);
+	}
+
+	/**
+	 * Flat scoring must equal summing weights directly from the PWM.
+	 * */
+	@Test
+	public void testScoreEqualsPWMWeights() {
+		FASTASequence seq = new FASTASequence("header", "TGACTGATGTACCTTGACG");
+		byte[] codes = seq.getCodes(null);
+		for (int offset = 0; offset <= seq.getLength() - this.pwm.getWidth(); offset++) {
+			double score = 0;
+			for (int col = 0; col < this.pwm.getWidth(); col++) {
+				int rowNum = this.pwm.getRows().get(seq.getBase(offset + col));
+				score += this.pwm.getData()[rowNum][col];
+			}
+			assertEquals(score, this.compiled.score(codes, offset), 0.0);
+		}
+	}
+
+	/**
+	 * The raw-score threshold must never reject a score whose probability
+	 * passes the cutoff.
+	 * */
+	@Test
+	public void testThresholdBelowCutoff() {
+		double boundary = this.pwm.sumColumnMins() + 0.80 * 
+				(this.pwm.sum() - this.pwm.sumColumnMins());
+		assertTrue(this.compiled.getThreshold() <= boundary);
+		assertFalse(this.compiled.isMatch(this.pwm.sumColumnMins()));
+		assertTrue(this.compiled.isMatch(this.pwm.sum()));
+	}
+
+	/**
+	 * Every window across the demo PWMs and FASTA file must map if, and
+	 * only if, its P-MATCH probability passes the cutoff.
+	 * */
+	@Test
+	public void testMatchEqualsProbability() throws Exception {
+		PWMParser pwmParser = new PWMParser(new File("./demo/sample_pwms.txt"));
+		pwmParser.parse();
+		FASTAParser fastaParser = new FASTAParser(
+				new File("./demo/most_suppressed.fasta"));
+		fastaParser.parse();
+		List<FASTASequence> seqs = fastaParser.getSequences().subList(0, 20);
+		for (PositionWeightMatrix pwm: pwmParser.getMatrices()) {
+			CompiledPWM compiled = new CompiledPWM(pwm, 0.80);
+			for (FASTASequence seq: seqs) {
+				byte[] codes = seq.getCodes(null);
+				for (int offset = 0; offset <= seq.getLength() - pwm.getWidth(); 
+						offset++) {
+					double score = compiled.score(codes, offset);
+					boolean expected = this.toProbability(pwm, score) >= 0.80;
+					assertEquals(expected, compiled.isMatch(score));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Branch-and-bound must never abandon a window which maps, on either
+	 * strand, across the demo PWMs and FASTA file.
+	 * */
+	@Test
+	public void testBranchAndBoundEqualsFullScore() throws Exception {
+		PWMParser pwmParser = new PWMParser(new File("./demo/sample_pwms.txt"));
+		pwmParser.parse();
+		FASTAParser fastaParser = new FASTAParser(
+				new File("./demo/most_induced.fasta"));
+		fastaParser.parse();
+		List<FASTASequence> seqs = fastaParser.getSequences().subList(0, 20);
+		for (PositionWeightMatrix pwm: pwmParser.getMatrices()) {
+			for (double cutoff: new double[]{0.0, 0.5, 0.8, 0.95, 1.0}) {
+				CompiledPWM compiled = new CompiledPWM(pwm, cutoff);
+				for (FASTASequence seq: seqs) {
+					byte[] codes = seq.getCodes(null);
+					for (int offset = 0; offset <= seq.getLength() - 
+							pwm.getWidth(); offset++) {
+						assertEquals(compiled.isMatch(compiled.score(codes, offset)),
+								compiled.matches(codes, offset));
+						assertEquals(compiled.isMatch(compiled.scoreReverse(codes, 
+								offset)), compiled.matchesReverse(codes, offset));
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package marina.alignment;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import parser.FASTAParser;
+
+import bindingsite.IUPAC;
+
+import alignment.FMIndex;
+
+public class FMIndexTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	private List<FASTASequence> seqs;
+
+	@Before
+	public void setUp() throws Exception {
+		FASTAParser fastaParser = new FASTAParser(
+				new File("./demo/most_suppressed.fasta"));
+		fastaParser.parse();
+		this.seqs = fastaParser.getSequences().subList(0, 50);
+	}
+
+	/**
+	 * Helper-function to find a motif by testing every offset of every
+	 * sequence, returning text positions as per the index.
+	 * */
+	private int[] bruteForce(FMIndex index, String motif) {
+		List<Integer> hits = new ArrayList<Integer>();
+		for (int s = 0; s < this.seqs.size(); s++) {
+			String seq = this.seqs.get(s).getSequence();
+			for (int i = 0; i <= seq.length() - motif.length(); i++) {
+				boolean isMatch = true;
+				for (int j = 0; j < motif.length() && isMatch; j++) {
+					isMatch = (IUPAC.toMask(motif.charAt(j)) & 
+							IUPAC.toMask(seq.charAt(i + j))) != 0 && 
+							IUPAC.isExact(seq.substring(i + j, i + j + 1));
+				}
+				if (isMatch) {
+					hits.add(index.getStart(s) + i);
+				}
+			}
+		}
+		int[] positions = new int[hits.size()];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = hits.get(i);
+		}
+		return positions;
+	}
+
+	/**
+	 * The suffix array must list suffixes in lexicographic order.
+	 * */
+	@Test
+	public void testSuffixArraySorted() {
+		byte[] text = new byte[]{1, 2, 1, 3, 1, 2, 1, 5, 4, 1, 2, 1, 0};
+		int[] sa = FMIndex.suffixArray(text);
+		String[] suffixes = new String[text.length];
+		for (int i = 0; i < text.length; i++) {
+			StringBuilder sb = new StringBuilder();
+			for (int j = i; j < text.length; j++) {
+				sb.append((char)('0' + text[j]));
+			}
+			suffixes[i] = sb.toString();
+		}
+		for (int i = 1; i < sa.length; i++) {
+			assertTrue(suffixes[sa[i - 1]].compareTo(suffixes[sa[i]]) < 0);
+		}
+	}
+
+	/**
+	 * Exact motifs must be found at every offset a brute-force search finds.
+	 * */
+	@Test
+	public void testExactEqualsBruteForce() throws IOException {
+		FMIndex index = FMIndex.build(this.seqs);
+		for (String motif: new String[]{"A", "ACG", "TATA", "CACGTG", 
+				"GGGCGGGG"}) {
+			int[] expected = this.bruteForce(index, motif);
+			assertArrayEquals(expected, index.locate(motif));
+			assertEquals(expected.length, index.count(motif));
+		}
+	}
+
+	/**
+	 * Degenerate motifs match every base their codes reference, albeit
+	 * never ambiguous bases of the sequence.
+	 * */
+	@Test
+	public void testDegenerateEqualsBruteForce() throws IOException {
+		FMIndex index = FMIndex.build(this.seqs);
+		for (String motif: new String[]{"TGANTCA", "RCCGGY", "WWWW", 
+				"NNNNNNNN", "CANNTG"}) {
+			int[] expected = this.bruteForce(index, motif);
+			assertTrue(expected.length > 0);
+			assertArrayEquals(expected, index.locate(motif));
+		}
+	}
+
+	/**
+	 * Motifs must neither span two sequences nor contain foreign characters.
+	 * */
+	@Test
+	public void testSeparatedSequences() throws IOException {
+		List<FASTASequence> pair = new ArrayList<FASTASequence>();
+		pair.add(new FASTASequence("first", "AACCGGTT"));
+		pair.add(new FASTASequence("second", "AANNCC"));
+		FMIndex index = FMIndex.build(pair);
+		assertEquals(0, index.count("TTAA"));
+		assertEquals(0, index.count("GNNA"));
+		assertEquals(0, index.count("AXC"));
+		assertArrayEquals(new int[]{0, index.getStart(1)}, index.locate("AA"));
+		assertArrayEquals(new int[]{2, index.getStart(1) + 4}, 
+				index.locate("CC"));
+		assertEquals(1, index.indexOf(pair.get(1)));
+		assertEquals(-1, index.indexOf(new FASTASequence("first", "AACCGGTT")));
+	}
+
+	/**
+	 * Opening an index of identical content re-uses the saved file and
+	 * yields identical look-ups, whereas a truncated file is rebuilt.
+	 * */
+	@Test
+	public void testReusedAndRebuilt() throws IOException {
+		FMIndex built = FMIndex.open(this.seqs, this.folder.getRoot());
+		File saved = this.folder.getRoot().listFiles()[0];
+		long size = saved.length();
+		assertTrue(saved.setLastModified(0));
+		FMIndex loaded = FMIndex.open(this.seqs, this.folder.getRoot());
+		assertEquals(0, saved.lastModified()); // not re-written
+		assertEquals(1, this.folder.getRoot().listFiles().length);
+		for (String motif: new String[]{"CACGTG", "TGANTCA"}) {
+			assertTrue(Arrays.equals(built.locate(motif), 
+					loaded.locate(motif)));
+		}
+		RandomAccessFile raf = new RandomAccessFile(saved, "rw");
+		raf.setLength(size / 2);
+		raf.close();
+		FMIndex rebuilt = FMIndex.open(this.seqs, this.folder.getRoot());
+		assertEquals(size, saved.length());
+		assertArrayEquals(built.locate("CACGTG"), rebuilt.locate("CACGTG"));
+	}
+
+	/**
+	 * A file whose size disagrees with its header is rebuilt rather than
+	 * partially read.
+	 * */
+	@Test
+	public void testPaddedRebuilt() throws IOException {
+		FMIndex built = FMIndex.open(this.seqs, this.folder.getRoot());
+		File saved = this.folder.getRoot().listFiles()[0];
+		long size = saved.length();
+		RandomAccessFile raf = new RandomAccessFile(saved, "rw");
+		raf.setLength(size + 8);
+		raf.close();
+		FMIndex rebuilt = FMIndex.open(this.seqs, this.folder.getRoot());
+		assertEquals(size, saved.length());
+		assertArrayEquals(built.locate("CACGTG"), rebuilt.locate("CACGTG"));
+	}
+}
@@ -0,0 +1,146 @@
+package marina.alignment;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import parser.DNAMotifParser;
+import parser.FASTAParser;
+
+import bindingsite.BindingSite;
+import bindingsite.LinearDNAMotif;
+
+import alignment.FMIndex;
+import alignment.FMSearch;
+import alignment.RabinKarp;
+
+public class FMSearchTest {
+	private List<LinearDNAMotif> motifs;
+	private List<FASTASequence> query;
+	private List<FASTASequence> baseline;
+	private FMSearch search;
+
+	@Before
+	public void setUp() throws Exception {
+		DNAMotifParser motifParser = new DNAMotifParser(
+				new File("./demo/sample_motifs.txt"));
+		motifParser.parse();
+		this.motifs = new ArrayList<LinearDNAMotif>();
+		this.motifs.addAll(motifParser.getLinearMotifs());
+		this.motifs.add(new LinearDNAMotif("family", "foreign", "TGXCA"));
+		FASTAParser fastaParser = new FASTAParser(
+				new File("./demo/most_suppressed.fasta"));
+		fastaParser.parse();
+		this.query = fastaParser.getSequences().subList(0, 40);
+		this.baseline = fastaParser.getSequences().subList(40, 80);
+		List<FMIndex> indices = new ArrayList<FMIndex>();
+		indices.add(FMIndex.build(this.query));
+		indices.add(FMIndex.build(this.baseline));
+		this.search = new FMSearch(this.motifs, indices);
+	}
+
+	/**
+	 * Helper-function to list sequences of both groups.
+	 * */
+	private List<FASTASequence> getSequences() {
+		List<FASTASequence> seqs = new ArrayList<FASTASequence>();
+		seqs.addAll(this.query);
+		seqs.addAll(this.baseline);
+		return seqs;
+	}
+
+	/**
+	 * Forward-strand mappings of exact motifs, and those with foreign
+	 * characters, must equal those of Rabin-Karp across both groups.
+	 * */
+	@Test
+	public void testForwardEqualsRabinKarp() throws IOException {
+		for (FASTASequence seq: this.getSequences()) {
+			FASTASequence other = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			this.search.align(seq);
+			for (LinearDNAMotif motif: this.motifs) {
+				new RabinKarp().align(other, motif);
+			}
+			assertEquals(other.getMappings(), seq.getMappings());
+		}
+	}
+
+	/**
+	 * Reverse-strand mappings must equal aligning the reverse complimented
+	 * sequence, albeit without modifying the sequence.
+	 * */
+	@Test
+	public void testReverseEqualsReverseComplement() throws IOException {
+		for (FASTASequence seq: this.getSequences()) {
+			String orig = seq.getSequence();
+			FASTASequence other = new FASTASequence(seq.getHeader(), orig);
+			other.reverseComplement();
+			this.search.alignReverse(seq);
+			for (LinearDNAMotif motif: this.motifs) {
+				new RabinKarp().align(other, motif);
+			}
+			assertEquals(other.getMappings(), seq.getMappings());
+			assertEquals(orig, seq.getSequence());
+		}
+	}
+
+	/**
+	 * Dual-strand mappings must equal those of Rabin-Karp, strand-flags
+	 * included.
+	 * */
+	@Test
+	public void testBothStrandsEqualsRabinKarp() throws IOException {
+		for (FASTASequence seq: this.getSequences()) {
+			FASTASequence other = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			this.search.alignBothStrands(seq);
+			for (LinearDNAMotif motif: this.motifs) {
+				new RabinKarp().alignBothStrands(other, motif);
+			}
+			assertEquals(other.getMappings(), seq.getMappings());
+			for (BindingSite tfbs: seq.getMappings().keySet()) {
+				for (int i = 0; i < seq.getMappings().get(tfbs).size(); i++) {
+					assertEquals(other.isReverseStrand(tfbs, i), 
+							seq.isReverseStrand(tfbs, i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Degenerate motifs map wherever any base their codes reference is found.
+	 * */
+	@Test
+	public void testDegenerateMotif() throws IOException {
+		List<LinearDNAMotif> ebox = new ArrayList<LinearDNAMotif>();
+		ebox.add(new LinearDNAMotif("bHLH", "E-box", "CANNTG"));
+		List<FMIndex> indices = new ArrayList<FMIndex>();
+		List<FASTASequence> seqs = new ArrayList<FASTASequence>();
+		seqs.add(new FASTASequence("seq", "CACGTGTTCAGCTGNCATTAGA"));
+		indices.add(FMIndex.build(seqs));
+		new FMSearch(ebox, indices).align(seqs.get(0));
+		List<Integer> offsets = seqs.get(0).getMappings().get(ebox.get(0));
+		assertEquals(2, offsets.size());
+		assertEquals(0, (int)offsets.get(0));
+		assertEquals(8, (int)offsets.get(1));
+	}
+
+	/**
+	 * Sequences outside the indexed groups cannot be aligned.
+	 * */
+	@Test(expected=IOException.class)
+	public void testSequenceNotIndexed() throws IOException {
+		FASTASequence other = new FASTASequence("other", "ACGTACGTACGT");
+		assertFalse(this.search.contains(other));
+		this.search.align(other);
+	}
+}
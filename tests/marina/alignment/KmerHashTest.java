@@ -0,0 +1,153 @@
+package marina.alignment;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import parser.DNAMotifParser;
+import parser.FASTAParser;
+
+import bindingsite.BindingSite;
+import bindingsite.LinearDNAMotif;
+
+import alignment.KmerHash;
+import alignment.RabinKarp;
+
+public class KmerHashTest {
+	private List<LinearDNAMotif> motifs;
+	private FASTASequence seq; // valid FASTA object
+
+	@Before
+	public void setUp() throws Exception {
+		this.motifs = new ArrayList<LinearDNAMotif>();
+		this.seq = new FASTASequence("header", "GTACGTATCTGTGACGTTGACGTTGCAG");
+	}
+
+	/**
+	 * Motifs of differing lengths, including those sharing a length, must
+	 * all be found.
+	 * */
+	@Test
+	public void testMotifsOfDifferingLengths() throws IOException {
+		LinearDNAMotif outer = new LinearDNAMotif("family", "geneA", "TGACGT");
+		LinearDNAMotif inner = new LinearDNAMotif("family", "geneB", "ACG");
+		LinearDNAMotif other = new LinearDNAMotif("family", "geneC", "TTG");
+		LinearDNAMotif suffix = new LinearDNAMotif("family", "geneD", "GT");
+		this.motifs.add(outer);
+		this.motifs.add(inner);
+		this.motifs.add(other);
+		this.motifs.add(suffix);
+		new KmerHash(this.motifs).align(this.seq);
+		assertEquals(2, this.seq.getMappings().get(outer).size());
+		assertEquals(3, this.seq.getMappings().get(inner).size());
+		assertEquals(2, this.seq.getMappings().get(other).size());
+		assertEquals(5, this.seq.getMappings().get(suffix).size());
+		assertEquals(16, this.seq.getMappings().get(other).get(0).intValue());
+	}
+
+	/**
+	 * Foreign bases such as N cannot be spanned by a hashed motif.
+	 * */
+	@Test
+	public void testAmbiguousBasesNotSpanned() throws IOException {
+		LinearDNAMotif motif = new LinearDNAMotif("family", "gene", "ACGT");
+		this.motifs.add(motif);
+		this.seq.setSequence("ACNGTACGT");
+		new KmerHash(this.motifs).align(this.seq);
+		assertEquals(1, this.seq.getMappings().get(motif).size());
+		assertEquals(5, this.seq.getMappings().get(motif).get(0).intValue());
+	}
+
+	/**
+	 * Motifs of 32 bases fill the 2-bit code, whereas longer motifs are
+	 * aligned using Rabin-Karp.
+	 * */
+	@Test
+	public void testLongMotifs() throws IOException {
+		String longest = "ACGTACGTACGTACGTACGTACGTACGTACGT";
+		LinearDNAMotif full = new LinearDNAMotif("family", "full", longest);
+		LinearDNAMotif over = new LinearDNAMotif("family", "over", 
+				longest + "A");
+		this.motifs.add(full);
+		this.motifs.add(over);
+		this.seq.setSequence("T" + longest + "ACGTAC");
+		new KmerHash(this.motifs).align(this.seq);
+		assertEquals(2, this.seq.getMappings().get(full).size());
+		assertEquals(5, this.seq.getMappings().get(full).get(1).intValue());
+		assertEquals(2, this.seq.getMappings().get(over).size());
+	}
+
+	/**
+	 * Test that if the motif is greater than the query (length-wise),
+	 * an exception is thrown; as is the case with Rabin-Karp.
+	 * */
+	@Test(expected=IOException.class)
+	public void testMotifGreaterThanQueryException() throws IOException {
+		this.motifs.add(new LinearDNAMotif("family", "gene",
+				"GTACGTATCTGTGACGTTGACGTTGCAGAAAA"));
+		new KmerHash(this.motifs).align(this.seq);
+	}
+
+	/**
+	 * A hash lacking reverse compliments cannot align both strands.
+	 * */
+	@Test(expected=IOException.class)
+	public void testBothStrandsRequiresDualStrand() throws IOException {
+		this.motifs.add(new LinearDNAMotif("family", "gene", "ACGT"));
+		new KmerHash(this.motifs).alignBothStrands(this.seq);
+	}
+
+	/**
+	 * Mappings across the demo catalog must equal those of Rabin-Karp on
+	 * one and both strands, strand-flags included; for both packed and
+	 * unpacked sequences.
+	 * */
+	@Test
+	public void testEqualsRabinKarp() throws IOException {
+		DNAMotifParser motifParser = new DNAMotifParser(
+				new File("./demo/sample_motifs.txt"));
+		motifParser.parse();
+		this.motifs.addAll(motifParser.getLinearMotifs());
+		this.motifs.add(new LinearDNAMotif("family", "foreign", "TGNCA"));
+		FASTAParser fastaParser = new FASTAParser(
+				new File("./demo/most_induced.fasta"));
+		fastaParser.parse();
+		KmerHash hash = new KmerHash(this.motifs, true);
+		for (FASTASequence seq: fastaParser.getSequences().subList(0, 100)) {
+			FASTASequence forward = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			FASTASequence both = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			FASTASequence packed = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			packed.pack();
+			hash.align(forward);
+			hash.alignBothStrands(both);
+			hash.alignBothStrands(packed);
+			for (LinearDNAMotif motif: this.motifs) {
+				new RabinKarp().align(seq, motif);
+			}
+			assertEquals(seq.getMappings(), forward.getMappings());
+			seq = new FASTASequence(seq.getHeader(), seq.getSequence());
+			for (LinearDNAMotif motif: this.motifs) {
+				new RabinKarp().alignBothStrands(seq, motif);
+			}
+			assertEquals(seq.getMappings(), both.getMappings());
+			assertEquals(seq.getMappings(), packed.getMappings());
+			for (BindingSite tfbs: seq.getMappings().keySet()) {
+				for (int i = 0; i < seq.getMappings().get(tfbs).size(); i++) {
+					assertEquals(seq.isReverseStrand(tfbs, i), 
+							both.isReverseStrand(tfbs, i));
+				}
+			}
+		}
+	}
+}
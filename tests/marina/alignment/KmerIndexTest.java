@@ -0,0 +1,212 @@
+package marina.alignment;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import parser.DNAMotifParser;
+import parser.FASTAParser;
+
+import bindingsite.BindingSite;
+import bindingsite.LinearDNAMotif;
+
+import alignment.AhoCorasick;
+import alignment.KmerIndex;
+import alignment.RabinKarp;
+
+public class KmerIndexTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	private List<LinearDNAMotif> motifs;
+	private List<FASTASequence> seqs;
+
+	@Before
+	public void setUp() throws Exception {
+		DNAMotifParser motifParser = new DNAMotifParser(
+				new File("./demo/sample_motifs.txt"));
+		motifParser.parse();
+		this.motifs = new ArrayList<LinearDNAMotif>();
+		this.motifs.addAll(motifParser.getLinearMotifs());
+		this.motifs.add(new LinearDNAMotif("family", "short", "ACG"));
+		this.motifs.add(new LinearDNAMotif("family", "foreign", "TGNCA"));
+		FASTAParser fastaParser = new FASTAParser(
+				new File("./demo/most_suppressed.fasta"));
+		fastaParser.parse();
+		this.seqs = fastaParser.getSequences().subList(0, 100);
+	}
+
+	/**
+	 * Helper-function to copy sequences so that their mappings are empty.
+	 * */
+	private List<FASTASequence> copy(List<FASTASequence> seqs) {
+		List<FASTASequence> copies = new ArrayList<FASTASequence>();
+		for (FASTASequence seq: seqs) {
+			copies.add(new FASTASequence(seq.getHeader(), seq.getSequence()));
+		}
+		return copies;
+	}
+
+	/**
+	 * Helper-function to list the index files within the folder.
+	 * */
+	private File[] listIndices() {
+		return this.folder.getRoot().listFiles();
+	}
+
+	/**
+	 * Look-ups across the demo catalog must equal those of Aho-Corasick;
+	 * including motifs shorter than k and those with foreign characters.
+	 * */
+	@Test
+	public void testEqualsAhoCorasick() throws IOException {
+		KmerIndex index = KmerIndex.open(this.seqs, this.folder.getRoot(), 
+				KmerIndex.DEFAULT_K);
+		AhoCorasick automaton = new AhoCorasick(this.motifs);
+		for (FASTASequence seq: this.seqs) {
+			FASTASequence other = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			for (LinearDNAMotif motif: this.motifs) {
+				index.align(seq, motif);
+			}
+			automaton.align(other);
+			assertEquals(other.getMappings(), seq.getMappings());
+		}
+	}
+
+	/**
+	 * Reverse-strand look-ups must equal aligning the reverse complimented
+	 * sequence, albeit without modifying the sequence.
+	 * */
+	@Test
+	public void testReverseEqualsReverseComplement() throws IOException {
+		KmerIndex index = KmerIndex.open(this.seqs, this.folder.getRoot(), 
+				KmerIndex.DEFAULT_K);
+		for (FASTASequence seq: this.seqs) {
+			String orig = seq.getSequence();
+			FASTASequence other = new FASTASequence(seq.getHeader(), orig);
+			other.reverseComplement();
+			for (LinearDNAMotif motif: this.motifs) {
+				index.alignReverse(seq, motif);
+				new RabinKarp().align(other, motif);
+			}
+			assertEquals(other.getMappings(), seq.getMappings());
+			assertEquals(orig, seq.getSequence());
+		}
+	}
+
+	/**
+	 * Dual-strand look-ups must equal those of Rabin-Karp, strand-flags
+	 * included.
+	 * */
+	@Test
+	public void testBothStrandsEqualsRabinKarp() throws IOException {
+		KmerIndex index = KmerIndex.open(this.seqs, this.folder.getRoot(), 
+				KmerIndex.DEFAULT_K);
+		for (FASTASequence seq: this.seqs) {
+			FASTASequence other = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			for (LinearDNAMotif motif: this.motifs) {
+				index.alignBothStrands(seq, motif);
+				new RabinKarp().alignBothStrands(other, motif);
+			}
+			assertEquals(other.getMappings(), seq.getMappings());
+			for (BindingSite tfbs: seq.getMappings().keySet()) {
+				for (int i = 0; i < seq.getMappings().get(tfbs).size(); i++) {
+					assertEquals(other.isReverseStrand(tfbs, i), 
+							seq.isReverseStrand(tfbs, i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Packed sequences are verified directly and must yield the same
+	 * mappings as their unpacked counterparts.
+	 * */
+	@Test
+	public void testPackedEqualsUnpacked() throws IOException {
+		List<FASTASequence> packed = this.copy(this.seqs);
+		for (FASTASequence seq: packed) {
+			seq.pack();
+		}
+		KmerIndex index = KmerIndex.open(this.seqs, this.folder.getRoot(), 
+				KmerIndex.DEFAULT_K);
+		KmerIndex packedIndex = KmerIndex.open(packed, this.folder.getRoot(), 
+				KmerIndex.DEFAULT_K);
+		assertEquals(1, this.listIndices().length); // identical content
+		for (int i = 0; i < this.seqs.size(); i++) {
+			for (LinearDNAMotif motif: this.motifs) {
+				index.align(this.seqs.get(i), motif);
+				packedIndex.align(packed.get(i), motif);
+			}
+			assertEquals(this.seqs.get(i).getMappings(), 
+					packed.get(i).getMappings());
+		}
+	}
+
+	/**
+	 * Opening an index of identical content re-uses the saved file, whereas
+	 * different content yields a new index file.
+	 * */
+	@Test
+	public void testReusedByContentHash() throws IOException {
+		KmerIndex.open(this.seqs, this.folder.getRoot(), KmerIndex.DEFAULT_K);
+		File saved = this.listIndices()[0];
+		assertTrue(saved.setLastModified(0));
+		KmerIndex.open(this.copy(this.seqs), this.folder.getRoot(), 
+				KmerIndex.DEFAULT_K);
+		assertEquals(1, this.listIndices().length);
+		assertEquals(0, saved.lastModified()); // not re-written
+		List<FASTASequence> changed = this.copy(this.seqs);
+		changed.set(0, new FASTASequence("changed", "ACGTACGTACGT"));
+		KmerIndex.open(changed, this.folder.getRoot(), KmerIndex.DEFAULT_K);
+		assertEquals(2, this.listIndices().length);
+	}
+
+	/**
+	 * Truncated index files are invalid and must be rebuilt.
+	 * */
+	@Test
+	public void testTruncatedIndexRebuilt() throws IOException {
+		KmerIndex.open(this.seqs, this.folder.getRoot(), KmerIndex.DEFAULT_K);
+		File saved = this.listIndices()[0];
+		long size = saved.length();
+		RandomAccessFile raf = new RandomAccessFile(saved, "rw");
+		raf.setLength(size / 2);
+		raf.close();
+		KmerIndex index = KmerIndex.open(this.seqs, this.folder.getRoot(), 
+				KmerIndex.DEFAULT_K);
+		assertEquals(size, saved.length());
+		FASTASequence seq = this.seqs.get(0);
+		FASTASequence other = new FASTASequence(seq.getHeader(), 
+				seq.getSequence());
+		for (LinearDNAMotif motif: this.motifs) {
+			index.align(seq, motif);
+			new RabinKarp().align(other, motif);
+		}
+		assertEquals(other.getMappings(), seq.getMappings());
+	}
+
+	/**
+	 * Sequences outside the indexed group cannot be looked-up.
+	 * */
+	@Test(expected=IOException.class)
+	public void testSequenceNotIndexed() throws IOException {
+		KmerIndex index = KmerIndex.open(this.seqs, this.folder.getRoot(), 
+				KmerIndex.DEFAULT_K);
+		FASTASequence other = new FASTASequence("other", "ACGTACGTACGT");
+		assertFalse(index.contains(other));
+		index.align(other, this.motifs.get(0));
+	}
+}
@@ -0,0 +1,103 @@
+package marina.alignment;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import parser.FASTAParser;
+import parser.PWMParser;
+
+import bindingsite.BindingSite;
+import bindingsite.PositionWeightMatrix;
+
+import alignment.CompiledPWM;
+import alignment.KmerTable;
+import alignment.PWMScanner;
+
+public class KmerTableTest {
+	private List<PositionWeightMatrix> matrices;
+
+	@Before
+	public void setUp() throws Exception {
+		PWMParser parser = new PWMParser(new File("./demo/sample_pwms.txt"));
+		parser.parse();
+		this.matrices = parser.getMatrices();
+	}
+
+	/**
+	 * Helper-function which derives the rolling 2-bit code of a window.
+	 * */
+	private long toWindow(byte[] codes, int offset, int width) {
+		long window = 0;
+		for (int i = offset; i < offset + width; i++) {
+			window = (window << 2) | codes[i];
+		}
+		return window;
+	}
+
+	/**
+	 * Table sizes account for one table per block, per strand.
+	 * */
+	@Test
+	public void testSize() {
+		assertEquals(2 * 8 * 4096, KmerTable.getSize(KmerTable.BLOCK_SIZE));
+		assertEquals(2 * 8 * (4096 + 16), KmerTable.getSize(8));
+	}
+
+	/**
+	 * Table lookups must map the same windows as column-by-column scoring,
+	 * on either strand.
+	 * */
+	@Test
+	public void testEqualsCompiledPWM() throws IOException {
+		FASTAParser fastaParser = new FASTAParser(
+				new File("./demo/most_induced.fasta"));
+		fastaParser.parse();
+		for (PositionWeightMatrix pwm: this.matrices) {
+			for (double cutoff: new double[]{0.5, 0.8, 0.95}) {
+				CompiledPWM compiled = new CompiledPWM(pwm, cutoff);
+				KmerTable table = new KmerTable(compiled);
+				for (FASTASequence seq: fastaParser.getSequences().subList(0, 20)) {
+					byte[] codes = seq.getCodes(null);
+					for (int offset = 0; offset <= seq.getLength() - 
+							pwm.getWidth(); offset++) {
+						long window = this.toWindow(codes, offset, pwm.getWidth());
+						assertEquals(compiled.matches(codes, offset), 
+								table.matches(window, codes, offset));
+						assertEquals(compiled.matchesReverse(codes, offset),
+								table.matchesReverse(window, codes, offset));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Scanning with tables must yield the same mappings as scanning without
+	 * them; including windows spanning ambiguous bases.
+	 * */
+	@Test
+	public void testScannerBudgetEquality() throws IOException {
+		PWMScanner withTables = new PWMScanner(this.matrices, 0.8, 1L << 20);
+		PWMScanner withoutTables = new PWMScanner(this.matrices, 0.8, 0);
+		String seq = "ACGCCGACCATTCTTTAAAAAGNNCTTGGGGTCTTNTAAAAAGCCCCAAG";
+		FASTASequence a = new FASTASequence("header", seq + seq);
+		FASTASequence b = new FASTASequence("header", seq + seq);
+		withTables.alignBothStrands(a);
+		withoutTables.alignBothStrands(b);
+		assertFalse(a.getMappings().isEmpty());
+		assertEquals(b.getMappings(), a.getMappings());
+		for (BindingSite pwm: a.getMappings().keySet()) {
+			for (int i = 0; i < a.getMappings().get(pwm).size(); i++) {
+				assertEquals(b.isReverseStrand(pwm, i), a.isReverseStrand(pwm, i));
+			}
+		}
+	}
+}
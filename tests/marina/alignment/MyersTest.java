@@ -0,0 +1,206 @@
+package marina.alignment;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import parser.DNAMotifParser;
+import parser.FASTAParser;
+
+import bindingsite.BindingSite;
+import bindingsite.LinearDNAMotif;
+
+import alignment.Myers;
+import alignment.RabinKarp;
+
+public class MyersTest {
+	private List<LinearDNAMotif> motifs;
+	private FASTASequence seq; // valid FASTA object
+
+	@Before
+	public void setUp() throws Exception {
+		this.motifs = new ArrayList<LinearDNAMotif>();
+		this.seq = new FASTASequence("header", "GGGGTGACTCAGGGGTGACGCAGGGGTGCTCAGGG");
+	}
+
+	/**
+	 * Helper-function which derives the edit distance between a motif and
+	 * the best alignment ending at each base, using dynamic programming.
+	 * */
+	private int[] editDistances(String seq, String motif) {
+		int m = motif.length();
+		int[] column = new int[m + 1];
+		int[] scores = new int[seq.length()];
+		for (int i = 0; i <= m; i++) {
+			column[i] = i;
+		}
+		for (int j = 0; j < seq.length(); j++) {
+			int diagonal = column[0];
+			column[0] = 0; // alignments may start anywhere
+			for (int i = 1; i <= m; i++) {
+				int cost = motif.charAt(i - 1) == seq.charAt(j) ? 0 : 1;
+				int next = Math.min(diagonal + cost, 
+						Math.min(column[i] + 1, column[i - 1] + 1));
+				diagonal = column[i];
+				column[i] = next;
+			}
+			scores[j] = column[m];
+		}
+		return scores;
+	}
+
+	/**
+	 * A substitution is tolerated if within the maximum distance, and its
+	 * distance is saved alongside the offset.
+	 * */
+	@Test
+	public void testSubstitutionTolerated() throws IOException {
+		LinearDNAMotif motif = new LinearDNAMotif("AP-1", "gene", "TGACTCA");
+		this.motifs.add(motif);
+		new Myers(this.motifs, 1).align(this.seq);
+		List<Integer> offsets = this.seq.getMappings().get(motif);
+		assertEquals(3, offsets.size());
+		assertEquals(4, offsets.get(0).intValue());
+		assertEquals(0, this.seq.getDistance(motif, 0));
+		assertEquals(15, offsets.get(1).intValue());
+		assertEquals(1, this.seq.getDistance(motif, 1));
+		assertEquals(1, this.seq.getDistance(motif, 2));
+	}
+
+	/**
+	 * Given a maximum distance of zero, mappings must equal those of
+	 * Rabin-Karp across the demo catalog.
+	 * */
+	@Test
+	public void testExactEqualsRabinKarp() throws IOException {
+		DNAMotifParser motifParser = new DNAMotifParser(
+				new File("./demo/sample_motifs.txt"));
+		motifParser.parse();
+		this.motifs.addAll(motifParser.getLinearMotifs());
+		this.motifs.add(new LinearDNAMotif("family", "foreign", "TGXCA"));
+		FASTAParser fastaParser = new FASTAParser(
+				new File("./demo/most_induced.fasta"));
+		fastaParser.parse();
+		Myers matcher = new Myers(this.motifs, 0);
+		for (FASTASequence seq: fastaParser.getSequences().subList(0, 50)) {
+			FASTASequence other = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			FASTASequence both = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			FASTASequence otherBoth = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			matcher.align(seq);
+			matcher.alignBothStrands(both);
+			for (LinearDNAMotif motif: this.motifs) {
+				new RabinKarp().align(other, motif);
+				new RabinKarp().alignBothStrands(otherBoth, motif);
+			}
+			assertEquals(other.getMappings(), seq.getMappings());
+			assertEquals(otherBoth.getMappings(), both.getMappings());
+			for (BindingSite tfbs: both.getMappings().keySet()) {
+				for (int i = 0; i < both.getMappings().get(tfbs).size(); i++) {
+					assertEquals(otherBoth.isReverseStrand(tfbs, i), 
+							both.isReverseStrand(tfbs, i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Saved mappings must be those alignments whose dynamic programming
+	 * distance is within the maximum and no more than either neighbor's.
+	 * */
+	@Test
+	public void testEqualsDynamicProgramming() throws IOException {
+		String[] motifs = new String[]{"TGACTCA", "CACGTG", "GGGCGGGG", 
+				"TATAAA"};
+		for (int i = 0; i < motifs.length; i++) {
+			this.motifs.add(new LinearDNAMotif("family", "gene" + i, 
+					motifs[i]));
+		}
+		FASTAParser fastaParser = new FASTAParser(
+				new File("./demo/most_induced.fasta"));
+		fastaParser.parse();
+		Myers matcher = new Myers(this.motifs, 2);
+		for (FASTASequence seq: fastaParser.getSequences().subList(0, 20)) {
+			matcher.align(seq);
+			for (LinearDNAMotif motif: this.motifs) {
+				int len = motif.getLength();
+				int[] scores = this.editDistances(seq.getSequence(), 
+						motif.getSequence());
+				List<Integer> expected = new ArrayList<Integer>();
+				List<Integer> distances = new ArrayList<Integer>();
+				for (int j = len - 1; j < scores.length; j++) {
+					int prior = j > 0 ? scores[j - 1] : len + 1;
+					int next = j + 1 < scores.length ? scores[j + 1] : len + 1;
+					if (scores[j] <= 2 && scores[j] <= prior && 
+							scores[j] <= next) {
+						expected.add(j - len + 1);
+						distances.add(scores[j]);
+					}
+				}
+				List<Integer> actual = seq.getMappings().get(motif);
+				assertEquals(expected, actual == null ? 
+						new ArrayList<Integer>() : actual);
+				for (int i = 0; i < distances.size(); i++) {
+					assertEquals(distances.get(i).intValue(), 
+							seq.getDistance(motif, i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reverse-strand alignments are found without reverse complimenting
+	 * the sequence, and saved in forward-strand coordinates.
+	 * */
+	@Test
+	public void testBothStrands() throws IOException {
+		LinearDNAMotif motif = new LinearDNAMotif("family", "gene", "AACCGT");
+		this.motifs.add(motif);
+		this.seq.setSequence("TTTACGGATTTT"); // ACGGTT substituted; inserted
+		String orig = this.seq.getSequence();
+		new Myers(this.motifs, 1).alignBothStrands(this.seq);
+		assertEquals(orig, this.seq.getSequence());
+		List<Integer> offsets = this.seq.getMappings().get(motif);
+		assertEquals(2, offsets.size());
+		assertEquals(3, offsets.get(0).intValue()); // ACGGAT
+		assertEquals(4, offsets.get(1).intValue()); // ACGGATT
+		for (int i = 0; i < offsets.size(); i++) {
+			assertTrue(this.seq.isReverseStrand(motif, i));
+			assertEquals(1, this.seq.getDistance(motif, i));
+		}
+	}
+
+	/**
+	 * A maximum distance of at least the motif's length is clamped to one
+	 * less than its length; windows sharing no base with the motif are
+	 * never saved, and mappings equal those at that lesser distance.
+	 * */
+	@Test
+	public void testDistanceClampedToLength() throws IOException {
+		LinearDNAMotif motif = new LinearDNAMotif("family", "gene", "TGAG");
+		this.motifs.add(motif);
+		FASTASequence unrelated = new FASTASequence("header", "CCCCCCCCCC");
+		new Myers(this.motifs, 4).align(unrelated);
+		assertFalse(unrelated.getMappings().containsKey(motif));
+		FASTASequence other = new FASTASequence("header", this.seq.getSequence());
+		new Myers(this.motifs, 4).align(this.seq);
+		new Myers(this.motifs, 3).align(other);
+		List<Integer> offsets = this.seq.getMappings().get(motif);
+		assertEquals(other.getMappings().get(motif), offsets);
+		for (int i = 0; i < offsets.size(); i++) {
+			assertTrue(this.seq.getDistance(motif, i) < 4);
+			assertEquals(other.getDistance(motif, i), 
+					this.seq.getDistance(motif, i));
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package marina.alignment;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import parser.FASTAParser;
+import parser.PWMParser;
+
+import bindingsite.BindingSite;
+import bindingsite.PositionWeightMatrix;
+
+import alignment.CompiledPWM;
+import alignment.PWMBatch;
+import alignment.PWMScanner;
+
+public class PWMBatchTest {
+	private List<PositionWeightMatrix> matrices;
+
+	@Before
+	public void setUp() throws Exception {
+		PWMParser parser = new PWMParser(new File("./demo/sample_pwms.txt"));
+		parser.parse();
+		this.matrices = parser.getMatrices();
+	}
+
+	/**
+	 * Helper-function which compiles every PWM of a given width.
+	 * */
+	private List<CompiledPWM> compile(int width, double cutoff) {
+		List<CompiledPWM> pwms = new ArrayList<CompiledPWM>();
+		for (PositionWeightMatrix pwm: this.matrices) {
+			if (pwm.getWidth() == width) {
+				pwms.add(new CompiledPWM(pwm, cutoff));
+			}
+		}
+		return pwms;
+	}
+
+	/**
+	 * Batched hits must equal those of scoring each PWM on its own, on
+	 * either strand, in ascending order.
+	 * */
+	@Test
+	public void testEqualsCompiledPWM() throws IOException {
+		FASTAParser fastaParser = new FASTAParser(
+				new File("./demo/most_induced.fasta"));
+		fastaParser.parse();
+		for (double cutoff: new double[]{0.0, 0.5, 0.8, 0.95, 1.0}) {
+			List<CompiledPWM> pwms = this.compile(10, cutoff);
+			assertEquals(2, pwms.size());
+			PWMBatch batch = new PWMBatch(pwms);
+			for (FASTASequence seq: fastaParser.getSequences().subList(0, 20)) {
+				byte[] codes = seq.getCodes(null);
+				int[][] hits = batch.align(codes, seq.getLength(), true);
+				for (int p = 0; p < pwms.size(); p++) {
+					CompiledPWM pwm = pwms.get(p);
+					List<Integer> expected = new ArrayList<Integer>();
+					for (int offset = 0; offset <= seq.getLength() - 
+							pwm.getWidth(); offset++) {
+						if (pwm.matches(codes, offset)) {
+							expected.add(offset << 1);
+						}
+						if (pwm.matchesReverse(codes, offset)) {
+							expected.add((offset << 1) | 1);
+						}
+					}
+					assertEquals(expected.size(), hits[p].length);
+					for (int i = 0; i < hits[p].length; i++) {
+						assertEquals((int)expected.get(i), hits[p][i]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Scanning with batches must yield the same mappings as scanning each
+	 * PWM on its own; including windows spanning ambiguous bases.
+	 * */
+	@Test
+	public void testScannerEqualsUnbatched() {
+		PWMScanner batched = new PWMScanner(this.matrices, 0.8, 0);
+		String seq = "ACGCCGACCATTCTTTAAAAAGNNCTTGGGGTCTTNTAAAAAGCCCCAAG";
+		FASTASequence a = new FASTASequence("header", seq + seq);
+		batched.alignBothStrands(a);
+		assertFalse(a.getMappings().isEmpty());
+		for (BindingSite site: a.getMappings().keySet()) {
+			FASTASequence b = new FASTASequence("header", seq + seq);
+			List<PositionWeightMatrix> single = new ArrayList<PositionWeightMatrix>();
+			single.add((PositionWeightMatrix)site);
+			new PWMScanner(single, 0.8, 0).alignBothStrands(b);
+			assertEquals(b.getMappings().get(site), a.getMappings().get(site));
+			for (int i = 0; i < a.getMappings().get(site).size(); i++) {
+				assertEquals(b.isReverseStrand(site, i), a.isReverseStrand(site, i));
+			}
+		}
+	}
+
+	/**
+	 * PWMs of differing widths cannot be batched.
+	 * */
+	@Test(expected=IllegalArgumentException.class)
+	public void testDifferingWidths() {
+		List<CompiledPWM> pwms = this.compile(10, 0.8);
+		pwms.addAll(this.compile(7, 0.8));
+		new PWMBatch(pwms);
+	}
+}
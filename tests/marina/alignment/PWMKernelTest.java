@@ -0,0 +1,172 @@
+package marina.alignment;
+
+import static org.junit.Assert.*;
+
+import group.FASTAFragment;
+import group.FASTASequence;
+import gui.MarinaGUI;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import parameter.EnumParameter;
+import parameter.IntegerParameter;
+import parameter.ParameterMap;
+import parameter.ParameterName;
+import parser.FASTAParser;
+import parser.PWMParser;
+
+import bindingsite.PositionWeightMatrix;
+
+import alignment.CompiledPWM;
+import alignment.PMatch;
+import alignment.PWMBatch;
+import alignment.PWMKernel;
+import alignment.PWMScanner;
+
+public class PWMKernelTest {
+	private List<PositionWeightMatrix> matrices;
+	private List<FASTASequence> seqs;
+	private ParameterMap params;
+
+	@Before
+	public void setUp() throws Exception {
+		this.params = MarinaGUI.get().parameterMap();
+		PWMParser pwmParser = new PWMParser(new File("./demo/sample_pwms.txt"));
+		pwmParser.parse();
+		this.matrices = pwmParser.getMatrices();
+		FASTAParser fastaParser = new FASTAParser(
+				new File("./demo/most_suppressed.fasta"));
+		fastaParser.parse();
+		this.seqs = fastaParser.getSequences().subList(0, 50);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.setKernel(PWMBatch.KERNEL);
+		((IntegerParameter)this.params.get(ParameterName.KMER_BUDGET))
+				.setArgument(4096);
+	}
+
+	/**
+	 * Helper-function to select the kernel of scanners built from
+	 * parameters.
+	 * */
+	@SuppressWarnings("unchecked")
+	private void setKernel(PWMKernel kernel) {
+		((EnumParameter<PWMKernel>)this.params.get(ParameterName.PWM_KERNEL))
+				.setArgument(kernel);
+	}
+
+	/**
+	 * Helper-function which aligns all PWMs onto a sequence using P-MATCH.
+	 * */
+	private void alignPMatch(FASTASequence seq, List<PositionWeightMatrix> pwms)
+			throws IOException {
+		for (PositionWeightMatrix pwm: pwms) {
+			for (FASTAFragment fragment: seq.toFragments(pwm.getWidth())) {
+				new PMatch(fragment, pwm).extrapolate();
+			}
+		}
+	}
+
+	/**
+	 * The kernel parameter defaults to the kernel of batches built without
+	 * one, and selects the kernel of scanners built from parameters.
+	 * */
+	@Test
+	public void testSelectedByParameter() {
+		assertEquals(PWMBatch.KERNEL, new PWMBatch(this.compile(0.8)).getKernel());
+		assertEquals(PWMBatch.KERNEL, ParameterMap.toEnum(
+				ParameterName.PWM_KERNEL, PWMKernel.class));
+		this.setKernel(PWMKernel.SCALAR);
+		assertEquals(PWMKernel.SCALAR, 
+				new PWMScanner(this.matrices).getKernel());
+	}
+
+	/**
+	 * Mappings of the scalar kernel, selected using its parameter, must
+	 * equal those of P-MATCH; all PWMs are batched given no k-mer table
+	 * budget.
+	 * */
+	@Test
+	public void testScalarEqualsPMatch() throws IOException {
+		this.setKernel(PWMKernel.SCALAR);
+		((IntegerParameter)this.params.get(ParameterName.KMER_BUDGET))
+				.setArgument(0);
+		PWMScanner scanner = new PWMScanner(this.matrices);
+		assertEquals(PWMKernel.SCALAR, scanner.getKernel());
+		for (FASTASequence seq: this.seqs) {
+			FASTASequence batched = new FASTASequence(seq.getHeader(),
+					seq.getSequence());
+			FASTASequence other = new FASTASequence(seq.getHeader(),
+					seq.getSequence());
+			scanner.align(batched);
+			this.alignPMatch(other, this.matrices);
+			assertEquals(other.getMappings(), batched.getMappings());
+		}
+	}
+
+	/**
+	 * Helper-function which compiles every PWM of the widest width.
+	 * */
+	private List<CompiledPWM> compile(double cutoff) {
+		List<CompiledPWM> pwms = new ArrayList<CompiledPWM>();
+		for (PositionWeightMatrix pwm: this.matrices) {
+			if (pwm.getWidth() == 10) {
+				pwms.add(new CompiledPWM(pwm, cutoff));
+			}
+		}
+		return pwms;
+	}
+
+	/**
+	 * Both kernels must yield identical hits across cutoffs and strands,
+	 * regardless of when windows are rejected.
+	 * */
+	@Test
+	public void testKernelsEqual() {
+		for (double cutoff: new double[]{0.0, 0.5, 0.8, 0.95, 1.0}) {
+			PWMBatch lanes = new PWMBatch(this.compile(cutoff), PWMKernel.LANES);
+			PWMBatch scalar = new PWMBatch(this.compile(cutoff), PWMKernel.SCALAR);
+			for (FASTASequence seq: this.seqs) {
+				byte[] codes = seq.getCodes(null);
+				for (boolean bothStrands: new boolean[]{false, true}) {
+					int[][] expected = scalar.align(codes, seq.getLength(),
+							bothStrands);
+					int[][] actual = lanes.align(codes, seq.getLength(),
+							bothStrands);
+					for (int p = 0; p < expected.length; p++) {
+						assertArrayEquals(expected[p], actual[p]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Batched mappings of either kernel must equal those of P-MATCH; all
+	 * PWMs are batched given no k-mer table budget.
+	 * */
+	@Test
+	public void testEqualsPMatch() throws IOException {
+		for (PWMKernel kernel: PWMKernel.values()) {
+			PWMScanner scanner = new PWMScanner(this.matrices, 0.8, 0, kernel);
+			for (FASTASequence seq: this.seqs) {
+				FASTASequence batched = new FASTASequence(seq.getHeader(),
+						seq.getSequence());
+				FASTASequence other = new FASTASequence(seq.getHeader(),
+						seq.getSequence());
+				scanner.align(batched);
+				this.alignPMatch(other, this.matrices);
+				assertEquals(other.getMappings(), batched.getMappings());
+			}
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package marina.alignment;
+
+import static org.junit.Assert.*;
+
+import group.FASTAFragment;
+import group.FASTASequence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import parser.FASTAParser;
+import parser.PWMParser;
+
+import bindingsite.PositionWeightMatrix;
+
+import alignment.PMatch;
+import alignment.PWMScanner;
+
+public class PWMScannerTest {
+	private List<PositionWeightMatrix> matrices;
+	private FASTASequence seq;
+
+	@Before
+	public void setUp() throws Exception {
+		PWMParser parser = new PWMParser(new File("./demo/unittest_pwm.txt"));
+		parser.parse(); // contains only 1x PWM.
+		this.matrices = parser.getMatrices();
+		this.seq = new FASTASequence("header", "TGACTGATGTACCTTGACG");
+	}
+
+	/**
+	 * Helper-function which aligns all PWMs onto a sequence using P-MATCH.
+	 * */
+	private void alignPMatch(FASTASequence seq, List<PositionWeightMatrix> pwms) 
+			throws IOException {
+		for (PositionWeightMatrix pwm: pwms) {
+			for (FASTAFragment fragment: seq.toFragments(pwm.getWidth())) {
+				new PMatch(fragment, pwm).extrapolate();
+			}
+		}
+	}
+
+	/**
+	 * This PWM is known to map to this sequence only once, at offset 6.
+	 * */
+	@Test
+	public void testKnownMapping() {
+		new PWMScanner(this.matrices).align(this.seq);
+		PositionWeightMatrix pwm = this.matrices.get(0);
+		assertEquals(1, this.seq.getMappings().get(pwm).size());
+		assertEquals(6, this.seq.getMappings().get(pwm).get(0).intValue());
+	}
+
+	/**
+	 * Sequences shorter than the PWM yield no windows, hence no mappings.
+	 * */
+	@Test
+	public void testShortSequenceHasNoHits() {
+		this.seq.setSequence("ATGTAC");
+		new PWMScanner(this.matrices).align(this.seq);
+		assertEquals(0, this.seq.getMappings().size());
+	}
+
+	/**
+	 * Windows containing ambiguous bases are scored the same as P-MATCH.
+	 * */
+	@Test
+	public void testAmbiguousEqualsPMatch() throws IOException {
+		this.seq.setSequence("TGACTGATGTNCCTTGACGATGTACCTNNNATGTACCT");
+		FASTASequence other = new FASTASequence("header", this.seq.getSequence());
+		new PWMScanner(this.matrices).align(this.seq);
+		this.alignPMatch(other, this.matrices);
+		assertEquals(other.getMappings(), this.seq.getMappings());
+	}
+
+	/**
+	 * Mappings across the demo PWMs and FASTA file must equal those derived
+	 * using P-MATCH; for both packed and unpacked sequences.
+	 * */
+	@Test
+	public void testEqualsPMatch() throws IOException {
+		PWMParser pwmParser = new PWMParser(new File("./demo/sample_pwms.txt"));
+		pwmParser.parse();
+		List<PositionWeightMatrix> pwms = new ArrayList<PositionWeightMatrix>();
+		pwms.addAll(pwmParser.getMatrices());
+		pwms.addAll(this.matrices);
+		FASTAParser fastaParser = new FASTAParser(
+				new File("./demo/most_suppressed.fasta"));
+		fastaParser.parse();
+		PWMScanner scanner = new PWMScanner(pwms);
+		for (FASTASequence seq: fastaParser.getSequences().subList(0, 50)) {
+			FASTASequence other = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			FASTASequence packed = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			packed.pack();
+			scanner.align(seq);
+			scanner.align(packed);
+			this.alignPMatch(other, pwms);
+			assertEquals(other.getMappings(), seq.getMappings());
+			assertEquals(other.getMappings(), packed.getMappings());
+		}
+	}
+
+	/**
+	 * Helper-function which encodes each mapping of a PWM as twice its
+	 * forward-strand offset, plus one if on the reverse strand.
+	 * */
+	private List<Integer> toStrandOffsets(FASTASequence seq, 
+			PositionWeightMatrix pwm) {
+		List<Integer> encoded = new ArrayList<Integer>();
+		List<Integer> offsets = seq.getMappings().get(pwm);
+		for (int i = 0; offsets != null && i < offsets.size(); i++) {
+			int strand = seq.isReverseStrand(pwm, i) ? 1 : 0;
+			encoded.add(offsets.get(i) * 2 + strand);
+		}
+		Collections.sort(encoded);
+		return encoded;
+	}
+
+	/**
+	 * Dual-strand mappings across the demo PWMs must equal those of
+	 * P-MATCH on the reverse complimented sequence, once mapped back onto
+	 * forward-strand coordinates. The sequence itself is never modified.
+	 * */
+	@Test
+	public void testBothStrandsEqualsPMatch() throws IOException {
+		PWMParser pwmParser = new PWMParser(new File("./demo/sample_pwms.txt"));
+		pwmParser.parse();
+		List<PositionWeightMatrix> pwms = new ArrayList<PositionWeightMatrix>();
+		pwms.addAll(pwmParser.getMatrices());
+		pwms.addAll(this.matrices);
+		FASTAParser fastaParser = new FASTAParser(
+				new File("./demo/most_suppressed.fasta"));
+		fastaParser.parse();
+		PWMScanner scanner = new PWMScanner(pwms);
+		for (FASTASequence seq: fastaParser.getSequences().subList(0, 50)) {
+			String orig = seq.getSequence();
+			FASTASequence forward = new FASTASequence(seq.getHeader(), orig);
+			FASTASequence reverse = new FASTASequence(seq.getHeader(), orig);
+			reverse.reverseComplement();
+			this.alignPMatch(forward, pwms);
+			this.alignPMatch(reverse, pwms);
+			scanner.alignBothStrands(seq);
+			assertEquals(orig, seq.getSequence());
+			for (PositionWeightMatrix pwm: pwms) {
+				List<Integer> expected = new ArrayList<Integer>();
+				if (forward.getMappings().containsKey(pwm)) {
+					for (int offset: forward.getMappings().get(pwm)) {
+						expected.add(offset * 2);
+					}
+				}
+				if (reverse.getMappings().containsKey(pwm)) {
+					for (int offset: reverse.getMappings().get(pwm)) {
+						int start = seq.getLength() - pwm.getWidth() - offset;
+						expected.add(start * 2 + 1);
+					}
+				}
+				Collections.sort(expected);
+				assertEquals(expected, this.toStrandOffsets(seq, pwm));
+			}
+		}
+	}
+}
@@ -0,0 +1,328 @@
+package marina.alignment;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+import group.Group;
+import gui.MarinaGUI;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import parameter.BooleanParameter;
+import parameter.ParameterMap;
+import parameter.ParameterName;
+import parser.DNAMotifParser;
+import parser.FASTAParser;
+import parser.PWMParser;
+
+import alignment.AbstractAlignment;
+import alignment.ExhaustiveMotifAlignment;
+import alignment.ExhaustivePWMAlignment;
+import alignment.ParallelAlignment;
+
+public class ParallelAlignmentTest {
+	private ParameterMap params;
+	private List<AbstractAlignment> alignments;
+
+	@Before
+	public void setUp() throws Exception {
+		this.params = MarinaGUI.get().parameterMap();
+		DNAMotifParser motifParser = new DNAMotifParser(
+				new File("./demo/sample_motifs.txt"));
+		motifParser.parse();
+		PWMParser pwmParser = new PWMParser(new File("./demo/sample_pwms.txt"));
+		pwmParser.parse();
+		this.params.setMotifParser(motifParser);
+		this.params.setPWMParser(pwmParser);
+		this.params.setQuery(this.parseGroup("./demo/most_induced.fasta"));
+		this.params.setBaseline(this.parseGroup("./demo/most_suppressed.fasta"));
+		this.alignments = new ArrayList<AbstractAlignment>();
+		this.alignments.add(new ExhaustiveMotifAlignment());
+		this.alignments.add(new ExhaustivePWMAlignment());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.params.setMotifParser(null);
+		this.params.setPWMParser(null);
+		this.params.setQuery(null);
+		this.params.setBaseline(null);
+		this.setDualStrand(false);
+		this.setCountsOnly(false);
+	}
+
+	/**
+	 * Helper-function to toggle counts-only alignment.
+	 * */
+	private void setCountsOnly(boolean countsOnly) {
+		BooleanParameter param = (BooleanParameter)this.params.get(
+				ParameterName.COUNTS_ONLY);
+		param.setArgument(countsOnly);
+	}
+
+	/**
+	 * Helper-function to toggle dual-strand alignment.
+	 * */
+	private void setDualStrand(boolean dualStrand) {
+		BooleanParameter param = (BooleanParameter)this.params.get(
+				ParameterName.DUAL_STRAND);
+		param.setArgument(dualStrand);
+	}
+
+	/**
+	 * Helper-function to parse a FASTA file into a Group object.
+	 * */
+	private Group parseGroup(String path) throws IOException {
+		FASTAParser parser = new FASTAParser(new File(path));
+		parser.parse();
+		return new Group(parser);
+	}
+
+	/**
+	 * Helper-function to align groups across a pool without updating the
+	 * GUI, since no GUI is present during unit-tests.
+	 * */
+	private void alignParallel(Group[] groups, int workers, boolean dualStrand) 
+			throws IOException {
+		this.alignParallel(groups, workers, dualStrand, false, false);
+	}
+
+	/**
+	 * Helper-function to align groups across a pool, optionally only
+	 * counting mappings or retaining them off-heap.
+	 * */
+	private void alignParallel(Group[] groups, int workers, boolean dualStrand,
+			boolean countsOnly, boolean offHeap) throws IOException {
+		ParallelAlignment parallel = new ParallelAlignment(this.alignments, 
+				workers, dualStrand) {
+			@Override
+			public void updateGUI(String text) {}
+			@Override
+			public void updateGUI(double i, double max) {}
+		};
+		parallel.setCountsOnly(countsOnly);
+		parallel.setOffHeap(offHeap);
+		parallel.align(groups);
+	}
+
+	/**
+	 * Mappings derived across many workers must equal those derived by
+	 * aligning each sequence sequentially.
+	 * */
+	@Test
+	public void testEqualsSequential() throws IOException {
+		Group[] groups = new Group[]{
+				this.parseGroup("./demo/most_induced.fasta"),
+				this.parseGroup("./demo/most_suppressed.fasta")};
+		for (Group group: groups) {
+			for (FASTASequence seq: group.getParser().getSequences()) {
+				for (AbstractAlignment alignment: this.alignments) {
+					alignment.forwardStrandAlign(seq);
+					alignment.reverseStrandAlign(seq);
+				}
+			}
+		}
+		this.alignParallel(AbstractAlignment.getGroups(), 4, false);
+		Group[] parallel = AbstractAlignment.getGroups();
+		for (int g = 0; g < groups.length; g++) {
+			List<FASTASequence> expected = groups[g].getParser().getSequences();
+			List<FASTASequence> actual = parallel[g].getParser().getSequences();
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i), actual.get(i));
+				assertEquals(expected.get(i).getMappings(), 
+						actual.get(i).getMappings());
+			}
+		}
+	}
+
+	/**
+	 * Group-wide abundances must not depend upon the number of workers.
+	 * */
+	@Test
+	public void testDeterministicAcrossWorkers() throws IOException {
+		Group[] groups = new Group[]{
+				this.parseGroup("./demo/most_induced.fasta"),
+				this.parseGroup("./demo/most_suppressed.fasta")};
+		this.alignParallel(groups, 1, false);
+		this.alignParallel(AbstractAlignment.getGroups(), 3, false);
+		Group[] parallel = AbstractAlignment.getGroups();
+		for (int g = 0; g < groups.length; g++) {
+			assertEquals(groups[g].mappingWrapper().getMaps(),
+					parallel[g].mappingWrapper().getMaps());
+		}
+	}
+
+	/**
+	 * Dual-strand mappings derived across many workers must equal those
+	 * derived by aligning both strands of each sequence sequentially.
+	 * */
+	@Test
+	public void testDualStrandEqualsSequential() throws IOException {
+		this.setDualStrand(true); // compile reverse compliments
+		this.alignments.clear();
+		this.alignments.add(new ExhaustiveMotifAlignment());
+		this.alignments.add(new ExhaustivePWMAlignment());
+		Group[] groups = new Group[]{
+				this.parseGroup("./demo/most_induced.fasta"),
+				this.parseGroup("./demo/most_suppressed.fasta")};
+		for (Group group: groups) {
+			for (FASTASequence seq: group.getParser().getSequences()) {
+				for (AbstractAlignment alignment: this.alignments) {
+					alignment.dualStrandAlign(seq);
+				}
+			}
+		}
+		this.alignParallel(AbstractAlignment.getGroups(), 4, true);
+		Group[] parallel = AbstractAlignment.getGroups();
+		for (int g = 0; g < groups.length; g++) {
+			List<FASTASequence> expected = groups[g].getParser().getSequences();
+			List<FASTASequence> actual = parallel[g].getParser().getSequences();
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i), actual.get(i));
+				assertEquals(expected.get(i).getMappings(), 
+						actual.get(i).getMappings());
+			}
+		}
+	}
+
+	/**
+	 * Counting mappings rather than retaining them must yield the same
+	 * group-wide abundances, while retaining no offsets.
+	 * */
+	@Test
+	public void testCountsOnlyEqualsRetained() throws IOException {
+		Group[] groups = new Group[]{
+				this.parseGroup("./demo/most_induced.fasta"),
+				this.parseGroup("./demo/most_suppressed.fasta")};
+		this.alignParallel(groups, 1, false);
+		this.alignParallel(AbstractAlignment.getGroups(), 3, false, true, false);
+		Group[] counted = AbstractAlignment.getGroups();
+		for (int g = 0; g < groups.length; g++) {
+			assertEquals(groups[g].mappingWrapper().getMaps(),
+					counted[g].mappingWrapper().getMaps());
+			List<FASTASequence> expected = groups[g].getParser().getSequences();
+			List<FASTASequence> actual = counted[g].getParser().getSequences();
+			for (int i = 0; i < expected.size(); i++) {
+				assertTrue(actual.get(i).getStore().isCountingOnly());
+				assertEquals(0, actual.get(i).getStore().size());
+				assertEquals(expected.get(i).getMappings().keySet(),
+						actual.get(i).getMappings().keySet());
+			}
+		}
+	}
+
+	/**
+	 * Totals counted while aligning across a pool must equal those derived
+	 * by walking each sequence's mappings once aligned.
+	 * */
+	@Test
+	public void testCountersEqualWalked() throws IOException {
+		this.alignParallel(AbstractAlignment.getGroups(), 4, false);
+		for (Group group: AbstractAlignment.getGroups()) {
+			Group walked = new Group(group.getParser()); // has no counter
+			assertEquals(walked.mappingWrapper().getMaps(),
+					group.mappingWrapper().getMaps());
+			assertEquals(walked.mappingWrapper().getNumMappings(),
+					group.mappingWrapper().getNumMappings());
+		}
+	}
+
+	/**
+	 * Mappings retained off-heap must equal those retained on-heap, as must
+	 * the group-wide abundances counted from them.
+	 * */
+	@Test
+	public void testOffHeapEqualsOnHeap() throws IOException {
+		Group[] groups = new Group[]{
+				this.parseGroup("./demo/most_induced.fasta"),
+				this.parseGroup("./demo/most_suppressed.fasta")};
+		this.alignParallel(groups, 1, false);
+		this.alignParallel(AbstractAlignment.getGroups(), 3, false, false, true);
+		Group[] offHeap = AbstractAlignment.getGroups();
+		for (int g = 0; g < groups.length; g++) {
+			assertEquals(groups[g].mappingWrapper().getMaps(),
+					offHeap[g].mappingWrapper().getMaps());
+			List<FASTASequence> expected = groups[g].getParser().getSequences();
+			List<FASTASequence> actual = offHeap[g].getParser().getSequences();
+			for (int i = 0; i < expected.size(); i++) {
+				assertTrue(actual.get(i).getStore().isOffHeap());
+				assertEquals(expected.get(i).getMappings(),
+						actual.get(i).getMappings());
+			}
+		}
+	}
+
+	/**
+	 * Whether coordinates are available must follow how the groups were
+	 * aligned, even if counts-only is unchecked after aligning.
+	 * */
+	@Test
+	public void testCountedThenUnchecked() throws IOException {
+		this.setCountsOnly(true);
+		this.alignParallel(AbstractAlignment.getGroups(), 2, false, true, false);
+		this.setCountsOnly(false);
+		assertTrue(this.params.isCountingOnly());
+	}
+
+	/**
+	 * Coordinates retained by an alignment remain available even if
+	 * counts-only is checked after aligning.
+	 * */
+	@Test
+	public void testRetainedThenChecked() throws IOException {
+		this.alignParallel(AbstractAlignment.getGroups(), 2, false);
+		this.setCountsOnly(true);
+		assertFalse(this.params.isCountingOnly());
+	}
+
+	/**
+	 * Aligning groups a second time must count each mapping once; totals
+	 * seeded from existing mappings must equal those walked thereafter.
+	 * */
+	@Test
+	public void testAlignedTwiceCountedOnce() throws IOException {
+		for (boolean countsOnly: new boolean[]{false, true}) {
+			Group[] groups = new Group[]{
+					this.parseGroup("./demo/most_induced.fasta"),
+					this.parseGroup("./demo/most_suppressed.fasta")};
+			this.alignParallel(groups, 2, false, countsOnly, false);
+			int[] once = new int[groups.length];
+			for (int g = 0; g < groups.length; g++) {
+				once[g] = groups[g].mappingWrapper().getNumMappings();
+			}
+			this.alignParallel(groups, 3, false, countsOnly, false);
+			for (int g = 0; g < groups.length; g++) {
+				Group walked = new Group(groups[g].getParser()); // has no counter
+				assertEquals(walked.mappingWrapper().getMaps(),
+						groups[g].mappingWrapper().getMaps());
+				assertEquals(2 * once[g], 
+						groups[g].mappingWrapper().getNumMappings());
+			}
+		}
+	}
+
+	/**
+	 * An IOException raised while aligning must be thrown as-is, however
+	 * deeply it was wrapped by workers.
+	 * */
+	@Test(expected=IOException.class)
+	public void testNestedErrorUnwrapped() throws IOException {
+		this.alignments.clear();
+		this.alignments.add(new ExhaustiveMotifAlignment() {
+			@Override
+			public void forwardStrandAlign(FASTASequence seq) {
+				throw new RuntimeException(new IllegalStateException(
+						new IOException("Unable to load sequence.")));
+			}
+		});
+		this.alignParallel(AbstractAlignment.getGroups(), 4, false);
+	}
+}
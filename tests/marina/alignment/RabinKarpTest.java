@@ -47,9 +47,9 @@ public class RabinKarpTest {
 	}
 	
 	/**
-	 * Test that if motifs from the same gene-family map to the query
-	 * sequence, their cumulative sum represents the number of mappings
-	 * for that respective motif.
+	 * Test that if distinct motifs of the same gene map to the query
+	 * sequence, each keeps its own mappings, whereas copies of a motif
+	 * share their mappings.
 	 * */
 	@Test
 	public void testMotifCopiesBothMap() throws IOException {
@@ -57,7 +57,11 @@ public class RabinKarpTest {
 		LinearDNAMotif other = new LinearDNAMotif("family", "gene", "AC");
 		this.rabinKarp.align(this.seq, this.motif);
 		this.rabinKarp.align(this.seq, other); // found 3 times
-		assertEquals(this.seq.getMappings().get(this.motif).size(), 8);
+		assertEquals(this.seq.getMappings().get(this.motif).size(), 5);
+		assertEquals(this.seq.getMappings().get(other).size(), 3);
+		LinearDNAMotif copy = new LinearDNAMotif("family", "gene", "GT");
+		this.rabinKarp.align(this.seq, copy);
+		assertEquals(this.seq.getMappings().get(this.motif).size(), 10);
 	}
 	
 	/**
@@ -143,4 +147,30 @@ public class RabinKarpTest {
 	public void testOddExponentModularPower() {
 		assertEquals(this.rabinKarp.modularPower(3, 7, 6), 3);
 	}
+	
+	/**
+	 * Both strands are aligned in one pass. The reverse compliment of this
+	 * motif, CT, maps at offset 8 of the forward strand.
+	 * */
+	@Test
+	public void testBothStrandsForwardCoordinates() throws IOException {
+		String orig = this.seq.getSequence();
+		this.rabinKarp.alignBothStrands(this.seq, this.motif);
+		assertEquals(2, this.seq.getMappings().get(this.motif).size());
+		assertEquals(8, this.seq.getMappings().get(this.motif).get(0).intValue());
+		assertTrue(this.seq.isReverseStrand(this.motif, 0));
+		assertEquals(26, this.seq.getMappings().get(this.motif).get(1).intValue());
+		assertFalse(this.seq.isReverseStrand(this.motif, 1));
+		assertEquals(orig, this.seq.getSequence()); // never modified
+	}
+	
+	/**
+	 * Palindromic motifs map to both strands at the same offset.
+	 * */
+	@Test
+	public void testBothStrandsPalindrome() throws IOException {
+		LinearDNAMotif palindrome = new LinearDNAMotif("family", "gene", "ACGT");
+		this.rabinKarp.alignBothStrands(this.seq, palindrome);
+		assertEquals(6, this.seq.getMappings().get(palindrome).size());
+	}
 }
@@ -0,0 +1,190 @@
+package marina.alignment;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import parser.FASTAParser;
+
+import bindingsite.IUPAC;
+import bindingsite.LinearDNAMotif;
+
+import alignment.ShiftAnd;
+
+public class ShiftAndTest {
+	private List<LinearDNAMotif> motifs;
+	private FASTASequence seq; // valid FASTA object
+
+	@Before
+	public void setUp() throws Exception {
+		this.motifs = new ArrayList<LinearDNAMotif>();
+		this.seq = new FASTASequence("header", "CACGTGTTCAGCTGNCATTAGA");
+	}
+
+	/**
+	 * Helper-function which aligns a degenerate motif by testing every
+	 * offset of a sequence; on the reverse strand if desired.
+	 * */
+	private List<Integer> bruteForce(String seq, String motif) {
+		List<Integer> offsets = new ArrayList<Integer>();
+		for (int i = 0; i <= seq.length() - motif.length(); i++) {
+			boolean isMatch = true;
+			for (int j = 0; j < motif.length() && isMatch; j++) {
+				char base = seq.charAt(i + j);
+				isMatch = IUPAC.isExact(String.valueOf(base)) &&
+						(IUPAC.toMask(motif.charAt(j)) & IUPAC.toMask(base)) != 0;
+			}
+			if (isMatch) {
+				offsets.add(i);
+			}
+		}
+		return offsets;
+	}
+
+	/**
+	 * Each IUPAC code matches every base it references, but never an
+	 * ambiguous base of the sequence.
+	 * */
+	@Test
+	public void testDegenerateMotif() throws IOException {
+		LinearDNAMotif ebox = new LinearDNAMotif("bHLH", "E-box", "CANNTG");
+		this.motifs.add(ebox);
+		new ShiftAnd(this.motifs).align(this.seq);
+		assertEquals(2, this.seq.getMappings().get(ebox).size());
+		assertEquals(0, this.seq.getMappings().get(ebox).get(0).intValue());
+		assertEquals(8, this.seq.getMappings().get(ebox).get(1).intValue());
+	}
+
+	/**
+	 * Only degenerate motifs are aligned using Shift-And.
+	 * */
+	@Test
+	public void testIsDegenerate() {
+		assertTrue(ShiftAnd.isDegenerate(
+				new LinearDNAMotif("family", "gene", "TGANTCA")));
+		assertFalse(ShiftAnd.isDegenerate(
+				new LinearDNAMotif("family", "gene", "TGACTCA")));
+		assertFalse(ShiftAnd.isDegenerate(
+				new LinearDNAMotif("family", "gene", "TGAXTCA")));
+	}
+
+	/**
+	 * Motifs spanning multiple words, including those of 64 positions and
+	 * those longer, must all be found.
+	 * */
+	@Test
+	public void testMultipleWords() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 20; i++) {
+			sb.append("ACGTTGCA");
+		}
+		this.seq.setSequence(sb.toString());
+		String full = sb.substring(0, 63) + "N";
+		String longer = "N" + sb.substring(1, 65);
+		for (int i = 0; i < 10; i++) {
+			this.motifs.add(new LinearDNAMotif("family", "gene" + i, 
+					"RCGTTGC"));
+		}
+		this.motifs.add(new LinearDNAMotif("family", "full", full));
+		this.motifs.add(new LinearDNAMotif("family", "longer", longer));
+		new ShiftAnd(this.motifs).align(this.seq);
+		for (LinearDNAMotif motif: this.motifs.subList(0, 11)) {
+			assertEquals(this.bruteForce(this.seq.getSequence(), 
+					motif.getSequence()), this.seq.getMappings().get(motif));
+		}
+		assertEquals(this.bruteForce(this.seq.getSequence(), full).size(), 
+				this.seq.getMappings().get(this.motifs.get(10)).size());
+		assertFalse(this.seq.getMappings().containsKey(this.motifs.get(11)));
+	}
+
+	/**
+	 * A Shift-And object lacking reverse compliments cannot align both
+	 * strands.
+	 * */
+	@Test(expected=IOException.class)
+	public void testBothStrandsRequiresDualStrand() throws IOException {
+		this.motifs.add(new LinearDNAMotif("family", "gene", "ACNT"));
+		new ShiftAnd(this.motifs).alignBothStrands(this.seq);
+	}
+
+	/**
+	 * Mappings across the demo FASTA file must equal those of testing every
+	 * offset; reverse-strand mappings must equal those of the reverse
+	 * complimented motif and follow forward-strand mappings at the same
+	 * offset.
+	 * */
+	@Test
+	public void testEqualsBruteForce() throws IOException {
+		String[] degenerate = new String[]{"TGANTCA", "RCCGGY", "WWWWWW",
+				"CANNTG", "GGGRNTTYCC", "TATAWAWR", "NNNNNNNNNNNN"};
+		for (int i = 0; i < degenerate.length; i++) {
+			this.motifs.add(new LinearDNAMotif("family", "gene" + i, 
+					degenerate[i]));
+		}
+		FASTAParser fastaParser = new FASTAParser(
+				new File("./demo/most_induced.fasta"));
+		fastaParser.parse();
+		ShiftAnd matcher = new ShiftAnd(this.motifs, true);
+		for (FASTASequence seq: fastaParser.getSequences().subList(0, 50)) {
+			FASTASequence packed = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			packed.pack();
+			FASTASequence both = new FASTASequence(seq.getHeader(), 
+					seq.getSequence());
+			matcher.align(seq);
+			matcher.alignBothStrands(both);
+			matcher.alignBothStrands(packed);
+			assertEquals(both.getMappings(), packed.getMappings());
+			for (LinearDNAMotif motif: this.motifs) {
+				String sequence = seq.getSequence();
+				List<Integer> forward = this.bruteForce(sequence, 
+						motif.getSequence());
+				List<Integer> reverse = this.bruteForce(sequence, 
+						IUPAC.reverseComplement(motif.getSequence()));
+				List<Integer> actual = seq.getMappings().get(motif);
+				assertEquals(forward, actual == null ? 
+						new ArrayList<Integer>() : actual);
+				List<Integer> expected = new ArrayList<Integer>();
+				List<Boolean> strands = new ArrayList<Boolean>();
+				int f = 0, r = 0;
+				while (f < forward.size() || r < reverse.size()) {
+					boolean isForward = r == reverse.size() || 
+							(f < forward.size() && forward.get(f) <= reverse.get(r));
+					expected.add(isForward ? forward.get(f++) : reverse.get(r++));
+					strands.add(!isForward);
+				}
+				actual = both.getMappings().get(motif);
+				assertEquals(expected, actual == null ? 
+						new ArrayList<Integer>() : actual);
+				for (int i = 0; i < strands.size(); i++) {
+					assertEquals(strands.get(i), both.isReverseStrand(motif, i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reverse-strand hits are reported in forward-strand coordinates.
+	 * */
+	@Test
+	public void testBothStrandsCoordinates() throws IOException {
+		LinearDNAMotif motif = new LinearDNAMotif("family", "gene", "TARN");
+		this.motifs.add(motif);
+		this.seq.setSequence("GGCTTAGG");
+		new ShiftAnd(this.motifs, true).alignBothStrands(this.seq);
+		List<Integer> offsets = this.seq.getMappings().get(motif);
+		assertEquals(2, offsets.size());
+		assertEquals(2, offsets.get(0).intValue()); // CTTA; reverse strand
+		assertTrue(this.seq.isReverseStrand(motif, 0));
+		assertEquals(4, offsets.get(1).intValue()); // TAGG; forward strand
+		assertFalse(this.seq.isReverseStrand(motif, 1));
+	}
+}
@@ -0,0 +1,197 @@
+package marina.alignment;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+import group.Group;
+import gui.MarinaGUI;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import parameter.BooleanParameter;
+import parameter.ParameterMap;
+import parameter.ParameterName;
+import parser.DNAMotifParser;
+import parser.FASTAParser;
+import parser.PWMParser;
+
+import alignment.AbstractAlignment;
+import alignment.ExhaustiveMotifAlignment;
+import alignment.ExhaustivePWMAlignment;
+import alignment.StreamingAlignment;
+
+public class StreamingAlignmentTest {
+	private ParameterMap params;
+	private List<AbstractAlignment> alignments;
+
+	@Before
+	public void setUp() throws Exception {
+		this.params = MarinaGUI.get().parameterMap();
+		DNAMotifParser motifParser = new DNAMotifParser(
+				new File("./demo/sample_motifs.txt"));
+		motifParser.parse();
+		PWMParser pwmParser = new PWMParser(new File("./demo/sample_pwms.txt"));
+		pwmParser.parse();
+		this.params.setMotifParser(motifParser);
+		this.params.setPWMParser(pwmParser);
+		this.setStreaming(true);
+		this.alignments = new ArrayList<AbstractAlignment>();
+		this.alignments.add(new ExhaustiveMotifAlignment());
+		this.alignments.add(new ExhaustivePWMAlignment());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.params.setMotifParser(null);
+		this.params.setPWMParser(null);
+		this.params.setQuery(null);
+		this.params.setBaseline(null);
+		this.setStreaming(false);
+	}
+
+	/**
+	 * Helper-function to toggle streaming.
+	 * */
+	private void setStreaming(boolean streaming) {
+		BooleanParameter param = (BooleanParameter)this.params.get(
+				ParameterName.STREAMING);
+		param.setArgument(streaming);
+	}
+
+	/**
+	 * Helper-function to parse a FASTA file into a Group object.
+	 * */
+	private Group parseGroup(String path) throws IOException {
+		FASTAParser parser = new FASTAParser(new File(path));
+		parser.parse();
+		return new Group(parser);
+	}
+
+	/**
+	 * Helper-function to stream groups across a pool without updating the
+	 * GUI, since no GUI is present during unit-tests.
+	 * */
+	private Group[] alignStreaming(int workers) throws IOException {
+		Group[] groups = new Group[]{
+				new Group(new FASTAParser(new File("./demo/most_induced.fasta"))),
+				new Group(new FASTAParser(new File("./demo/most_suppressed.fasta")))};
+		StreamingAlignment streaming = new StreamingAlignment(this.alignments,
+				workers, false) {
+			@Override
+			public void updateGUI(String text) {}
+			@Override
+			public void updateGUI(double i, double max) {}
+		};
+		streaming.align(groups);
+		return groups;
+	}
+
+	/**
+	 * Streamed abundances must equal those derived by parsing, and then
+	 * sequentially aligning, each group.
+	 * */
+	@Test
+	public void testEqualsSequential() throws IOException {
+		Group[] groups = new Group[]{
+				this.parseGroup("./demo/most_induced.fasta"),
+				this.parseGroup("./demo/most_suppressed.fasta")};
+		for (Group group: groups) {
+			for (FASTASequence seq: group.getParser().getSequences()) {
+				for (AbstractAlignment alignment: this.alignments) {
+					alignment.forwardStrandAlign(seq);
+					alignment.reverseStrandAlign(seq);
+				}
+			}
+		}
+		Group[] streamed = this.alignStreaming(4);
+		for (int g = 0; g < groups.length; g++) {
+			assertEquals(groups[g].getSize(), streamed[g].getNumStreamed());
+			assertEquals(groups[g].mappingWrapper().getMaps(),
+					streamed[g].mappingWrapper().getMaps());
+		}
+	}
+
+	/**
+	 * Once aligned, streamed sequences are dropped, yet are counted apart
+	 * from the sequences the group holds.
+	 * */
+	@Test
+	public void testSequencesDropped() throws IOException {
+		Group[] streamed = this.alignStreaming(2);
+		assertTrue(streamed[0].getParser().getSequences().isEmpty());
+		assertTrue(streamed[0].isStreamed());
+		assertEquals(0, streamed[0].getSize());
+		assertEquals(556, streamed[0].getNumStreamed());
+		this.params.setQuery(streamed[0]);
+		assertTrue(this.params.isStreamed());
+	}
+
+	/**
+	 * Streaming a group which was parsed at load must not retain, nor count
+	 * twice, its parsed sequences.
+	 * */
+	@Test
+	public void testParsedThenStreamed() throws IOException {
+		Group parsed = this.parseGroup("./demo/most_induced.fasta");
+		Group expected = this.alignStreaming(1)[0];
+		StreamingAlignment streaming = new StreamingAlignment(this.alignments,
+				2, false) {
+			@Override
+			public void updateGUI(String text) {}
+			@Override
+			public void updateGUI(double i, double max) {}
+		};
+		streaming.align(new Group[]{parsed});
+		assertEquals(0, parsed.getSize());
+		assertEquals(expected.getNumStreamed(), parsed.getNumStreamed());
+		assertEquals(expected.mappingWrapper().getMaps(),
+				parsed.mappingWrapper().getMaps());
+	}
+
+	/**
+	 * Group-wide abundances must not depend upon the number of workers.
+	 * */
+	@Test
+	public void testDeterministicAcrossWorkers() throws IOException {
+		Group[] single = this.alignStreaming(1);
+		Group[] many = this.alignStreaming(3);
+		for (int g = 0; g < single.length; g++) {
+			assertEquals(single[g].mappingWrapper().getMaps(),
+					many[g].mappingWrapper().getMaps());
+		}
+	}
+
+	/**
+	 * Groups streamed and then aligned without streaming must be parsed
+	 * anew, and no longer count their streamed sequences.
+	 * */
+	@Test
+	public void testStreamedThenParsed() throws IOException {
+		Group[] streamed = this.alignStreaming(2);
+		this.params.setQuery(streamed[0]);
+		this.params.setBaseline(streamed[1]);
+		this.setStreaming(false);
+		AbstractAlignment alignment = new ExhaustiveMotifAlignment() {
+			@Override
+			public void updateGUI(String text) {}
+			@Override
+			public void updateGUI(double i, double max) {}
+		};
+		for (Group group: AbstractAlignment.getGroups()) {
+			assertFalse(group.getParser().isParsed());
+			group.getParser().parse(); // as AlignmentAction does
+			group.startCounting();
+		}
+		alignment.forwardStrandAlign();
+		assertEquals(556, streamed[0].getSize());
+		assertEquals(0, streamed[0].getNumStreamed());
+		assertFalse(this.params.isStreamed());
+	}
+}
@@ -0,0 +1,134 @@
+package marina.bindingsite;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import parser.DNAMotifParser;
+import parser.PWMParser;
+
+import bindingsite.LinearDNAMotif;
+import bindingsite.PositionWeightMatrix;
+import bindingsite.SiteOrdinals;
+
+public class SiteOrdinalsTest {
+	private List<LinearDNAMotif> motifs;
+	private List<PositionWeightMatrix> pwms;
+
+	@Before
+	public void setUp() throws Exception {
+		DNAMotifParser motifParser = new DNAMotifParser(
+				new File("./demo/sample_motifs.txt"));
+		motifParser.parse();
+		PWMParser pwmParser = new PWMParser(new File("./demo/sample_pwms.txt"));
+		pwmParser.parse();
+		this.motifs = motifParser.getLinearMotifs();
+		this.pwms = pwmParser.getMatrices();
+	}
+
+	/**
+	 * Each catalog is given a contiguous block of ordinals, in catalog
+	 * order, which no other catalog shares.
+	 * */
+	@Test
+	public void testDenseAndDisjoint() {
+		int first = this.motifs.get(0).getOrdinal();
+		for (int i = 0; i < this.motifs.size(); i++) {
+			assertEquals(first + i, this.motifs.get(i).getOrdinal());
+		}
+		int next = first + this.motifs.size();
+		int firstPWM = this.pwms.get(0).getOrdinal();
+		for (int i = 0; i < this.pwms.size(); i++) {
+			assertEquals(firstPWM + i, this.pwms.get(i).getOrdinal());
+		}
+		assertTrue(firstPWM >= next || first >= firstPWM + this.pwms.size());
+		assertTrue(SiteOrdinals.size() >= firstPWM + this.pwms.size());
+		assertTrue(SiteOrdinals.size() >= next);
+	}
+
+	/**
+	 * Re-parsing a catalog must re-use the block of its prior catalog, so
+	 * that ordinals do not grow across reloads.
+	 * */
+	@Test
+	public void testReloadReusesBlock() throws Exception {
+		int size = -1;
+		for (int i = 0; i < 4; i++) {
+			DNAMotifParser parser = new DNAMotifParser(
+					new File("./demo/sample_motifs.txt"));
+			parser.parse();
+			if (size != -1) {
+				assertEquals(size, SiteOrdinals.size());
+			}
+			size = SiteOrdinals.size();
+		}
+	}
+
+	/**
+	 * Ordinals identify the binding sites of one catalog, hence cannot be
+	 * re-assigned.
+	 * */
+	@Test(expected=IllegalStateException.class)
+	public void testAssignedOnce() {
+		SiteOrdinals.assign(LinearDNAMotif.class, this.motifs);
+	}
+
+	/**
+	 * Distinct motifs sharing a gene name are unequal, hence keep their own
+	 * ordinals and their mappings are kept apart.
+	 * */
+	@Test
+	public void testSharedGeneKeptApart() {
+		LinearDNAMotif first = null;
+		LinearDNAMotif second = null;
+		for (LinearDNAMotif motif: this.motifs) {
+			if (motif.getGene().equals("ARF2")) {
+				if (first == null) {
+					first = motif;
+				}
+				else if (second == null) {
+					second = motif;
+				}
+			}
+		}
+		assertNotNull(second);
+		assertFalse(first.equals(second));
+		assertTrue(first.getOrdinal() != second.getOrdinal());
+		FASTASequence seq = new FASTASequence("header", "ACGT");
+		seq.addMapping(first, 0);
+		seq.addMapping(second, 1);
+		seq.addMapping(second, 2);
+		assertEquals(2, seq.getMappings().size());
+		assertEquals(Arrays.asList(0), seq.getMappings().get(first));
+		assertEquals(Arrays.asList(1, 2), seq.getMappings().get(second));
+	}
+
+	/**
+	 * Binding sites not parsed from a catalog equal parsed binding sites
+	 * of the same gene and sequence, regardless of ordinal, and resolve to
+	 * their ordinal.
+	 * */
+	@Test
+	public void testUnparsedEqualsParsed() {
+		LinearDNAMotif parsed = this.motifs.get(0);
+		LinearDNAMotif motif = new LinearDNAMotif(parsed.getFamily(),
+				parsed.getGene(), parsed.getSequence());
+		assertEquals(-1, motif.getOrdinal());
+		assertEquals(parsed, motif);
+		assertEquals(parsed.hashCode(), motif.hashCode());
+		assertFalse(motif.equals(new LinearDNAMotif(parsed.getFamily(),
+				parsed.getGene() + "-other", parsed.getSequence())));
+		assertFalse(motif.equals(new LinearDNAMotif(parsed.getFamily(),
+				parsed.getGene(), parsed.getSequence() + "A")));
+		assertEquals(parsed.getOrdinal(), SiteOrdinals.ordinalOf(motif));
+		assertEquals(-1, SiteOrdinals.ordinalOf(new LinearDNAMotif(
+				parsed.getFamily(), parsed.getGene(), parsed.getSequence() + "A")));
+	}
+}
@@ -0,0 +1,117 @@
+package marina.group;
+
+import static org.junit.Assert.*;
+
+import group.AbundanceCounter;
+import group.FASTASequence;
+import group.GroupAbundanceWrapper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import parser.DNAMotifParser;
+
+import bindingsite.LinearDNAMotif;
+
+public class AbundanceCounterTest {
+	private List<LinearDNAMotif> motifs; // distinct motifs of the catalog.
+
+	@Before
+	public void setUp() throws Exception {
+		DNAMotifParser parser = new DNAMotifParser(
+				new File("./demo/sample_motifs.txt"));
+		parser.parse();
+		this.motifs = new ArrayList<LinearDNAMotif>(
+				new LinkedHashSet<LinearDNAMotif>(parser.getLinearMotifs()));
+	}
+
+	/**
+	 * Counts of many threads, each counting into its own stripe, must be
+	 * merged into exact totals.
+	 * */
+	@Test
+	public void testConcurrentCounts() throws InterruptedException {
+		final AbundanceCounter counter = new AbundanceCounter();
+		final LinearDNAMotif unparsed = new LinearDNAMotif("fam", "gene", "AC");
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						counter.add(motifs.get(i % motifs.size()), 1);
+						counter.add(unparsed, 2);
+					}
+				}
+			});
+		}
+		for (Thread thread: threads) {
+			thread.start();
+		}
+		for (Thread thread: threads) {
+			thread.join();
+		}
+		GroupAbundanceWrapper wrapper = counter.toWrapper();
+		assertEquals(4 * 10000 * 3, wrapper.getNumMappings());
+		assertEquals(4 * 10000 * 2, wrapper.getCount(unparsed));
+		int expected = 0;
+		for (int i = 0; i < 10000; i++) {
+			expected += i % this.motifs.size() == 0 ? 4 : 0;
+		}
+		assertEquals(expected, wrapper.getCount(this.motifs.get(0)));
+	}
+
+	/**
+	 * Sequences given a counter must total each mapping as it is saved,
+	 * including those whose mappings are replaced.
+	 * */
+	@Test
+	public void testSequencesCounted() {
+		AbundanceCounter counter = new AbundanceCounter();
+		FASTASequence seq = new FASTASequence("header", "ACGTACGT");
+		seq.addMapping(this.motifs.get(0), 1);
+		counter.addAll(seq.getStore()); // prior mappings
+		seq.getStore().setCounter(counter);
+		seq.addMapping(this.motifs.get(0), 3, true);
+		seq.addMapping(this.motifs.get(1), 2);
+		seq.getMappings().put(this.motifs.get(1), Arrays.asList(1, 4, 5));
+		GroupAbundanceWrapper wrapper = counter.toWrapper();
+		assertEquals(2, wrapper.getCount(this.motifs.get(0)));
+		assertEquals(3, wrapper.getCount(this.motifs.get(1)));
+		assertEquals(5, wrapper.getNumMappings());
+	}
+
+	/**
+	 * Totals which no longer fit a count are rejected rather than wrapped
+	 * around to negative counts.
+	 * */
+	@Test(expected=IllegalStateException.class)
+	public void testTotalBeyondRange() {
+		AbundanceCounter counter = new AbundanceCounter();
+		counter.add(this.motifs.get(0), Integer.MAX_VALUE);
+		counter.add(this.motifs.get(0), 1);
+		counter.toWrapper();
+	}
+
+	/**
+	 * Binding sites built by hand are counted at the ordinal of the parsed
+	 * binding site they equal, rather than apart from it.
+	 * */
+	@Test
+	public void testHandBuiltCountedByOrdinal() {
+		AbundanceCounter counter = new AbundanceCounter();
+		LinearDNAMotif parsed = this.motifs.get(0);
+		counter.add(parsed, 2);
+		counter.add(new LinearDNAMotif(parsed.getFamily(), parsed.getGene(),
+				parsed.getSequence()), 3);
+		GroupAbundanceWrapper wrapper = counter.toWrapper();
+		assertTrue(wrapper.getUnordered().isEmpty());
+		assertEquals(5, wrapper.getCount(parsed));
+	}
+}
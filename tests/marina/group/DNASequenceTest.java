@@ -66,4 +66,17 @@ public class DNASequenceTest {
 		this.fasta.reverseComplement();
 		assertEquals(palindrome, this.fasta.getSequence());
 	}
+	
+	/**
+	 * Deriving the reverse complement as a string must equal that of the
+	 * in-place reverse complement, yet leave the sequence unmodified.
+	 * */
+	@Test
+	public void testToReverseComplementUnmodified() {
+		String origSeq = this.fasta.getSequence();
+		String rc = this.fasta.toReverseComplement();
+		assertEquals(origSeq, this.fasta.getSequence());
+		this.fasta.reverseComplement();
+		assertEquals(this.fasta.getSequence(), rc);
+	}
 }
@@ -1,6 +1,7 @@
 package marina.group;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 
@@ -71,19 +72,21 @@ public class FASTASequenceTest {
 	}
 	
 	/**
-	 * Test that multiple motif maps are consolidated as one. In other words,
-	 * if a motif has multiple gene names, each gene is consolidated as one 
-	 * entry and not as distinct mappings. This centralizes their mappings.
+	 * Test that duplicate motif maps are consolidated as one. In other words,
+	 * copies of a motif are one entry, whereas distinct motifs of one gene
+	 * are kept as distinct mappings.
 	 * */
 	@Test
 	public void testDuplicateMapsConsolidated() {
 		LinearDNAMotif motifB = new LinearDNAMotif("fam", "geneA", "TACTTAGT");
 		LinearDNAMotif motifC = new LinearDNAMotif("fam", "geneA", "ACGTAC");
 		LinearDNAMotif motifD = new LinearDNAMotif("fam", "geneC", "AACGTGTACT");
+		LinearDNAMotif copyB = new LinearDNAMotif("fam", "geneA", "TACTTAGT");
 		this.fasta.getMappings().put(motifB, new ArrayList<Integer>());
 		this.fasta.getMappings().put(motifC, new ArrayList<Integer>());
 		this.fasta.getMappings().put(motifD, new ArrayList<Integer>());
-		assertEquals(this.fasta.getMappings().size(), 2);
+		this.fasta.getMappings().put(copyB, new ArrayList<Integer>());
+		assertEquals(this.fasta.getMappings().size(), 3);
 	}
 	
 	/**
@@ -124,4 +127,39 @@ public class FASTASequenceTest {
 		String seqCompare = this.fasta.getSequence().substring(idx, idx+1);
 		assertTrue(seqBase.equals(seqCompare));
 	}
+	
+	/**
+	 * Reverse-strand mappings are flagged by their index; mappings saved
+	 * without a strand are on the forward strand.
+	 * */
+	@Test
+	public void testReverseStrandFlags() {
+		LinearDNAMotif motif = new LinearDNAMotif("fam", "geneA", "ACGT");
+		this.fasta.addMapping(motif, 2);
+		this.fasta.addMapping(motif, 2, true);
+		this.fasta.addMapping(motif, 8, false);
+		assertEquals(3, this.fasta.getMappings().get(motif).size());
+		assertFalse(this.fasta.isReverseStrand(motif, 0));
+		assertTrue(this.fasta.isReverseStrand(motif, 1));
+		assertFalse(this.fasta.isReverseStrand(motif, 2));
+	}
+
+	/**
+	 * Edit distances are saved alongside offsets; mappings saved without
+	 * a distance are exact.
+	 * */
+	@Test
+	public void testEditDistances() {
+		LinearDNAMotif motif = new LinearDNAMotif("fam", "geneA", "ACGT");
+		this.fasta.addMapping(motif, 2);
+		this.fasta.addMapping(motif, 4, true, 0);
+		this.fasta.addMapping(motif, 6, false, 2);
+		this.fasta.addMapping(motif, 8);
+		assertEquals(4, this.fasta.getMappings().get(motif).size());
+		assertEquals(0, this.fasta.getDistance(motif, 0));
+		assertEquals(0, this.fasta.getDistance(motif, 1));
+		assertTrue(this.fasta.isReverseStrand(motif, 1));
+		assertEquals(2, this.fasta.getDistance(motif, 2));
+		assertEquals(0, this.fasta.getDistance(motif, 3));
+	}
 }
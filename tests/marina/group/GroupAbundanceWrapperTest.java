@@ -1,6 +1,8 @@
 package marina.group;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import group.FASTASequence;
@@ -90,4 +92,34 @@ public class GroupAbundanceWrapperTest {
 		}
 		assertTrue(hasTFBS);
 	}
+
+	/**
+	 * Counts looked up by binding site must equal those of the derived map;
+	 * binding sites which never mapped have no count.
+	 * */
+	@Test
+	public void testCountsByOrdinal() {
+		for (BindingSite tfbs: this.wrapper.getMaps().keySet()) {
+			assertEquals(this.wrapper.getMaps().get(tfbs).intValue(),
+					this.wrapper.getCount(tfbs));
+			assertSame(tfbs, this.wrapper.getSite(tfbs.getOrdinal()));
+		}
+		assertEquals(0, this.wrapper.getCount(
+				new LinearDNAMotif("fam", "unknown", "ACGT")));
+	}
+
+	/**
+	 * Binding sites built by hand must be looked up as the parsed binding
+	 * site they equal.
+	 * */
+	@Test
+	public void testAdHocLookup() {
+		for (BindingSite tfbs: this.wrapper.getMaps().keySet()) {
+			LinearDNAMotif motif = (LinearDNAMotif)tfbs;
+			LinearDNAMotif adHoc = new LinearDNAMotif(motif.getFamily(),
+					motif.getGene(), motif.getSequence());
+			assertEquals(this.wrapper.getCount(tfbs),
+					this.wrapper.getCount(adHoc));
+		}
+	}
 }
@@ -0,0 +1,101 @@
+package marina.group;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+import group.MappedDNA;
+import group.PackedDNA;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+public class MappedDNATest {
+	private static final String SEQ = "NNTGACGTTGACTGTGATGTGTGCATGGAAACCCNNNNGGG";
+
+	/**
+	 * Helper-function to view the bytes of a record's bases.
+	 * */
+	private MappedDNA view(String bases) {
+		return new MappedDNA(ByteBuffer.wrap(
+				bases.getBytes(Charset.forName("US-ASCII"))));
+	}
+
+	/**
+	 * Helper-function to wrap a sequence into lines of a specific width.
+	 * */
+	private String wrap(String seq, int width, String terminator) {
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < seq.length(); i += width) {
+			lines.append(seq.substring(i, Math.min(seq.length(), i + width)));
+			lines.append(terminator);
+		}
+		return lines.toString();
+	}
+
+	/**
+	 * Bases of uniformly wrapped lines must equal the original sequence,
+	 * regardless of the line terminator.
+	 * */
+	@Test
+	public void testUniformLines() {
+		for (String terminator: new String[]{"\n", "\r\n"}) {
+			MappedDNA mapped = this.view(this.wrap(SEQ, 10, terminator));
+			assertEquals(SEQ.length(), mapped.length());
+			assertEquals(SEQ, mapped.toString());
+			for (int i = 0; i < SEQ.length(); i++) {
+				assertEquals(SEQ.charAt(i), mapped.charAt(i));
+			}
+		}
+	}
+
+	/**
+	 * Lines of differing widths are compacted, yet every base must remain
+	 * addressable.
+	 * */
+	@Test
+	public void testRaggedLines() {
+		MappedDNA mapped = this.view("NNTGACG\nTTGACTGTGATGTG\n\nTGCATGGAAACCCNNNNGGG\n");
+		assertEquals(SEQ, mapped.toString());
+		for (int i = 0; i < SEQ.length(); i++) {
+			assertEquals(SEQ.charAt(i), mapped.charAt(i));
+		}
+	}
+
+	/**
+	 * Base codes read from the view must equal those of a packed sequence.
+	 * */
+	@Test
+	public void testCodesEqualPacked() {
+		MappedDNA mapped = this.view(this.wrap(SEQ, 7, "\n"));
+		byte[] expected = new byte[SEQ.length()];
+		new PackedDNA(SEQ).toCodes(expected);
+		byte[] codes = new byte[SEQ.length()];
+		mapped.toCodes(codes);
+		assertArrayEquals(expected, codes);
+	}
+
+	/**
+	 * A mapped sequence behaves as its String counterpart, including once
+	 * reverse complimented or packed.
+	 * */
+	@Test
+	public void testMappedSequence() {
+		FASTASequence seq = new FASTASequence("seq", (String)null);
+		seq.setSequence(this.view(this.wrap(SEQ, 12, "\n")));
+		assertTrue(seq.isMapped());
+		assertEquals(SEQ, seq.getSequence());
+		assertEquals("G", seq.getBase(3));
+		FASTASequence other = new FASTASequence("seq", SEQ);
+		assertEquals(other, seq);
+		seq.reverseComplement();
+		other.reverseComplement();
+		assertFalse(seq.isMapped());
+		assertEquals(other.getSequence(), seq.getSequence());
+		seq.setSequence(this.view(SEQ));
+		seq.pack();
+		assertFalse(seq.isMapped());
+		assertEquals(SEQ, seq.getSequence());
+	}
+}
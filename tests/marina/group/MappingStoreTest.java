@@ -0,0 +1,228 @@
+package marina.group;
+
+import static org.junit.Assert.*;
+
+import group.MappingStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bindingsite.BindingSite;
+import bindingsite.LinearDNAMotif;
+
+public class MappingStoreTest {
+	private MappingStore store;
+	private LinearDNAMotif motifA;
+	private LinearDNAMotif motifB;
+
+	@Before
+	public void setUp() throws Exception {
+		this.store = new MappingStore();
+		this.motifA = new LinearDNAMotif("fam", "geneA", "ACGT");
+		this.motifB = new LinearDNAMotif("fam", "geneB", "TTAG");
+	}
+
+	/**
+	 * Interleaved mappings must be grouped per binding site, in the order
+	 * each was saved, alongside their strands and distances.
+	 * */
+	@Test
+	public void testGroupedBySite() {
+		this.store.add(this.motifA, 5, false, 0);
+		this.store.add(this.motifB, 1, true, 0);
+		this.store.add(this.motifA, 2, true, 3);
+		this.store.add(this.motifB, 9, false, 0);
+		this.store.add(this.motifA, 7, false, 0);
+		assertEquals(5, this.store.size());
+		assertEquals(2, this.store.getNumSites());
+		int a = this.store.indexOf(this.motifA);
+		assertEquals(0, a);
+		assertEquals(3, this.store.count(a));
+		assertEquals(5, this.store.getOffset(a, 0));
+		assertEquals(2, this.store.getOffset(a, 1));
+		assertEquals(7, this.store.getOffset(a, 2));
+		assertTrue(this.store.isReverse(a, 1));
+		assertEquals(3, this.store.getDistance(a, 1));
+		assertEquals(0, this.store.getDistance(a, 2));
+		this.store.add(this.motifB, 4, false, 0); // index must be rebuilt
+		assertEquals(Arrays.asList(1, 9, 4),
+				this.store.asMap().get(this.motifB));
+	}
+
+	/**
+	 * The map view must equal a HashMap of the same mappings, and consolidate
+	 * binding sites which are equal.
+	 * */
+	@Test
+	public void testMapView() {
+		Map<BindingSite, List<Integer>> expected = 
+				new HashMap<BindingSite, List<Integer>>();
+		expected.put(this.motifA, Arrays.asList(3, 1));
+		expected.put(this.motifB, Arrays.asList(8));
+		this.store.add(this.motifA, 3, false, 0);
+		this.store.add(this.motifB, 8, false, 0);
+		this.store.add(new LinearDNAMotif("fam", "geneA", "ACGT"), 1, false, 0);
+		assertEquals(expected, this.store.asMap());
+		assertEquals(this.store.asMap(), expected);
+		assertEquals(expected.hashCode(), this.store.asMap().hashCode());
+		assertNull(this.store.asMap().get(
+				new LinearDNAMotif("fam", "geneC", "ACGT")));
+		assertEquals(-1, this.store.indexOf(null));
+	}
+
+	/**
+	 * Putting a binding site replaces its mappings, leaving others intact.
+	 * */
+	@Test
+	public void testPutReplaces() {
+		this.store.add(this.motifA, 3, true, 2);
+		this.store.add(this.motifB, 8, false, 0);
+		this.store.add(this.motifA, 4, false, 0);
+		List<Integer> prior = this.store.asMap().put(this.motifA, 
+				new ArrayList<Integer>(Arrays.asList(6)));
+		assertEquals(Arrays.asList(3, 4), prior);
+		assertEquals(Arrays.asList(6), this.store.asMap().get(this.motifA));
+		assertFalse(this.store.isReverse(this.store.indexOf(this.motifA), 0));
+		assertEquals(Arrays.asList(8), this.store.asMap().get(this.motifB));
+		this.store.asMap().put(this.motifB, this.store.asMap().get(this.motifB));
+		assertEquals(Arrays.asList(8), this.store.asMap().get(this.motifB));
+	}
+
+	/**
+	 * Counting mappings must retain prior counts and count further
+	 * mappings.
+	 * */
+	@Test
+	public void testCountOnly() {
+		this.store.add(this.motifA, 3, true, 2);
+		this.store.add(this.motifA, 4, false, 0);
+		this.store.countOnly();
+		assertTrue(this.store.isCountingOnly());
+		this.store.add(this.motifB, 8, false, 0);
+		this.store.add(this.motifA, 9, false, 0);
+		for (int i = 0; i < 5; i++) { // more sites than initial capacity
+			this.store.add(new LinearDNAMotif("fam", "gene" + i, "AC"), i,
+					false, 0);
+		}
+		assertEquals(0, this.store.size());
+		assertEquals(3, this.store.count(this.store.indexOf(this.motifA)));
+		assertEquals(1, this.store.count(this.store.indexOf(this.motifB)));
+		assertEquals(7, this.store.asMap().size());
+		assertEquals(3, this.store.asMap().get(this.motifA).size());
+	}
+
+	/**
+	 * Offsets are discarded once mappings are only counted.
+	 * */
+	@Test(expected=UnsupportedOperationException.class)
+	public void testCountOnlyDiscardsOffsets() {
+		this.store.add(this.motifA, 3, false, 0);
+		this.store.countOnly();
+		this.store.getOffset(this.store.indexOf(this.motifA), 0);
+	}
+
+	/**
+	 * Rows moved off-heap, and those appended thereafter, must read as if
+	 * kept on-heap; including strands and distances.
+	 * */
+	@Test
+	public void testOffHeap() {
+		MappingStore onHeap = new MappingStore();
+		for (MappingStore store: Arrays.asList(this.store, onHeap)) {
+			store.add(this.motifA, 5, false, 0);
+			store.add(this.motifB, 1, true, 0);
+			store.add(this.motifA, 2, true, 3);
+		}
+		this.store.moveOffHeap();
+		assertTrue(this.store.isOffHeap());
+		assertFalse(onHeap.isOffHeap());
+		for (int row = 0; row < 40; row++) { // beyond the initial capacity
+			for (MappingStore store: Arrays.asList(this.store, onHeap)) {
+				store.add(row % 3 == 0 ? this.motifB : this.motifA, row,
+						row % 2 == 0, row % 5);
+			}
+		}
+		assertEquals(onHeap.size(), this.store.size());
+		assertEquals(onHeap.asMap(), this.store.asMap());
+		for (int id = 0; id < onHeap.getNumSites(); id++) {
+			for (int i = 0; i < onHeap.count(id); i++) {
+				assertEquals(onHeap.isReverse(id, i), this.store.isReverse(id, i));
+				assertEquals(onHeap.getDistance(id, i),
+						this.store.getDistance(id, i));
+			}
+		}
+		this.store.add(this.motifA, 99, false, 0); // appended to its chain
+		assertEquals(99, this.store.getOffset(0, this.store.count(0) - 1));
+	}
+
+	/**
+	 * Off-heap mappings must be replaceable, and discarded once counted.
+	 * */
+	@Test
+	public void testOffHeapSetAndCount() {
+		this.store.moveOffHeap();
+		this.store.add(this.motifA, 3, false, 0);
+		this.store.add(this.motifB, 8, true, 2);
+		this.store.add(this.motifA, 4, false, 0);
+		this.store.asMap().put(this.motifA, Arrays.asList(6));
+		assertEquals(Arrays.asList(6), this.store.asMap().get(this.motifA));
+		assertEquals(Arrays.asList(8), this.store.asMap().get(this.motifB));
+		assertEquals(2, this.store.getDistance(1, 0));
+		this.store.countOnly();
+		assertFalse(this.store.isOffHeap());
+		assertEquals(1, this.store.count(0));
+		assertEquals(1, this.store.count(1));
+	}
+
+	/**
+	 * Putting a binding site keeps the strand and distance of offsets it
+	 * already mapped to, each prior mapping matching at most one offset,
+	 * whether rows are on-heap or off-heap.
+	 * */
+	@Test
+	public void testPutKeepsStrandAndDistance() {
+		MappingStore offHeap = new MappingStore();
+		offHeap.moveOffHeap();
+		for (MappingStore store: Arrays.asList(this.store, offHeap)) {
+			store.add(this.motifA, 3, true, 2);
+			store.add(this.motifA, 3, false, 1);
+			store.add(this.motifA, 4, true, 0);
+			store.asMap().put(this.motifA, Arrays.asList(4, 3, 3, 3, 7));
+			int id = store.indexOf(this.motifA);
+			assertEquals(Arrays.asList(4, 3, 3, 3, 7), 
+					store.asMap().get(this.motifA));
+			assertTrue(store.isReverse(id, 0));
+			assertTrue(store.isReverse(id, 1));
+			assertEquals(2, store.getDistance(id, 1));
+			assertFalse(store.isReverse(id, 2));
+			assertEquals(1, store.getDistance(id, 2));
+			assertFalse(store.isReverse(id, 3)); // no prior mapping remains
+			assertEquals(0, store.getDistance(id, 3));
+			assertFalse(store.isReverse(id, 4));
+		}
+	}
+
+	/**
+	 * An offset view must reflect mappings saved after it was taken.
+	 * */
+	@Test
+	public void testViewFollowsChanges() {
+		this.store.add(this.motifA, 3, false, 0);
+		List<Integer> offsets = this.store.asMap().get(this.motifA);
+		assertEquals(Arrays.asList(3), offsets);
+		this.store.add(this.motifB, 1, false, 0);
+		this.store.add(this.motifA, 5, false, 0);
+		assertEquals(Arrays.asList(3, 5), offsets);
+		this.store.asMap().put(this.motifA, Arrays.asList(9));
+		assertEquals(Arrays.asList(9), offsets);
+		this.store.moveOffHeap();
+		this.store.add(this.motifA, 2, false, 0);
+		assertEquals(Arrays.asList(9, 2), offsets);
+	}
+}
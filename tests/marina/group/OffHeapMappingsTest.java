@@ -0,0 +1,68 @@
+package marina.group;
+
+import static org.junit.Assert.*;
+
+import group.OffHeapMappings;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class OffHeapMappingsTest {
+	private OffHeapMappings records;
+
+	@Before
+	public void setUp() throws Exception {
+		this.records = new OffHeapMappings();
+	}
+
+	/**
+	 * Records of interleaved binding sites must be read back in the order
+	 * saved, including those beyond the largest block.
+	 * */
+	@Test
+	public void testInterleavedBeyondLargestBlock() {
+		int n = 3 * OffHeapMappings.MAX_BLOCK;
+		for (int i = 0; i < n; i++) {
+			this.records.add(i % 2, i, i % 3 == 0, i % 7);
+		}
+		assertEquals(n / 2, this.records.count(0));
+		assertEquals(n / 2, this.records.count(1));
+		for (int i = 0; i < n; i++) {
+			int id = i % 2;
+			assertEquals(i, this.records.getOffset(id, i / 2));
+			assertEquals(i % 3 == 0, this.records.isReverse(id, i / 2));
+			assertEquals(i % 7, this.records.getDistance(id, i / 2));
+		}
+		assertEquals(0, this.records.count(2));
+	}
+
+	/**
+	 * Few records must reserve little memory, and cleared binding sites
+	 * must re-use their blocks.
+	 * */
+	@Test
+	public void testClearReusesBlocks() {
+		for (int i = 0; i < 100; i++) {
+			this.records.add(0, i, false, 0);
+		}
+		long reserved = this.records.getReserved();
+		assertTrue(reserved < 4096);
+		this.records.clear(0);
+		assertEquals(0, this.records.count(0));
+		for (int i = 0; i < 100; i++) {
+			this.records.add(0, i * 2, true, 1);
+		}
+		assertEquals(reserved, this.records.getReserved());
+		assertEquals(198, this.records.getOffset(0, 99));
+		assertTrue(this.records.isReverse(0, 0));
+	}
+
+	/**
+	 * Records which were never saved cannot be read.
+	 * */
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testReadBeyondCount() {
+		this.records.add(0, 5, false, 0);
+		this.records.getOffset(0, 1);
+	}
+}
@@ -0,0 +1,88 @@
+package marina.group;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+import group.PackedDNA;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PackedDNATest {
+	private static final String SEQ = "NNTGACGTTGACTGTGATGTGTGCATGGAAACCCNNNNGGGTTTACGTRYA";
+	private PackedDNA packed;
+
+	@Before
+	public void setUp() throws Exception {
+		this.packed = new PackedDNA(SEQ);
+	}
+
+	/**
+	 * Test that packing and decoding a sequence yields the original sequence.
+	 * */
+	@Test
+	public void testDecodeEqualsOriginal() {
+		assertEquals(SEQ, this.packed.toString());
+		assertEquals(SEQ.length(), this.packed.getLength());
+	}
+
+	/**
+	 * Runs of identical ambiguous characters are saved as a single run.
+	 * */
+	@Test
+	public void testAmbiguityRuns() {
+		assertEquals(4, this.packed.getNumRuns()); // NN, NNNN, R and Y
+		assertTrue(this.packed.isAmbiguous(0));
+		assertFalse(this.packed.isAmbiguous(2));
+		assertEquals(34, this.packed.nextAmbiguous(2));
+		assertEquals(35, this.packed.nextAmbiguous(35));
+		assertEquals(SEQ.length(), this.packed.nextAmbiguous(SEQ.length() - 1));
+	}
+
+	/**
+	 * Test that each base can be fetched given its index.
+	 * */
+	@Test
+	public void testCharAt() {
+		for (int i = 0; i < SEQ.length(); i++) {
+			assertEquals(SEQ.charAt(i), this.packed.charAt(i));
+		}
+	}
+
+	/**
+	 * k-mers spanning two words must equal the codes of their bases.
+	 * */
+	@Test
+	public void testKmerAcrossWords() {
+		long kmer = this.packed.getKmer(28, 8);
+		for (int i = 0; i < 8; i++) {
+			assertEquals(this.packed.getCode(28 + i), (int)(kmer >>> (2 * i)) & 3);
+		}
+	}
+
+	/**
+	 * Packed reverse-complements must equal that of String sequences.
+	 * */
+	@Test
+	public void testReverseComplementEquality() {
+		FASTASequence fasta = new FASTASequence("head", SEQ);
+		FASTASequence other = new FASTASequence("head", SEQ);
+		fasta.pack();
+		fasta.reverseComplement();
+		other.reverseComplement();
+		assertTrue(fasta.isPacked());
+		assertEquals(other.getSequence(), fasta.getSequence());
+	}
+
+	/**
+	 * A packed sequence must retain its length and bases.
+	 * */
+	@Test
+	public void testPackedSequenceBehaviors() {
+		FASTASequence fasta = new FASTASequence("head", SEQ);
+		fasta.pack();
+		assertEquals(SEQ.length(), fasta.getLength());
+		assertEquals("T", fasta.getBase(2));
+		assertEquals(new FASTASequence("head", SEQ), fasta);
+	}
+}
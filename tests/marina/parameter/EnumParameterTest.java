@@ -0,0 +1,60 @@
+package marina.parameter;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import alignment.MotifEngine;
+
+import parameter.EnumParameter;
+import parameter.ParameterMap;
+import parameter.ParameterName;
+
+public class EnumParameterTest {
+	private EnumParameter<MotifEngine> param;
+
+	@Before
+	public void setUp() throws Exception {
+		this.param = new EnumParameter<MotifEngine>(ParameterName.MOTIF_ENGINE,
+				MotifEngine.RABIN_KARP, MotifEngine.values());
+	}
+
+	/**
+	 * Test that a valid name is provided which is not null
+	 * */
+	@Test
+	public void testParameterNotNull() {
+		assertNotNull(this.param.getName());
+	}
+
+	/**
+	 * Each enumeration-parameter must have its argument as one of its choices.
+	 * */
+	@Test
+	public void testArgumentIsAChoice() {
+		boolean isChoice = false;
+		for (MotifEngine engine: this.param.getChoices()) {
+			isChoice = isChoice || engine == this.param.getArgument();
+		}
+		assertTrue(isChoice);
+	}
+
+	/**
+	 * Test that the argument can be updated to another choice.
+	 * */
+	@Test
+	public void testCanUpdateArgument() {
+		this.param.setArgument(MotifEngine.AHO_CORASICK);
+		assertEquals(MotifEngine.AHO_CORASICK, this.param.getArgument());
+	}
+
+	/**
+	 * Assert that the motif engine is Aho-Corasick by-default.
+	 * */
+	@Test
+	public void testDefaultMotifEngine() {
+		assertEquals(MotifEngine.AHO_CORASICK, ParameterMap.toEnum(
+				ParameterName.MOTIF_ENGINE, MotifEngine.class));
+	}
+}
@@ -0,0 +1,135 @@
+package marina.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import parser.BGZFInputStream;
+
+public class BGZFInputStreamTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Helper-function to write bytes as BGZF blocks of a specific size,
+	 * followed by the empty end-of-file block; as per bgzip.
+	 * */
+	public static File compress(File file, byte[] bytes, int blockSize)
+			throws IOException {
+		try (OutputStream out = new FileOutputStream(file)) {
+			for (int start = 0; start < bytes.length; start += blockSize) {
+				int end = Math.min(bytes.length, start + blockSize);
+				BGZFInputStreamTest.writeBlock(out, bytes, start, end);
+			}
+			BGZFInputStreamTest.writeBlock(out, bytes, 0, 0);
+		}
+		return file;
+	}
+
+	/**
+	 * Helper-function to write a single BGZF block.
+	 * */
+	private static void writeBlock(OutputStream out, byte[] bytes, int start,
+			int end) throws IOException {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		deflater.setInput(bytes, start, end - start);
+		deflater.finish();
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1 << 16];
+		while (!deflater.finished()) {
+			int n = deflater.deflate(buffer);
+			data.write(buffer, 0, n);
+		}
+		deflater.end();
+		CRC32 crc = new CRC32();
+		crc.update(bytes, start, end - start);
+		int blockSize = 12 + 6 + data.size() + 8;
+		out.write(new byte[]{0x1f, (byte)0x8b, 8, 4, 0, 0, 0, 0, 0, (byte)0xff,
+				6, 0, 'B', 'C', 2, 0});
+		BGZFInputStreamTest.writeShort(out, blockSize - 1);
+		data.writeTo(out);
+		BGZFInputStreamTest.writeInt(out, (int)crc.getValue());
+		BGZFInputStreamTest.writeInt(out, end - start);
+	}
+
+	private static void writeShort(OutputStream out, int value)
+			throws IOException {
+		out.write(value & 0xFF);
+		out.write((value >>> 8) & 0xFF);
+	}
+
+	private static void writeInt(OutputStream out, int value)
+			throws IOException {
+		BGZFInputStreamTest.writeShort(out, value);
+		BGZFInputStreamTest.writeShort(out, value >>> 16);
+	}
+
+	/**
+	 * Helper-function to read a stream in its entirety.
+	 * */
+	private byte[] readAll(InputStream stream) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[777];
+		int n;
+		while ((n = stream.read(buffer)) != -1) {
+			bytes.write(buffer, 0, n);
+		}
+		stream.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Blocks inflated across many workers must equal the original bytes,
+	 * and those inflated by a GZIPInputStream.
+	 * */
+	@Test
+	public void testEqualsOriginal() throws IOException {
+		byte[] original = Files.readAllBytes(
+				new File("./demo/most_induced.fasta").toPath());
+		File file = BGZFInputStreamTest.compress(this.folder.newFile(),
+				original, 5000);
+		assertTrue(BGZFInputStream.isBGZF(file));
+		for (int workers = 1; workers <= 4; workers++) {
+			assertArrayEquals(original, this.readAll(
+					new BGZFInputStream(file, workers)));
+		}
+		assertArrayEquals(original, this.readAll(
+				new GZIPInputStream(new FileInputStream(file))));
+	}
+
+	/**
+	 * Uncompressed files are not BGZF files.
+	 * */
+	@Test
+	public void testNotBGZF() throws IOException {
+		assertFalse(BGZFInputStream.isBGZF(new File("./demo/most_induced.fasta")));
+	}
+
+	/**
+	 * Corrupt blocks must fail their checksum.
+	 * */
+	@Test(expected=IOException.class)
+	public void testCorruptBlock() throws IOException {
+		byte[] original = "ACGTACGTACGTACGTACGTACGT".getBytes("US-ASCII");
+		File file = BGZFInputStreamTest.compress(this.folder.newFile(),
+				original, 1000);
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		bytes[bytes.length - 28 - 8] ^= 0x55; // the CRC32 of the first block
+		Files.write(file.toPath(), bytes);
+		this.readAll(new BGZFInputStream(file, 2));
+	}
+}
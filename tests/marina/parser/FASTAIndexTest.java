@@ -0,0 +1,157 @@
+package marina.parser;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+import group.IndexedFASTASequence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import parser.FASTAIndex;
+import parser.FASTAParser;
+
+public class FASTAIndexTest {
+	private static final String FASTA = ">chr1 first promoter\nACGTACGTAC\n" +
+			"GTACGTACGT\nACG\n>chr2\r\nNNNNAC\r\nGT\r\n>empty\n>chr3\nTTTT\n\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	/**
+	 * Helper-function to write a FASTA file.
+	 * */
+	private File write(String contents) throws IOException {
+		File file = this.folder.newFile("seqs.fa");
+		Files.write(file.toPath(), contents.getBytes(Charset.forName("UTF-8")));
+		return file;
+	}
+
+	/**
+	 * Each record's length, offset and layout must match those of
+	 * samtools faidx.
+	 * */
+	@Test
+	public void testBuild() throws IOException {
+		FASTAIndex index = FASTAIndex.build(this.write(FASTA));
+		assertEquals(4, index.size());
+		assertEquals("chr1 first promoter", index.getHeader(0));
+		assertEquals("chr1", index.getName(0));
+		assertEquals(23, index.getLength(0));
+		assertEquals(21, index.getOffset(0));
+		assertEquals(8, index.getLength(1));
+		assertEquals(0, index.getLength(2));
+		assertEquals(4, index.getLength(3));
+	}
+
+	/**
+	 * Bases loaded on demand must equal those of parsing the file.
+	 * */
+	@Test
+	public void testEqualsParsed() throws IOException {
+		File file = new File("./demo/most_suppressed.fasta");
+		FASTAParser parser = new FASTAParser(file);
+		parser.parse(1, FASTAParser.CHUNK_SIZE);
+		List<FASTASequence> expected = parser.getSequences();
+		List<FASTASequence> indexed = FASTAIndex.build(file).toSequences();
+		assertEquals(expected.size(), indexed.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getHeader(), indexed.get(i).getHeader());
+			assertEquals(expected.get(i).getLength(), indexed.get(i).getLength());
+			assertEquals(expected.get(i).getSequence(),
+					indexed.get(i).getSequence());
+		}
+	}
+
+	/**
+	 * A saved index must be re-used, recovering full headers from the
+	 * FASTA file; a stale or foreign index must be rebuilt.
+	 * */
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		File file = this.write(FASTA);
+		FASTAIndex built = FASTAIndex.open(file);
+		File indexFile = FASTAIndex.getIndexFile(file);
+		assertTrue(indexFile.isFile());
+		assertEquals("chr1\t23\t21\t10\t11", Files.readAllLines(
+				indexFile.toPath(), Charset.forName("UTF-8")).get(0));
+		FASTAIndex loaded = FASTAIndex.load(file, indexFile);
+		assertNotNull(loaded);
+		for (int i = 0; i < built.size(); i++) {
+			assertEquals(built.getHeader(i), loaded.getHeader(i));
+			assertEquals(built.load(i).toString(), loaded.load(i).toString());
+		}
+		Files.write(indexFile.toPath(), "chr9\t4\t5\t4\t5\n".getBytes("UTF-8"));
+		assertNull(FASTAIndex.load(file, indexFile));
+		assertEquals(4, FASTAIndex.open(file).size());
+	}
+
+	/**
+	 * Records whose lines have differing widths cannot be indexed.
+	 * */
+	@Test(expected=IOException.class)
+	public void testRaggedLines() throws IOException {
+		FASTAIndex.build(this.write(">a\nACG\nACGTA\nAC\n"));
+	}
+
+	/**
+	 * Indexed sequences behave as any other sequence once reverse
+	 * complimented or packed.
+	 * */
+	@Test
+	public void testIndexedSequence() throws IOException {
+		List<FASTASequence> seqs = FASTAIndex.build(
+				this.write(FASTA)).toSequences();
+		IndexedFASTASequence seq = (IndexedFASTASequence)seqs.get(0);
+		assertTrue(seq.isIndexed());
+		assertEquals("ACGTACGTACGTACGTACGTACG", seq.getSequence());
+		assertEquals("C", seq.getBase(1));
+		seq.reverseComplement();
+		assertFalse(seq.isIndexed());
+		assertEquals("CGTACGTACGTACGTACGTACGT", seq.getSequence());
+		IndexedFASTASequence other = (IndexedFASTASequence)seqs.get(1);
+		other.pack();
+		assertFalse(other.isIndexed());
+		assertEquals("NNNNACGT", other.getSequence());
+		other.release();
+		assertTrue(other.isReleased());
+	}
+
+	/**
+	 * The view over a record's bases must be loaded once and shared by
+	 * each subsequent access.
+	 * */
+	@Test
+	public void testViewRetained() throws IOException {
+		FASTASequence seq = FASTAIndex.build(this.write(FASTA)).toSequences()
+				.get(0);
+		assertSame(seq.getMapped(), seq.getMapped());
+		assertEquals("ACGTACGTACGTACGTACGTACG", seq.getBases().toString());
+	}
+
+	/**
+	 * A sequence which cannot be loaded must surface the IOException as the
+	 * cause of its error.
+	 * */
+	@Test
+	public void testLoadErrorCause() throws IOException {
+		File file = this.write(FASTA);
+		FASTASequence seq = FASTAIndex.build(file).toSequences().get(0);
+		assertTrue(file.delete());
+		this.thrown.expect(IllegalStateException.class);
+		this.thrown.expectCause(CoreMatchers.instanceOf(IOException.class));
+		seq.getMapped();
+	}
+}
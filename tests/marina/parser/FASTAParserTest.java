@@ -1,19 +1,36 @@
 package marina.parser;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import group.FASTASequence;
+
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import parser.FASTAParser;
+import parser.SequenceHandler;
 
 
 public class FASTAParserTest {
 	private FASTAParser parser;
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Before
 	public void setUp() throws Exception {
 		// provide a known FASTA file
@@ -45,4 +62,86 @@ public class FASTAParserTest {
 	public void testNoParsingInitially() {
 		assertTrue(this.parser.getSequences().size() == 0);
 	}
+
+	/**
+	 * A parser must only report being parsed once parse() is invoked, so
+	 * that groups loaded without parsing are parsed at alignment.
+	 * */
+	@Test
+	public void testParsedOnceInvoked() throws IOException {
+		assertFalse(this.parser.isParsed());
+		this.parser.parse();
+		assertTrue(this.parser.isParsed());
+	}
+
+	/**
+	 * Records sharing a header must all be kept, in file order.
+	 * @throws IOException 
+	 * */
+	@Test
+	public void testDuplicateHeadersKept() throws IOException {
+		File file = this.folder.newFile();
+		Files.write(file.toPath(), ">b\nACGT\n>a\nTTTT\n>b\nGGGG\n".getBytes(
+				Charset.forName("UTF-8")));
+		FASTAParser dupes = new FASTAParser(file);
+		dupes.parse(1, FASTAParser.CHUNK_SIZE);
+		List<FASTASequence> seqs = dupes.getSequences();
+		assertEquals(3, seqs.size());
+		assertEquals("b", seqs.get(0).getHeader());
+		assertEquals("ACGT", seqs.get(0).getSequence());
+		assertEquals("a", seqs.get(1).getHeader());
+		assertEquals("b", seqs.get(2).getHeader());
+		assertEquals("GGGG", seqs.get(2).getSequence());
+	}
+
+	/**
+	 * Parsing chunks across many workers must yield the same records, in
+	 * the same order, as parsing the file sequentially; regardless of
+	 * where chunks are split.
+	 * @throws IOException 
+	 * */
+	@Test
+	public void testParallelEqualsSequential() throws IOException {
+		this.parser.parse(1, FASTAParser.CHUNK_SIZE);
+		List<FASTASequence> expected = this.parser.getSequences();
+		for (long chunkSize: new long[]{1, 997, 4096, 65536}) {
+			FASTAParser parallel = new FASTAParser(this.parser.getFile());
+			parallel.parse(4, chunkSize);
+			assertEquals(expected, parallel.getSequences());
+		}
+	}
+
+	/**
+	 * Gzip and BGZF-compressed files must yield the same records as the
+	 * uncompressed file, whether parsed or streamed.
+	 * @throws IOException 
+	 * */
+	@Test
+	public void testCompressedEqualsUncompressed() throws IOException {
+		this.parser.parse(1, FASTAParser.CHUNK_SIZE);
+		List<FASTASequence> expected = this.parser.getSequences();
+		byte[] original = Files.readAllBytes(this.parser.getFile().toPath());
+		File gzip = this.folder.newFile("seqs.fa.gz");
+		try (OutputStream out = new GZIPOutputStream(new FileOutputStream(gzip))) {
+			out.write(original);
+		}
+		File bgzf = BGZFInputStreamTest.compress(this.folder.newFile(
+				"seqs.bgzf.gz"), original, 4096);
+		assertTrue(FASTAParser.isCompressed(gzip));
+		assertTrue(FASTAParser.isCompressed(bgzf));
+		assertTrue(!FASTAParser.isCompressed(this.parser.getFile()));
+		for (File file: new File[]{gzip, bgzf}) {
+			FASTAParser compressed = new FASTAParser(file);
+			compressed.parse(3, FASTAParser.CHUNK_SIZE);
+			assertEquals(expected, compressed.getSequences());
+			final List<FASTASequence> streamed = new ArrayList<FASTASequence>();
+			compressed.stream(new SequenceHandler() {
+				@Override
+				public void handle(FASTASequence seq) {
+					streamed.add(seq);
+				}
+			});
+			assertEquals(expected, streamed);
+		}
+	}
 }
@@ -0,0 +1,127 @@
+package marina.parser;
+
+import static org.junit.Assert.*;
+
+import group.FASTASequence;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import parser.MappedFASTAReader;
+
+public class MappedFASTAReaderTest {
+	private static final String FASTA = "ignored\n>first\nACGTACGT\nACG\n" +
+			">sec>ond\r\nNNAC\r\nGT\r\n>third\n>fourth\nTTTT";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Helper-function to write a FASTA file.
+	 * */
+	private File write(String contents) throws IOException {
+		File file = this.folder.newFile();
+		Files.write(file.toPath(), contents.getBytes(Charset.forName("UTF-8")));
+		return file;
+	}
+
+	/**
+	 * Helper-function to read all records of a file.
+	 * */
+	private List<FASTASequence> readAll(File file, int windowSize)
+			throws IOException {
+		List<FASTASequence> seqs = new ArrayList<FASTASequence>();
+		try (MappedFASTAReader reader = new MappedFASTAReader(file, windowSize)) {
+			FASTASequence seq = null;
+			while ((seq = reader.next()) != null) {
+				seqs.add(seq);
+			}
+		}
+		return seqs;
+	}
+
+	/**
+	 * Records must be read in file order, with line terminators removed;
+	 * a '>' only starts a record at the start of a line.
+	 * */
+	@Test
+	public void testRecords() throws IOException {
+		List<FASTASequence> seqs = this.readAll(this.write(FASTA),
+				MappedFASTAReader.WINDOW_SIZE);
+		assertEquals(4, seqs.size());
+		assertEquals("first", seqs.get(0).getHeader());
+		assertEquals("ACGTACGTACG", seqs.get(0).getSequence());
+		assertEquals("sec>ond", seqs.get(1).getHeader());
+		assertEquals("NNACGT", seqs.get(1).getSequence());
+		assertEquals("third", seqs.get(2).getHeader());
+		assertEquals(0, seqs.get(2).getLength());
+		assertEquals("TTTT", seqs.get(3).getSequence());
+		assertTrue(seqs.get(3).isMapped());
+	}
+
+	/**
+	 * Records read across many small windows must equal those read from
+	 * a single window.
+	 * */
+	@Test
+	public void testWindows() throws IOException {
+		File file = this.write(FASTA);
+		List<FASTASequence> expected = this.readAll(file,
+				MappedFASTAReader.WINDOW_SIZE);
+		for (int windowSize = 26; windowSize < 40; windowSize++) {
+			assertEquals(expected, this.readAll(file, windowSize));
+		}
+	}
+
+	/**
+	 * Records which do not fit a window cannot be read.
+	 * */
+	@Test(expected=IOException.class)
+	public void testRecordExceedsWindow() throws IOException {
+		this.readAll(this.write(FASTA), 8);
+	}
+
+	/**
+	 * Mapped records must equal those read line-by-line.
+	 * */
+	@Test
+	public void testEqualsLineByLine() throws IOException {
+		File file = new File("./demo/most_induced.fasta");
+		List<String> lines = new ArrayList<String>();
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(),
+				Charset.defaultCharset())) {
+			String line = null;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		}
+		List<FASTASequence> seqs = this.readAll(file,
+				MappedFASTAReader.WINDOW_SIZE);
+		int record = -1;
+		StringBuilder bases = new StringBuilder();
+		for (String line: lines) {
+			if (line.startsWith(">")) {
+				if (record >= 0) {
+					assertEquals(bases.toString(), seqs.get(record).getSequence());
+				}
+				record++;
+				assertEquals(line.substring(1), seqs.get(record).getHeader());
+				bases.setLength(0);
+			}
+			else {
+				bases.append(line);
+			}
+		}
+		assertEquals(bases.toString(), seqs.get(record).getSequence());
+		assertEquals(record + 1, seqs.size());
+	}
+}
@@ -0,0 +1,65 @@
+package marina.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+import parser.PipelinedInputStream;
+
+public class PipelinedInputStreamTest {
+
+	/**
+	 * Helper-function to read a stream in its entirety.
+	 * */
+	private byte[] readAll(InputStream stream) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1000];
+		int n;
+		while ((n = stream.read(buffer)) != -1) {
+			bytes.write(buffer, 0, n);
+		}
+		stream.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Bytes read through the queue must equal those of the source, even
+	 * when the source spans more blocks than the queue can hold.
+	 * */
+	@Test
+	public void testEqualsSource() throws IOException {
+		byte[] source = new byte[PipelinedInputStream.BLOCK_SIZE *
+		                         (PipelinedInputStream.CAPACITY + 3) + 17];
+		for (int i = 0; i < source.length; i++) {
+			source[i] = (byte)(i * 31);
+		}
+		assertArrayEquals(source, this.readAll(new PipelinedInputStream(
+				new ByteArrayInputStream(source))));
+		assertEquals(-1, new PipelinedInputStream(
+				new ByteArrayInputStream(new byte[0])).read());
+	}
+
+	/**
+	 * Errors reading the source must be re-thrown to the reader.
+	 * */
+	@Test(expected=IOException.class)
+	public void testErrorRethrown() throws IOException {
+		InputStream failing = new InputStream() {
+			private int remaining = 100;
+			@Override
+			public int read() throws IOException {
+				if (this.remaining == 0) {
+					throw new IOException("Source failed.");
+				}
+				this.remaining--;
+				return 'A';
+			}
+		};
+		this.readAll(new PipelinedInputStream(failing));
+	}
+}